@@ -0,0 +1,112 @@
+package com.common.reminder.event;
+
+import com.common.reminder.model.UserActivityLog;
+import com.common.reminder.utils.JacksonUtils;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 用户活动日志事件
+ * reminder-core的ActivityLogAspect在请求线程中生成，经Redis Stream交给reminder-stream-consumer批量写入user_activity_logs。
+ * 消息包含command字段和一个JSON字段log；枚举以名称字符串传递，两端版本不一致时不会因为新增枚举值解析失败。
+ */
+@Data
+@NoArgsConstructor
+public class ActivityLogEvent {
+
+    public static final String COMMAND = "LOG_EVENT";
+
+    public static final String FIELD = "log";
+
+    private Long userId;
+
+    private String sessionId;
+
+    private String action;
+
+    private String status;
+
+    private String resourceType;
+
+    private Long resourceId;
+
+    private String resourceName;
+
+    private String ipAddress;
+
+    private String userAgent;
+
+    private String requestMethod;
+
+    private String requestUrl;
+
+    private String errorMessage;
+
+    private Integer executionTimeMs;
+
+    /**
+     * 详细信息（JSON字符串）
+     */
+    private String details;
+
+    /**
+     * 操作发生时间（毫秒时间戳），写库时作为created_at
+     */
+    private long occurredAt;
+
+    /**
+     * 从活动日志实体生成事件
+     *
+     * @param activityLog 活动日志（尚未保存）
+     * @param occurredAt 操作发生时间（毫秒时间戳）
+     */
+    public static ActivityLogEvent from(UserActivityLog activityLog, long occurredAt) {
+        ActivityLogEvent event = new ActivityLogEvent();
+        event.setUserId(activityLog.getUserId());
+        event.setSessionId(activityLog.getSessionId());
+        event.setAction(activityLog.getAction() == null ? null : activityLog.getAction().name());
+        event.setStatus(activityLog.getStatus() == null ? null : activityLog.getStatus().name());
+        event.setResourceType(activityLog.getResourceType() == null ? null : activityLog.getResourceType().name());
+        event.setResourceId(activityLog.getResourceId());
+        event.setResourceName(activityLog.getResourceName());
+        event.setIpAddress(activityLog.getIpAddress());
+        event.setUserAgent(activityLog.getUserAgent());
+        event.setRequestMethod(activityLog.getRequestMethod());
+        event.setRequestUrl(activityLog.getRequestUrl());
+        event.setErrorMessage(activityLog.getErrorMessage());
+        event.setExecutionTimeMs(activityLog.getExecutionTimeMs());
+        event.setDetails(activityLog.getDetails());
+        event.setOccurredAt(occurredAt);
+        return event;
+    }
+
+    /**
+     * 编码为Stream消息字段
+     */
+    public Map<String, String> toFields() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(JsonStreamEventCodec.COMMAND, COMMAND);
+        fields.put(FIELD, JacksonUtils.toJson(this));
+        return fields;
+    }
+
+    /**
+     * 从Stream消息字段解码
+     *
+     * @throws IllegalArgumentException 缺少log字段或JSON无法解析
+     */
+    public static ActivityLogEvent fromFields(Map<String, String> fields) {
+        String json = fields.get(FIELD);
+        if (json == null || json.isEmpty()) {
+            throw new IllegalArgumentException("缺少字段: " + FIELD);
+        }
+        try {
+            return JacksonUtils.fromJson(json, ActivityLogEvent.class);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("活动日志事件无法解析: " + json, e);
+        }
+    }
+}
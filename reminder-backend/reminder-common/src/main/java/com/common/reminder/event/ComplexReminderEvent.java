@@ -0,0 +1,44 @@
+package com.common.reminder.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 复杂提醒生成/更新事件
+ * 由reminder-core发布到Redis Stream，reminder-stream-consumer消费
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ComplexReminderEvent {
+
+    /**
+     * 事件类型
+     */
+    private StreamEventType type;
+
+    /**
+     * 复杂提醒ID
+     */
+    private Long complexReminderId;
+
+    /**
+     * 要生成的月数
+     */
+    private int monthsAhead;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 事件创建时间（毫秒时间戳）
+     */
+    private long timestamp;
+
+    public static ComplexReminderEvent of(StreamEventType type, Long complexReminderId, int monthsAhead, Long userId) {
+        return new ComplexReminderEvent(type, complexReminderId, monthsAhead, userId, System.currentTimeMillis());
+    }
+}
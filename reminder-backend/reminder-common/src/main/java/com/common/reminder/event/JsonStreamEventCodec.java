@@ -0,0 +1,78 @@
+package com.common.reminder.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 旧格式编码：每个属性一个字段，值为十进制字符串
+ * 旧版本通过Jackson序列化器写入，值可能带有JSON引号，解码时去掉。
+ * 用于兼容升级前写入Stream和发件箱的消息，也用于把事件展开成便于日志和排查的字段。
+ */
+public class JsonStreamEventCodec implements StreamEventCodec {
+
+    public static final String COMMAND = "command";
+
+    private static final String COMPLEX_REMINDER_ID = "complexReminderId";
+
+    private static final String MONTHS_AHEAD = "monthsAhead";
+
+    private static final String USER_ID = "userId";
+
+    private static final String TIMESTAMP = "timestamp";
+
+    @Override
+    public boolean canDecode(Map<String, String> fields) {
+        return fields.containsKey(COMMAND);
+    }
+
+    @Override
+    public Map<String, String> encode(ComplexReminderEvent event) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(COMMAND, event.getType().getCommand());
+        fields.put(COMPLEX_REMINDER_ID, String.valueOf(event.getComplexReminderId()));
+        fields.put(MONTHS_AHEAD, String.valueOf(event.getMonthsAhead()));
+        fields.put(USER_ID, String.valueOf(event.getUserId()));
+        fields.put(TIMESTAMP, String.valueOf(event.getTimestamp()));
+        return fields;
+    }
+
+    @Override
+    public ComplexReminderEvent decode(Map<String, String> fields) {
+        try {
+            String timestamp = unquote(fields.get(TIMESTAMP));
+            return new ComplexReminderEvent(
+                    StreamEventType.fromCommand(required(fields, COMMAND)),
+                    Long.parseLong(required(fields, COMPLEX_REMINDER_ID)),
+                    Integer.parseInt(required(fields, MONTHS_AHEAD)),
+                    Long.parseLong(required(fields, USER_ID)),
+                    timestamp == null || timestamp.isEmpty() ? 0 : Long.parseLong(timestamp));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("事件字段格式错误: " + fields, e);
+        }
+    }
+
+    /**
+     * 去掉值前后多余的双引号（Jackson序列化器写入的字符串值带引号）
+     *
+     * @param value 原始值
+     * @return 去掉引号后的值
+     */
+    public static String unquote(String value) {
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        while (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = unquote(fields.get(name));
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("缺少字段: " + name);
+        }
+        return value;
+    }
+}
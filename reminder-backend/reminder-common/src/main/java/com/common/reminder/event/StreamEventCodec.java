@@ -0,0 +1,34 @@
+package com.common.reminder.event;
+
+import java.util.Map;
+
+/**
+ * Stream事件编解码器
+ * 把类型化事件编码为Stream消息的字段，或从消息字段解码
+ */
+public interface StreamEventCodec {
+
+    /**
+     * 判断消息字段是否是本编码器的格式
+     *
+     * @param fields 消息字段
+     */
+    boolean canDecode(Map<String, String> fields);
+
+    /**
+     * 编码事件
+     *
+     * @param event 事件
+     * @return 消息字段
+     */
+    Map<String, String> encode(ComplexReminderEvent event);
+
+    /**
+     * 解码事件
+     *
+     * @param fields 消息字段
+     * @return 事件
+     * @throws IllegalArgumentException 字段缺失或格式错误
+     */
+    ComplexReminderEvent decode(Map<String, String> fields);
+}
@@ -0,0 +1,62 @@
+package com.common.reminder.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stream事件编解码入口
+ * 发布端统一使用紧凑编码；消费端按字段识别格式，旧格式的消息回退到JSON编码器解码。
+ */
+public final class StreamEventCodecs {
+
+    private static final CompactStreamEventCodec COMPACT = new CompactStreamEventCodec();
+
+    private static final JsonStreamEventCodec JSON = new JsonStreamEventCodec();
+
+    private StreamEventCodecs() {
+    }
+
+    /**
+     * 编码事件（紧凑编码）
+     */
+    public static Map<String, String> encode(ComplexReminderEvent event) {
+        return COMPACT.encode(event);
+    }
+
+    /**
+     * 解码事件，自动识别紧凑编码和旧格式
+     *
+     * @throws IllegalArgumentException 字段缺失或格式错误
+     */
+    public static ComplexReminderEvent decode(Map<String, String> fields) {
+        return COMPACT.canDecode(fields) ? COMPACT.decode(fields) : JSON.decode(fields);
+    }
+
+    /**
+     * 获取消息的命令，不完整解码事件
+     *
+     * @return 命令，没有命令时返回null
+     */
+    public static String command(Map<String, String> fields) {
+        if (COMPACT.canDecode(fields)) {
+            return COMPACT.decodeType(fields).getCommand();
+        }
+        return JsonStreamEventCodec.unquote(fields.get(JsonStreamEventCodec.COMMAND));
+    }
+
+    /**
+     * 把消息字段展开为每个属性一个字段、值不带引号的形式
+     * 紧凑编码的事件解码后展开；其他消息（包括非类型化的通用事件）只去掉值的引号
+     *
+     * @param fields 消息原始字段
+     * @return 展开后的字段
+     */
+    public static Map<String, String> toFields(Map<String, String> fields) {
+        if (COMPACT.canDecode(fields)) {
+            return JSON.encode(COMPACT.decode(fields));
+        }
+        Map<String, String> cleaned = new HashMap<>();
+        fields.forEach((name, value) -> cleaned.put(name, JsonStreamEventCodec.unquote(value)));
+        return cleaned;
+    }
+}
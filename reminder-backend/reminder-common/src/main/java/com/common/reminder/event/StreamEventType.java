@@ -0,0 +1,53 @@
+package com.common.reminder.event;
+
+/**
+ * 提醒事件Stream中的类型化事件
+ * 每种事件有一个单字符类型码，用于紧凑编码
+ */
+public enum StreamEventType {
+
+    /**
+     * 生成复杂提醒的简单提醒实例
+     */
+    GENERATE_COMPLEX_REMINDER("G"),
+
+    /**
+     * 复杂提醒模板更新后同步未来的简单提醒实例
+     */
+    UPDATE_COMPLEX_REMINDER("U");
+
+    private final String code;
+
+    StreamEventType(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 消息command字段的值
+     */
+    public String getCommand() {
+        return name();
+    }
+
+    public static StreamEventType fromCode(String code) {
+        for (StreamEventType type : values()) {
+            if (type.code.equals(code)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的事件类型码: " + code);
+    }
+
+    public static StreamEventType fromCommand(String command) {
+        for (StreamEventType type : values()) {
+            if (type.name().equals(command)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的事件命令: " + command);
+    }
+}
@@ -49,6 +49,13 @@ public class ComplexReminder {
     @Column
     private Integer maxExecutions; // 最大执行次数限制
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "recurrence_rule", length = 32)
+    private RecurrenceRule recurrenceRule; // 节假日/工作日规则，为空等同于NONE
+
+    @Column(name = "recurrence_param")
+    private Integer recurrenceParam; // 规则参数，如每月第N个工作日的N（负数表示倒数）
+
     @Column(name = "last_generated_ym")
     private Integer lastGeneratedYm; // 最后生成简单任务的年月(格式YYYYMM，如202405表示2024年5月)
 
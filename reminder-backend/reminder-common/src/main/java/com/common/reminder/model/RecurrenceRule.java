@@ -0,0 +1,78 @@
+package com.common.reminder.model;
+
+import com.common.reminder.utils.WorkdayCalendar;
+
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+
+/**
+ * 复杂提醒的节假日/工作日规则
+ * 在CRON表达式计算出的触发时间上再按日期过滤，CRON负责时刻，规则负责哪些日期生效
+ */
+public enum RecurrenceRule {
+
+    /**
+     * 不做额外过滤，完全按CRON表达式触发
+     */
+    NONE,
+
+    /**
+     * 跳过法定节假日（含调休放假的日期）
+     */
+    SKIP_HOLIDAYS,
+
+    /**
+     * 只在工作日触发（周一至周五除去放假日，加上调休上班的周末）
+     */
+    WORKDAYS,
+
+    /**
+     * 每月第N个工作日触发，N由recurrenceParam指定，负数表示倒数第N个
+     */
+    NTH_WORKDAY_OF_MONTH;
+
+    /**
+     * 判断复杂提醒在指定日期是否触发
+     * 未设置规则或规则为NONE时不会加载工作日历
+     *
+     * @param template 复杂提醒
+     * @param date 触发日期
+     * @param calendarProvider 按年份获取工作日历
+     * @return 是否在该日期触发
+     */
+    public static boolean allows(ComplexReminder template, LocalDate date, IntFunction<WorkdayCalendar> calendarProvider) {
+        RecurrenceRule rule = template.getRecurrenceRule();
+        if (rule == null || rule == NONE) {
+            return true;
+        }
+        return rule.matches(date, template.getRecurrenceParam(), calendarProvider.apply(date.getYear()));
+    }
+
+    /**
+     * 判断指定日期是否满足规则
+     *
+     * @param date 触发日期
+     * @param param 规则参数（NTH_WORKDAY_OF_MONTH的N）
+     * @param calendar 该日期所在年份的工作日历
+     * @return 是否在该日期触发
+     */
+    public boolean matches(LocalDate date, Integer param, WorkdayCalendar calendar) {
+        switch (this) {
+            case SKIP_HOLIDAYS:
+                return !calendar.isHoliday(date);
+            case WORKDAYS:
+                return calendar.isWorkday(date);
+            case NTH_WORKDAY_OF_MONTH:
+                if (param == null || param == 0 || !calendar.isWorkday(date)) {
+                    return false;
+                }
+                if (param > 0) {
+                    return calendar.workdayOrdinalInMonth(date) == param;
+                }
+                return calendar.workdayOrdinalInMonth(date) - calendar.workdayCountInMonth(date.getMonthValue()) - 1 == param;
+            case NONE:
+            default:
+                return true;
+        }
+    }
+}
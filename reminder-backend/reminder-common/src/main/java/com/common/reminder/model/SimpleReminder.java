@@ -25,8 +25,8 @@ public class SimpleReminder {
     @Column(nullable = false)
     private Long toUserId;   // 接收提醒的用户 ID
 
-    @Column(nullable = false, columnDefinition = "TEXT")
-    private String title;    // 提醒标题
+    @Column(columnDefinition = "TEXT")
+    private String title;    // 提醒标题（模板生成的任务为空，沿用模板标题；非空表示单独修改过）
 
     @Column(columnDefinition = "TEXT")
     private String description; // 提醒描述
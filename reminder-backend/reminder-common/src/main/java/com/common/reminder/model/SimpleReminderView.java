@@ -0,0 +1,46 @@
+package com.common.reminder.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 简单提醒列表视图
+ *
+ * 月视图和即将到来列表只渲染这些字段，不含描述（TEXT）和创建/更新时间，
+ * 描述由详情接口按需读取。由JPQL构造器表达式直接构造，不进入持久化上下文；
+ * 也是月度缓存和即将到来提醒ZSet缓存中的成员类型。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SimpleReminderView {
+
+    private Long id;
+
+    private Long fromUserId;
+
+    private Long toUserId;
+
+    private String title; // 模板生成的任务为空，沿用模板标题
+
+    private OffsetDateTime eventTime;
+
+    private ReminderType reminderType;
+
+    private Long originatingComplexReminderId;
+
+    /**
+     * 由简单提醒构造列表视图
+     * 写入和删除ZSet缓存成员时都经过这里，保证同一提醒序列化结果一致
+     */
+    public static SimpleReminderView of(SimpleReminder reminder) {
+        return new SimpleReminderView(reminder.getId(), reminder.getFromUserId(), reminder.getToUserId(),
+                reminder.getTitle(), reminder.getEventTime(), reminder.getReminderType(),
+                reminder.getOriginatingComplexReminderId());
+    }
+}
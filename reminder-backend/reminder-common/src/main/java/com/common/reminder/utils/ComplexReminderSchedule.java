@@ -0,0 +1,245 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.RecurrenceRule;
+import com.common.reminder.model.SimpleReminder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * 复杂提醒触发时间计算工具类
+ *
+ * core、job、stream-consumer生成和增量同步简单任务、core计算虚拟任务时共用，保证各条路径对同一模板算出相同的触发时间。
+ * 时间统一按中国时区(Asia/Shanghai)计算。
+ */
+@Slf4j
+public class ComplexReminderSchedule {
+
+    public static final ZoneId CHINA_ZONE = ZoneId.of("Asia/Shanghai");
+
+    private ComplexReminderSchedule() {
+    }
+
+    /**
+     * 计算复杂提醒在生成窗口内的所有触发时间
+     * 生成窗口为当前时间之后（或从validFrom当天零点起，取较晚者）到目标月份月底（或validUntil，取较早者）
+     * maxExecutions按模板整个生命周期计算，见 {@link #countOccurrencesUntil}
+     *
+     * @param complexReminder 复杂提醒对象
+     * @param monthsAhead 要生成的月数
+     * @param now 当前时间（中国时区）
+     * @param calendars 按年份获取工作日历，用于节假日/工作日规则过滤
+     * @return 触发时间列表，CRON表达式无效时返回空列表
+     */
+    public static List<OffsetDateTime> calculateOccurrenceTimes(ComplexReminder complexReminder, int monthsAhead,
+                                                                ZonedDateTime now,
+                                                                IntFunction<WorkdayCalendar> calendars) {
+        // 计算目标月份（当前月份+monthsAhead）的最后一天，结束时间为当天23:59:59
+        LocalDate lastDayOfTargetMonth = now.toLocalDate().withDayOfMonth(1)
+                .plusMonths(monthsAhead).minusDays(1);
+        ZonedDateTime endTime = lastDayOfTargetMonth.atTime(23, 59, 59).atZone(now.getZone());
+        return calculateOccurrenceTimesBetween(complexReminder, now, endTime, calendars);
+    }
+
+    /**
+     * 计算复杂提醒在指定月份内的所有触发时间（按中国时区划分月份）
+     * 与生成窗口使用同一套有效期裁剪、节假日规则和maxExecutions计数，用于物化窗口之外月份的虚拟任务
+     *
+     * @param complexReminder 复杂提醒对象
+     * @param yearMonth 目标月份
+     * @param calendars 按年份获取工作日历，用于节假日/工作日规则过滤
+     * @return 触发时间列表，CRON表达式无效时返回空列表
+     */
+    public static List<OffsetDateTime> calculateMonthOccurrenceTimes(ComplexReminder complexReminder,
+                                                                     YearMonth yearMonth,
+                                                                     IntFunction<WorkdayCalendar> calendars) {
+        // cron.next 返回严格晚于参数的时间，从月初前一秒开始以包含零点
+        ZonedDateTime after = yearMonth.atDay(1).atStartOfDay(CHINA_ZONE).minusSeconds(1);
+        ZonedDateTime endTime = yearMonth.atEndOfMonth().atTime(23, 59, 59).atZone(CHINA_ZONE);
+        return calculateOccurrenceTimesBetween(complexReminder, after, endTime, calendars);
+    }
+
+    /**
+     * 计算复杂提醒在 (after, endTime] 内的触发时间，先按validFrom、validUntil裁剪区间
+     */
+    private static List<OffsetDateTime> calculateOccurrenceTimesBetween(ComplexReminder complexReminder,
+                                                                        ZonedDateTime after, ZonedDateTime endTime,
+                                                                        IntFunction<WorkdayCalendar> calendars) {
+        List<OffsetDateTime> occurrences = new ArrayList<>();
+        CronExpression cron = parseCron(complexReminder);
+        if (cron == null) {
+            return occurrences;
+        }
+
+        ZoneId zone = after.getZone();
+
+        // 设置起始时间（区间起点或validFrom，取较晚者）
+        // cron.next 返回严格晚于参数的时间，从validFrom开始时回退一秒以包含零点
+        ZonedDateTime startTime = after;
+        if (complexReminder.getValidFrom() != null) {
+            ZonedDateTime validFromTime = complexReminder.getValidFrom().atStartOfDay(zone);
+            if (validFromTime.isAfter(after)) {
+                startTime = validFromTime.minusSeconds(1);
+            }
+        }
+
+        // 如果有validUntil且在区间结束之前，则使用validUntil
+        if (complexReminder.getValidUntil() != null) {
+            ZonedDateTime validUntilTime = complexReminder.getValidUntil().atTime(23, 59, 59).atZone(zone);
+            if (validUntilTime.isBefore(endTime)) {
+                endTime = validUntilTime;
+            }
+        }
+        if (!startTime.isBefore(endTime)) {
+            return occurrences;
+        }
+
+        // 最大执行次数：先统计区间之前已经发生的次数
+        Integer maxExecutions = complexReminder.getMaxExecutions();
+        int executed = 0;
+        if (maxExecutions != null) {
+            executed = countOccurrencesUntil(cron, complexReminder, startTime, maxExecutions, calendars);
+        }
+
+        ZonedDateTime nextTime = startTime;
+        while (true) {
+            // 计算下一个执行时间
+            nextTime = cron.next(nextTime);
+
+            // 如果超出了指定范围或validUntil，则停止
+            if (nextTime == null || nextTime.isAfter(endTime)) {
+                break;
+            }
+
+            // 如果已经达到最大执行次数限制，则停止
+            if (maxExecutions != null && executed >= maxExecutions) {
+                break;
+            }
+
+            // 节假日/工作日规则过滤
+            if (!RecurrenceRule.allows(complexReminder, nextTime.toLocalDate(), calendars)) {
+                continue;
+            }
+
+            // 转换为OffsetDateTime，确保使用中国时区的偏移量
+            occurrences.add(nextTime.toOffsetDateTime());
+            executed++;
+        }
+        return occurrences;
+    }
+
+    /**
+     * 统计模板从生效起点到指定时间（含）之间的触发次数，达到上限即停止计数
+     *
+     * 生效起点为validFrom当天零点，未设置时为模板创建时间。物化生成、增量同步和虚拟任务都按这一规则
+     * 计算maxExecutions，已经过去的触发次数无论是否入库都计入，保证各条路径对同一模板得到相同的最后一次触发。
+     *
+     * @param cron 已解析的CRON表达式
+     * @param template 复杂提醒模板
+     * @param until 统计截止时间（含）
+     * @param limit 计数上限
+     * @param calendars 按年份获取工作日历
+     * @return 触发次数，不超过limit
+     */
+    public static int countOccurrencesUntil(CronExpression cron, ComplexReminder template, ZonedDateTime until,
+                                            int limit, IntFunction<WorkdayCalendar> calendars) {
+        ZoneId zone = until.getZone();
+        ZonedDateTime origin;
+        if (template.getValidFrom() != null) {
+            origin = template.getValidFrom().atStartOfDay(zone);
+        } else if (template.getCreatedAt() != null) {
+            origin = template.getCreatedAt().atZoneSameInstant(zone);
+        } else {
+            return 0;
+        }
+
+        int count = 0;
+        ZonedDateTime nextTime = origin.minusSeconds(1);
+        while (count < limit) {
+            nextTime = cron.next(nextTime);
+            if (nextTime == null || nextTime.isAfter(until)) {
+                break;
+            }
+            if (RecurrenceRule.allows(template, nextTime.toLocalDate(), calendars)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 计算生成完成后的lastGeneratedYm (格式 YYYYMM)
+     * 如果有validUntil且在目标月份之前，则使用validUntil的年月
+     */
+    public static int calculateTargetYearMonth(ComplexReminder complexReminder, int monthsAhead, ZonedDateTime now) {
+        int targetYear = now.getYear() + (now.getMonthValue() + monthsAhead - 1) / 12;
+        int targetMonth = (now.getMonthValue() + monthsAhead - 1) % 12 + 1;
+        int targetYearMonth = targetYear * 100 + targetMonth;
+
+        if (complexReminder.getValidUntil() != null) {
+            LocalDate validUntil = complexReminder.getValidUntil();
+            int validUntilYm = validUntil.getYear() * 100 + validUntil.getMonthValue();
+            if (validUntilYm < targetYearMonth) {
+                targetYearMonth = validUntilYm;
+            }
+        }
+        return targetYearMonth;
+    }
+
+    /**
+     * 判断已生成的简单任务与模板的字段是否不一致
+     */
+    public static boolean isTemplateFieldsChanged(SimpleReminder instance, ComplexReminder template) {
+        return !Objects.equals(instance.getFromUserId(), template.getFromUserId())
+                || !Objects.equals(instance.getToUserId(), template.getToUserId())
+                || instance.getReminderType() != template.getReminderType();
+    }
+
+    /**
+     * 从复杂提醒模板创建简单提醒实例
+     * 标题和描述不复制，读取和发送时从模板补全；createdAt和updatedAt由Hibernate自动设置
+     */
+    public static SimpleReminder createInstance(ComplexReminder template, OffsetDateTime eventTime) {
+        SimpleReminder instance = new SimpleReminder();
+        instance.setFromUserId(template.getFromUserId());
+        instance.setToUserId(template.getToUserId());
+        instance.setEventTime(eventTime);
+        instance.setReminderType(template.getReminderType());
+        instance.setOriginatingComplexReminderId(template.getId());
+        return instance;
+    }
+
+    /**
+     * 解析模板的CRON表达式，5段表达式补齐秒字段
+     *
+     * @return 解析结果，表达式为空或无效时返回null
+     */
+    public static CronExpression parseCron(ComplexReminder template) {
+        String cronExpression = template.getCronExpression();
+        if (cronExpression == null || cronExpression.trim().isEmpty()) {
+            log.error("复杂提醒ID: {} 的CRON表达式为空", template.getId());
+            return null;
+        }
+
+        String normalized = cronExpression.trim();
+        if (normalized.split("\\s+").length == 5) {
+            normalized = "0 " + normalized;
+        }
+        try {
+            return CronExpression.parse(normalized);
+        } catch (IllegalArgumentException e) {
+            log.error("复杂提醒ID: {} 的CRON表达式无效: {}", template.getId(), cronExpression);
+            return null;
+        }
+    }
+}
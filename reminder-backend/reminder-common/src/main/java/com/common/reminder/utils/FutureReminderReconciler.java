@@ -0,0 +1,131 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.ReminderType;
+import com.common.reminder.model.SimpleReminder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * 复杂提醒更新后按新模板增量同步未来的简单任务
+ *
+ * core同步更新和stream-consumer异步更新共用同一套逻辑：
+ * 1. 计算新模板在生成窗口内的触发时间集合
+ * 2. 查询当前时间之后已生成的简单任务
+ * 3. 删除不再出现的触发时间，对保留的记录执行一条UPDATE同步模板字段，只插入新增的触发时间
+ * 已经过去的简单任务保持不变。调用方负责事务，并在watermark前移时保存模板。
+ */
+@Slf4j
+public class FutureReminderReconciler {
+
+    private FutureReminderReconciler() {
+    }
+
+    /**
+     * 增量同步需要的简单任务读写操作，由各模块的SimpleReminderRepository实现
+     * 新增的触发时间通过 {@link GeneratedReminderStore} 插入，已存在的跳过
+     */
+    public interface Store extends GeneratedReminderStore {
+
+        List<SimpleReminder> findByOriginatingComplexReminderIdAndEventTimeAfterOrderByEventTimeAsc(
+                Long originatingComplexReminderId, OffsetDateTime currentTime);
+
+        int deleteByIdIn(Collection<Long> ids);
+
+        int updateTemplateFieldsByOriginatingComplexReminderIdAndEventTimeAfter(
+                Long originatingComplexReminderId, OffsetDateTime currentTime,
+                Long fromUserId, Long toUserId, ReminderType reminderType, OffsetDateTime updatedAt);
+    }
+
+    /**
+     * 按新模板增量同步未来的简单任务
+     *
+     * @param complexReminder 复杂提醒对象（已更新）
+     * @param monthsAhead 要生成的月数
+     * @param calendars 按年份获取工作日历
+     * @param store 简单任务读写
+     * @return lastGeneratedYm发生变化时返回true，调用方需保存模板
+     */
+    public static boolean reconcile(ComplexReminder complexReminder, int monthsAhead,
+                                    IntFunction<WorkdayCalendar> calendars, Store store) {
+        ZonedDateTime now = ZonedDateTime.now(ComplexReminderSchedule.CHINA_ZONE);
+        OffsetDateTime currentTime = now.toOffsetDateTime();
+
+        // 新模板对应的触发时间集合（使用Instant比较，避免数据库返回的时区偏移不同导致误判）
+        List<OffsetDateTime> newOccurrences =
+                ComplexReminderSchedule.calculateOccurrenceTimes(complexReminder, monthsAhead, now, calendars);
+        Set<Instant> newInstants = new HashSet<>();
+        for (OffsetDateTime occurrence : newOccurrences) {
+            newInstants.add(occurrence.toInstant());
+        }
+
+        // 已生成的未来简单任务
+        List<SimpleReminder> existingReminders = store
+                .findByOriginatingComplexReminderIdAndEventTimeAfterOrderByEventTimeAsc(complexReminder.getId(), currentTime);
+
+        Map<Instant, SimpleReminder> keptReminders = new LinkedHashMap<>();
+        List<Long> staleIds = new ArrayList<>();
+        for (SimpleReminder existing : existingReminders) {
+            Instant eventInstant = existing.getEventTime().toInstant();
+            // 不在新集合中的触发时间，或同一触发时间的重复记录，都需要删除
+            if (newInstants.contains(eventInstant) && !keptReminders.containsKey(eventInstant)) {
+                keptReminders.put(eventInstant, existing);
+            } else {
+                staleIds.add(existing.getId());
+            }
+        }
+
+        // 删除消失的触发时间
+        int deletedCount = 0;
+        if (!staleIds.isEmpty()) {
+            deletedCount = store.deleteByIdIn(staleIds);
+        }
+
+        // 保留的记录只在模板字段确实发生变化时才执行一次批量UPDATE
+        int updatedCount = 0;
+        boolean templateChanged = keptReminders.values().stream()
+                .anyMatch(existing -> ComplexReminderSchedule.isTemplateFieldsChanged(existing, complexReminder));
+        if (templateChanged) {
+            updatedCount = store.updateTemplateFieldsByOriginatingComplexReminderIdAndEventTimeAfter(
+                    complexReminder.getId(), currentTime,
+                    complexReminder.getFromUserId(), complexReminder.getToUserId(),
+                    complexReminder.getReminderType(), currentTime);
+        }
+
+        // 只插入新增的触发时间
+        List<SimpleReminder> batchToSave = new ArrayList<>();
+        for (OffsetDateTime occurrence : newOccurrences) {
+            if (!keptReminders.containsKey(occurrence.toInstant())) {
+                batchToSave.add(ComplexReminderSchedule.createInstance(complexReminder, occurrence));
+            }
+        }
+        int insertedCount = 0;
+        if (!batchToSave.isEmpty()) {
+            insertedCount = store.insertAllIgnoringDuplicates(batchToSave).size();
+        }
+
+        log.info("复杂提醒ID: {} 增量更新完成 - 保留: {}, 批量更新: {}, 删除: {}, 新增: {}",
+                complexReminder.getId(), keptReminders.size(), updatedCount, deletedCount, insertedCount);
+
+        // 更新lastGeneratedYm字段 - 使用目标月份
+        // 窗口内没有触发时间也要设置，与生成路径一致，否则读端会认为生成未完成而反复请求生成
+        int targetYearMonth = ComplexReminderSchedule.calculateTargetYearMonth(complexReminder, monthsAhead, now);
+        if (Integer.valueOf(targetYearMonth).equals(complexReminder.getLastGeneratedYm())) {
+            return false;
+        }
+        complexReminder.setLastGeneratedYm(targetYearMonth);
+        log.info("更新复杂提醒ID: {} 的lastGeneratedYm为: {}", complexReminder.getId(), targetYearMonth);
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.SimpleReminder;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模板生成的简单任务写入
+ *
+ * 同一模板同一触发时间只能有一条简单任务（唯一索引 uk_simple_reminder_complex_event_time）。
+ * 生成和同步时逐条 INSERT ... ON CONFLICT DO NOTHING，已存在的触发时间直接跳过，
+ * 重复投递或多个实例同时生成同一模板时不会产生重复任务，也不会因唯一索引冲突整批失败。
+ * 由core、job、stream-consumer的SimpleReminderRepository实现。
+ */
+public interface GeneratedReminderStore {
+
+    /**
+     * 插入一条模板生成的简单任务，同一模板同一触发时间已存在时不插入
+     *
+     * @return 新记录的ID，已存在时返回null
+     */
+    Long insertIgnoringDuplicate(Long fromUserId, Long toUserId, String title, String description,
+                                 OffsetDateTime eventTime, String reminderType,
+                                 Long originatingComplexReminderId, OffsetDateTime createdAt);
+
+    /**
+     * 逐条插入模板生成的简单任务，跳过已存在的触发时间
+     * 简单任务使用自增主键，Hibernate也无法批量插入，逐条执行不增加语句数
+     *
+     * @param reminders 要插入的简单任务
+     * @return 实际插入的简单任务，已回填ID和创建时间
+     */
+    default List<SimpleReminder> insertAllIgnoringDuplicates(List<SimpleReminder> reminders) {
+        List<SimpleReminder> inserted = new ArrayList<>(reminders.size());
+        for (SimpleReminder reminder : reminders) {
+            OffsetDateTime now = OffsetDateTime.now();
+            Long id = insertIgnoringDuplicate(reminder.getFromUserId(), reminder.getToUserId(),
+                    reminder.getTitle(), reminder.getDescription(), reminder.getEventTime(),
+                    reminder.getReminderType().name(), reminder.getOriginatingComplexReminderId(), now);
+            if (id != null) {
+                reminder.setId(id);
+                reminder.setCreatedAt(now);
+                reminder.setUpdatedAt(now);
+                inserted.add(reminder);
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,51 @@
+package com.common.reminder.utils;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+
+/**
+ * 月份时间区间
+ *
+ * 月份按中国时区划分，表示为 [月初零点, 下月初零点) 的半开区间。
+ * 按月查询简单提醒时用区间条件比较 event_time，可以使用 (to_user_id, event_time) 等索引，
+ * 而不是对每行计算 YEAR/MONTH；core、job共用。
+ */
+public final class MonthRange {
+
+    private final OffsetDateTime start;
+
+    private final OffsetDateTime end;
+
+    private MonthRange(OffsetDateTime start, OffsetDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @param year 年份
+     * @param month 月份(1-12)
+     * @return 该月的时间区间
+     */
+    public static MonthRange of(int year, int month) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        return new MonthRange(monthStart(yearMonth), monthStart(yearMonth.plusMonths(1)));
+    }
+
+    /**
+     * 月初零点（包含）
+     */
+    public OffsetDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * 下月初零点（不包含）
+     */
+    public OffsetDateTime getEnd() {
+        return end;
+    }
+
+    private static OffsetDateTime monthStart(YearMonth yearMonth) {
+        return yearMonth.atDay(1).atStartOfDay(ComplexReminderSchedule.CHINA_ZONE).toOffsetDateTime();
+    }
+}
@@ -0,0 +1,45 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.SimpleReminder;
+
+/**
+ * 模板生成的简单任务文本工具类
+ *
+ * 由复杂提醒生成的简单任务只存储模板ID和执行时间，title为空表示标题和描述沿用模板；
+ * 单独修改过文本的任务会保存自己的title/description，视为该次任务的覆盖值。
+ */
+public class ReminderTemplateUtils {
+
+    private ReminderTemplateUtils() {
+    }
+
+    /**
+     * 判断简单任务是否需要从模板补全文本
+     */
+    public static boolean inheritsTemplateText(Long originatingComplexReminderId, String title) {
+        return originatingComplexReminderId != null && title == null;
+    }
+
+    /**
+     * 判断简单任务是否需要从模板补全文本
+     */
+    public static boolean inheritsTemplateText(SimpleReminder reminder) {
+        return reminder != null
+                && inheritsTemplateText(reminder.getOriginatingComplexReminderId(), reminder.getTitle());
+    }
+
+    /**
+     * 用模板的标题和描述补全简单任务
+     *
+     * @param reminder 简单任务
+     * @param template 生成该任务的复杂提醒，为空时不做处理
+     */
+    public static void applyTemplateText(SimpleReminder reminder, ComplexReminder template) {
+        if (template == null || !inheritsTemplateText(reminder)) {
+            return;
+        }
+        reminder.setTitle(template.getTitle());
+        reminder.setDescription(template.getDescription());
+    }
+}
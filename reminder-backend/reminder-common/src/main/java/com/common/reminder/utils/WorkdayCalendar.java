@@ -0,0 +1,113 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.LegalHoliday;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * 年度工作日历
+ *
+ * 按年份用两个位图记录每一天是否为工作日、是否为放假日（下标为dayOfYear-1），
+ * 由legal_holiday表数据构建：holiday=true为放假日，holiday=false为调休上班日，
+ * 其余日期按周一至周五为工作日处理。构建后判断单日为O(1)。
+ */
+public final class WorkdayCalendar {
+
+    private final int year;
+    private final BitSet workdays;
+    private final BitSet holidays;
+
+    private WorkdayCalendar(int year, BitSet workdays, BitSet holidays) {
+        this.year = year;
+        this.workdays = workdays;
+        this.holidays = holidays;
+    }
+
+    /**
+     * 根据法定节假日数据构建指定年份的工作日历
+     *
+     * @param year 年份
+     * @param entries 该年份的节假日/调休记录，可以为空（此时只按周一至周五计算）
+     * @return 工作日历
+     */
+    public static WorkdayCalendar build(int year, Collection<LegalHoliday> entries) {
+        int days = Year.of(year).length();
+        BitSet workdays = new BitSet(days);
+        BitSet holidays = new BitSet(days);
+
+        LocalDate date = LocalDate.of(year, 1, 1);
+        for (int i = 0; i < days; i++, date = date.plusDays(1)) {
+            DayOfWeek dayOfWeek = date.getDayOfWeek();
+            if (dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY) {
+                workdays.set(i);
+            }
+        }
+
+        if (entries != null) {
+            for (LegalHoliday entry : entries) {
+                if (entry.getYear() == null || entry.getYear() != year
+                        || entry.getMonth() == null || entry.getDay() == null) {
+                    continue;
+                }
+                int index = LocalDate.of(year, entry.getMonth(), entry.getDay()).getDayOfYear() - 1;
+                if (Boolean.TRUE.equals(entry.getHoliday())) {
+                    holidays.set(index);
+                    workdays.clear(index);
+                } else {
+                    workdays.set(index);
+                }
+            }
+        }
+        return new WorkdayCalendar(year, workdays, holidays);
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * 是否为工作日（含调休上班日）
+     */
+    public boolean isWorkday(LocalDate date) {
+        return workdays.get(indexOf(date));
+    }
+
+    /**
+     * 是否为法定放假日
+     */
+    public boolean isHoliday(LocalDate date) {
+        return holidays.get(indexOf(date));
+    }
+
+    /**
+     * 日期在当月工作日中的序号（从1开始），非工作日返回0
+     */
+    public int workdayOrdinalInMonth(LocalDate date) {
+        int index = indexOf(date);
+        if (!workdays.get(index)) {
+            return 0;
+        }
+        int monthStart = index - date.getDayOfMonth() + 1;
+        return workdays.get(monthStart, index + 1).cardinality();
+    }
+
+    /**
+     * 指定月份的工作日总数
+     */
+    public int workdayCountInMonth(int month) {
+        LocalDate first = LocalDate.of(year, month, 1);
+        int monthStart = first.getDayOfYear() - 1;
+        return workdays.get(monthStart, monthStart + first.lengthOfMonth()).cardinality();
+    }
+
+    private int indexOf(LocalDate date) {
+        if (date.getYear() != year) {
+            throw new IllegalArgumentException("日期 " + date + " 不属于 " + year + " 年的工作日历");
+        }
+        return date.getDayOfYear() - 1;
+    }
+}
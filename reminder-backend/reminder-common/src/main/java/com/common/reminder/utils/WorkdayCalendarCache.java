@@ -0,0 +1,91 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.LegalHoliday;
+import com.common.reminder.model.RecurrenceRule;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * 工作日历缓存
+ * 按年份从legal_holiday表构建工作日位图并缓存，用于复杂提醒的节假日/工作日规则过滤
+ *
+ * 只读取数据库，不调用外部节假日接口：缺失年份的数据由core模块的预加载或管理接口拉取入库。
+ * 数据缺失的年份暂按周一至周五计算，隔 {@link #EMPTY_YEAR_RETRY_MILLIS} 重新读取一次。
+ * core、job、stream-consumer共用，各模块以自己的LegalHolidayRepository作为数据来源创建实例。
+ */
+@Slf4j
+public class WorkdayCalendarCache {
+
+    /**
+     * 节假日数据缺失的年份重新读取的间隔
+     */
+    public static final long EMPTY_YEAR_RETRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final IntFunction<List<LegalHoliday>> holidayLoader;
+
+    // 年份 -> 工作日历
+    private final ConcurrentHashMap<Integer, WorkdayCalendar> calendarCache = new ConcurrentHashMap<>();
+
+    // 节假日数据缺失的年份 -> 构建时间
+    private final ConcurrentHashMap<Integer, Long> emptyYearBuiltAt = new ConcurrentHashMap<>();
+
+    /**
+     * @param holidayLoader 按年份读取节假日/调休记录
+     */
+    public WorkdayCalendarCache(IntFunction<List<LegalHoliday>> holidayLoader) {
+        this.holidayLoader = holidayLoader;
+    }
+
+    /**
+     * 获取指定年份的工作日历（按年缓存）
+     */
+    public WorkdayCalendar getWorkdayCalendar(int year) {
+        WorkdayCalendar calendar = calendarCache.get(year);
+        Long emptyBuiltAt = emptyYearBuiltAt.get(year);
+        if (calendar != null
+                && (emptyBuiltAt == null || System.currentTimeMillis() - emptyBuiltAt < EMPTY_YEAR_RETRY_MILLIS)) {
+            return calendar;
+        }
+
+        List<LegalHoliday> entries = holidayLoader.apply(year);
+        calendar = WorkdayCalendar.build(year, entries);
+        calendarCache.put(year, calendar);
+        if (entries.isEmpty()) {
+            emptyYearBuiltAt.put(year, System.currentTimeMillis());
+            log.warn("{}年没有节假日数据，暂按周一至周五计算工作日", year);
+        } else {
+            emptyYearBuiltAt.remove(year);
+            log.info("已构建{}年工作日历，节假日/调休记录 {} 条", year, entries.size());
+        }
+        return calendar;
+    }
+
+    /**
+     * 判断复杂提醒在指定日期是否满足其节假日/工作日规则
+     */
+    public boolean matchesRecurrenceRule(ComplexReminder template, LocalDate date) {
+        return RecurrenceRule.allows(template, date, this::getWorkdayCalendar);
+    }
+
+    /**
+     * 清除指定年份的工作日历，节假日数据入库或变更后调用
+     */
+    public void evict(int year) {
+        calendarCache.remove(year);
+        emptyYearBuiltAt.remove(year);
+    }
+
+    /**
+     * 清除所有年份的工作日历
+     */
+    public void clear() {
+        calendarCache.clear();
+        emptyYearBuiltAt.clear();
+    }
+}
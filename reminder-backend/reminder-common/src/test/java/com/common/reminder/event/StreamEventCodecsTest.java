@@ -0,0 +1,171 @@
+package com.common.reminder.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamEventCodecsTest {
+
+    private static final int ITERATIONS = 200_000;
+
+    private static final int ROUNDS = 5;
+
+    @Test
+    void testCompactRoundTrip() {
+        ComplexReminderEvent event = new ComplexReminderEvent(
+                StreamEventType.UPDATE_COMPLEX_REMINDER, 123456L, 3, 987654321L, 1760000000000L);
+
+        Map<String, String> fields = StreamEventCodecs.encode(event);
+
+        assertEquals(1, fields.size());
+        assertTrue(fields.containsKey(CompactStreamEventCodec.FIELD));
+        assertEquals(event, StreamEventCodecs.decode(fields));
+        assertEquals("UPDATE_COMPLEX_REMINDER", StreamEventCodecs.command(fields));
+    }
+
+    @Test
+    void testCompactDecodeWithJacksonQuotes() {
+        ComplexReminderEvent event = ComplexReminderEvent.of(StreamEventType.GENERATE_COMPLEX_REMINDER, 1L, 12, 2L);
+        String value = StreamEventCodecs.encode(event).get(CompactStreamEventCodec.FIELD);
+
+        // 通过Jackson序列化器写入的值带有引号
+        Map<String, String> fields = new HashMap<>();
+        fields.put(CompactStreamEventCodec.FIELD, "\"" + value + "\"");
+
+        assertEquals(event, StreamEventCodecs.decode(fields));
+    }
+
+    @Test
+    void testLegacyFallback() {
+        // 升级前写入Stream的旧格式消息
+        Map<String, String> fields = new HashMap<>();
+        fields.put("command", "\"GENERATE_COMPLEX_REMINDER\"");
+        fields.put("complexReminderId", "\"42\"");
+        fields.put("monthsAhead", "\"6\"");
+        fields.put("userId", "\"7\"");
+        fields.put("timestamp", "\"1760000000000\"");
+
+        ComplexReminderEvent event = StreamEventCodecs.decode(fields);
+
+        assertEquals(StreamEventType.GENERATE_COMPLEX_REMINDER, event.getType());
+        assertEquals(42L, event.getComplexReminderId());
+        assertEquals(6, event.getMonthsAhead());
+        assertEquals(7L, event.getUserId());
+        assertEquals(1760000000000L, event.getTimestamp());
+        assertEquals("GENERATE_COMPLEX_REMINDER", StreamEventCodecs.command(fields));
+    }
+
+    @Test
+    void testToFieldsExpandsCompactEvent() {
+        ComplexReminderEvent event = new ComplexReminderEvent(
+                StreamEventType.GENERATE_COMPLEX_REMINDER, 42L, 6, 7L, 1760000000000L);
+
+        Map<String, String> fields = StreamEventCodecs.toFields(StreamEventCodecs.encode(event));
+
+        assertEquals("GENERATE_COMPLEX_REMINDER", fields.get("command"));
+        assertEquals("42", fields.get("complexReminderId"));
+        assertEquals("6", fields.get("monthsAhead"));
+        assertEquals("7", fields.get("userId"));
+        assertEquals(event, StreamEventCodecs.decode(fields));
+    }
+
+    @Test
+    void testToFieldsKeepsGenericEvent() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("command", "\"LOG_EVENT\"");
+        fields.put("message", "\"hello\"");
+
+        Map<String, String> expanded = StreamEventCodecs.toFields(fields);
+
+        assertEquals("LOG_EVENT", expanded.get("command"));
+        assertEquals("hello", expanded.get("message"));
+    }
+
+    @Test
+    void testRejectUnknownVersion() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(CompactStreamEventCodec.FIELD, "2|G|1|1|1|1|x");
+
+        assertThrows(IllegalArgumentException.class, () -> StreamEventCodecs.decode(fields));
+    }
+
+    @Test
+    void testRejectMalformedValue() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(CompactStreamEventCodec.FIELD, "1|G|not-a-number|1|1|1");
+
+        assertThrows(IllegalArgumentException.class, () -> StreamEventCodecs.decode(fields));
+    }
+
+    @Test
+    void testCompactSize() {
+        ComplexReminderEvent event = new ComplexReminderEvent(
+                StreamEventType.UPDATE_COMPLEX_REMINDER, 123456L, 3, 987654321L, 1760000000000L);
+        JsonStreamEventCodec jsonCodec = new JsonStreamEventCodec();
+
+        Map<String, String> compactFields = StreamEventCodecs.encode(event);
+        Map<String, String> legacyFields = legacyEncode(jsonCodec, event);
+        int compactSize = payloadSize(compactFields);
+        int legacySize = payloadSize(legacyFields);
+        assertTrue(compactSize * 2 < legacySize, "紧凑编码应小于旧格式的一半: " + compactSize + " vs " + legacySize);
+    }
+
+    /**
+     * 编解码吞吐基准，默认不执行，使用 mvn test -Dbenchmark=true 开启
+     * 紧凑编码的编解码速率不应低于旧的JSON格式
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkCompactThroughput() {
+        ComplexReminderEvent event = new ComplexReminderEvent(
+                StreamEventType.UPDATE_COMPLEX_REMINDER, 123456L, 3, 987654321L, 1760000000000L);
+        JsonStreamEventCodec jsonCodec = new JsonStreamEventCodec();
+
+        long compactNanos = measure(() -> StreamEventCodecs.decode(StreamEventCodecs.encode(event)));
+        long legacyNanos = measure(() -> StreamEventCodecs.decode(legacyEncode(jsonCodec, event)));
+
+        double compactRate = ITERATIONS * 1e9 / compactNanos;
+        double legacyRate = ITERATIONS * 1e9 / legacyNanos;
+        assertTrue(compactRate >= legacyRate,
+                String.format("紧凑编码吞吐不应低于旧格式: %.0f 次/秒 vs %.0f 次/秒", compactRate, legacyRate));
+    }
+
+    /**
+     * 旧格式的值由Jackson序列化器写入，带引号
+     */
+    private static Map<String, String> legacyEncode(JsonStreamEventCodec jsonCodec, ComplexReminderEvent event) {
+        Map<String, String> legacyFields = new HashMap<>();
+        jsonCodec.encode(event).forEach((name, value) -> legacyFields.put(name, "\"" + value + "\""));
+        return legacyFields;
+    }
+
+    private static int payloadSize(Map<String, String> fields) {
+        int size = 0;
+        for (Map.Entry<String, String> entry : fields.entrySet()) {
+            size += entry.getKey().length() + entry.getValue().length();
+        }
+        return size;
+    }
+
+    /**
+     * 预热后执行多轮，取最快一轮的耗时，减少GC和JIT带来的抖动
+     */
+    private static long measure(Runnable roundTrip) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            roundTrip.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                roundTrip.run();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,63 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.ReminderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComplexReminderScheduleTest {
+
+    private static final IntFunction<WorkdayCalendar> NO_HOLIDAYS =
+            year -> WorkdayCalendar.build(year, Collections.emptyList());
+
+    private ComplexReminder template;
+
+    @BeforeEach
+    void setUp() {
+        template = new ComplexReminder();
+        template.setId(10L);
+        template.setFromUserId(1L);
+        template.setToUserId(2L);
+        template.setCronExpression("0 9 * * MON");
+        template.setReminderType(ReminderType.EMAIL);
+    }
+
+    @Test
+    void testMaxExecutionsCountsFromOrigin() {
+        // 2029年12月的周一：3、10、17、24、31日，20日之前已经触发3次
+        template.setValidFrom(LocalDate.of(2029, 12, 1));
+        template.setMaxExecutions(6);
+        ZonedDateTime now = LocalDate.of(2029, 12, 20).atTime(10, 0).atZone(ComplexReminderSchedule.CHINA_ZONE);
+
+        List<OffsetDateTime> occurrences =
+                ComplexReminderSchedule.calculateOccurrenceTimes(template, 2, now, NO_HOLIDAYS);
+
+        assertEquals(3, occurrences.size());
+        assertEquals(24, occurrences.get(0).getDayOfMonth());
+        assertEquals(31, occurrences.get(1).getDayOfMonth());
+        assertEquals(LocalDate.of(2030, 1, 7), occurrences.get(2).toLocalDate());
+    }
+
+    @Test
+    void testWindowIncludesValidFromMidnight() {
+        template.setCronExpression("0 0 * * *");
+        template.setValidFrom(LocalDate.of(2030, 1, 1));
+        template.setValidUntil(LocalDate.of(2030, 1, 3));
+        ZonedDateTime now = LocalDate.of(2029, 12, 20).atTime(10, 0).atZone(ComplexReminderSchedule.CHINA_ZONE);
+
+        List<OffsetDateTime> occurrences =
+                ComplexReminderSchedule.calculateOccurrenceTimes(template, 2, now, NO_HOLIDAYS);
+
+        assertEquals(3, occurrences.size());
+        assertEquals(LocalDate.of(2030, 1, 1), occurrences.get(0).toLocalDate());
+    }
+}
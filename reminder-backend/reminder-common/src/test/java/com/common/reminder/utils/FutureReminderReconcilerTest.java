@@ -0,0 +1,217 @@
+package com.common.reminder.utils;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.ReminderType;
+import com.common.reminder.model.SimpleReminder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FutureReminderReconcilerTest {
+
+    private static final IntFunction<WorkdayCalendar> NO_HOLIDAYS =
+            year -> WorkdayCalendar.build(year, Collections.emptyList());
+
+    private ComplexReminder template;
+
+    private FakeStore store;
+
+    @BeforeEach
+    void setUp() {
+        template = new ComplexReminder();
+        template.setId(10L);
+        template.setFromUserId(1L);
+        template.setToUserId(2L);
+        template.setCronExpression("0 9 * * *");
+        template.setReminderType(ReminderType.EMAIL);
+        store = new FakeStore();
+    }
+
+    @Test
+    void testShrinkWindowDeletesOccurrencesBeyondTarget() {
+        FutureReminderReconciler.reconcile(template, 3, NO_HOLIDAYS, store);
+        OffsetDateTime endOfCurrentMonth = YearMonth.now(ComplexReminderSchedule.CHINA_ZONE).atEndOfMonth()
+                .atTime(23, 59, 59).atZone(ComplexReminderSchedule.CHINA_ZONE).toOffsetDateTime();
+        Set<Long> keptIds = store.rows.stream()
+                .filter(row -> !row.getEventTime().isAfter(endOfCurrentMonth))
+                .map(SimpleReminder::getId)
+                .collect(Collectors.toSet());
+
+        FutureReminderReconciler.reconcile(template, 1, NO_HOLIDAYS, store);
+
+        assertTrue(store.deletedCount > 0);
+        assertTrue(store.rows.stream().noneMatch(row -> row.getEventTime().isAfter(endOfCurrentMonth)));
+        assertEquals(keptIds, ids(store.rows));
+    }
+
+    @Test
+    void testExtendWindowInsertsOnlyNewOccurrences() {
+        FutureReminderReconciler.reconcile(template, 1, NO_HOLIDAYS, store);
+        Set<Long> existingIds = ids(store.rows);
+        int existingCount = store.rows.size();
+
+        FutureReminderReconciler.reconcile(template, 3, NO_HOLIDAYS, store);
+
+        // 下两个月每天都有触发时间，已有记录全部保留，不会删除后重新插入
+        assertEquals(0, store.deletedCount);
+        assertTrue(ids(store.rows).containsAll(existingIds));
+        assertTrue(store.rows.size() > existingCount);
+        assertEquals(store.rows.size(), store.insertedCount);
+        YearMonth lastMonth = YearMonth.now(ComplexReminderSchedule.CHINA_ZONE).plusMonths(2);
+        assertTrue(store.rows.stream().anyMatch(row -> YearMonth.from(row.getEventTime()).equals(lastMonth)));
+    }
+
+    @Test
+    void testCronChangeWithIdenticalTimesKeepsRows() {
+        FutureReminderReconciler.reconcile(template, 2, NO_HOLIDAYS, store);
+        Set<Long> existingIds = ids(store.rows);
+        int insertedBefore = store.insertedCount;
+
+        // 6段表达式与原来的5段表达式触发时间完全相同
+        template.setCronExpression("0 0 9 * * *");
+        FutureReminderReconciler.reconcile(template, 2, NO_HOLIDAYS, store);
+
+        assertEquals(existingIds, ids(store.rows));
+        assertEquals(0, store.deletedCount);
+        assertEquals(insertedBefore, store.insertedCount);
+        assertEquals(0, store.updateCalls);
+    }
+
+    @Test
+    void testPastRowsUntouched() {
+        SimpleReminder past = ComplexReminderSchedule.createInstance(template,
+                OffsetDateTime.now(ComplexReminderSchedule.CHINA_ZONE).minusDays(3));
+        Long pastId = store.insertAllIgnoringDuplicates(List.of(past)).get(0).getId();
+        FutureReminderReconciler.reconcile(template, 2, NO_HOLIDAYS, store);
+
+        // 接收人变更，同时改为每周一次，未来的简单任务被更新和删除
+        template.setToUserId(3L);
+        template.setCronExpression("0 9 * * MON");
+        FutureReminderReconciler.reconcile(template, 2, NO_HOLIDAYS, store);
+
+        SimpleReminder stored = store.rows.stream()
+                .filter(row -> row.getId().equals(pastId))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2L, stored.getToUserId());
+        assertEquals(1, store.updateCalls);
+        assertTrue(store.rows.stream()
+                .filter(row -> !row.getId().equals(pastId))
+                .allMatch(row -> row.getToUserId() == 3L && row.getEventTime().getDayOfWeek() == DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void testAdvancesLastGeneratedYm() {
+        ZonedDateTime now = ZonedDateTime.now(ComplexReminderSchedule.CHINA_ZONE);
+
+        assertTrue(FutureReminderReconciler.reconcile(template, 2, NO_HOLIDAYS, store));
+        assertEquals(ComplexReminderSchedule.calculateTargetYearMonth(template, 2, now), template.getLastGeneratedYm());
+
+        // 目标月份未变化时不需要保存模板
+        assertFalse(FutureReminderReconciler.reconcile(template, 2, NO_HOLIDAYS, store));
+    }
+
+    @Test
+    void testAdvancesLastGeneratedYmWithoutOccurrences() {
+        // 已经失效的模板窗口内没有触发时间，也要设置lastGeneratedYm
+        LocalDate validUntil = LocalDate.now(ComplexReminderSchedule.CHINA_ZONE).minusDays(1);
+        template.setValidUntil(validUntil);
+
+        assertTrue(FutureReminderReconciler.reconcile(template, 2, NO_HOLIDAYS, store));
+        assertEquals(validUntil.getYear() * 100 + validUntil.getMonthValue(), template.getLastGeneratedYm());
+        assertTrue(store.rows.isEmpty());
+    }
+
+    private static Set<Long> ids(List<SimpleReminder> rows) {
+        return rows.stream().map(SimpleReminder::getId).collect(Collectors.toSet());
+    }
+
+    /**
+     * 内存中的简单任务表，按模板ID和触发时间去重
+     */
+    private static class FakeStore implements FutureReminderReconciler.Store {
+
+        private final List<SimpleReminder> rows = new ArrayList<>();
+
+        private long nextId = 1;
+
+        private int insertedCount;
+
+        private int deletedCount;
+
+        private int updateCalls;
+
+        @Override
+        public Long insertIgnoringDuplicate(Long fromUserId, Long toUserId, String title, String description,
+                                            OffsetDateTime eventTime, String reminderType,
+                                            Long originatingComplexReminderId, OffsetDateTime createdAt) {
+            boolean exists = rows.stream().anyMatch(row ->
+                    row.getOriginatingComplexReminderId().equals(originatingComplexReminderId)
+                            && row.getEventTime().isEqual(eventTime));
+            if (exists) {
+                return null;
+            }
+            SimpleReminder row = new SimpleReminder();
+            row.setId(nextId++);
+            row.setFromUserId(fromUserId);
+            row.setToUserId(toUserId);
+            row.setTitle(title);
+            row.setDescription(description);
+            row.setEventTime(eventTime);
+            row.setReminderType(ReminderType.valueOf(reminderType));
+            row.setOriginatingComplexReminderId(originatingComplexReminderId);
+            rows.add(row);
+            insertedCount++;
+            return row.getId();
+        }
+
+        @Override
+        public List<SimpleReminder> findByOriginatingComplexReminderIdAndEventTimeAfterOrderByEventTimeAsc(
+                Long originatingComplexReminderId, OffsetDateTime currentTime) {
+            return rows.stream()
+                    .filter(row -> row.getOriginatingComplexReminderId().equals(originatingComplexReminderId)
+                            && row.getEventTime().isAfter(currentTime))
+                    .sorted(Comparator.comparing(SimpleReminder::getEventTime))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public int deleteByIdIn(Collection<Long> ids) {
+            int before = rows.size();
+            rows.removeIf(row -> ids.contains(row.getId()));
+            deletedCount += before - rows.size();
+            return before - rows.size();
+        }
+
+        @Override
+        public int updateTemplateFieldsByOriginatingComplexReminderIdAndEventTimeAfter(
+                Long originatingComplexReminderId, OffsetDateTime currentTime,
+                Long fromUserId, Long toUserId, ReminderType reminderType, OffsetDateTime updatedAt) {
+            updateCalls++;
+            List<SimpleReminder> matched = findByOriginatingComplexReminderIdAndEventTimeAfterOrderByEventTimeAsc(
+                    originatingComplexReminderId, currentTime);
+            for (SimpleReminder row : matched) {
+                row.setFromUserId(fromUserId);
+                row.setToUserId(toUserId);
+                row.setReminderType(reminderType);
+                row.setUpdatedAt(updatedAt);
+            }
+            return matched.size();
+        }
+    }
+}
@@ -57,7 +57,7 @@ public class ActivityLogAspect {
         String description() default "";
 
         /**
-         * 是否异步记录
+         * 是否异步记录（经Redis Stream批量写库），为false时在当前线程中直接写库
          */
         boolean async() default true;
 
@@ -125,7 +125,8 @@ public class ActivityLogAspect {
             // 记录活动日志
             try {
                 if (logActivity.async()) {
-                    activityLogService.logActivityAsync(
+                    // 经Redis Stream由stream-consumer批量写库，请求线程不访问数据库
+                    activityLogService.publishActivity(
                         userId, logActivity.action(), status, logActivity.resourceType(),
                         resourceId, resourceName, errorMessage, details, request
                     );
@@ -152,7 +153,7 @@ public class ActivityLogAspect {
         if (request != null && result != null) {
             // 从登录结果中提取用户ID
             Long userId = extractUserIdFromLoginResult(result);
-            activityLogService.logActivityAsync(userId, ActivityAction.LOGIN, ActivityStatus.SUCCESS,
+            activityLogService.publishActivity(userId, ActivityAction.LOGIN, ActivityStatus.SUCCESS,
                     ResourceType.USER, userId, null, null, null, request);
         }
     }
@@ -167,7 +168,7 @@ public class ActivityLogAspect {
             Map<String, Object> details = new HashMap<>();
             details.put("failureReason", ex.getMessage());
             
-            activityLogService.logActivityAsync(null, ActivityAction.LOGIN_FAILED, ActivityStatus.FAILED,
+            activityLogService.publishActivity(null, ActivityAction.LOGIN_FAILED, ActivityStatus.FAILED,
                     ResourceType.USER, null, null, ex.getMessage(), details, request);
         }
     }
@@ -180,7 +181,7 @@ public class ActivityLogAspect {
         HttpServletRequest request = getCurrentRequest();
         if (request != null && result != null) {
             Long userId = extractUserIdFromLoginResult(result);
-            activityLogService.logActivityAsync(userId, ActivityAction.WECHAT_LOGIN, ActivityStatus.SUCCESS,
+            activityLogService.publishActivity(userId, ActivityAction.WECHAT_LOGIN, ActivityStatus.SUCCESS,
                     ResourceType.USER, userId, null, null, null, request);
         }
     }
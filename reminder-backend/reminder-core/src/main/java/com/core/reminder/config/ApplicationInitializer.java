@@ -4,6 +4,7 @@ import com.core.reminder.service.LegalHolidayService;
 import com.core.reminder.repository.SimpleReminderRepository;
 import com.core.reminder.utils.CacheUtils;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.model.SimpleReminderView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -186,7 +187,9 @@ public class ApplicationInitializer implements ApplicationRunner {
                                 cacheUtils.clearUserRemindersCache(userId);
                                 
                                 // 批量添加提醒到缓存
-                                cacheUtils.addRemindersToCache(userId, reminders);
+                                cacheUtils.addRemindersToCache(userId, reminders.stream()
+                                        .map(SimpleReminderView::of)
+                                        .collect(Collectors.toList()));
                                 
                                 logger.debug("已同步用户[{}]的{}条提醒到缓存", userId, reminders.size());
                             } catch (Exception e) {
@@ -0,0 +1,125 @@
+package com.core.reminder.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.spring.boot.autoconfigure.DruidDataSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 读写分离数据源配置
+ *
+ * 启用后主库和只读副本各有一个Druid连接池（连接池参数都取自spring.datasource.druid），
+ * 应用使用的数据源按事务类型在两者之间路由，见 {@link ReplicaRoutingDataSource}。
+ * 定时检测副本复制延迟，超过容忍值时只读事务回退到主库。未启用时使用Druid自动配置的单一数据源。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "reminder.datasource.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSourceConfig.class);
+
+    /**
+     * 副本复制延迟（毫秒）：已接收的WAL全部回放完时为0，否则为距最后一次回放的事务提交的时间；
+     * 连接到的是主库时为0
+     */
+    private static final String REPLICA_LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() "
+                    + "THEN 0 "
+                    + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    @Value("${reminder.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${reminder.datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${reminder.datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    /**
+     * 可容忍的副本复制延迟（毫秒）
+     */
+    @Value("${reminder.datasource.replica.max-lag-ms:1000}")
+    private long maxLagMillis;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource primaryDataSource(DataSourceProperties properties) {
+        DruidDataSource dataSource = DruidDataSourceBuilder.create().build();
+        dataSource.setName(ReplicaRoutingDataSource.PRIMARY);
+        dataSource.setUrl(properties.getUrl());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        dataSource.setDriverClassName(properties.getDriverClassName());
+        return dataSource;
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource replicaDataSource(DataSourceProperties properties) {
+        DruidDataSource dataSource = DruidDataSourceBuilder.create().build();
+        dataSource.setName(ReplicaRoutingDataSource.REPLICA);
+        dataSource.setUrl(replicaUrl);
+        dataSource.setUsername(replicaUsername);
+        dataSource.setPassword(replicaPassword);
+        dataSource.setDriverClassName(properties.getDriverClassName());
+        return dataSource;
+    }
+
+    /**
+     * 应用使用的数据源（JPA、JdbcTemplate、schema初始化）
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        targets.put(ReplicaRoutingDataSource.REPLICA, replicaDataSource);
+
+        routingDataSource = new ReplicaRoutingDataSource(maxLagMillis);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+
+        log.info("读写分离已启用 - 副本: {}, 容忍延迟: {}ms", replicaUrl, maxLagMillis);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * 定时检测副本复制延迟
+     */
+    @Scheduled(fixedDelayString = "${reminder.datasource.replica.lag-check-interval-ms:5000}")
+    public void checkReplicaLag() {
+        if (routingDataSource == null) {
+            return;
+        }
+        try {
+            Double lag = replicaJdbcTemplate.queryForObject(REPLICA_LAG_SQL, Double.class);
+            routingDataSource.setReplicaLagMillis(lag != null ? lag.longValue() : null);
+        } catch (Exception e) {
+            log.warn("检测只读副本复制延迟失败: {}", e.getMessage());
+            routingDataSource.setReplicaLagMillis(null);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.core.reminder.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 读写分离路由数据源
+ *
+ * 只读事务（@Transactional(readOnly = true)）路由到只读副本，其余操作路由到主库。
+ * 以下情况只读事务也使用主库：
+ * 1. 副本复制延迟超过容忍值，或延迟检测失败
+ * 2. 当前线程在容忍时间内写过主库（读自己的写）
+ * 3. 在 {@link #onPrimary(Supplier)} 范围内执行，如读取后写入缓存的路径
+ *
+ * 第2条按线程记录，只保证同一请求（同一线程）内写入之后的读取能读到自己的写；
+ * 用户的下一次HTTP请求可能落在其他线程或其他实例上，仍可能从副本读到写入前的数据。
+ * 写入后立即在新请求中回读、且不能接受旧数据的路径，应使用 {@link #onPrimary(Supplier)}。
+ * 线程池复用线程时，遗留的写入时间只会让其他请求在容忍时间内多读一次主库，不影响正确性。
+ *
+ * 必须通过LazyConnectionDataSourceProxy使用：事务开始时只读标记尚未设置，
+ * 延迟到第一条语句执行时再取连接，路由才能看到只读标记。
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    /**
+     * 当前线程强制使用主库的嵌套层数
+     */
+    private static final ThreadLocal<Integer> PRIMARY_PINS = new ThreadLocal<>();
+
+    /**
+     * 当前线程最后一次使用主库读写事务的时间，只对本线程后续的只读事务生效
+     */
+    private final ThreadLocal<Long> lastWriteMillis = new ThreadLocal<>();
+
+    /**
+     * 可容忍的副本复制延迟（毫秒），同时是写入后本线程继续读主库的时间
+     */
+    private final long maxLagMillis;
+
+    /**
+     * 最近一次检测到的副本延迟（毫秒），未检测或检测失败时为null
+     */
+    private volatile Long replicaLagMillis;
+
+    public ReplicaRoutingDataSource(long maxLagMillis) {
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * 在当前线程强制使用主库执行，用于读取结果会写入缓存或紧接着写库的路径
+     *
+     * @param action 要执行的操作，其中的只读事务也读主库
+     * @return 操作结果
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Integer pins = PRIMARY_PINS.get();
+        PRIMARY_PINS.set(pins == null ? 1 : pins + 1);
+        try {
+            return action.get();
+        } finally {
+            if (pins == null) {
+                PRIMARY_PINS.remove();
+            } else {
+                PRIMARY_PINS.set(pins);
+            }
+        }
+    }
+
+    /**
+     * 更新副本延迟
+     *
+     * @param lagMillis 副本延迟（毫秒），检测失败时传null，之后只读事务回退到主库
+     */
+    public void setReplicaLagMillis(Long lagMillis) {
+        boolean wasUsable = isReplicaUsable();
+        this.replicaLagMillis = lagMillis;
+        boolean usable = isReplicaUsable();
+        if (wasUsable != usable) {
+            if (usable) {
+                log.info("只读副本恢复可用，复制延迟: {}ms", lagMillis);
+            } else {
+                log.warn("只读副本不可用（复制延迟: {}ms，容忍值: {}ms），只读事务回退到主库", lagMillis, maxLagMillis);
+            }
+        }
+    }
+
+    public Long getReplicaLagMillis() {
+        return replicaLagMillis;
+    }
+
+    public boolean isReplicaUsable() {
+        Long lag = replicaLagMillis;
+        return lag != null && lag <= maxLagMillis;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                markWrite();
+            }
+            return PRIMARY;
+        }
+        if (PRIMARY_PINS.get() != null || !isReplicaUsable()) {
+            return PRIMARY;
+        }
+        Long lastWrite = lastWriteMillis.get();
+        if (lastWrite != null) {
+            if (System.currentTimeMillis() - lastWrite <= maxLagMillis) {
+                return PRIMARY;
+            }
+            lastWriteMillis.remove();
+        }
+        return REPLICA;
+    }
+
+    /**
+     * 记录本线程的写入时间；写入在事务提交后才开始复制，提交时再记录一次
+     */
+    private void markWrite() {
+        lastWriteMillis.set(System.currentTimeMillis());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lastWriteMillis.set(System.currentTimeMillis());
+                }
+            });
+        }
+    }
+}
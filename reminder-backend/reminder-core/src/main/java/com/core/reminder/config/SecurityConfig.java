@@ -75,11 +75,11 @@ public class SecurityConfig {
             "GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"
         ));
         configuration.setAllowedHeaders(Arrays.asList(
-            "Authorization", "Cache-Control", "Content-Type", "X-Requested-With"
+            "Authorization", "Cache-Control", "Content-Type", "X-Requested-With", "If-None-Match"
         ));
         // 设置暴露的响应头
         configuration.setExposedHeaders(Arrays.asList(
-            "Authorization", "Content-Type", "X-Total-Count"
+            "Authorization", "Content-Type", "X-Total-Count", "ETag", "X-Generation-Pending", "Retry-After"
         ));
         configuration.setAllowCredentials(true); // Important for cookies, authorization headers
         configuration.setMaxAge(3600L); // 设置预检请求的缓存时间
@@ -18,39 +18,80 @@ public enum CacheKeyEnum {
     
     /**
      * 用户月度简单提醒缓存
-     * 格式: user:reminders:monthly:{userId}:{year}:{month}
-     * 过期时间: 7天（一周后过期，适合月度查询）
+     * 格式: user:reminders:monthly:v3:{userId}:{year}:{month}:{version}
+     * 过期时间: 1天（键包含版本号，数据变更后旧版本不再被读取，只能等待过期）
      * 存储指定用户在指定月份的所有简单提醒
      */
-    USER_MONTHLY_REMINDERS("user:reminders:monthly:", 7, TimeUnit.DAYS),
+    USER_MONTHLY_REMINDERS("user:reminders:monthly:v3:", 1, TimeUnit.DAYS, true),
+    
+    /**
+     * 用户月度提醒纪元
+     * 格式: user:reminders:monthly:epoch:{userId}
+     * 过期时间: 7天（每次递增时续期）
+     * 影响该用户所有月份的变更时递增，是月度提醒版本号的一部分
+     * stream-consumer生成或同步简单任务后也递增该键（前缀和过期时间需与其保持一致）
+     */
+    USER_MONTHLY_EPOCH("user:reminders:monthly:epoch:", 7, TimeUnit.DAYS),
+    
+    /**
+     * 用户月度提醒月份版本
+     * 格式: user:reminders:monthly:version:{userId}:{year}:{month}
+     * 过期时间: 7天（每次递增时续期）
+     * 只影响该月份的变更时递增，是月度提醒版本号的一部分
+     */
+    USER_MONTHLY_VERSION("user:reminders:monthly:version:", 7, TimeUnit.DAYS),
+    
+    /**
+     * 用户简单任务生成水位线
+     * 格式: user:generation:watermark:{userId}
+     * 过期时间: 1天
+     * 存储YYYYMM，表示该用户接收的所有复杂提醒都已生成到该月份
+     */
+    USER_GENERATION_WATERMARK("user:generation:watermark:", 1, TimeUnit.DAYS),
+    
+    /**
+     * 复杂提醒生成中标记
+     * 格式: complex:generation:pending:{complexReminderId}
+     * 过期时间: 5分钟
+     * 存储已投递到Stream的生成目标年月(YYYYMM)，避免读请求重复投递生成事件
+     */
+    COMPLEX_GENERATION_PENDING("complex:generation:pending:", 5, TimeUnit.MINUTES),
+    
+    /**
+     * 复杂提醒模板文本缓存
+     * 格式: complex:reminder:text:{complexReminderId}
+     * 过期时间: 1天
+     * 存储模板的标题和描述，用于补全由模板生成、未单独修改文本的简单任务
+     */
+    COMPLEX_REMINDER_TEXT("complex:reminder:text:", 1, TimeUnit.DAYS, true),
     
     /**
      * 用户信息缓存
      * 格式: user:info:{userId}
      * 过期时间: 30分钟
      */
-    USER_INFO("user:info:", 30, TimeUnit.MINUTES),
+    USER_INFO("user:info:", 30, TimeUnit.MINUTES, true),
     
     /**
      * 用户权限缓存
      * 格式: user:permissions:{userId}
      * 过期时间: 15分钟
      */
-    USER_PERMISSIONS("user:permissions:", 15, TimeUnit.MINUTES),
+    USER_PERMISSIONS("user:permissions:", 15, TimeUnit.MINUTES, true),
     
     /**
      * 节假日缓存
      * 格式: holiday:{year}
      * 过期时间: 永不过期
      */
-    HOLIDAY_CACHE("holiday:", -1, null),
+    HOLIDAY_CACHE("holiday:", -1, null, true),
     
     /**
      * 系统配置缓存
      * 格式: system:config:{configKey}
      * 过期时间: 1小时
      */
-    SYSTEM_CONFIG("system:config:", 1, TimeUnit.HOURS),
+    SYSTEM_CONFIG("system:config:", 1, TimeUnit.HOURS, true),
     
     /**
      * 用户会话缓存
@@ -90,10 +131,22 @@ public enum CacheKeyEnum {
      */
     private final TimeUnit timeUnit;
     
+    /**
+     * 是否允许进程内本地缓存（一级缓存）
+     * 只对读多写少、短时间不一致可以接受的数据开启；
+     * 水位线、验证码、限流等需要跨实例强一致的键不开启
+     */
+    private final boolean localCacheable;
+    
     CacheKeyEnum(String keyPrefix, long expireTime, TimeUnit timeUnit) {
+        this(keyPrefix, expireTime, timeUnit, false);
+    }
+    
+    CacheKeyEnum(String keyPrefix, long expireTime, TimeUnit timeUnit, boolean localCacheable) {
         this.keyPrefix = keyPrefix;
         this.expireTime = expireTime;
         this.timeUnit = timeUnit;
+        this.localCacheable = localCacheable;
     }
     
     /**
@@ -125,6 +178,13 @@ public enum CacheKeyEnum {
         return expireTime == -1;
     }
     
+    /**
+     * 是否允许进程内本地缓存
+     */
+    public boolean isLocalCacheable() {
+        return localCacheable;
+    }
+    
     /**
      * 构建完整的缓存键
      * @param suffix 缓存键后缀
@@ -148,10 +208,58 @@ public enum CacheKeyEnum {
      * @param userId 用户ID
      * @param year 年份
      * @param month 月份
+     * @param version 月度提醒版本号
+     * @return 缓存键
+     */
+    public static String buildUserMonthlyRemindersKey(Long userId, int year, int month, String version) {
+        return USER_MONTHLY_REMINDERS.buildKey(userId + ":" + year + ":" + month + ":" + version);
+    }
+    
+    /**
+     * 构建用户月度提醒纪元键
+     * @param userId 用户ID
+     * @return 缓存键
+     */
+    public static String buildUserMonthlyEpochKey(Long userId) {
+        return USER_MONTHLY_EPOCH.buildKey(String.valueOf(userId));
+    }
+    
+    /**
+     * 构建用户月度提醒月份版本键
+     * @param userId 用户ID
+     * @param year 年份
+     * @param month 月份
+     * @return 缓存键
+     */
+    public static String buildUserMonthlyVersionKey(Long userId, int year, int month) {
+        return USER_MONTHLY_VERSION.buildKey(userId + ":" + year + ":" + month);
+    }
+    
+    /**
+     * 构建用户简单任务生成水位线缓存键
+     * @param userId 用户ID
+     * @return 缓存键
+     */
+    public static String buildUserGenerationWatermarkKey(Long userId) {
+        return USER_GENERATION_WATERMARK.buildKey(String.valueOf(userId));
+    }
+    
+    /**
+     * 构建复杂提醒生成中标记缓存键
+     * @param complexReminderId 复杂提醒ID
+     * @return 缓存键
+     */
+    public static String buildComplexGenerationPendingKey(Long complexReminderId) {
+        return COMPLEX_GENERATION_PENDING.buildKey(String.valueOf(complexReminderId));
+    }
+    
+    /**
+     * 构建复杂提醒模板文本缓存键
+     * @param complexReminderId 复杂提醒ID
      * @return 缓存键
      */
-    public static String buildUserMonthlyRemindersKey(Long userId, int year, int month) {
-        return USER_MONTHLY_REMINDERS.buildKey(userId + ":" + year + ":" + month);
+    public static String buildComplexReminderTextKey(Long complexReminderId) {
+        return COMPLEX_REMINDER_TEXT.buildKey(String.valueOf(complexReminderId));
     }
     
     /**
@@ -0,0 +1,34 @@
+package com.core.reminder.controller;
+
+import com.core.reminder.utils.CacheUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 缓存监控控制器
+ */
+@RestController
+@RequestMapping("/api/cache-monitor")
+public class CacheMonitorController {
+
+    @Autowired
+    private CacheUtils cacheUtils;
+
+    /**
+     * 获取本实例本地缓存和Redis缓存的命中统计
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "缓存统计获取成功");
+        response.put("data", cacheUtils.getCacheStats());
+        return ResponseEntity.ok(response);
+    }
+}
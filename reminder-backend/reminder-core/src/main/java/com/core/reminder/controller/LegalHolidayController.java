@@ -1,6 +1,6 @@
 package com.core.reminder.controller;
 
-import com.core.reminder.model.LegalHoliday;
+import com.common.reminder.model.LegalHoliday;
 import com.core.reminder.service.LegalHolidayService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
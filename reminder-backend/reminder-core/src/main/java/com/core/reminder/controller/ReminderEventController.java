@@ -2,18 +2,22 @@ package com.core.reminder.controller;
 
 // 导入所需的实体类和重构后的服务（或其接口）
 import com.core.reminder.dto.ComplexReminderDTO;
+import com.core.reminder.dto.MonthlyReminders;
 import com.core.reminder.dto.SimpleReminderDTO;
 import com.common.reminder.dto.UserProfileDto;
 import com.common.reminder.model.ComplexReminder;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.model.SimpleReminderView;
 import com.core.reminder.service.ReminderEventServiceImpl; // 暂时使用具体类，后续最好使用接口
+import com.core.reminder.service.ReminderTemplateTextService;
 import com.core.reminder.utils.IdempotencyUtils;
 import com.core.reminder.utils.ReminderMapper;
-import com.core.reminder.utils.StreamEventPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -32,16 +36,24 @@ public class ReminderEventController {
 
     private static final Logger log = LoggerFactory.getLogger(ReminderEventController.class);
 
+    /**
+     * 月度提醒仍在异步生成中时的响应头，客户端据此在Retry-After秒后重新查询
+     */
+    private static final String GENERATION_PENDING_HEADER = "X-Generation-Pending";
+
+    private static final String GENERATION_RETRY_AFTER_SECONDS = "1";
+
     // 注入重构后的服务实现（后续替换为接口）
     private final ReminderEventServiceImpl reminderService;
     private final ReminderMapper reminderMapper;
-    private final StreamEventPublisher streamEventPublisher;
+    private final ReminderTemplateTextService reminderTemplateTextService;
 
     @Autowired
-    public ReminderEventController(ReminderEventServiceImpl reminderService, ReminderMapper reminderMapper, StreamEventPublisher streamEventPublisher) {
+    public ReminderEventController(ReminderEventServiceImpl reminderService, ReminderMapper reminderMapper,
+                                   ReminderTemplateTextService reminderTemplateTextService) {
         this.reminderService = reminderService;
         this.reminderMapper = reminderMapper;
-        this.streamEventPublisher = streamEventPublisher;
+        this.reminderTemplateTextService = reminderTemplateTextService;
     }
 
     // --- 简单提醒事项的接口 ---
@@ -93,6 +105,10 @@ public class ReminderEventController {
 
         return reminderOpt
                 .map(reminderMapper::toDTO)
+                .map(dto -> {
+                    reminderTemplateTextService.applyTemplateText(dto);
+                    return dto;
+                })
                 .map(ResponseEntity::ok)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "未找到简单提醒事项"));
     }
@@ -101,22 +117,68 @@ public class ReminderEventController {
      * 获取所有简单提醒事项
      * GET /api/reminders/simple
      * 支持可选的年月参数，例如：/api/reminders/simple?year=2023&month=12
+     * 响应带有月度提醒版本号作为ETag，请求带If-None-Match且版本未变化时返回304
+     * 月份仍在异步生成时立即返回已有数据，并带X-Generation-Pending和Retry-After响应头
      */
     @GetMapping("/simple")
     public ResponseEntity<List<SimpleReminderDTO>> getAllSimpleReminders(
             @RequestAttribute("currentUser") UserProfileDto userProfileDto,
             @RequestParam(required = true) Integer year,
-            @RequestParam(required = true) Integer month) {
+            @RequestParam(required = true) Integer month,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         log.info("当前登录用户信息: {}", userProfileDto);
         Long userId = userProfileDto.getId(); // 获取用户ID
 
         // 年和月现在是必需的，直接按月查询
-        List<SimpleReminder> reminders = reminderService.getSimpleRemindersByYearMonthAndUser(year, month, userId);
+        MonthlyReminders result = reminderService.getMonthlyReminders(year, month, userId, parseETagVersion(ifNoneMatch));
+        String eTag = result.getVersion() != null ? "\"" + result.getVersion() + "\"" : null;
+        if (result.isNotModified()) {
+            log.info("用户 {} 查询 {}-{} 月份的简单提醒，版本未变化", userId, year, month);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        List<SimpleReminderView> reminders = result.getReminders();
         log.info("用户 {} 查询 {}-{} 月份的所有简单提醒，共 {} 条", userId, year, month, reminders.size());
 
-        List<SimpleReminderDTO> reminderDTOs = reminderMapper.toSimpleReminderDTOList(reminders);
-        return ResponseEntity.ok(reminderDTOs);
+        List<SimpleReminderDTO> reminderDTOs = reminderMapper.toSimpleReminderViewDTOList(reminders);
+        // 模板生成的任务只存储模板ID，补全标题；列表不返回描述，由详情接口按需获取
+        reminderTemplateTextService.applyTemplateTitle(reminderDTOs);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (eTag != null) {
+            // 数据按用户区分，客户端每次都需要重新验证
+            response.eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate());
+        } else if (result.isGenerating()) {
+            // 数据还会变化，不允许缓存，客户端稍后重新查询
+            response.cacheControl(CacheControl.noStore())
+                    .header(GENERATION_PENDING_HEADER, "true")
+                    .header(HttpHeaders.RETRY_AFTER, GENERATION_RETRY_AFTER_SECONDS);
+        }
+        return response.body(reminderDTOs);
+    }
+
+    /**
+     * 判断复杂提醒DTO是否修改了模板的标题或描述（DTO中为null的字段不更新）
+     */
+    private boolean isTemplateTextChanged(ComplexReminderDTO dto, ComplexReminder existing) {
+        return (dto.getTitle() != null && !dto.getTitle().equals(existing.getTitle()))
+                || (dto.getDescription() != null && !dto.getDescription().equals(existing.getDescription()));
+    }
+
+    /**
+     * 从If-None-Match请求头中取出版本号，只支持单个ETag
+     */
+    private String parseETagVersion(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String eTag = ifNoneMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        if (eTag.length() < 2 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            return null;
+        }
+        return eTag.substring(1, eTag.length() - 1);
     }
 
     /**
@@ -127,8 +189,10 @@ public class ReminderEventController {
     public ResponseEntity<List<SimpleReminderDTO>> getUpcomingReminders(@RequestAttribute("currentUser") UserProfileDto userProfileDto) {
         Long userId = userProfileDto.getId(); // 获取用户ID
         log.info("用户 {} 查询即将到来的提醒事项", userId);
-        List<SimpleReminder> reminders = reminderService.getUpcomingReminders(userId); // 传递userId
-        List<SimpleReminderDTO> reminderDTOs = reminderMapper.toSimpleReminderDTOList(reminders);
+        List<SimpleReminderView> reminders = reminderService.getUpcomingReminders(userId); // 传递userId
+        List<SimpleReminderDTO> reminderDTOs = reminderMapper.toSimpleReminderViewDTOList(reminders);
+        // 模板生成的任务只存储模板ID，补全标题；列表不返回描述，由详情接口按需获取
+        reminderTemplateTextService.applyTemplateTitle(reminderDTOs);
         return ResponseEntity.ok(reminderDTOs);
     }
 
@@ -183,7 +247,9 @@ public class ReminderEventController {
             SimpleReminder updated = reminderService.updateSimpleReminder(existingReminder);
 
             // 转换为DTO并返回
-            return ResponseEntity.ok(reminderMapper.toDTO(updated));
+            SimpleReminderDTO responseDTO = reminderMapper.toDTO(updated);
+            reminderTemplateTextService.applyTemplateText(responseDTO);
+            return ResponseEntity.ok(responseDTO);
         } catch (ResponseStatusException e) {
             // 重新抛出已经格式化的异常
             throw e;
@@ -249,13 +315,10 @@ public class ReminderEventController {
             // 设置幂等键到实体
             complexReminder.setIdempotencyKey(idempotencyKey);
 
-            // 先创建复杂提醒（不生成简单任务）
-            ComplexReminder created = reminderService.createComplexReminder(complexReminder);
-
-            // 通过Stream异步生成未来三个月的简单任务
-            streamEventPublisher.publishComplexReminderGenerationEvent(created.getId(), 3, userId);
+            // 创建复杂提醒，生成未来三个月简单任务的事件在同一事务内写入发件箱，提交后异步投递到Stream
+            ComplexReminder created = reminderService.createComplexReminderAndRequestGeneration(complexReminder, 3);
             
-            log.info("已发送复杂提醒生成事件到Stream - 复杂提醒ID: {}", created.getId());
+            log.info("已写入复杂提醒生成事件到发件箱 - 复杂提醒ID: {}", created.getId());
 
             // 转换实体为DTO并返回
             ComplexReminderDTO responseDTO = reminderMapper.toDTO(created);
@@ -395,16 +458,18 @@ public class ReminderEventController {
                 throw new ResponseStatusException(HttpStatus.FORBIDDEN, "无权限修改此提醒");
             }
 
+            // 标题或描述变化时，已经触发的任务先保留修改前的文本
+            if (isTemplateTextChanged(reminderDTO, existingReminder)) {
+                reminderService.freezePastTemplateText(existingReminder);
+            }
+
             // 用DTO中的值更新实体
             reminderMapper.updateEntityFromDTO(reminderDTO, existingReminder);
 
-            // 先更新复杂提醒（不处理简单任务）
-            ComplexReminder updated = reminderService.updateComplexReminder(existingReminder);
-
-            // 通过Stream异步更新简单任务（会先删除旧的，再生成新的）
-            streamEventPublisher.publishComplexReminderUpdateEvent(updated.getId(), 3, userId);
+            // 更新复杂提醒，增量更新未来简单任务的事件在同一事务内写入发件箱，提交后异步投递到Stream
+            ComplexReminder updated = reminderService.updateComplexReminderAndRequestRegeneration(existingReminder, 3);
             
-            log.info("已发送复杂提醒更新事件到Stream - 复杂提醒ID: {}", updated.getId());
+            log.info("已写入复杂提醒更新事件到发件箱 - 复杂提醒ID: {}", updated.getId());
 
             // 转换为DTO并返回
             return ResponseEntity.ok(reminderMapper.toDTO(updated));
@@ -0,0 +1,34 @@
+package com.core.reminder.controller;
+
+import com.core.reminder.job.StreamLagMonitorJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stream监控控制器
+ */
+@RestController
+@RequestMapping("/api/stream-monitor")
+public class StreamMonitorController {
+
+    @Autowired
+    private StreamLagMonitorJob streamLagMonitorJob;
+
+    /**
+     * 获取最近一次采集的各消费组消费延迟
+     */
+    @GetMapping("/lag")
+    public ResponseEntity<Map<String, Object>> getStreamLag() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "消费延迟获取成功");
+        response.put("data", streamLagMonitorJob.getLatestLag());
+        return ResponseEntity.ok(response);
+    }
+}
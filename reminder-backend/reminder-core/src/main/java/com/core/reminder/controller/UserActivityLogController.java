@@ -5,6 +5,7 @@ import com.common.reminder.constant.ResourceType;
 import com.common.reminder.dto.UserProfileDto;
 import com.common.reminder.model.UserActivityLog;
 import com.core.reminder.aspect.ActivityLogAspect.LogActivity;
+import com.core.reminder.job.DataRetentionJob;
 import com.core.reminder.service.UserActivityLogService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +13,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -33,6 +35,9 @@ public class UserActivityLogController {
     @Autowired
     private UserActivityLogService activityLogService;
 
+    @Autowired
+    private DataRetentionJob dataRetentionJob;
+
     /**
      * 获取当前用户的活动日志
      */
@@ -238,6 +243,7 @@ public class UserActivityLogController {
 
     /**
      * 管理员：清理过期日志
+     * 清理交给过期数据清理任务在后台分块执行，提交后返回202；其他清理持有租约时返回409
      */
     @DeleteMapping("/admin/cleanup")
     @PreAuthorize("hasRole('ADMIN')")
@@ -245,13 +251,13 @@ public class UserActivityLogController {
     public ResponseEntity<String> cleanupOldLogs(
             @RequestParam(defaultValue = "90") int daysToKeep) {
 
-        try {
-            activityLogService.cleanupOldLogs(daysToKeep);
-            return ResponseEntity.ok("成功清理了" + daysToKeep + "天前的日志记录");
-        } catch (Exception e) {
-            log.error("清理日志失败", e);
-            return ResponseEntity.internalServerError().body("清理日志失败: " + e.getMessage());
+        if (daysToKeep < 1) {
+            return ResponseEntity.badRequest().body("保留天数必须大于0");
+        }
+        if (!dataRetentionJob.triggerActivityLogPurge(daysToKeep)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("过期数据清理正在执行或刚刚执行过，请稍后再试");
         }
+        return ResponseEntity.accepted().body("已提交清理" + daysToKeep + "天前日志记录的任务");
     }
 
     /**
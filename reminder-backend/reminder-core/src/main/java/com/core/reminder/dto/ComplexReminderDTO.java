@@ -1,5 +1,6 @@
 package com.core.reminder.dto;
 
+import com.common.reminder.model.RecurrenceRule;
 import com.common.reminder.model.ReminderType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -28,6 +29,8 @@ public class ComplexReminderDTO {
     private LocalDate validFrom;      // 提醒开始生效日期
     private LocalDate validUntil;     // 提醒失效日期
     private Integer maxExecutions;    // 最大执行次数限制
+    private RecurrenceRule recurrenceRule; // 节假日/工作日规则
+    private Integer recurrenceParam;  // 规则参数，如每月第N个工作日的N
     private Integer lastGeneratedYm; // 年月格式：YYYYMM
     private String idempotencyKey;   // 幂等键，用于防止重复创建
     private OffsetDateTime createdAt;
@@ -0,0 +1,37 @@
+package com.core.reminder.dto;
+
+import com.common.reminder.model.SimpleReminderView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 用户月度提醒查询结果
+ */
+@Getter
+@AllArgsConstructor
+public class MonthlyReminders {
+
+    /**
+     * 月度提醒列表视图（不含描述），客户端版本未变化时为null
+     */
+    private final List<SimpleReminderView> reminders;
+
+    /**
+     * 月度提醒版本号，数据不完整或读取失败时为null（不能用于条件请求）
+     */
+    private final String version;
+
+    /**
+     * 该月份的简单任务仍在异步生成中，返回的是当前已有数据，客户端应稍后重新查询
+     */
+    private final boolean generating;
+
+    /**
+     * 客户端持有的版本仍是最新版本
+     */
+    public boolean isNotModified() {
+        return reminders == null;
+    }
+}
@@ -27,6 +27,7 @@ public class SimpleReminderDTO {
     private OffsetDateTime eventTime;
     private ReminderType reminderType;
     private Long originatingComplexReminderId; // 来源复杂提醒ID，可能为null
+    private boolean virtual; // 物化窗口之外由模板实时计算的任务，id为空，按来源复杂提醒ID和eventTime识别
     @JsonIgnore
     private OffsetDateTime createdAt;
     @JsonIgnore
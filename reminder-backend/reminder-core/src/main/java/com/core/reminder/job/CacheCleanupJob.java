@@ -1,32 +1,80 @@
 package com.core.reminder.job;
 
 import com.core.reminder.constant.CacheKeyEnum;
-import com.core.reminder.utils.CacheUtils;
+import com.core.reminder.utils.RedisLeaseLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.OffsetDateTime;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 缓存清理定时任务
  * 定期清理Redis中过期的提醒数据
+ *
+ * 用SCAN游标分批遍历缓存键，每批命令通过管道一次发送，不阻塞Redis主线程；
+ * 各实例同时触发时只有取得租约的实例执行，并按每秒命令数上限限速，避免与提醒分发争抢Redis。
  */
 @Component
 public class CacheCleanupJob {
-    
+
     private static final Logger log = LoggerFactory.getLogger(CacheCleanupJob.class);
-    
+
+    private static final String LOCK_KEY_PREFIX = "lock:cache-cleanup:";
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
-    
+
     @Autowired
-    private CacheUtils cacheUtils;
-    
+    private RedisLeaseLock redisLeaseLock;
+
+    /**
+     * SCAN每次遍历的键数提示
+     */
+    @Value("${reminder.cache.cleanup.scan-count:500}")
+    private int scanCount;
+
+    /**
+     * 每批处理的键数（一次管道调用）
+     */
+    @Value("${reminder.cache.cleanup.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 每秒最多发送的Redis命令数
+     */
+    @Value("${reminder.cache.cleanup.max-ops-per-second:1000}")
+    private int maxOpsPerSecond;
+
+    /**
+     * 租约时长（毫秒），每批处理后续租
+     */
+    @Value("${reminder.cache.cleanup.lease-ms:300000}")
+    private long leaseMillis;
+
+    /**
+     * 处理一批缓存键
+     */
+    private interface KeyBatchHandler {
+
+        /**
+         * @param keys 本批缓存键
+         * @return 本批发送的Redis命令数
+         */
+        int handle(List<String> keys);
+    }
+
     /**
      * 清理过期的提醒缓存（已经过去的事件）
      * 每天凌晨2点执行
@@ -34,53 +82,41 @@ public class CacheCleanupJob {
     @Scheduled(cron = "0 0 2 * * ?")
     public void cleanupExpiredReminders() {
         log.info("开始清理过期的提醒缓存（已过去的事件）...");
-        
+
         try {
             long startTime = System.currentTimeMillis();
-            int cleanedCount = 0;
-            
+            long[] cleanedCount = {0};
+
             // 计算当前时间戳作为清理阈值（清理过去的事件）
-            OffsetDateTime now = OffsetDateTime.now();
-            double maxScore = now.toEpochSecond();
-            
-            // 获取所有用户提醒缓存的键
-            String pattern = CacheKeyEnum.USER_REMINDERS_ZSET.getKeyPrefix() + "*";
-            Set<String> keys = redisTemplate.keys(pattern);
-            
-            if (keys != null && !keys.isEmpty()) {
-                for (String key : keys) {
-                    try {
-                        // 删除已经过去的提醒数据（score < 当前时间戳）
-                        Long removed = redisTemplate.opsForZSet().removeRangeByScore(key, 0, maxScore);
-                        if (removed != null && removed > 0) {
-                            cleanedCount += removed.intValue();
-                            log.debug("清理缓存键 {} 中的 {} 条过期提醒", key, removed);
-                        }
-                        
-                        // 检查ZSet是否为空，如果为空则删除整个键
-                        Long size = redisTemplate.opsForZSet().zCard(key);
-                        if (size != null && size == 0) {
-                            redisTemplate.delete(key);
-                            log.debug("删除空的缓存键: {}", key);
-                        }
-                        
-                    } catch (Exception e) {
-                        log.error("清理缓存键 {} 时出错", key, e);
+            double maxScore = OffsetDateTime.now().toEpochSecond();
+
+            // 删除已经过去的提醒数据（score <= 当前时间戳），ZSet清空后Redis会自动删除该键
+            long keyCount = sweep("expired-reminders", keys -> {
+                List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (String key : keys) {
+                        connection.zSetCommands().zRemRangeByScore(rawKey(key), 0, maxScore);
+                    }
+                    return null;
+                });
+                for (Object removed : results) {
+                    if (removed instanceof Long) {
+                        cleanedCount[0] += (Long) removed;
                     }
                 }
+                return keys.size();
+            });
+            if (keyCount < 0) {
+                return;
             }
-            
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-            
-            log.info("过期提醒缓存清理完成，共处理 {} 个缓存键，清理 {} 条过期提醒，耗时 {}ms", 
-                    keys != null ? keys.size() : 0, cleanedCount, duration);
-            
+
+            log.info("过期提醒缓存清理完成，共处理 {} 个缓存键，清理 {} 条过期提醒，耗时 {}ms",
+                    keyCount, cleanedCount[0], System.currentTimeMillis() - startTime);
+
         } catch (Exception e) {
             log.error("清理过期提醒缓存时发生错误", e);
         }
     }
-    
+
     /**
      * 清理空的缓存键
      * 每周日凌晨3点执行
@@ -88,44 +124,39 @@ public class CacheCleanupJob {
     @Scheduled(cron = "0 0 3 * * SUN")
     public void cleanupEmptyCacheKeys() {
         log.info("开始清理空的缓存键...");
-        
+
         try {
             long startTime = System.currentTimeMillis();
-            int deletedCount = 0;
-            
-            // 获取所有用户提醒缓存的键
-            String pattern = CacheKeyEnum.USER_REMINDERS_ZSET.getKeyPrefix() + "*";
-            Set<String> keys = redisTemplate.keys(pattern);
-            
-            if (keys != null && !keys.isEmpty()) {
-                for (String key : keys) {
-                    try {
-                        // 检查ZSet大小
-                        Long size = redisTemplate.opsForZSet().zCard(key);
-                        if (size != null && size == 0) {
-                            Boolean deleted = redisTemplate.delete(key);
-                            if (Boolean.TRUE.equals(deleted)) {
-                                deletedCount++;
-                                log.debug("删除空的缓存键: {}", key);
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.error("检查缓存键 {} 时出错", key, e);
+            long[] deletedCount = {0};
+
+            long keyCount = sweep("empty-keys", keys -> {
+                List<Long> sizes = zCards(keys);
+                List<String> emptyKeys = new ArrayList<>();
+                for (int i = 0; i < keys.size(); i++) {
+                    if (Long.valueOf(0).equals(sizes.get(i))) {
+                        emptyKeys.add(keys.get(i));
                     }
                 }
+                if (emptyKeys.isEmpty()) {
+                    return keys.size();
+                }
+                Long unlinked = redisTemplate.unlink(emptyKeys);
+                deletedCount[0] += unlinked != null ? unlinked : 0;
+                log.debug("删除空的缓存键 {} 个", emptyKeys.size());
+                return keys.size() + 1;
+            });
+            if (keyCount < 0) {
+                return;
             }
-            
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-            
-            log.info("空缓存键清理完成，共检查 {} 个缓存键，删除 {} 个空键，耗时 {}ms", 
-                    keys != null ? keys.size() : 0, deletedCount, duration);
-            
+
+            log.info("空缓存键清理完成，共检查 {} 个缓存键，删除 {} 个空键，耗时 {}ms",
+                    keyCount, deletedCount[0], System.currentTimeMillis() - startTime);
+
         } catch (Exception e) {
             log.error("清理空缓存键时发生错误", e);
         }
     }
-    
+
     /**
      * 缓存统计信息
      * 每天上午9点执行
@@ -133,41 +164,134 @@ public class CacheCleanupJob {
     @Scheduled(cron = "0 0 9 * * ?")
     public void cacheStatistics() {
         log.info("开始统计缓存信息...");
-        
+
         try {
-            // 获取所有用户提醒缓存的键
-            String pattern = CacheKeyEnum.USER_REMINDERS_ZSET.getKeyPrefix() + "*";
-            Set<String> keys = redisTemplate.keys(pattern);
-            
-            if (keys != null && !keys.isEmpty()) {
-                int totalKeys = keys.size();
-                long totalReminders = 0;
-                int emptyKeys = 0;
-                
-                for (String key : keys) {
-                    try {
-                        Long size = redisTemplate.opsForZSet().zCard(key);
-                        if (size != null) {
-                            if (size == 0) {
-                                emptyKeys++;
-                            } else {
-                                totalReminders += size;
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.error("统计缓存键 {} 时出错", key, e);
+            long[] totalReminders = {0};
+            long[] emptyKeys = {0};
+
+            long totalKeys = sweep("statistics", keys -> {
+                for (Long size : zCards(keys)) {
+                    if (size == null || size == 0) {
+                        emptyKeys[0]++;
+                    } else {
+                        totalReminders[0] += size;
                     }
                 }
-                
-                log.info("缓存统计信息 - 总缓存键数: {}，总提醒数: {}，空键数: {}，平均每个用户提醒数: {}", 
-                        totalKeys, totalReminders, emptyKeys, 
-                        totalKeys > 0 ? String.format("%.2f", (double) totalReminders / totalKeys) : "0");
-            } else {
+                return keys.size();
+            });
+
+            if (totalKeys > 0) {
+                log.info("缓存统计信息 - 总缓存键数: {}，总提醒数: {}，空键数: {}，平均每个用户提醒数: {}",
+                        totalKeys, totalReminders[0], emptyKeys[0],
+                        String.format("%.2f", (double) totalReminders[0] / totalKeys));
+            } else if (totalKeys == 0) {
                 log.info("缓存统计信息 - 当前没有提醒缓存数据");
             }
-            
+
         } catch (Exception e) {
             log.error("统计缓存信息时发生错误", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 在租约保护下用SCAN遍历所有用户提醒缓存键，按批交给处理器，并按命令数限速
+     *
+     * @param taskName 任务名，用于区分租约
+     * @param handler 批处理器
+     * @return 遍历的键数；其他实例正在执行时返回-1
+     */
+    private long sweep(String taskName, KeyBatchHandler handler) {
+        String lockKey = LOCK_KEY_PREFIX + taskName;
+        Duration lease = Duration.ofMillis(leaseMillis);
+        String token = redisLeaseLock.tryAcquire(lockKey, lease);
+        if (token == null) {
+            log.info("缓存清理任务 [{}] 正由其他实例执行，本实例跳过", taskName);
+            return -1;
+        }
+
+        long startTime = System.currentTimeMillis();
+        long keyCount = 0;
+        long ops = 0;
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(CacheKeyEnum.USER_REMINDERS_ZSET.getKeyPrefix() + "*")
+                .count(scanCount)
+                .build();
+
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() < batchSize && cursor.hasNext()) {
+                    continue;
+                }
+
+                try {
+                    ops += handler.handle(batch);
+                } catch (Exception e) {
+                    log.error("缓存清理任务 [{}] 处理一批缓存键时出错，跳过该批", taskName, e);
+                    ops += batch.size();
+                }
+                keyCount += batch.size();
+                batch = new ArrayList<>(batchSize);
+
+                if (!redisLeaseLock.renew(lockKey, token, lease)) {
+                    log.warn("缓存清理任务 [{}] 租约已失效，停止本次执行，已处理 {} 个缓存键", taskName, keyCount);
+                    return keyCount;
+                }
+                if (!throttle(startTime, ops)) {
+                    log.warn("缓存清理任务 [{}] 被中断，已处理 {} 个缓存键", taskName, keyCount);
+                    return keyCount;
+                }
+            }
+        } catch (RuntimeException e) {
+            redisLeaseLock.release(lockKey, token);
+            throw e;
+        }
+        // 正常完成后不释放租约：租约到期前，时钟稍慢、稍后触发的实例不会重复执行本次清理
+        return keyCount;
+    }
+
+    /**
+     * 按每秒命令数上限计算应耗时间，执行过快时暂停
+     *
+     * @return 线程被中断时返回false
+     */
+    private boolean throttle(long startTime, long ops) {
+        if (maxOpsPerSecond <= 0) {
+            return true;
+        }
+        long expectedMillis = ops * 1000 / maxOpsPerSecond;
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        if (expectedMillis <= elapsedMillis) {
+            return true;
+        }
+        try {
+            Thread.sleep(expectedMillis - elapsedMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 管道批量获取ZSet大小，结果与键一一对应
+     */
+    private List<Long> zCards(List<String> keys) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.zSetCommands().zCard(rawKey(key));
+            }
+            return null;
+        });
+        List<Long> sizes = new ArrayList<>(results.size());
+        for (Object result : results) {
+            sizes.add(result instanceof Long ? (Long) result : null);
+        }
+        return sizes;
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
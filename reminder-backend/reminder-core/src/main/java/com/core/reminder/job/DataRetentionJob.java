@@ -0,0 +1,122 @@
+package com.core.reminder.job;
+
+import com.core.reminder.service.DataRetentionService;
+import com.core.reminder.utils.RedisLeaseLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.Executor;
+
+/**
+ * 过期数据清理定时任务
+ * 每天按保留天数清理提醒执行历史和用户活动日志，分块删除见 {@link DataRetentionService}
+ *
+ * 各实例同时触发时只有取得租约的实例执行；保留天数小于等于0时不清理对应的表。
+ * 管理员手动清理活动日志也通过本任务提交，使用同一租约，不会与定时清理或其他实例的手动清理重叠。
+ */
+@Component
+public class DataRetentionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(DataRetentionJob.class);
+
+    private static final String LOCK_KEY = "lock:data-retention";
+
+    @Autowired
+    private DataRetentionService dataRetentionService;
+
+    @Autowired
+    private RedisLeaseLock redisLeaseLock;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    /**
+     * 提醒执行历史保留天数
+     */
+    @Value("${reminder.retention.execution-history-days:0}")
+    private int executionHistoryDays;
+
+    /**
+     * 用户活动日志保留天数
+     */
+    @Value("${reminder.retention.activity-log-days:0}")
+    private int activityLogDays;
+
+    /**
+     * 租约时长（毫秒），应大于一次清理的耗时
+     */
+    @Value("${reminder.retention.lease-ms:3600000}")
+    private long leaseMillis;
+
+    /**
+     * 每天凌晨4点30分执行
+     */
+    @Scheduled(cron = "${reminder.retention.cron:0 30 4 * * ?}")
+    public void purgeExpiredData() {
+        if (executionHistoryDays <= 0 && activityLogDays <= 0) {
+            return;
+        }
+        String token = redisLeaseLock.tryAcquire(LOCK_KEY, Duration.ofMillis(leaseMillis));
+        if (token == null) {
+            log.info("过期数据清理正由其他实例执行，本实例跳过");
+            return;
+        }
+
+        // 正常完成后不释放租约，理由同CacheCleanupJob：避免稍后触发的实例重复执行
+        OffsetDateTime now = OffsetDateTime.now();
+        if (executionHistoryDays > 0) {
+            try {
+                dataRetentionService.purgeExecutionHistory(now.minusDays(executionHistoryDays));
+            } catch (Exception e) {
+                log.error("清理提醒执行历史时发生错误", e);
+            }
+        }
+        if (activityLogDays > 0 && !Thread.currentThread().isInterrupted()) {
+            try {
+                dataRetentionService.purgeActivityLogs(now.minusDays(activityLogDays));
+            } catch (Exception e) {
+                log.error("清理用户活动日志时发生错误", e);
+            }
+        }
+    }
+
+    /**
+     * 提交一次手动的用户活动日志清理，在异步线程中执行
+     * 与定时清理使用同一租约，清理完成后释放，不影响之后的定时清理
+     *
+     * @param daysToKeep 保留天数
+     * @return 是否已提交，其他清理正在执行时返回false
+     */
+    public boolean triggerActivityLogPurge(int daysToKeep) {
+        String token = redisLeaseLock.tryAcquire(LOCK_KEY, Duration.ofMillis(leaseMillis));
+        if (token == null) {
+            log.info("过期数据清理正在执行，忽略本次手动清理");
+            return false;
+        }
+        OffsetDateTime cutoffTime = OffsetDateTime.now().minusDays(daysToKeep);
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    long deleted = dataRetentionService.purgeActivityLogs(cutoffTime);
+                    log.info("手动清理了{}天前的活动日志 {} 条", daysToKeep, deleted);
+                } catch (Exception e) {
+                    log.error("手动清理用户活动日志时发生错误", e);
+                } finally {
+                    redisLeaseLock.release(LOCK_KEY, token);
+                }
+            });
+        } catch (RuntimeException e) {
+            redisLeaseLock.release(LOCK_KEY, token);
+            throw e;
+        }
+        return true;
+    }
+}
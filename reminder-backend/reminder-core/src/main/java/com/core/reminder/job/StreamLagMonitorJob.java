@@ -0,0 +1,208 @@
+package com.core.reminder.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisZSetCommands.Limit;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stream消费延迟监控任务
+ * 定期采集复杂提醒事件Stream和活动日志Stream上每个消费组的挂起消息数、最早挂起消息的空闲时间、
+ * 未投递消息数和投递延迟
+ *
+ * 采集后顺带把Stream近似裁剪（XTRIM MAXLEN ~）到 max-len 左右，发送路径上不再执行裁剪。
+ * 裁剪前检查所有消费组的last-delivered-id和最早的挂起消息，只裁剪所有消费组都已投递并确认的消息，
+ * 消费者积压时宁可让Stream暂时超长，也不丢弃未处理的消息。
+ */
+@Component
+public class StreamLagMonitorJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamLagMonitorJob.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${reminder.stream.key:complex-reminder-stream}")
+    private String streamKey;
+
+    @Value("${reminder.activity-log.stream-key:activity-log-stream}")
+    private String activityLogStreamKey;
+
+    /**
+     * 未投递消息数的统计上限，超过时按上限报告，避免积压严重时扫描整个Stream
+     */
+    @Value("${reminder.stream.lag.undelivered-count-limit:1000}")
+    private int undeliveredCountLimit;
+
+    /**
+     * 最早挂起消息空闲超过该时间（毫秒）时输出告警日志
+     */
+    @Value("${reminder.stream.lag.warn-idle-ms:300000}")
+    private long warnIdleMillis;
+
+    /**
+     * Stream保留的消息数（近似值）
+     */
+    @Value("${reminder.stream.max-len:10000}")
+    private long maxLen;
+
+    /**
+     * 最近一次采集结果：Stream/消费组名 -> 指标
+     */
+    private volatile Map<String, Map<String, Object>> latestLag = Collections.emptyMap();
+
+    /**
+     * 采集Stream消费延迟
+     * 默认每分钟执行一次
+     */
+    @Scheduled(fixedDelayString = "${reminder.stream.lag.interval-ms:60000}")
+    public void collectStreamLag() {
+        Map<String, Map<String, Object>> snapshot = new LinkedHashMap<>();
+        for (String key : Arrays.asList(streamKey, activityLogStreamKey)) {
+            collectStreamLag(key, snapshot);
+            trimIfSafe(key);
+        }
+        latestLag = snapshot;
+    }
+
+    private void collectStreamLag(String key, Map<String, Map<String, Object>> snapshot) {
+        try {
+            StreamOperations<String, Object, Object> streamOperations = redisTemplate.opsForStream();
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                return;
+            }
+            StreamInfo.XInfoStream streamInfo = streamOperations.info(key);
+            RecordId lastGeneratedId = RecordId.of(streamInfo.lastGeneratedId());
+
+            for (StreamInfo.XInfoGroup group : streamOperations.groups(key)) {
+                RecordId lastDeliveredId = RecordId.of(group.lastDeliveredId());
+
+                long oldestPendingIdleMillis = 0;
+                if (group.pendingCount() > 0) {
+                    PendingMessages oldest = streamOperations.pending(key, group.groupName(), Range.unbounded(), 1);
+                    if (oldest != null && !oldest.isEmpty()) {
+                        oldestPendingIdleMillis = oldest.get(0).getElapsedTimeSinceLastDelivery().toMillis();
+                    }
+                }
+
+                int undelivered = streamOperations.range(key,
+                        Range.of(Range.Bound.exclusive(lastDeliveredId.getValue()), Range.Bound.unbounded()),
+                        Limit.limit().count(undeliveredCountLimit)).size();
+                // 消息ID的时间戳部分即写入时间，两者之差为最后投递的消息落后于最新消息的时间
+                long deliveryLagMillis = Math.max(0, lastGeneratedId.getTimestamp() - lastDeliveredId.getTimestamp());
+
+                Map<String, Object> metrics = new LinkedHashMap<>();
+                metrics.put("consumers", group.consumerCount());
+                metrics.put("pending", group.pendingCount());
+                metrics.put("oldestPendingIdleMs", oldestPendingIdleMillis);
+                metrics.put("undelivered", undelivered);
+                metrics.put("undeliveredCapped", undelivered >= undeliveredCountLimit);
+                metrics.put("deliveryLagMs", deliveryLagMillis);
+                snapshot.put(key + "/" + group.groupName(), metrics);
+
+                if (oldestPendingIdleMillis >= warnIdleMillis || undelivered >= undeliveredCountLimit) {
+                    log.warn("Stream [{}] 消费组 [{}] 积压 - 长度: {}, 指标: {}",
+                            key, group.groupName(), streamInfo.streamLength(), metrics);
+                } else {
+                    log.info("Stream [{}] 消费组 [{}] 消费延迟 - 长度: {}, 指标: {}",
+                            key, group.groupName(), streamInfo.streamLength(), metrics);
+                }
+            }
+        } catch (Exception e) {
+            log.error("采集Stream [{}] 消费延迟失败: {}", key, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在不丢弃未处理消息的前提下把Stream近似裁剪到 max-len 条
+     * 裁剪失败只记录日志
+     */
+    private void trimIfSafe(String key) {
+        try {
+            StreamOperations<String, Object, Object> streamOperations = redisTemplate.opsForStream();
+            Long length = streamOperations.size(key);
+            if (length == null || length <= maxLen) {
+                return;
+            }
+
+            long trimTo = maxLen;
+            RecordId safeBoundary = findSafeTrimBoundary(streamOperations, key);
+            if (safeBoundary != null) {
+                // 统计边界之前（所有消费组都已处理完）的消息数，最多统计需要裁剪的条数
+                int excess = (int) Math.min(Integer.MAX_VALUE, length - maxLen);
+                int processedCount = streamOperations.range(key,
+                        Range.of(Range.Bound.unbounded(), Range.Bound.exclusive(safeBoundary.getValue())),
+                        Limit.limit().count(excess)).size();
+                if (processedCount < excess) {
+                    trimTo = length - processedCount;
+                    log.warn("Stream [{}] 消费积压，只裁剪已处理的 {} 条消息 - 当前长度: {}, 目标长度: {}, 安全边界: {}",
+                            key, processedCount, length, maxLen, safeBoundary);
+                }
+                if (processedCount == 0) {
+                    return;
+                }
+            }
+
+            Long trimmed = streamOperations.trim(key, trimTo, true);
+            log.debug("Stream [{}] 近似裁剪完成 - 裁剪前长度: {}, MAXLEN ~ {}, 删除: {}", key, length, trimTo, trimmed);
+        } catch (Exception e) {
+            log.error("裁剪Stream [{}] 失败: {}", key, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 计算安全裁剪边界：所有消费组中最小的last-delivered-id与最早挂起消息ID中的较小者
+     * 边界之前的消息已被所有消费组投递并确认
+     *
+     * @return 安全边界，没有消费组时返回null（无人消费，可直接按长度裁剪）
+     */
+    private RecordId findSafeTrimBoundary(StreamOperations<String, Object, Object> streamOperations,
+                                          String key) {
+        RecordId boundary = null;
+        for (StreamInfo.XInfoGroup group : streamOperations.groups(key)) {
+            boundary = minRecordId(boundary, RecordId.of(group.lastDeliveredId()));
+            if (group.pendingCount() > 0) {
+                PendingMessagesSummary summary = streamOperations.pending(key, group.groupName());
+                if (summary != null && summary.minMessageId() != null) {
+                    boundary = minRecordId(boundary, RecordId.of(summary.minMessageId()));
+                }
+            }
+        }
+        return boundary;
+    }
+
+    private static RecordId minRecordId(RecordId current, RecordId candidate) {
+        if (current == null) {
+            return candidate;
+        }
+        int compare = Long.compare(candidate.getTimestamp(), current.getTimestamp());
+        if (compare == 0) {
+            compare = Long.compare(candidate.getSequence(), current.getSequence());
+        }
+        return compare < 0 ? candidate : current;
+    }
+
+    /**
+     * 获取最近一次采集的消费延迟指标
+     *
+     * @return Stream/消费组名 -> 指标
+     */
+    public Map<String, Map<String, Object>> getLatestLag() {
+        return latestLag;
+    }
+}
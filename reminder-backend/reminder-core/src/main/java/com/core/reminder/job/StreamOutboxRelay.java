@@ -0,0 +1,157 @@
+package com.core.reminder.job;
+
+import com.common.reminder.utils.JacksonUtils;
+import com.core.reminder.model.StreamOutboxEvent;
+import com.core.reminder.repository.StreamOutboxRepository;
+import com.core.reminder.utils.RedisLeaseLock;
+import com.core.reminder.utils.StreamEventPublisher;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stream事件发件箱中继任务
+ * 定期把stream_outbox中的事件批量投递到Redis Stream（管道XADD），投递成功后分块删除
+ *
+ * 同一时间只有持有租约的一个实例在投递，保证事件按写入顺序进入Stream，同一复杂提醒的事件不会乱序；
+ * 每批事件仍在一个数据库事务内用 FOR UPDATE SKIP LOCKED 锁定，租约过期交接时也不会重复投递。
+ * Redis不可用时事务回滚，事件保留到下次重试。XADD成功但删除前进程退出会导致重复投递，消费端需幂等。
+ * 数据无法解析的事件标记为失败并保留在表中，不再投递，也不阻塞后续事件。
+ */
+@Component
+public class StreamOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamOutboxRelay.class);
+
+    private static final String LOCK_KEY = "lock:stream-outbox-relay";
+
+    private static final TypeReference<Map<String, String>> EVENT_DATA_TYPE = new TypeReference<Map<String, String>>() {};
+
+    @Autowired
+    private StreamOutboxRepository streamOutboxRepository;
+
+    @Autowired
+    private StreamEventPublisher streamEventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RedisLeaseLock redisLeaseLock;
+
+    /**
+     * 每批投递的事件数
+     */
+    @Value("${reminder.outbox.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 删除已投递事件时每条DELETE语句的最大ID数
+     */
+    @Value("${reminder.outbox.delete-chunk-size:500}")
+    private int deleteChunkSize;
+
+    /**
+     * 单次执行最多投递的事件数，避免积压时长时间占用调度线程
+     */
+    @Value("${reminder.outbox.max-per-run:5000}")
+    private int maxPerRun;
+
+    /**
+     * 中继租约时长（毫秒），每投递一批续期一次，需大于单批投递的耗时
+     */
+    @Value("${reminder.outbox.lease-ms:30000}")
+    private long leaseMillis;
+
+    /**
+     * 投递发件箱中的事件
+     * 默认每500毫秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${reminder.outbox.relay-interval-ms:500}")
+    public void relayOutboxEvents() {
+        Duration lease = Duration.ofMillis(leaseMillis);
+        String token;
+        try {
+            token = redisLeaseLock.tryAcquire(LOCK_KEY, lease);
+        } catch (Exception e) {
+            log.error("获取发件箱中继租约失败，本次跳过: {}", e.getMessage());
+            return;
+        }
+        if (token == null) {
+            log.debug("发件箱中继正由其他实例执行，本实例跳过");
+            return;
+        }
+
+        int relayedTotal = 0;
+        try {
+            while (relayedTotal < maxPerRun) {
+                Integer relayed = transactionTemplate.execute(status -> relayBatch());
+                if (relayed == null || relayed == 0) {
+                    break;
+                }
+                relayedTotal += relayed;
+                if (relayed < batchSize) {
+                    break;
+                }
+                if (!redisLeaseLock.renew(LOCK_KEY, token, lease)) {
+                    log.warn("发件箱中继租约已失效，停止本次投递，已投递 {} 条", relayedTotal);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("投递发件箱事件失败，已投递 {} 条，剩余事件下次重试: {}", relayedTotal, e.getMessage(), e);
+        } finally {
+            redisLeaseLock.release(LOCK_KEY, token);
+        }
+        if (relayedTotal > 0) {
+            log.info("发件箱中继完成，本次投递 {} 条事件", relayedTotal);
+        }
+    }
+
+    /**
+     * 锁定并投递一批事件，在调用方事务内执行
+     *
+     * @return 本批处理的事件数
+     */
+    private int relayBatch() {
+        List<StreamOutboxEvent> events = streamOutboxRepository.lockNextBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<Map<String, String>> payloads = new ArrayList<>(events.size());
+        List<Long> ids = new ArrayList<>(events.size());
+        List<Long> failedIds = new ArrayList<>();
+        for (StreamOutboxEvent event : events) {
+            try {
+                payloads.add(JacksonUtils.fromJson(event.getPayload(), EVENT_DATA_TYPE));
+                ids.add(event.getId());
+            } catch (Exception e) {
+                // 无法解析的事件无法投递，标记为失败后保留，避免阻塞后续事件
+                log.error("发件箱事件 {} 的数据无法解析，已标记为投递失败: {}", event.getId(), event.getPayload(), e);
+                failedIds.add(event.getId());
+            }
+        }
+
+        streamEventPublisher.publishBatch(payloads);
+
+        if (!failedIds.isEmpty()) {
+            streamOutboxRepository.markFailedByIdIn(failedIds, OffsetDateTime.now());
+        }
+        for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+            streamOutboxRepository.deleteByIdIn(ids.subList(from, Math.min(from + deleteChunkSize, ids.size())));
+        }
+        return events.size();
+    }
+}
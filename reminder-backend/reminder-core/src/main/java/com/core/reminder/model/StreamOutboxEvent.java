@@ -0,0 +1,49 @@
+package com.core.reminder.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Stream事件发件箱
+ * 业务事务内写入，事务提交后由StreamOutboxRelay批量投递到Redis Stream，投递成功后删除
+ * 数据无法解析的事件标记为投递失败后保留，供人工排查
+ */
+@Data
+@Entity
+@Table(name = "stream_outbox")
+public class StreamOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 事件命令，如 GENERATE_COMPLEX_REMINDER
+     */
+    @Column(nullable = false, length = 64)
+    private String command;
+
+    /**
+     * 事件数据（JSON格式的字段映射，含command）
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    /**
+     * 投递失败时间，为空表示待投递
+     */
+    @Column(name = "failed_at")
+    private OffsetDateTime failedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = OffsetDateTime.now();
+        }
+    }
+}
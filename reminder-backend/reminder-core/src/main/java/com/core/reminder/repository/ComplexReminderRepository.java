@@ -22,6 +22,21 @@ public interface ComplexReminderRepository extends JpaRepository<ComplexReminder
     // 查询lastGeneratedYm小于指定值的所有记录
     List<ComplexReminder> findByLastGeneratedYmLessThanOrLastGeneratedYmIsNull(Integer targetYearMonth);
 
+    /**
+     * 查询指定接收用户尚未生成到目标年月的复杂提醒
+     * validUntil早于目标月份的模板不会再生成，予以排除
+     * @param toUserId 接收用户ID
+     * @param targetYearMonth 目标年月(格式：YYYYMM)
+     * @param monthStart 目标月份第一天
+     * @return 需要生成简单任务的复杂提醒列表
+     */
+    @Query("SELECT cr FROM ComplexReminder cr WHERE cr.toUserId = :toUserId AND " +
+           "(cr.lastGeneratedYm < :targetYearMonth OR cr.lastGeneratedYm IS NULL) AND " +
+           "(cr.validUntil IS NULL OR cr.validUntil >= :monthStart)")
+    List<ComplexReminder> findNotGeneratedByToUserId(@Param("toUserId") Long toUserId,
+                                                    @Param("targetYearMonth") Integer targetYearMonth,
+                                                    @Param("monthStart") LocalDate monthStart);
+
     // 可以根据需要添加更多查询方法，例如按 cronExpression 查询等
 
     /**
@@ -1,6 +1,6 @@
 package com.core.reminder.repository;
 
-import com.core.reminder.model.LegalHoliday;
+import com.common.reminder.model.LegalHoliday;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -39,9 +40,18 @@ public interface ReminderExecutionHistoryRepository extends JpaRepository<Remind
     @Query("DELETE FROM ReminderExecutionHistory h WHERE h.toUserId = :userId AND h.executedAt < :beforeTime")
     int deleteByToUserIdAndExecutedAtBefore(@Param("userId") Long userId, @Param("beforeTime") OffsetDateTime beforeTime);
 
+    // 过期数据清理（按ID区间分块删除，见DataRetentionService）
+    @Query("SELECT MIN(h.id) FROM ReminderExecutionHistory h")
+    Long findMinId();
+
+    @Query("SELECT MAX(h.id) FROM ReminderExecutionHistory h WHERE h.executedAt < :beforeTime")
+    Long findMaxIdByExecutedAtBefore(@Param("beforeTime") OffsetDateTime beforeTime);
+
+    @Transactional
     @Modifying
-    @Query("DELETE FROM ReminderExecutionHistory h WHERE h.executedAt < :beforeTime")
-    int deleteByExecutedAtBefore(@Param("beforeTime") OffsetDateTime beforeTime);
+    @Query("DELETE FROM ReminderExecutionHistory h WHERE h.id >= :fromId AND h.id < :toId AND h.executedAt < :beforeTime")
+    int deleteChunkByExecutedAtBefore(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                                      @Param("beforeTime") OffsetDateTime beforeTime);
 
     // 统计查询
     long countByToUserIdAndExecutedAtBetween(Long toUserId, OffsetDateTime startTime, OffsetDateTime endTime);
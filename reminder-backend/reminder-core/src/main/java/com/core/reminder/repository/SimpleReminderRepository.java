@@ -1,18 +1,36 @@
 package com.core.reminder.repository;
 
+import com.common.reminder.model.ReminderType;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.model.SimpleReminderView;
+import com.common.reminder.utils.FutureReminderReconciler;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
+
 @Repository
-public interface SimpleReminderRepository extends JpaRepository<SimpleReminder, Long> {
+public interface SimpleReminderRepository extends JpaRepository<SimpleReminder, Long>, FutureReminderReconciler.Store {
+
+    /**
+     * 列表视图投影：用构造器表达式只取列表渲染的列，不读取描述和创建/更新时间，
+     * 结果是普通对象，不进入持久化上下文，没有实体装配和脏检查快照
+     */
+    String VIEW_SELECT = "SELECT new com.common.reminder.model.SimpleReminderView(" +
+            "sr.id, sr.fromUserId, sr.toUserId, sr.title, sr.eventTime, " +
+            "sr.reminderType, sr.originatingComplexReminderId) " +
+            "FROM SimpleReminder sr ";
 
     // 可能需要的查询方法示例
     List<SimpleReminder> findByFromUserId(Long fromUserId);
@@ -34,8 +52,21 @@ public interface SimpleReminderRepository extends JpaRepository<SimpleReminder,
     // 查询最近的10个提醒(按eventTime从近到远排序)
     List<SimpleReminder> findTop10ByEventTimeAfterOrderByEventTimeAsc(OffsetDateTime now);
 
-    // 新增：查询指定用户即将到来的10个提醒
-    List<SimpleReminder> findTop10ByToUserIdAndEventTimeAfterOrderByEventTimeAsc(Long toUserId, OffsetDateTime now);
+    /**
+     * 查询指定用户即将到来的提醒（列表视图投影，只读）
+     *
+     * @param toUserId 接收用户ID
+     * @param now 当前时间
+     * @param pageable 条数限制
+     * @return 按触发时间排序的提醒列表视图（不含描述）
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(VIEW_SELECT + "WHERE sr.toUserId = :toUserId AND sr.eventTime > :now ORDER BY sr.eventTime ASC")
+    List<SimpleReminderView> findUpcomingViewsByToUserId(
+            @Param("toUserId") Long toUserId,
+            @Param("now") OffsetDateTime now,
+            Pageable pageable);
 
     /**
      * 查询未来1分钟内需要触发的提醒事项
@@ -69,34 +100,140 @@ public interface SimpleReminderRepository extends JpaRepository<SimpleReminder,
                                                               @Param("currentTime") OffsetDateTime currentTime);
 
     /**
-     * 按年月和用户ID查询简单提醒
-     * 查询指定月份内触发的提醒
+     * 查询指定复杂提醒在指定时间之后生成的简单提醒（按触发时间升序）
+     * 用于复杂提醒更新时与新的触发时间集合做差异比较
+     * @param originatingComplexReminderId 来源复杂提醒ID
+     * @param currentTime 当前时间，只返回触发时间大于此时间的记录
+     * @return 未来的简单提醒列表
+     */
+    @Override
+    List<SimpleReminder> findByOriginatingComplexReminderIdAndEventTimeAfterOrderByEventTimeAsc(
+            Long originatingComplexReminderId, OffsetDateTime currentTime);
+
+    /**
+     * 按ID批量删除简单提醒
+     * @param ids 简单提醒ID集合
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SimpleReminder sr WHERE sr.id IN :ids")
+    @Override
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 将复杂提醒模板的字段批量同步到其未来的简单提醒（单条UPDATE语句）
+     * 已经过去的简单提醒不受影响；标题和描述在读取时从模板补全，不在此同步
+     * @param originatingComplexReminderId 来源复杂提醒ID
+     * @param currentTime 当前时间，只更新触发时间大于此时间的记录
+     * @param fromUserId 创建用户ID
+     * @param toUserId 接收用户ID
+     * @param reminderType 提醒方式
+     * @param updatedAt 更新时间
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SimpleReminder sr SET sr.fromUserId = :fromUserId, sr.toUserId = :toUserId, " +
+           "sr.reminderType = :reminderType, sr.updatedAt = :updatedAt " +
+           "WHERE sr.originatingComplexReminderId = :originatingComplexReminderId AND sr.eventTime > :currentTime")
+    @Override
+    int updateTemplateFieldsByOriginatingComplexReminderIdAndEventTimeAfter(
+            @Param("originatingComplexReminderId") Long originatingComplexReminderId,
+            @Param("currentTime") OffsetDateTime currentTime,
+            @Param("fromUserId") Long fromUserId,
+            @Param("toUserId") Long toUserId,
+            @Param("reminderType") ReminderType reminderType,
+            @Param("updatedAt") OffsetDateTime updatedAt);
+
+    /**
+     * 将模板文本写回仍沿用模板的简单提醒（title为空的记录）
+     * 删除复杂提醒但保留其历史简单提醒时调用，避免模板删除后无法补全文本
+     * @param originatingComplexReminderId 来源复杂提醒ID
+     * @param title 模板标题
+     * @param description 模板描述
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SimpleReminder sr SET sr.title = :title, sr.description = :description " +
+           "WHERE sr.originatingComplexReminderId = :originatingComplexReminderId AND sr.title IS NULL")
+    int fillTemplateTextByOriginatingComplexReminderId(
+            @Param("originatingComplexReminderId") Long originatingComplexReminderId,
+            @Param("title") String title,
+            @Param("description") String description);
+
+    /**
+     * 将模板文本写回指定时间之前仍沿用模板的简单提醒（title为空的记录）
+     * 修改复杂提醒的标题或描述前调用，已经触发的任务保留当时的文本，不随模板变化
+     * @param originatingComplexReminderId 来源复杂提醒ID
+     * @param eventTime 截止时间（不含）
+     * @param title 修改前的模板标题
+     * @param description 修改前的模板描述
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SimpleReminder sr SET sr.title = :title, sr.description = :description " +
+           "WHERE sr.originatingComplexReminderId = :originatingComplexReminderId AND sr.title IS NULL " +
+           "AND sr.eventTime < :eventTime")
+    int fillTemplateTextByOriginatingComplexReminderIdAndEventTimeBefore(
+            @Param("originatingComplexReminderId") Long originatingComplexReminderId,
+            @Param("eventTime") OffsetDateTime eventTime,
+            @Param("title") String title,
+            @Param("description") String description);
+
+    /**
+     * 查询用户在 [startTime, endTime) 内触发的简单提醒（列表视图投影，只读）
      * 
-     * @param year 年份
-     * @param month 月份(1-12)
      * @param userId 用户ID
-     * @return 符合条件的简单提醒列表
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @return 按触发时间排序的简单提醒列表视图（不含描述）
      */
-    @Query("SELECT sr FROM SimpleReminder sr WHERE " +
-           "YEAR(sr.eventTime) = :year AND MONTH(sr.eventTime) = :month AND " +
-           "sr.toUserId = :userId ORDER BY sr.eventTime ASC")
-    List<SimpleReminder> findByYearMonthAndUserId(
-            @Param("year") int year, 
-            @Param("month") int month, 
-            @Param("userId") Long userId);
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(VIEW_SELECT + "WHERE sr.toUserId = :userId " +
+           "AND sr.eventTime >= :startTime AND sr.eventTime < :endTime ORDER BY sr.eventTime ASC")
+    List<SimpleReminderView> findViewsByToUserIdAndEventTimeRange(
+            @Param("userId") Long userId,
+            @Param("startTime") OffsetDateTime startTime,
+            @Param("endTime") OffsetDateTime endTime);
     
     /**
-     * 按年月查询简单提醒（不限用户）
-     * 查询指定月份内触发的提醒
+     * 查询在 [startTime, endTime) 内触发的简单提醒（不限用户）
      * 
-     * @param year 年份
-     * @param month 月份(1-12)
-     * @return 符合条件的简单提醒列表
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @return 按触发时间排序的简单提醒列表
      */
     @Query("SELECT sr FROM SimpleReminder sr WHERE " +
-           "YEAR(sr.eventTime) = :year AND MONTH(sr.eventTime) = :month " +
-           "ORDER BY sr.eventTime ASC")
-    List<SimpleReminder> findByYearMonth(@Param("year") int year, @Param("month") int month);
+           "sr.eventTime >= :startTime AND sr.eventTime < :endTime ORDER BY sr.eventTime ASC")
+    List<SimpleReminder> findByEventTimeRange(
+            @Param("startTime") OffsetDateTime startTime,
+            @Param("endTime") OffsetDateTime endTime);
+    
+    /**
+     * 插入一条模板生成的简单任务，同一模板同一触发时间已存在时不插入
+     * 标题和描述为空时按TEXT绑定，避免null参数被推断为bytea
+     * @return 新记录的ID，已存在时返回null
+     */
+    @Transactional
+    @Query(value = "INSERT INTO simple_reminder (from_user_id, to_user_id, title, description, event_time, " +
+           "reminder_type, originating_complex_reminder_id, created_at, updated_at) " +
+           "VALUES (:fromUserId, :toUserId, CAST(:title AS TEXT), CAST(:description AS TEXT), :eventTime, " +
+           ":reminderType, :originatingComplexReminderId, :createdAt, :createdAt) " +
+           "ON CONFLICT (originating_complex_reminder_id, event_time) DO NOTHING RETURNING id",
+           nativeQuery = true)
+    @Override
+    Long insertIgnoringDuplicate(@Param("fromUserId") Long fromUserId,
+                                 @Param("toUserId") Long toUserId,
+                                 @Param("title") String title,
+                                 @Param("description") String description,
+                                 @Param("eventTime") OffsetDateTime eventTime,
+                                 @Param("reminderType") String reminderType,
+                                 @Param("originatingComplexReminderId") Long originatingComplexReminderId,
+                                 @Param("createdAt") OffsetDateTime createdAt);
 
     // 可以根据需要添加更多查询方法
 } 
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.core.reminder.repository;
+
+import com.core.reminder.model.StreamOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StreamOutboxRepository extends JpaRepository<StreamOutboxEvent, Long> {
+
+    /**
+     * 按写入顺序锁定一批待投递事件（不含已标记失败的事件），已被其他实例锁定的行直接跳过
+     * 必须在事务内调用，锁在事务结束时释放
+     * @param limit 批量大小
+     * @return 待投递事件
+     */
+    @Query(value = "SELECT * FROM stream_outbox WHERE failed_at IS NULL ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<StreamOutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    /**
+     * 按ID批量删除已投递的事件
+     * @param ids 事件ID集合
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Query("DELETE FROM StreamOutboxEvent e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 把无法投递的事件标记为失败，之后不再投递
+     * @param ids 事件ID集合
+     * @param failedAt 失败时间
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE StreamOutboxEvent e SET e.failedAt = :failedAt WHERE e.id IN :ids")
+    int markFailedByIdIn(@Param("ids") Collection<Long> ids, @Param("failedAt") OffsetDateTime failedAt);
+}
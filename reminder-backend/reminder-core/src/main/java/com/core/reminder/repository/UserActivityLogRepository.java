@@ -7,9 +7,11 @@ import com.common.reminder.model.UserActivityLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -109,9 +111,25 @@ public interface UserActivityLogRepository extends JpaRepository<UserActivityLog
     Page<UserActivityLog> findHighRiskActivities(Pageable pageable);
 
     /**
-     * 删除指定时间之前的日志记录（用于数据清理）
+     * 最小日志ID（用于按ID区间分块清理）
      */
-    void deleteByCreatedAtBefore(OffsetDateTime cutoffTime);
+    @Query("SELECT MIN(l.id) FROM UserActivityLog l")
+    Long findMinId();
+
+    /**
+     * 指定时间之前的最大日志ID（分块清理的终点）
+     */
+    @Query("SELECT MAX(l.id) FROM UserActivityLog l WHERE l.createdAt < :cutoffTime")
+    Long findMaxIdByCreatedAtBefore(@Param("cutoffTime") OffsetDateTime cutoffTime);
+
+    /**
+     * 删除ID区间[fromId, toId)内指定时间之前的日志记录，每次调用一个独立事务
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserActivityLog l WHERE l.id >= :fromId AND l.id < :toId AND l.createdAt < :cutoffTime")
+    int deleteChunkByCreatedAtBefore(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                                     @Param("cutoffTime") OffsetDateTime cutoffTime);
 
     /**
      * 统计各操作类型的数量
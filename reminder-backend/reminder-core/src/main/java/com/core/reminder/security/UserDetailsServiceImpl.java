@@ -1,6 +1,7 @@
 package com.core.reminder.security;
 
 import com.common.reminder.model.AppUser;
+import com.core.reminder.config.ReplicaRoutingDataSource;
 import com.core.reminder.repository.AppUserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.User;
@@ -21,7 +22,8 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        AppUser appUser = appUserRepository.findByUsername(username)
+        // 登录可能紧跟在注册之后，读主库
+        AppUser appUser = ReplicaRoutingDataSource.onPrimary(() -> appUserRepository.findByUsername(username))
                 .orElseThrow(() ->
                         new UsernameNotFoundException("User not found with username: " + username)
                 );
@@ -0,0 +1,195 @@
+package com.core.reminder.service;
+
+import com.core.reminder.repository.ReminderExecutionHistoryRepository;
+import com.core.reminder.repository.UserActivityLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 过期数据清理服务（提醒执行历史、用户活动日志）
+ *
+ * 不用一条DELETE删除全部过期数据，避免长时间持有锁、产生大量WAL并阻塞发送链路的写入：
+ * 1. 表已按时间范围分区时，整个分区都已过期的直接分离并删除
+ * 2. 其余过期数据按ID区间分块删除，每块一个独立事务，块之间暂停，让出IO和锁
+ * 删除条件同时限定时间，重复执行是幂等的；中断后再次执行从最小的剩余ID开始，相当于从上次进度继续。
+ */
+@Slf4j
+@Service
+public class DataRetentionService {
+
+    /**
+     * 按单列时间范围分区、上界不晚于截止时间的子分区
+     */
+    private static final String EXPIRED_PARTITIONS_SQL =
+            "SELECT quote_ident(c.relname) FROM pg_partitioned_table pt "
+                    + "JOIN pg_attribute a ON a.attrelid = pt.partrelid AND a.attnum = pt.partattrs[0] "
+                    + "JOIN pg_inherits i ON i.inhparent = pt.partrelid "
+                    + "JOIN pg_class c ON c.oid = i.inhrelid "
+                    + "WHERE pt.partrelid = to_regclass(?) AND pt.partstrat = 'r' AND pt.partnatts = 1 "
+                    + "AND a.attname = ? "
+                    + "AND substring(pg_get_expr(c.relpartbound, c.oid) from 'TO \\(''([^'']+)''\\)')::timestamptz <= ?";
+
+    @Autowired
+    private ReminderExecutionHistoryRepository historyRepository;
+
+    @Autowired
+    private UserActivityLogRepository activityLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 每块删除的ID区间宽度
+     */
+    @Value("${reminder.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    /**
+     * 两块之间的暂停时间（毫秒）
+     */
+    @Value("${reminder.retention.pause-ms:200}")
+    private long pauseMillis;
+
+    /**
+     * 每删除多少块输出一次进度
+     */
+    @Value("${reminder.retention.progress-log-chunks:50}")
+    private int progressLogChunks;
+
+    /**
+     * 按ID区间删除一块过期数据
+     */
+    private interface ChunkDeleter {
+
+        /**
+         * @param fromId 区间起点（含）
+         * @param toId 区间终点（不含）
+         * @param beforeTime 截止时间
+         * @return 删除的行数
+         */
+        int delete(Long fromId, Long toId, OffsetDateTime beforeTime);
+    }
+
+    /**
+     * 清理提醒执行历史
+     *
+     * @param beforeTime 删除执行时间早于此时间的记录
+     * @return 分块删除的行数（不含整体删除的分区中的行）
+     */
+    public long purgeExecutionHistory(OffsetDateTime beforeTime) {
+        return purge("reminder_execution_history", "executed_at", beforeTime,
+                historyRepository::findMinId,
+                historyRepository::findMaxIdByExecutedAtBefore,
+                historyRepository::deleteChunkByExecutedAtBefore);
+    }
+
+    /**
+     * 清理用户活动日志
+     *
+     * @param beforeTime 删除创建时间早于此时间的日志
+     * @return 分块删除的行数（不含整体删除的分区中的行）
+     */
+    public long purgeActivityLogs(OffsetDateTime beforeTime) {
+        return purge("user_activity_logs", "created_at", beforeTime,
+                activityLogRepository::findMinId,
+                activityLogRepository::findMaxIdByCreatedAtBefore,
+                activityLogRepository::deleteChunkByCreatedAtBefore);
+    }
+
+    private long purge(String table, String timeColumn, OffsetDateTime beforeTime,
+                       Supplier<Long> minId, Function<OffsetDateTime, Long> maxIdBefore, ChunkDeleter deleter) {
+        long startTime = System.currentTimeMillis();
+        log.info("开始清理 {} 中 {} 之前的数据", table, beforeTime);
+
+        int droppedPartitions = dropExpiredPartitions(table, timeColumn, beforeTime);
+
+        Long firstId = minId.get();
+        Long lastId = maxIdBefore.apply(beforeTime);
+        if (firstId == null || lastId == null || firstId > lastId) {
+            log.info("{} 清理完成 - 删除分区 {} 个，没有需要逐行删除的过期数据，耗时 {}ms",
+                    table, droppedPartitions, System.currentTimeMillis() - startTime);
+            return 0;
+        }
+
+        long deleted = 0;
+        long chunks = 0;
+        long fromId = firstId;
+        while (fromId <= lastId) {
+            long toId = Math.min(fromId + chunkSize, lastId + 1);
+            deleted += deleter.delete(fromId, toId, beforeTime);
+            fromId = toId;
+            chunks++;
+
+            if (progressLogChunks > 0 && chunks % progressLogChunks == 0) {
+                log.info("{} 清理进度 - 已删除 {} 行，ID {}/{}（{}%），速率 {} 行/秒",
+                        table, deleted, fromId - 1, lastId,
+                        (fromId - firstId) * 100 / (lastId - firstId + 1),
+                        rowsPerSecond(deleted, startTime));
+            }
+            if (fromId <= lastId && !pause()) {
+                log.warn("{} 清理被中断 - 已删除 {} 行，停在ID {}，下次执行从剩余最小ID继续", table, deleted, fromId);
+                return deleted;
+            }
+        }
+
+        log.info("{} 清理完成 - 删除分区 {} 个，分 {} 块删除 {} 行，耗时 {}ms，速率 {} 行/秒",
+                table, droppedPartitions, chunks, deleted, System.currentTimeMillis() - startTime,
+                rowsPerSecond(deleted, startTime));
+        return deleted;
+    }
+
+    /**
+     * 分离并删除整个都已过期的时间分区，表未分区时不做任何事
+     *
+     * @return 删除的分区数
+     */
+    private int dropExpiredPartitions(String table, String timeColumn, OffsetDateTime beforeTime) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                EXPIRED_PARTITIONS_SQL, String.class, table, timeColumn, beforeTime);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String partition : partitions) {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            });
+            log.info("{} 的分区 {} 已整体过期，已分离并删除", table, partition);
+        }
+        return partitions.size();
+    }
+
+    /**
+     * 块之间暂停
+     *
+     * @return 线程被中断时返回false
+     */
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long rowsPerSecond(long rows, long startTime) {
+        long elapsedMillis = Math.max(1, System.currentTimeMillis() - startTime);
+        return rows * 1000 / elapsedMillis;
+    }
+}
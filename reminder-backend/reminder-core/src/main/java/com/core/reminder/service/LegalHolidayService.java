@@ -1,6 +1,9 @@
 package com.core.reminder.service;
 
-import com.core.reminder.model.LegalHoliday;
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.LegalHoliday;
+import com.common.reminder.utils.WorkdayCalendar;
+import com.common.reminder.utils.WorkdayCalendarCache;
 import com.core.reminder.repository.LegalHolidayRepository;
 import com.core.reminder.utils.HttpUtil;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -9,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Iterator;
@@ -28,6 +32,14 @@ public class LegalHolidayService {
     // 标记哪些年份已经完全加载到内存中
     private final ConcurrentHashMap<Integer, Boolean> loadedYears = new ConcurrentHashMap<>();
 
+    // 数据库和API都没有数据的年份 -> 尝试加载的时间，超过重试间隔后重新加载
+    private final ConcurrentHashMap<Integer, Long> emptyYearLoadedAt = new ConcurrentHashMap<>();
+
+    // 年份 -> 由节假日数据构建的工作日位图，供复杂提醒的工作日规则按天O(1)判断
+    // 只读取legal_holiday表，生成和查询路径上不会触发外部API调用
+    private final WorkdayCalendarCache workdayCalendarCache =
+            new WorkdayCalendarCache(year -> legalHolidayRepository.findByYear(year));
+
     /**
      * 获取指定年份范围内的法定节假日
      */
@@ -47,8 +59,8 @@ public class LegalHolidayService {
      * 从缓存中获取节假日数据，如果缓存中没有则从数据库或API加载
      */
     private List<LegalHoliday> getHolidaysFromCacheOrLoad(Integer year) {
-        // 如果内存中已有该年份的数据，直接返回
-        if (loadedYears.containsKey(year) && holidayCache.containsKey(year)) {
+        // 如果内存中已有该年份的数据，直接返回；没有数据的年份超过重试间隔后重新加载
+        if (loadedYears.containsKey(year) && holidayCache.containsKey(year) && !isEmptyYearExpired(year)) {
             return new ArrayList<>(holidayCache.get(year));
         }
         
@@ -59,6 +71,7 @@ public class LegalHolidayService {
             // 数据库中有数据，加载到内存缓存
             holidayCache.put(year, new ArrayList<>(dbHolidays));
             loadedYears.put(year, true);
+            emptyYearLoadedAt.remove(year);
             return new ArrayList<>(dbHolidays);
         }
         
@@ -70,6 +83,7 @@ public class LegalHolidayService {
             if (!newHolidays.isEmpty()) {
                 holidayCache.put(year, new ArrayList<>(newHolidays));
                 loadedYears.put(year, true);
+                emptyYearLoadedAt.remove(year);
                 return new ArrayList<>(newHolidays);
             }
         } catch (Exception e) {
@@ -77,12 +91,22 @@ public class LegalHolidayService {
             e.printStackTrace();
         }
         
-        // 如果都失败了，返回空列表，但标记为已尝试加载
+        // 如果都失败了，返回空列表，标记为已尝试加载，重试间隔内不再请求API
         holidayCache.put(year, new ArrayList<>());
         loadedYears.put(year, true);
+        emptyYearLoadedAt.put(year, System.currentTimeMillis());
         return new ArrayList<>();
     }
 
+    /**
+     * 没有数据的年份是否已超过重试间隔，与工作日历缓存使用相同的间隔
+     */
+    private boolean isEmptyYearExpired(Integer year) {
+        Long loadedAt = emptyYearLoadedAt.get(year);
+        return loadedAt != null
+                && System.currentTimeMillis() - loadedAt >= WorkdayCalendarCache.EMPTY_YEAR_RETRY_MILLIS;
+    }
+
     /**
      * 从外部API获取并保存指定年份的节假日数据
      */
@@ -139,6 +163,8 @@ public class LegalHolidayService {
                 // 保存成功后，立即更新内存缓存
                 holidayCache.put(year, new ArrayList<>(holidaysToSave));
                 loadedYears.put(year, true);
+                emptyYearLoadedAt.remove(year);
+                workdayCalendarCache.evict(year);
             }
             
         } catch (Exception e) {
@@ -147,12 +173,29 @@ public class LegalHolidayService {
         }
     }
     
+    /**
+     * 获取指定年份的工作日历（按年缓存）
+     * 只从缓存和数据库读取，缺失年份的数据由预加载或管理接口拉取
+     */
+    public WorkdayCalendar getWorkdayCalendar(int year) {
+        return workdayCalendarCache.getWorkdayCalendar(year);
+    }
+    
+    /**
+     * 判断复杂提醒在指定日期是否满足其节假日/工作日规则
+     */
+    public boolean matchesRecurrenceRule(ComplexReminder template, LocalDate date) {
+        return workdayCalendarCache.matchesRecurrenceRule(template, date);
+    }
+    
     /**
      * 清除指定年份的缓存
      */
     public void clearCacheForYear(Integer year) {
         holidayCache.remove(year);
         loadedYears.remove(year);
+        emptyYearLoadedAt.remove(year);
+        workdayCalendarCache.evict(year);
     }
     
     /**
@@ -161,6 +204,8 @@ public class LegalHolidayService {
     public void clearAllCache() {
         holidayCache.clear();
         loadedYears.clear();
+        emptyYearLoadedAt.clear();
+        workdayCalendarCache.clear();
     }
     
     /**
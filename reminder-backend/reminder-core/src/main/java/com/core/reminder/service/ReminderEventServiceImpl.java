@@ -4,7 +4,13 @@ import com.common.reminder.constant.ActivityAction;
 import com.common.reminder.constant.ResourceType;
 import com.common.reminder.model.ComplexReminder;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.model.SimpleReminderView;
+import com.common.reminder.utils.ComplexReminderSchedule;
+import com.common.reminder.utils.FutureReminderReconciler;
+import com.common.reminder.utils.MonthRange;
 import com.core.reminder.aspect.ActivityLogAspect.LogActivity;
+import com.core.reminder.config.ReplicaRoutingDataSource;
+import com.core.reminder.dto.MonthlyReminders;
 import com.core.reminder.repository.ComplexReminderRepository;
 import com.core.reminder.repository.SimpleReminderRepository;
 import com.core.reminder.utils.IdempotencyUtils;
@@ -13,13 +19,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.OffsetDateTime;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -27,6 +34,7 @@ import java.util.ArrayList;
 import java.time.LocalDate;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.stream.Collectors;
 
 @Service
 public class ReminderEventServiceImpl /* implements ReminderService */ {
@@ -47,6 +55,18 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
     @Autowired
     private CacheUtils cacheUtils;
 
+    @Autowired
+    private ReminderGenerationService reminderGenerationService;
+
+    @Autowired
+    private VirtualOccurrenceService virtualOccurrenceService;
+
+    @Autowired
+    private ReminderTemplateTextService reminderTemplateTextService;
+
+    @Autowired
+    private LegalHolidayService legalHolidayService;
+
     private static final String REMINDER_JOB_GROUP = "reminder-jobs";
     private static final String REMINDER_TRIGGER_GROUP = "reminder-triggers";
 
@@ -68,7 +88,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         }
         
         try {
-            cacheUtils.addReminderToCache(reminder.getToUserId(), reminder, reminder.getEventTime());
+            cacheUtils.addReminderToCache(reminder.getToUserId(), SimpleReminderView.of(reminder), reminder.getEventTime());
             log.debug("已同步添加提醒[{}]到用户[{}]缓存", reminder.getId(), reminder.getToUserId());
         } catch (Exception e) {
             log.error("同步添加提醒[{}]到缓存失败", reminder.getId(), e);
@@ -84,7 +104,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         }
         
         try {
-            cacheUtils.removeReminderFromCache(reminder.getToUserId(), reminder);
+            cacheUtils.removeReminderFromCache(reminder.getToUserId(), SimpleReminderView.of(reminder));
             log.debug("已同步从用户[{}]缓存中删除提醒[{}]", reminder.getToUserId(), reminder.getId());
         } catch (Exception e) {
             log.error("同步从缓存删除提醒[{}]失败", reminder.getId(), e);
@@ -100,7 +120,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         }
         
         try {
-            cacheUtils.addRemindersToCache(userId, reminders);
+            cacheUtils.addRemindersToCache(userId, reminders.stream().map(SimpleReminderView::of).collect(Collectors.toList()));
             log.debug("已批量同步{}条提醒到用户[{}]缓存", reminders.size(), userId);
         } catch (Exception e) {
             log.error("批量同步提醒到用户[{}]缓存失败", userId, e);
@@ -124,35 +144,59 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
     }
 
     /**
-     * 清除用户当前月份的提醒缓存（当提醒发生变化时调用）
+     * 在当前事务提交后执行缓存失效，没有事务时立即执行
+     * 月度缓存按版本号保存，提交前递增版本号时，并发读取会取到新版本号和提交前的数据，
+     * 并把旧数据缓存在新版本号下直到过期；事务回滚时数据没有变化，不需要失效
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 清除用户当前月份的提醒缓存（当提醒发生变化时调用），在事务提交后执行
      */
     private void invalidateUserCurrentMonthReminders(Long userId) {
         if (userId == null) {
             return;
         }
         
-        // 清除ZSet缓存
-        invalidateUserRemindersCache(userId);
-        
-        // 清除当前月份的月度缓存
-        LocalDate now = LocalDate.now();
-        cacheUtils.deleteUserMonthlyReminders(userId, now.getYear(), now.getMonthValue());
+        afterCommit(() -> {
+            // 清除ZSet缓存
+            invalidateUserRemindersCache(userId);
+            
+            // 使当前月份的月度缓存失效
+            LocalDate now = LocalDate.now();
+            cacheUtils.invalidateUserMonthlyReminders(userId, now.getYear(), now.getMonthValue());
+        });
     }
 
     /**
-     * 清除用户所有提醒相关缓存
+     * 清除用户所有提醒相关缓存，在事务提交后执行
      */
     private void invalidateAllUserReminderCaches(Long userId) {
         if (userId == null) {
             return;
         }
         
+        afterCommit(() -> clearAllUserReminderCaches(userId));
+    }
+
+    private void clearAllUserReminderCaches(Long userId) {
         try {
             // 清除用户的ZSet提醒缓存
             cacheUtils.clearUserRemindersCache(userId);
             
-            // 清除用户所有月度提醒缓存
-            cacheUtils.clearUserAllMonthlyReminders(userId);
+            // 使用户所有月度提醒缓存失效
+            cacheUtils.invalidateUserAllMonthlyReminders(userId);
             
             log.info("已清除用户[{}] 所有提醒相关缓存", userId);
         } catch (Exception e) {
@@ -235,107 +279,33 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
     }
 
     /**
-     * 按年月查询简单提醒
+     * 按年月和用户查询简单提醒（优先从缓存获取）
      * 在查询前确保复杂任务已生成该月份的简单任务
      * 
      * @param year 年份
      * @param month 月份(1-12)
-     * @return 指定月份的简单提醒列表
+     * @param userId 用户ID
+     * @return 指定用户在指定月份的简单提醒列表视图（不含描述）
      */
-    @Transactional
     @LogActivity(action = ActivityAction.API_ACCESS, resourceType = ResourceType.REMINDER, 
-                description = "按年月查询简单提醒", async = true, logParams = true)
-    public List<SimpleReminder> getSimpleRemindersByYearMonth(int year, int month) {
-        log.info("查询 {}-{} 月份的所有简单提醒", year, month);
-        
-        // 验证月份有效性
-        if (month < 1 || month > 12) {
-            log.error("无效的月份: {}", month);
-            throw new IllegalArgumentException("月份必须在1-12之间");
-        }
-        
-        // 首先确保所有复杂任务都已生成该月份的简单任务
-        ensureComplexRemindersGenerated(year, month);
-        
-        return simpleReminderRepository.findByYearMonth(year, month);
-    }
-    
-    /**
-     * 确保复杂任务已经生成了指定月份的简单任务
-     * 
-     * @param year 年份
-     * @param month 月份(1-12)
-     */
-    private void ensureComplexRemindersGenerated(int year, int month) {
-        log.info("确保 {}-{} 月份的复杂任务已生成简单任务", year, month);
-        
-        // 计算当前查询月份的YYYYMM格式
-        int queryYearMonth = year * 100 + month;
-        
-        // 查询所有lastGeneratedYm小于等于查询月份的复杂任务
-        List<ComplexReminder> templatesNeedUpdate = complexReminderRepository
-                .findByLastGeneratedYmLessThanOrLastGeneratedYmIsNull(queryYearMonth + 1);
-        
-        if (templatesNeedUpdate.isEmpty()) {
-            log.info("没有需要生成 {}-{} 月份提醒的复杂任务模板", year, month);
-            return;
-        }
-        
-        log.info("找到 {} 个需要生成 {}-{} 月份提醒的复杂任务模板", 
-                templatesNeedUpdate.size(), year, month);
-        
-        // 为每个需要更新的复杂任务生成简单任务
-        for (ComplexReminder template : templatesNeedUpdate) {
-            try {
-                // 计算需要生成到的月份数
-                int monthsAhead;
-                LocalDate now = LocalDate.now();
-                int currentYear = now.getYear();
-                int currentMonth = now.getMonthValue();
-                
-                // 如果查询的月份是当前月份或未来月份
-                if (year > currentYear || (year == currentYear && month >= currentMonth)) {
-                    // 计算从当前月到查询月的月数差
-                    int monthDiff = (year - currentYear) * 12 + (month - currentMonth);
-                    // 确保至少生成到查询月份
-                    monthsAhead = Math.max(monthDiff + 1, 1);
-                } else {
-                    // 如果是查询历史月份，只需确保该任务的lastGeneratedYm已经覆盖了查询月份
-                    if (template.getLastGeneratedYm() == null || template.getLastGeneratedYm() < queryYearMonth) {
-                        // 如果没有覆盖，则更新lastGeneratedYm
-                        template.setLastGeneratedYm(queryYearMonth);
-                        complexReminderRepository.save(template);
-                        log.info("已更新复杂任务ID: {} 的lastGeneratedYm为: {}", template.getId(), queryYearMonth);
-                    }
-                    continue; // 跳过历史月份的生成
-                }
-                
-                // 使用服务生成简单任务
-                generateSimpleRemindersForMonths(template, monthsAhead);
-                log.info("为复杂任务ID: {} 生成了 {}-{} 月份的简单任务", 
-                        template.getId(), year, month);
-                
-            } catch (Exception e) {
-                log.error("为复杂任务ID: {} 生成 {}-{} 月份简单任务时出错", 
-                        template.getId(), year, month, e);
-                // 继续处理其他模板
-            }
-        }
+                description = "按年月和用户查询简单提醒", async = true, logParams = true)
+    public List<SimpleReminderView> getSimpleRemindersByYearMonthAndUser(int year, int month, Long userId) {
+        return getMonthlyReminders(year, month, userId, null).getReminders();
     }
 
     /**
-     * 按年月和用户查询简单提醒（优先从缓存获取）
-     * 在查询前确保复杂任务已生成该月份的简单任务
+     * 按年月和用户查询简单提醒，支持按版本号的条件查询
+     * 月度数据完整时返回当前版本号；客户端持有的版本号与当前版本号相同时，不读取缓存和数据库，直接返回未修改
      * 
      * @param year 年份
      * @param month 月份(1-12)
      * @param userId 用户ID
-     * @return 指定用户在指定月份的简单提醒列表
+     * @param clientVersion 客户端持有的版本号，可以为null
+     * @return 月度提醒查询结果
      */
-    @Transactional
     @LogActivity(action = ActivityAction.API_ACCESS, resourceType = ResourceType.REMINDER, 
                 description = "按年月和用户查询简单提醒", async = true, logParams = true)
-    public List<SimpleReminder> getSimpleRemindersByYearMonthAndUser(int year, int month, Long userId) {
+    public MonthlyReminders getMonthlyReminders(int year, int month, Long userId, String clientVersion) {
         log.info("查询用户ID: {} 在 {}-{} 月份的所有简单提醒", userId, year, month);
         
         // 验证月份有效性
@@ -349,39 +319,61 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
             throw new IllegalArgumentException("用户ID不能为空");
         }
         
-        // 首先确保所有复杂任务都已生成该月份的简单任务
-        ensureComplexRemindersGenerated(year, month);
+        // 物化窗口之外的月份不生成入库任务，由模板实时计算
+        boolean beyondHorizon = virtualOccurrenceService.isBeyondHorizon(year, month);
+        
+        // 窗口内确保该用户接收的复杂任务都已生成该月份的简单任务（水位线未覆盖时才检查模板）
+        boolean generationComplete = beyondHorizon
+                || reminderGenerationService.ensureMonthGenerated(userId, year, month);
+        
+        // 生成尚未完成时数据还会变化且不会递增版本号，不使用版本号（不读写月度缓存，也不能用于条件查询）
+        String version = generationComplete ? cacheUtils.getUserMonthlyVersion(userId, year, month) : null;
+        if (version != null && version.equals(clientVersion)) {
+            log.debug("用户[{}] {}-{} 月提醒未变化，版本: {}", userId, year, month, version);
+            return new MonthlyReminders(null, version, false);
+        }
         
-        // 优先从月度缓存获取
         try {
-            List<SimpleReminder> cachedReminders = cacheUtils.getUserMonthlyRemindersFromCache(userId, year, month, SimpleReminder.class);
-            
-            if (cachedReminders != null) {
-                log.debug("月度缓存命中：用户[{}] {}-{} 月提醒数据，共{}条", userId, year, month, cachedReminders.size());
-                return cachedReminders;
-            }
-            
-            // 月度缓存未命中，从数据库获取
-            log.debug("月度缓存未命中：从数据库获取用户[{}] {}-{} 月提醒数据", userId, year, month);
-            List<SimpleReminder> reminders = simpleReminderRepository.findByYearMonthAndUserId(year, month, userId);
-            
-            // 缓存到Redis（月度缓存）
-            if (!reminders.isEmpty()) {
-                cacheUtils.setUserMonthlyReminders(userId, year, month, reminders);
-            } else {
-                // 即使是空结果也要缓存，避免重复查询数据库
-                cacheUtils.setUserMonthlyReminders(userId, year, month, new ArrayList<>());
+            if (version == null) {
+                return new MonthlyReminders(loadMonthlyReminders(year, month, userId, beyondHorizon), null,
+                        !generationComplete);
             }
-            
-            return reminders;
+            // 优先从月度缓存获取，未命中时同一版本的并发请求只有一个查询数据库
+            // 版本号在读取数据库之前获取，期间发生的变更会递增版本号，本次写入的缓存不会再被读取
+            // 缓存按版本号保存，必须读主库：副本落后时会把旧数据写到新版本号下
+            List<SimpleReminderView> reminders = cacheUtils.getOrLoadUserMonthlyReminders(userId, year, month, version,
+                    SimpleReminderView.class, () -> ReplicaRoutingDataSource.onPrimary(
+                            () -> loadMonthlyReminders(year, month, userId, beyondHorizon)));
+            log.debug("获取用户[{}] {}-{} 月提醒数据，版本: {}，共{}条", userId, year, month, version, reminders.size());
+            return new MonthlyReminders(reminders, version, false);
             
         } catch (Exception e) {
             log.error("获取用户[{}] {}-{} 月提醒缓存时出错，降级到数据库查询", userId, year, month, e);
             // 降级到数据库查询
-            return simpleReminderRepository.findByYearMonthAndUserId(year, month, userId);
+            return new MonthlyReminders(findUserMonthReminders(year, month, userId), null, !generationComplete);
         }
     }
 
+    /**
+     * 从数据库加载用户指定月份的简单提醒，物化窗口之外的月份合并复杂提醒的虚拟任务
+     */
+    private List<SimpleReminderView> loadMonthlyReminders(int year, int month, Long userId, boolean beyondHorizon) {
+        log.debug("月度缓存未命中：从数据库获取用户[{}] {}-{} 月提醒数据", userId, year, month);
+        List<SimpleReminderView> reminders = findUserMonthReminders(year, month, userId);
+        if (beyondHorizon) {
+            reminders = virtualOccurrenceService.mergeWithVirtualOccurrences(userId, year, month, reminders);
+        }
+        return reminders;
+    }
+
+    /**
+     * 按 [月初, 下月初) 区间查询用户指定月份的简单提醒（列表视图投影）
+     */
+    private List<SimpleReminderView> findUserMonthReminders(int year, int month, Long userId) {
+        MonthRange range = MonthRange.of(year, month);
+        return simpleReminderRepository.findViewsByToUserIdAndEventTimeRange(userId, range.getStart(), range.getEnd());
+    }
+
     @LogActivity(action = ActivityAction.API_ACCESS, resourceType = ResourceType.REMINDER, 
                 description = "获取用户创建的简单提醒", async = true)
     public List<SimpleReminder> getSimpleRemindersByFromUser(Long userId) {
@@ -399,10 +391,10 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
      */
     @LogActivity(action = ActivityAction.API_ACCESS, resourceType = ResourceType.REMINDER, 
                 description = "获取即将到来的提醒", async = true)
-    public List<SimpleReminder> getUpcomingReminders(Long userId) {
+    public List<SimpleReminderView> getUpcomingReminders(Long userId) {
         try {
             // 尝试从缓存获取未来30天内的前10个提醒
-            List<SimpleReminder> cachedReminders = cacheUtils.getUserUpcomingReminders(userId, 30, 10, SimpleReminder.class);
+            List<SimpleReminderView> cachedReminders = cacheUtils.getUserUpcomingReminders(userId, 30, 10, SimpleReminderView.class);
             
             if (cachedReminders != null && !cachedReminders.isEmpty()) {
                 log.debug("缓存命中：用户[{}] 即将到来的提醒数据，共{}条", userId, cachedReminders.size());
@@ -411,8 +403,10 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
             
             // 缓存未命中，从数据库获取
             log.debug("缓存未命中：从数据库获取用户[{}] 即将到来的提醒数据", userId);
+            // 查询结果会写入缓存，读主库，避免把副本上已删除的提醒写回缓存
             OffsetDateTime now = OffsetDateTime.now();
-            List<SimpleReminder> reminders = simpleReminderRepository.findTop10ByToUserIdAndEventTimeAfterOrderByEventTimeAsc(userId, now);
+            List<SimpleReminderView> reminders = ReplicaRoutingDataSource.onPrimary(() ->
+                    simpleReminderRepository.findUpcomingViewsByToUserId(userId, now, PageRequest.of(0, 10)));
             
             // 缓存到Redis
             if (!reminders.isEmpty()) {
@@ -425,7 +419,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
             log.error("获取用户[{}] 即将到来的提醒缓存时出错，降级到数据库查询", userId, e);
             // 降级到数据库查询
             OffsetDateTime now = OffsetDateTime.now();
-            return simpleReminderRepository.findTop10ByToUserIdAndEventTimeAfterOrderByEventTimeAsc(userId, now);
+            return simpleReminderRepository.findUpcomingViewsByToUserId(userId, now, PageRequest.of(0, 10));
         }
     }
 
@@ -533,7 +527,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
                     Long userId = Long.parseLong(parts[0]);
                     int year = Integer.parseInt(parts[1]);
                     int month = Integer.parseInt(parts[2]);
-                    cacheUtils.deleteUserMonthlyReminders(userId, year, month);
+                    afterCommit(() -> cacheUtils.invalidateUserMonthlyReminders(userId, year, month));
                     log.debug("额外清除用户[{}]的月度缓存: {}-{}", userId, year, month);
                 }
             }
@@ -556,8 +550,11 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         ComplexReminder savedReminder = complexReminderRepository.save(complexReminder);
         
         // 清除相关用户的缓存
+        // 接收者的生成水位线和所有月度缓存都需要失效，否则新模板在未来月份的任务不会被补齐
         if (savedReminder.getToUserId() != null) {
-            invalidateUserCurrentMonthReminders(savedReminder.getToUserId());
+            Long toUserId = savedReminder.getToUserId();
+            afterCommit(() -> reminderGenerationService.invalidateWatermark(toUserId));
+            invalidateAllUserReminderCaches(savedReminder.getToUserId());
         }
         if (savedReminder.getFromUserId() != null && !savedReminder.getFromUserId().equals(savedReminder.getToUserId())) {
             invalidateUserCurrentMonthReminders(savedReminder.getFromUserId());
@@ -627,13 +624,15 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         ComplexReminder updatedReminder = complexReminderRepository.save(complexReminder);
         
         try {
-            // 清除所有相关用户的缓存
+            // 清除所有相关用户的缓存和生成水位线
             for (Long userId : affectedUserIds) {
                 if (userId != null) {
                     log.debug("清除用户[{}]的提醒缓存(更新复杂提醒)", userId);
+                    afterCommit(() -> reminderGenerationService.invalidateWatermark(userId));
                     invalidateAllUserReminderCaches(userId);
                 }
             }
+            afterCommit(() -> reminderTemplateTextService.evictTemplateText(updatedReminder.getId()));
             
             log.info("成功更新复杂提醒[{}]并清除了相关缓存", updatedReminder.getId());
             
@@ -645,6 +644,36 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         return updatedReminder;
     }
 
+    /**
+     * 创建复杂提醒，并在同一事务内把生成事件写入发件箱
+     * 事务回滚时不会发出事件，事务提交后由发件箱中继异步投递到Stream
+     * 生成月数不超过物化窗口，窗口之外的月份查询时由模板实时计算
+     */
+    @Transactional
+    @LogActivity(action = ActivityAction.COMPLEX_REMINDER_CREATE, resourceType = ResourceType.COMPLEX_REMINDER,
+                description = "创建复杂提醒", async = true, logParams = false, logResult = true)
+    public ComplexReminder createComplexReminderAndRequestGeneration(ComplexReminder complexReminder, int monthsAhead) {
+        ComplexReminder savedReminder = createComplexReminder(complexReminder);
+        reminderGenerationService.requestGeneration(savedReminder,
+                Math.min(monthsAhead, virtualOccurrenceService.getHorizonMonths()));
+        return savedReminder;
+    }
+
+    /**
+     * 更新复杂提醒，并在同一事务内把增量更新事件写入发件箱
+     * 事务回滚时不会发出事件，事务提交后由发件箱中继异步投递到Stream
+     * 生成月数不超过物化窗口，窗口之外的月份查询时由模板实时计算
+     */
+    @Transactional
+    @LogActivity(action = ActivityAction.COMPLEX_REMINDER_UPDATE, resourceType = ResourceType.COMPLEX_REMINDER,
+                description = "更新复杂提醒", async = true, logParams = false, logResult = true)
+    public ComplexReminder updateComplexReminderAndRequestRegeneration(ComplexReminder complexReminder, int monthsAhead) {
+        ComplexReminder updatedReminder = updateComplexReminder(complexReminder);
+        reminderGenerationService.requestRegeneration(updatedReminder,
+                Math.min(monthsAhead, virtualOccurrenceService.getHorizonMonths()));
+        return updatedReminder;
+    }
+
     @Transactional
     @LogActivity(action = ActivityAction.COMPLEX_REMINDER_DELETE, resourceType = ResourceType.COMPLEX_REMINDER, 
                 description = "删除复杂提醒", async = true, logParams = true)
@@ -654,6 +683,8 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         // 先获取要删除的复杂提醒信息，用于清除缓存
         Optional<ComplexReminder> reminderOpt = complexReminderRepository.findById(id);
         
+        // 保留的简单任务不再能从模板补全文本，删除前写回
+        reminderOpt.ifPresent(this::fillTemplateTextBeforeDelete);
         complexReminderRepository.deleteById(id);
         
         // 清除相关用户的缓存
@@ -741,8 +772,10 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
     }
     
     /**
-     * 更新复杂提醒并重新生成指定月数内的简单任务
+     * 更新复杂提醒并增量同步指定月数内的简单任务
      * 整个过程在一个事务中完成，保证数据一致性
+     * 只处理触发时间在当前时间之后的简单任务：保留的记录批量更新模板字段，
+     * 消失的触发时间删除，新增的触发时间插入，已经过去的简单任务保持不变
      * 
      * @param complexReminder 要更新的复杂提醒
      * @param monthsAhead 要生成的简单任务的月数
@@ -754,16 +787,14 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
     public ComplexReminder updateComplexReminderWithSimpleReminders(ComplexReminder complexReminder, int monthsAhead) {
         log.info("更新复杂提醒并生成{}个月内的简单任务", monthsAhead);
         
-        // 先删除与该复杂提醒相关的所有简单任务
-        int deletedCount = simpleReminderRepository.deleteByOriginatingComplexReminderId(complexReminder.getId());
-        log.info("已删除与复杂提醒ID: {} 相关的 {} 个简单任务", complexReminder.getId(), deletedCount);
-        
         // 保存更新后的复杂提醒
         ComplexReminder updatedReminder = createComplexReminder(complexReminder);
         
-        // 生成简单任务
-        List<SimpleReminder> generatedReminders = generateSimpleRemindersForMonths(updatedReminder, monthsAhead);
-        log.info("为更新的复杂提醒ID: {} 成功生成 {} 个简单任务", updatedReminder.getId(), generatedReminders.size());
+        // 增量同步未来的简单任务
+        reconcileFutureSimpleReminders(updatedReminder, monthsAhead);
+        
+        // 模板文本可能已变更
+        afterCommit(() -> reminderTemplateTextService.evictTemplateText(updatedReminder.getId()));
         
         // 清除相关用户的缓存（因为重新生成了简单任务）
         if (updatedReminder.getToUserId() != null) {
@@ -791,84 +822,17 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         log.info("为复杂提醒ID: {} 生成{}个月内的简单任务", complexReminder.getId(), monthsAhead);
         
         List<SimpleReminder> generatedReminders = new ArrayList<>();
-        String cronExpression = complexReminder.getCronExpression();
-        
-        // 检查cron表达式是否有效
-        if (cronExpression == null || cronExpression.trim().isEmpty()) {
-            log.error("复杂提醒ID: {} 的CRON表达式为空", complexReminder.getId());
-            return generatedReminders;
-        }
-        
-        // 标准化cron表达式（添加秒字段如果没有）
-        if (cronExpression.split("\\s+").length == 5) {
-            cronExpression = "0 " + cronExpression;
-        }
-        
         try {
-            CronExpression cron = CronExpression.parse(cronExpression);
-            
-            // 使用中国时区(Asia/Shanghai)确保时间一致性
-            ZoneId chinaZone = ZoneId.of("Asia/Shanghai");
-            
-            // 设置起始时间（当前时间或validFrom，取较晚者）
-            ZonedDateTime now = ZonedDateTime.now(chinaZone);
-            ZonedDateTime startTime = now;
-            
-            if (complexReminder.getValidFrom() != null) {
-                ZonedDateTime validFromTime = complexReminder.getValidFrom().atStartOfDay(chinaZone);
-                if (validFromTime.isAfter(now)) {
-                    startTime = validFromTime;
-                }
-            }
-            
-            // 计算目标月份（当前月份+monthsAhead）
-            int targetYear = now.getYear() + (now.getMonthValue() + monthsAhead - 1) / 12;
-            int targetMonth = (now.getMonthValue() + monthsAhead - 1) % 12 + 1;
-            
-            // 计算目标月份的最后一天
-            LocalDate lastDayOfTargetMonth = LocalDate.of(targetYear, targetMonth, 1)
-                .plusMonths(1).minusDays(1);
-            
-            // 设置结束时间为目标月份的最后一天的23:59:59
-            ZonedDateTime endTime = lastDayOfTargetMonth.atTime(23, 59, 59).atZone(chinaZone);
-            
-            // 如果有validUntil且在目标月份结束之前，则使用validUntil
-            if (complexReminder.getValidUntil() != null) {
-                ZonedDateTime validUntilTime = complexReminder.getValidUntil().atTime(23, 59, 59).atZone(chinaZone);
-                if (validUntilTime.isBefore(endTime)) {
-                    endTime = validUntilTime;
-                }
-            }
-            
-            log.info("为复杂提醒ID: {} 生成简单任务的时间范围: {} 至 {} (使用中国时区)", 
-                     complexReminder.getId(), startTime, endTime);
-            
-            // 开始计算执行时间并生成简单任务
-            ZonedDateTime nextTime = startTime;
-            int count = 0;
-            Integer maxExecutions = complexReminder.getMaxExecutions();
+            // 触发时间的计算（生成窗口、节假日规则、maxExecutions）与增量同步、虚拟任务共用同一套规则
+            ZonedDateTime now = ZonedDateTime.now(ComplexReminderSchedule.CHINA_ZONE);
+            List<OffsetDateTime> occurrences = ComplexReminderSchedule.calculateOccurrenceTimes(
+                    complexReminder, monthsAhead, now, legalHolidayService::getWorkdayCalendar);
 
             // 用于批量插入的列表
             List<SimpleReminder> batchToSave = new ArrayList<>();
             final int BATCH_SIZE = 100;
 
-            while (true) {
-                // 计算下一个执行时间
-                nextTime = cron.next(nextTime);
-
-                // 如果超出了指定范围或validUntil，则停止
-                if (nextTime == null || nextTime.isAfter(endTime)) {
-                    break;
-                }
-
-                // 如果已经达到最大执行次数限制，则停止
-                if (maxExecutions != null && count >= maxExecutions) {
-                    break;
-                }
-
-                // 转换为OffsetDateTime，确保使用中国时区的偏移量
-                OffsetDateTime nextExecutionTime = nextTime.toOffsetDateTime();
-
+            for (OffsetDateTime nextExecutionTime : occurrences) {
                 // 检查是否已经存在相同时间的简单任务
                 boolean exists = simpleReminderRepository.existsByOriginatingComplexReminderIdAndEventTime(
                         complexReminder.getId(), nextExecutionTime);
@@ -877,13 +841,12 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
                     // 创建简单任务（先不保存，加入批量列表）
                     SimpleReminder simpleReminder = createSimpleReminderFromTemplate(complexReminder, nextExecutionTime);
                     batchToSave.add(simpleReminder);
-                    count++;
 
                     log.debug("准备批量保存SimpleReminder，执行时间: {} (中国时区)", nextExecutionTime);
 
                     // 当批量列表达到指定大小时，执行批量保存
                     if (batchToSave.size() >= BATCH_SIZE) {
-                        List<SimpleReminder> savedBatch = simpleReminderRepository.saveAll(batchToSave);
+                        List<SimpleReminder> savedBatch = simpleReminderRepository.insertAllIgnoringDuplicates(batchToSave);
                         generatedReminders.addAll(savedBatch);
                         log.info("批量保存了 {} 个SimpleReminder", savedBatch.size());
                         batchToSave.clear();
@@ -893,26 +856,17 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
 
             // 保存剩余的记录
             if (!batchToSave.isEmpty()) {
-                List<SimpleReminder> savedBatch = simpleReminderRepository.saveAll(batchToSave);
+                List<SimpleReminder> savedBatch = simpleReminderRepository.insertAllIgnoringDuplicates(batchToSave);
                 generatedReminders.addAll(savedBatch);
                 log.info("批量保存了剩余的 {} 个SimpleReminder", savedBatch.size());
             }
             
             // 更新lastGeneratedYm字段 - 使用目标月份
-            if (!generatedReminders.isEmpty()) {
-                // 计算目标年月 (格式 YYYYMM)
-                int targetYearMonth = targetYear * 100 + targetMonth;
-                
-                // 如果有validUntil且在目标月份之前，则使用validUntil的年月
-                if (complexReminder.getValidUntil() != null) {
-                    LocalDate validUntil = complexReminder.getValidUntil();
-                    int validUntilYm = validUntil.getYear() * 100 + validUntil.getMonthValue();
-                    if (validUntilYm < targetYearMonth) {
-                        targetYearMonth = validUntilYm;
-                    }
-                }
-                
-                // 更新lastGeneratedYm字段
+            // 即使目标范围内没有新增任务也要推进（与stream-consumer一致），否则该月份没有触发时间的模板会被反复生成
+            // 计算目标年月 (格式 YYYYMM)，validUntil在目标月份之前时使用validUntil的年月
+            int targetYearMonth = ComplexReminderSchedule.calculateTargetYearMonth(complexReminder, monthsAhead, now);
+            Integer lastGeneratedYm = complexReminder.getLastGeneratedYm();
+            if (lastGeneratedYm == null || lastGeneratedYm < targetYearMonth) {
                 complexReminder.setLastGeneratedYm(targetYearMonth);
                 complexReminderRepository.save(complexReminder);
                 log.info("更新复杂提醒ID: {} 的lastGeneratedYm为: {}", complexReminder.getId(), targetYearMonth);
@@ -944,6 +898,45 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         }
     }
 
+    /**
+     * 按新模板增量同步未来的简单任务，见 {@link FutureReminderReconciler}
+     *
+     * @param complexReminder 复杂提醒对象
+     * @param monthsAhead 要生成的月数
+     */
+    private void reconcileFutureSimpleReminders(ComplexReminder complexReminder, int monthsAhead) {
+        if (FutureReminderReconciler.reconcile(complexReminder, monthsAhead,
+                legalHolidayService::getWorkdayCalendar, simpleReminderRepository)) {
+            complexReminderRepository.save(complexReminder);
+        }
+    }
+
+    /**
+     * 修改复杂提醒的标题或描述前，将当前模板文本写回已经触发、仍沿用模板的简单任务
+     * 历史任务保留触发时的文本，只有未来的任务沿用修改后的模板
+     *
+     * @param complexReminder 修改前的复杂提醒
+     */
+    public void freezePastTemplateText(ComplexReminder complexReminder) {
+        int frozenCount = simpleReminderRepository.fillTemplateTextByOriginatingComplexReminderIdAndEventTimeBefore(
+                complexReminder.getId(), OffsetDateTime.now(), complexReminder.getTitle(), complexReminder.getDescription());
+        if (frozenCount > 0) {
+            log.info("复杂提醒ID: {} 修改文本前为 {} 个已触发的简单任务写回原模板文本", complexReminder.getId(), frozenCount);
+        }
+    }
+
+    /**
+     * 删除复杂提醒前，将模板文本写回仍沿用模板的简单任务并清除模板文本缓存
+     */
+    private void fillTemplateTextBeforeDelete(ComplexReminder complexReminder) {
+        int filledCount = simpleReminderRepository.fillTemplateTextByOriginatingComplexReminderId(
+                complexReminder.getId(), complexReminder.getTitle(), complexReminder.getDescription());
+        if (filledCount > 0) {
+            log.info("复杂提醒ID: {} 删除前为 {} 个保留的简单任务写回模板文本", complexReminder.getId(), filledCount);
+        }
+        afterCommit(() -> reminderTemplateTextService.evictTemplateText(complexReminder.getId()));
+    }
+
     /**
      * 根据复杂提醒生成三个月内的简单任务
      * 生成的任务需要在validFrom到validUntil这个时间范围内
@@ -962,16 +955,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
      * 从复杂提醒模板创建简单提醒实例
      */
     private SimpleReminder createSimpleReminderFromTemplate(ComplexReminder template, OffsetDateTime eventTime) {
-        SimpleReminder instance = new SimpleReminder();
-        instance.setFromUserId(template.getFromUserId());
-        instance.setToUserId(template.getToUserId());
-        instance.setTitle(template.getTitle()); // 直接使用模板标题
-        instance.setDescription(template.getDescription()); // 使用模板描述
-        instance.setEventTime(eventTime); // 计算出的执行时间
-        instance.setReminderType(template.getReminderType());
-        instance.setOriginatingComplexReminderId(template.getId()); // 链接回模板
-        // createdAt和updatedAt将由Hibernate自动设置
-        return instance;
+        return ComplexReminderSchedule.createInstance(template, eventTime);
     }
 
     /**
@@ -1024,6 +1008,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         // 先删除关联的简单提醒
         int deletedCount = simpleReminderRepository.deleteByOriginatingComplexReminderId(complexReminderId);
         log.info("已删除与复杂提醒ID: {} 相关的 {} 个简单任务", complexReminderId, deletedCount);
+        afterCommit(() -> reminderTemplateTextService.evictTemplateText(complexReminderId));
         
         // 检查复杂提醒是否存在
         boolean exists = complexReminderRepository.existsById(complexReminderId);
@@ -1072,6 +1057,9 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         int deletedCount = simpleReminderRepository.deleteByOriginatingComplexReminderIdAndEventTimeAfter(complexReminderId, currentTime);
         log.info("已删除与复杂提醒ID: {} 相关的 {} 个未来简单任务", complexReminderId, deletedCount);
 
+        // 保留的历史简单任务不再能从模板补全文本，删除前写回
+        complexReminderOpt.ifPresent(this::fillTemplateTextBeforeDelete);
+
         // 检查复杂提醒是否存在
         boolean exists = complexReminderRepository.existsById(complexReminderId);
         if (exists) {
@@ -13,6 +13,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
@@ -29,6 +30,9 @@ public class ReminderExecutionHistoryService {
     @Autowired
     private ReminderExecutionHistoryRepository historyRepository;
 
+    @Autowired
+    private DataRetentionService dataRetentionService;
+
     /**
      * 根据ID获取执行历史记录
      * @param id 历史记录ID
@@ -141,14 +145,15 @@ public class ReminderExecutionHistoryService {
 
     /**
      * 清理所有过期的执行历史记录
+     * 按ID区间分块删除，每块独立提交，不能在外层事务中执行
      * @param beforeTime 删除此时间之前的记录
      * @return 删除的记录数量
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public int cleanupOldHistories(OffsetDateTime beforeTime) {
         log.info("清理过期的执行历史记录, beforeTime: {}", beforeTime);
         try {
-            int deletedCount = historyRepository.deleteByExecutedAtBefore(beforeTime);
+            int deletedCount = (int) dataRetentionService.purgeExecutionHistory(beforeTime);
             log.info("成功清理过期的执行历史记录, 删除数量: {}", deletedCount);
             return deletedCount;
         } catch (Exception e) {
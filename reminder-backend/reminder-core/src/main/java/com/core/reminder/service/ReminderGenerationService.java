@@ -0,0 +1,203 @@
+package com.core.reminder.service;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.utils.ComplexReminderSchedule;
+import com.core.reminder.constant.CacheKeyEnum;
+import com.core.reminder.repository.ComplexReminderRepository;
+import com.core.reminder.utils.CacheUtils;
+import com.core.reminder.utils.StreamEventPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * 简单任务生成协调服务
+ *
+ * 为每个用户在Redis中维护一个"已生成到"的水位线(YYYYMM)，月度查询时先比较水位线，
+ * 只有水位线落后时才检查当前用户接收的复杂提醒，缺失的生成通过Stream异步投递给消费者处理，
+ * 读请求不在请求线程中同步展开模板，也不等待生成完成，直接返回已有数据并标记生成中，由客户端稍后重试。
+ * 创建/更新复杂提醒触发的生成事件写入发件箱，与业务数据同一事务提交；读请求补齐缺失月份时直接发送到Stream。
+ */
+@Slf4j
+@Service
+public class ReminderGenerationService {
+
+    @Autowired
+    private ComplexReminderRepository complexReminderRepository;
+
+    @Autowired
+    private StreamEventPublisher streamEventPublisher;
+
+    @Autowired
+    private StreamOutboxService streamOutboxService;
+
+    @Autowired
+    private CacheUtils cacheUtils;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 确保用户接收的复杂提醒已生成到指定月份
+     *
+     * @param userId 用户ID
+     * @param year 年份
+     * @param month 月份(1-12)
+     * @return true表示该月份数据已完整，可以写入月度缓存；false表示已投递生成事件、生成仍在进行中
+     */
+    public boolean ensureMonthGenerated(Long userId, int year, int month) {
+        YearMonth queryMonth = YearMonth.of(year, month);
+        YearMonth currentMonth = YearMonth.now(ComplexReminderSchedule.CHINA_ZONE);
+        int queryYearMonth = year * 100 + month;
+
+        // 历史月份不需要生成
+        if (queryMonth.isBefore(currentMonth)) {
+            return true;
+        }
+
+        Integer watermark = getWatermark(userId);
+        if (watermark != null && watermark >= queryYearMonth) {
+            return true;
+        }
+
+        List<ComplexReminder> templates = complexReminderRepository
+                .findNotGeneratedByToUserId(userId, queryYearMonth, queryMonth.atDay(1));
+        if (templates.isEmpty()) {
+            raiseWatermark(userId, queryYearMonth);
+            return true;
+        }
+
+        // 从当前月到查询月的月数差，确保至少生成到查询月份
+        int monthsAhead = (year - currentMonth.getYear()) * 12 + (month - currentMonth.getMonthValue()) + 1;
+        for (ComplexReminder template : templates) {
+            requestGenerationIfAbsent(template, monthsAhead, queryYearMonth);
+        }
+
+        // 不在请求线程中等待，生成完成后的下一次查询会通过上面的模板检查并抬高水位线
+        log.info("用户[{}] {}-{} 月份有 {} 个复杂提醒等待异步生成，先返回当前已有数据", userId, year, month, templates.size());
+        return false;
+    }
+
+    /**
+     * 将复杂提醒生成事件写入发件箱，事务提交后记录生成中标记
+     * 应在创建复杂提醒的事务内调用，事务提交后由发件箱中继投递
+     *
+     * @param complexReminder 复杂提醒
+     * @param monthsAhead 要生成的月数
+     */
+    public void requestGeneration(ComplexReminder complexReminder, int monthsAhead) {
+        markPendingAfterCommit(complexReminder.getId(), targetYearMonth(monthsAhead));
+        streamOutboxService.enqueueComplexReminderGenerationEvent(
+                complexReminder.getId(), monthsAhead, complexReminder.getFromUserId());
+    }
+
+    /**
+     * 将复杂提醒更新事件写入发件箱，事务提交后记录生成中标记
+     * 应在更新复杂提醒的事务内调用，事务提交后由发件箱中继投递
+     *
+     * @param complexReminder 复杂提醒
+     * @param monthsAhead 要生成的月数
+     */
+    public void requestRegeneration(ComplexReminder complexReminder, int monthsAhead) {
+        markPendingAfterCommit(complexReminder.getId(), targetYearMonth(monthsAhead));
+        streamOutboxService.enqueueComplexReminderUpdateEvent(
+                complexReminder.getId(), monthsAhead, complexReminder.getFromUserId());
+    }
+
+    /**
+     * 清除用户的生成水位线（用户接收的复杂提醒新增或变更时调用）
+     *
+     * @param userId 用户ID
+     */
+    public void invalidateWatermark(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        cacheUtils.delete(CacheKeyEnum.USER_GENERATION_WATERMARK, String.valueOf(userId));
+    }
+
+    /**
+     * 如果没有覆盖目标月份的生成中标记，则投递生成事件
+     */
+    private void requestGenerationIfAbsent(ComplexReminder template, int monthsAhead, int queryYearMonth) {
+        String pendingKey = CacheKeyEnum.buildComplexGenerationPendingKey(template.getId());
+        try {
+            Object pending = redisTemplate.opsForValue().get(pendingKey);
+            if (pending instanceof Number && ((Number) pending).intValue() >= queryYearMonth) {
+                log.debug("复杂提醒[{}]已在生成中，目标年月: {}", template.getId(), pending);
+                return;
+            }
+
+            Boolean acquired = pending == null
+                    ? redisTemplate.opsForValue().setIfAbsent(pendingKey, queryYearMonth,
+                            CacheKeyEnum.COMPLEX_GENERATION_PENDING.getExpireTime(),
+                            CacheKeyEnum.COMPLEX_GENERATION_PENDING.getTimeUnit())
+                    : Boolean.TRUE;
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+            if (pending != null) {
+                markPending(template.getId(), queryYearMonth);
+            }
+        } catch (Exception e) {
+            log.error("检查复杂提醒[{}]生成中标记失败，直接投递生成事件", template.getId(), e);
+        }
+
+        streamEventPublisher.publishComplexReminderGenerationEvent(template.getId(), monthsAhead, template.getFromUserId());
+    }
+
+    /**
+     * 事务提交后再记录生成中标记：事务回滚时发件箱事件不会投递，提前写入的标记会让读请求
+     * 在标记过期前一直认为生成在进行中而不再补投事件
+     */
+    private void markPendingAfterCommit(Long complexReminderId, int targetYearMonth) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markPending(complexReminderId, targetYearMonth);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markPending(complexReminderId, targetYearMonth);
+            }
+        });
+    }
+
+    private void markPending(Long complexReminderId, int targetYearMonth) {
+        try {
+            redisTemplate.opsForValue().set(CacheKeyEnum.buildComplexGenerationPendingKey(complexReminderId),
+                    targetYearMonth,
+                    CacheKeyEnum.COMPLEX_GENERATION_PENDING.getExpireTime(),
+                    CacheKeyEnum.COMPLEX_GENERATION_PENDING.getTimeUnit());
+        } catch (Exception e) {
+            log.error("记录复杂提醒[{}]生成中标记失败", complexReminderId, e);
+        }
+    }
+
+    private Integer getWatermark(Long userId) {
+        Object value = cacheUtils.get(CacheKeyEnum.USER_GENERATION_WATERMARK, String.valueOf(userId));
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    private void raiseWatermark(Long userId, int queryYearMonth) {
+        Integer current = getWatermark(userId);
+        if (current == null || current < queryYearMonth) {
+            cacheUtils.set(CacheKeyEnum.USER_GENERATION_WATERMARK, String.valueOf(userId), queryYearMonth);
+            log.debug("用户[{}]的生成水位线更新为: {}", userId, queryYearMonth);
+        }
+    }
+
+    /**
+     * 计算从当前月份起生成monthsAhead个月后的目标年月(YYYYMM)
+     */
+    private int targetYearMonth(int monthsAhead) {
+        YearMonth target = YearMonth.now(ComplexReminderSchedule.CHINA_ZONE).plusMonths(monthsAhead - 1L);
+        return target.getYear() * 100 + target.getMonthValue();
+    }
+}
@@ -0,0 +1,149 @@
+package com.core.reminder.service;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.utils.ReminderTemplateUtils;
+import com.core.reminder.constant.CacheKeyEnum;
+import com.core.reminder.dto.SimpleReminderDTO;
+import com.core.reminder.repository.ComplexReminderRepository;
+import com.core.reminder.utils.CacheUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 模板文本补全服务
+ *
+ * 模板生成的简单任务不再复制标题和描述，返回给前端前按模板ID批量补全。
+ * 模板文本缓存在Redis中，复杂提醒更新或删除时失效。
+ */
+@Slf4j
+@Service
+public class ReminderTemplateTextService {
+
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+
+    @Autowired
+    private ComplexReminderRepository complexReminderRepository;
+
+    @Autowired
+    private CacheUtils cacheUtils;
+
+    /**
+     * 为需要沿用模板文本的简单任务补全标题和描述
+     *
+     * @param reminders 简单任务DTO列表
+     */
+    public void applyTemplateText(List<SimpleReminderDTO> reminders) {
+        applyTemplateText(reminders, true);
+    }
+
+    /**
+     * 为需要沿用模板文本的简单任务只补全标题，用于不返回描述的列表视图
+     *
+     * @param reminders 简单任务DTO列表
+     */
+    public void applyTemplateTitle(List<SimpleReminderDTO> reminders) {
+        applyTemplateText(reminders, false);
+    }
+
+    private void applyTemplateText(List<SimpleReminderDTO> reminders, boolean includeDescription) {
+        if (reminders == null || reminders.isEmpty()) {
+            return;
+        }
+
+        Set<Long> templateIds = new HashSet<>();
+        for (SimpleReminderDTO reminder : reminders) {
+            if (ReminderTemplateUtils.inheritsTemplateText(reminder.getOriginatingComplexReminderId(), reminder.getTitle())) {
+                templateIds.add(reminder.getOriginatingComplexReminderId());
+            }
+        }
+        if (templateIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Map<String, String>> texts = getTemplateTexts(templateIds);
+        for (SimpleReminderDTO reminder : reminders) {
+            if (!ReminderTemplateUtils.inheritsTemplateText(reminder.getOriginatingComplexReminderId(), reminder.getTitle())) {
+                continue;
+            }
+            Map<String, String> text = texts.get(reminder.getOriginatingComplexReminderId());
+            if (text != null) {
+                reminder.setTitle(text.get(TITLE));
+                if (includeDescription) {
+                    reminder.setDescription(text.get(DESCRIPTION));
+                }
+            }
+        }
+    }
+
+    /**
+     * 为单个简单任务补全标题和描述
+     *
+     * @param reminder 简单任务DTO
+     */
+    public void applyTemplateText(SimpleReminderDTO reminder) {
+        if (reminder != null) {
+            applyTemplateText(Collections.singletonList(reminder));
+        }
+    }
+
+    /**
+     * 清除模板文本缓存（复杂提醒更新或删除时调用）
+     *
+     * @param complexReminderId 复杂提醒ID
+     */
+    public void evictTemplateText(Long complexReminderId) {
+        if (complexReminderId == null) {
+            return;
+        }
+        cacheUtils.delete(CacheKeyEnum.COMPLEX_REMINDER_TEXT, String.valueOf(complexReminderId));
+    }
+
+    /**
+     * 批量获取模板文本，缓存未命中的模板一次性从数据库加载
+     */
+    private Map<Long, Map<String, String>> getTemplateTexts(Set<Long> templateIds) {
+        Map<Long, Map<String, String>> texts = new HashMap<>();
+        Set<Long> missingIds = new HashSet<>();
+
+        for (Long templateId : templateIds) {
+            Map<String, String> cached = null;
+            try {
+                cached = cacheUtils.get(CacheKeyEnum.COMPLEX_REMINDER_TEXT, String.valueOf(templateId));
+            } catch (Exception e) {
+                log.error("读取复杂提醒[{}]模板文本缓存失败", templateId, e);
+            }
+            if (cached != null) {
+                texts.put(templateId, cached);
+            } else {
+                missingIds.add(templateId);
+            }
+        }
+
+        if (missingIds.isEmpty()) {
+            return texts;
+        }
+
+        log.debug("模板文本缓存未命中 {} 个，从数据库加载", missingIds.size());
+        for (ComplexReminder template : complexReminderRepository.findAllById(missingIds)) {
+            Map<String, String> text = new HashMap<>();
+            text.put(TITLE, template.getTitle());
+            text.put(DESCRIPTION, template.getDescription());
+            texts.put(template.getId(), text);
+            try {
+                cacheUtils.set(CacheKeyEnum.COMPLEX_REMINDER_TEXT, String.valueOf(template.getId()), text);
+            } catch (Exception e) {
+                log.error("写入复杂提醒[{}]模板文本缓存失败", template.getId(), e);
+            }
+        }
+        return texts;
+    }
+}
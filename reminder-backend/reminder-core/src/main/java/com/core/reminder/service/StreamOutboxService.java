@@ -0,0 +1,67 @@
+package com.core.reminder.service;
+
+import com.common.reminder.event.StreamEventCodecs;
+import com.common.reminder.event.StreamEventType;
+import com.common.reminder.utils.JacksonUtils;
+import com.core.reminder.model.StreamOutboxEvent;
+import com.core.reminder.repository.StreamOutboxRepository;
+import com.core.reminder.utils.StreamEventPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Stream事件发件箱服务
+ *
+ * 事件先写入stream_outbox表，与业务数据同一事务提交，业务回滚时事件一起回滚；
+ * 事务提交后由StreamOutboxRelay异步投递到Redis Stream，请求线程不等待Redis。
+ * 投递语义为至少一次，消费端处理器需保证幂等。
+ */
+@Slf4j
+@Service
+public class StreamOutboxService {
+
+    @Autowired
+    private StreamOutboxRepository streamOutboxRepository;
+
+    /**
+     * 写入复杂提醒生成事件，应在创建复杂提醒的事务内调用
+     *
+     * @param complexReminderId 复杂提醒ID
+     * @param monthsAhead 要生成的月数
+     * @param userId 用户ID
+     */
+    public void enqueueComplexReminderGenerationEvent(Long complexReminderId, int monthsAhead, Long userId) {
+        enqueue(StreamEventPublisher.buildComplexReminderEvent(
+                StreamEventType.GENERATE_COMPLEX_REMINDER, complexReminderId, monthsAhead, userId));
+    }
+
+    /**
+     * 写入复杂提醒更新事件，应在更新复杂提醒的事务内调用
+     *
+     * @param complexReminderId 复杂提醒ID
+     * @param monthsAhead 要生成的月数
+     * @param userId 用户ID
+     */
+    public void enqueueComplexReminderUpdateEvent(Long complexReminderId, int monthsAhead, Long userId) {
+        enqueue(StreamEventPublisher.buildComplexReminderEvent(
+                StreamEventType.UPDATE_COMPLEX_REMINDER, complexReminderId, monthsAhead, userId));
+    }
+
+    /**
+     * 写入事件到发件箱，加入调用方的事务；没有事务时单独提交
+     *
+     * @param eventData 事件数据（紧凑编码的事件，或包含command字段的通用事件）
+     */
+    @Transactional
+    public void enqueue(Map<String, String> eventData) {
+        StreamOutboxEvent event = new StreamOutboxEvent();
+        event.setCommand(StreamEventCodecs.command(eventData));
+        event.setPayload(JacksonUtils.toJson(eventData));
+        streamOutboxRepository.save(event);
+        log.debug("事件已写入发件箱 - 命令: {}, 数据: {}", event.getCommand(), event.getPayload());
+    }
+}
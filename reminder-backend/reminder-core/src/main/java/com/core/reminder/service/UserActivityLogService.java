@@ -44,6 +44,23 @@ public interface UserActivityLogService {
                          String errorMessage, Map<String, Object> details,
                          HttpServletRequest request);
 
+    /**
+     * 构建用户活动日志（不保存），请求相关信息在调用线程中提取
+     */
+    UserActivityLog buildActivityLog(Long userId, ActivityAction action, ActivityStatus status,
+                                     ResourceType resourceType, Long resourceId, String resourceName,
+                                     String errorMessage, Map<String, Object> details,
+                                     HttpServletRequest request);
+
+    /**
+     * 通过Redis Stream记录用户活动日志，由stream-consumer批量写库
+     * 只在调用线程中提取请求信息并放入发送缓冲区，不访问数据库和Redis
+     */
+    void publishActivity(Long userId, ActivityAction action, ActivityStatus status,
+                         ResourceType resourceType, Long resourceId, String resourceName,
+                         String errorMessage, Map<String, Object> details,
+                         HttpServletRequest request);
+
     /**
      * 根据用户ID查询活动日志
      */
@@ -0,0 +1,122 @@
+package com.core.reminder.service;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.model.SimpleReminderView;
+import com.common.reminder.utils.ComplexReminderSchedule;
+import com.core.reminder.repository.ComplexReminderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 虚拟简单任务计算服务
+ *
+ * 复杂提醒只在较短的派发窗口内物化为SimpleReminder，窗口之外的月份由本服务
+ * 根据模板的CRON表达式实时计算出"虚拟"任务（id为空），仅用于日历展示，不入库。
+ * 虚拟任务返回给客户端时在DTO中标记为virtual，客户端按模板ID和触发时间识别。
+ * 有效期裁剪、节假日规则和maxExecutions计数与物化生成共用 {@link ComplexReminderSchedule} 的实现。
+ */
+@Slf4j
+@Service
+public class VirtualOccurrenceService {
+
+    @Autowired
+    private ComplexReminderRepository complexReminderRepository;
+
+    @Autowired
+    private LegalHolidayService legalHolidayService;
+
+    /**
+     * 物化窗口（月数），从当前月份开始计算，创建和更新复杂提醒时最多生成到窗口末尾
+     */
+    @Value("${reminder.materialization.horizon-months:2}")
+    private int horizonMonths;
+
+    /**
+     * 物化窗口（月数，含当前月）
+     */
+    public int getHorizonMonths() {
+        return horizonMonths;
+    }
+
+    /**
+     * 判断指定月份是否超出物化窗口
+     *
+     * @param year 年份
+     * @param month 月份(1-12)
+     * @return true表示该月份的复杂提醒任务不入库，需实时计算
+     */
+    public boolean isBeyondHorizon(int year, int month) {
+        YearMonth lastMaterializedMonth = YearMonth.now(ComplexReminderSchedule.CHINA_ZONE).plusMonths(horizonMonths - 1L);
+        return YearMonth.of(year, month).isAfter(lastMaterializedMonth);
+    }
+
+    /**
+     * 将已入库的任务与用户接收的复杂提醒在指定月份的虚拟任务合并
+     * 同一模板同一时间点已存在入库任务时以入库任务为准
+     *
+     * @param userId 接收用户ID
+     * @param year 年份
+     * @param month 月份(1-12)
+     * @param materialized 该月份已入库的简单任务（列表视图）
+     * @return 按时间排序的合并结果
+     */
+    public List<SimpleReminderView> mergeWithVirtualOccurrences(Long userId, int year, int month,
+                                                                List<SimpleReminderView> materialized) {
+        Set<String> materializedKeys = new HashSet<>();
+        for (SimpleReminderView reminder : materialized) {
+            if (reminder.getOriginatingComplexReminderId() != null && reminder.getEventTime() != null) {
+                materializedKeys.add(occurrenceKey(reminder.getOriginatingComplexReminderId(),
+                        reminder.getEventTime().toInstant()));
+            }
+        }
+
+        List<SimpleReminderView> merged = new ArrayList<>(materialized);
+        int virtualCount = 0;
+        YearMonth yearMonth = YearMonth.of(year, month);
+        for (ComplexReminder template : complexReminderRepository.findByToUserId(userId)) {
+            for (SimpleReminder occurrence : computeMonthOccurrences(template, yearMonth)) {
+                if (materializedKeys.add(occurrenceKey(template.getId(), occurrence.getEventTime().toInstant()))) {
+                    merged.add(SimpleReminderView.of(occurrence));
+                    virtualCount++;
+                }
+            }
+        }
+
+        merged.sort(Comparator.comparing(SimpleReminderView::getEventTime));
+        log.debug("用户[{}] {}-{} 月份合并虚拟任务 {} 条，入库任务 {} 条", userId, year, month, virtualCount, materialized.size());
+        return merged;
+    }
+
+    /**
+     * 计算复杂提醒在指定月份内的虚拟任务
+     * 触发时间与物化生成使用同一套规则，见 {@link ComplexReminderSchedule#calculateMonthOccurrenceTimes}
+     *
+     * @param template 复杂提醒模板
+     * @param yearMonth 目标月份
+     * @return 虚拟简单任务列表（id为空）
+     */
+    public List<SimpleReminder> computeMonthOccurrences(ComplexReminder template, YearMonth yearMonth) {
+        List<SimpleReminder> occurrences = new ArrayList<>();
+        for (OffsetDateTime eventTime : ComplexReminderSchedule.calculateMonthOccurrenceTimes(template, yearMonth,
+                legalHolidayService::getWorkdayCalendar)) {
+            occurrences.add(ComplexReminderSchedule.createInstance(template, eventTime));
+        }
+        return occurrences;
+    }
+
+    private String occurrenceKey(Long complexReminderId, Instant eventTime) {
+        return complexReminderId + ":" + eventTime.getEpochSecond();
+    }
+}
@@ -5,7 +5,9 @@ import com.common.reminder.constant.ActivityStatus;
 import com.common.reminder.constant.ResourceType;
 import com.common.reminder.model.UserActivityLog;
 import com.core.reminder.repository.UserActivityLogRepository;
+import com.core.reminder.service.DataRetentionService;
 import com.core.reminder.service.UserActivityLogService;
+import com.core.reminder.utils.ActivityLogEventPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -13,6 +15,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.servlet.http.HttpServletRequest;
@@ -26,53 +29,26 @@ import java.util.Map;
  */
 @Slf4j
 @Service
-@Transactional
 public class UserActivityLogServiceImpl implements UserActivityLogService {
 
     @Autowired
     private UserActivityLogRepository activityLogRepository;
 
+    @Autowired
+    private ActivityLogEventPublisher activityLogEventPublisher;
+
+    @Autowired
+    private DataRetentionService dataRetentionService;
+
     @Override
+    @Transactional
     public UserActivityLog logActivity(Long userId, ActivityAction action, ActivityStatus status,
                                       ResourceType resourceType, Long resourceId, String resourceName,
                                       String errorMessage, Map<String, Object> details,
                                       HttpServletRequest request) {
         try {
-            UserActivityLog.UserActivityLogBuilder builder = UserActivityLog.builder()
-                    .userId(userId)
-                    .action(action)
-                    .status(status)
-                    .resourceType(resourceType)
-                    .resourceId(resourceId)
-                    .resourceName(resourceName)
-                    .errorMessage(errorMessage);
-
-            // 从请求中提取信息
-            if (request != null) {
-                builder.sessionId(request.getSession().getId())
-                       .requestMethod(request.getMethod())
-                       .requestUrl(request.getRequestURI())
-                       .userAgent(request.getHeader("User-Agent"));
-
-                // 获取真实IP地址
-                String ipAddress = getClientIpAddress(request);
-                if (ipAddress != null) {
-                    UserActivityLog log = builder.build();
-                    log.setIpAddressString(ipAddress);
-                    // 设置详细信息
-                    if (details != null) {
-                        log.setDetailsMap(details);
-                    }
-                    return activityLogRepository.save(log);
-                }
-            }
-
-            UserActivityLog log = builder.build();
-            // 设置详细信息
-            if (details != null) {
-                log.setDetailsMap(details);
-            }
-            return activityLogRepository.save(log);
+            return activityLogRepository.save(buildActivityLog(userId, action, status, resourceType,
+                    resourceId, resourceName, errorMessage, details, request));
         } catch (Exception e) {
             log.error("记录用户活动日志失败: userId={}, action={}", userId, action, e);
             return null;
@@ -80,6 +56,58 @@ public class UserActivityLogServiceImpl implements UserActivityLogService {
     }
 
     @Override
+    public UserActivityLog buildActivityLog(Long userId, ActivityAction action, ActivityStatus status,
+                                            ResourceType resourceType, Long resourceId, String resourceName,
+                                            String errorMessage, Map<String, Object> details,
+                                            HttpServletRequest request) {
+        UserActivityLog.UserActivityLogBuilder builder = UserActivityLog.builder()
+                .userId(userId)
+                .action(action)
+                .status(status)
+                .resourceType(resourceType)
+                .resourceId(resourceId)
+                .resourceName(resourceName)
+                .errorMessage(errorMessage);
+
+        // 从请求中提取信息
+        if (request != null) {
+            builder.sessionId(request.getSession().getId())
+                   .requestMethod(request.getMethod())
+                   .requestUrl(request.getRequestURI())
+                   .userAgent(request.getHeader("User-Agent"));
+        }
+
+        UserActivityLog log = builder.build();
+        if (request != null) {
+            // 获取真实IP地址
+            log.setIpAddressString(getClientIpAddress(request));
+        }
+        // 设置详细信息
+        if (details != null) {
+            log.setDetailsMap(details);
+            Object executionTime = details.get("executionTime");
+            if (executionTime instanceof Number) {
+                log.setExecutionTimeMs(((Number) executionTime).intValue());
+            }
+        }
+        return log;
+    }
+
+    @Override
+    public void publishActivity(Long userId, ActivityAction action, ActivityStatus status,
+                                ResourceType resourceType, Long resourceId, String resourceName,
+                                String errorMessage, Map<String, Object> details,
+                                HttpServletRequest request) {
+        try {
+            activityLogEventPublisher.publish(buildActivityLog(userId, action, status, resourceType,
+                    resourceId, resourceName, errorMessage, details, request));
+        } catch (Exception e) {
+            log.error("发送用户活动日志失败: userId={}, action={}", userId, action, e);
+        }
+    }
+
+    @Override
+    @Transactional
     public UserActivityLog logActivity(Long userId, ActivityAction action, ResourceType resourceType,
                                       Long resourceId, String resourceName, HttpServletRequest request) {
         return logActivity(userId, action, ActivityStatus.SUCCESS, resourceType, resourceId,
@@ -87,6 +115,7 @@ public class UserActivityLogServiceImpl implements UserActivityLogService {
     }
 
     @Override
+    @Transactional
     public UserActivityLog logActivity(Long userId, ActivityAction action, HttpServletRequest request) {
         return logActivity(userId, action, ActivityStatus.SUCCESS, null, null,
                           null, null, null, request);
@@ -94,6 +123,7 @@ public class UserActivityLogServiceImpl implements UserActivityLogService {
 
     @Override
     @Async
+    @Transactional
     public void logActivityAsync(Long userId, ActivityAction action, ActivityStatus status,
                                 ResourceType resourceType, Long resourceId, String resourceName,
                                 String errorMessage, Map<String, Object> details,
@@ -196,12 +226,13 @@ public class UserActivityLogServiceImpl implements UserActivityLogService {
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void cleanupOldLogs(int daysToKeep) {
+        // 按ID区间分块删除，每块独立提交，不能在外层事务中执行
         OffsetDateTime cutoffTime = OffsetDateTime.now().minusDays(daysToKeep);
         try {
-            activityLogRepository.deleteByCreatedAtBefore(cutoffTime);
-            log.info("清理了{}天前的活动日志", daysToKeep);
+            long deleted = dataRetentionService.purgeActivityLogs(cutoffTime);
+            log.info("清理了{}天前的活动日志 {} 条", daysToKeep, deleted);
         } catch (Exception e) {
             log.error("清理活动日志失败", e);
         }
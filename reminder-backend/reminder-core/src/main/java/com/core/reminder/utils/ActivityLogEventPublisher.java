@@ -0,0 +1,159 @@
+package com.core.reminder.utils;
+
+import com.common.reminder.constant.ActivityAction;
+import com.common.reminder.constant.ActivityStatus;
+import com.common.reminder.constant.ResourceType;
+import com.common.reminder.event.ActivityLogEvent;
+import com.common.reminder.model.UserActivityLog;
+import com.core.reminder.repository.UserActivityLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 用户活动日志事件发布器
+ *
+ * 请求线程只把日志放入内存缓冲区，定时任务每 flush-interval-ms 把缓冲区中的日志用管道批量XADD到
+ * 活动日志专用的Redis Stream，由stream-consumer的LogEventHandler批量写库，请求不再等待数据库或Redis。
+ * 活动日志不与复杂提醒事件共用Stream，日志流量不会挤占提醒生成事件的拉取和处理。
+ *
+ * Redis不可用时这一批日志直接批量写库；缓冲区满时在调用线程中直接写库；停机时先停止接收，
+ * 再把缓冲区剩余的日志发送出去，之后到达的日志直接写库。
+ * 缓冲区只在内存中，进程异常退出时尚未发送的日志（最多 flush-interval-ms 内的日志）会丢失；
+ * Redis和数据库同时不可用时，直接写库失败的日志也会丢弃。
+ */
+@Slf4j
+@Component
+public class ActivityLogEventPublisher {
+
+    @Autowired
+    private StreamEventPublisher streamEventPublisher;
+
+    @Autowired
+    private UserActivityLogRepository activityLogRepository;
+
+    /**
+     * 活动日志Stream
+     */
+    @Value("${reminder.activity-log.stream-key:activity-log-stream}")
+    private String streamKey;
+
+    /**
+     * 缓冲区容量
+     */
+    @Value("${reminder.activity-log.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    /**
+     * 每次XADD管道发送的最大日志数
+     */
+    @Value("${reminder.activity-log.batch-size:500}")
+    private int batchSize;
+
+    private BlockingQueue<ActivityLogEvent> buffer;
+
+    /**
+     * 停机后不再放入缓冲区，避免日志留在缓冲区中无人发送
+     */
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void init() {
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    }
+
+    /**
+     * 把活动日志放入发送缓冲区，不阻塞；停机后直接写库
+     *
+     * @param activityLog 活动日志（尚未保存）
+     */
+    public void publish(UserActivityLog activityLog) {
+        if (closed) {
+            activityLogRepository.save(activityLog);
+            return;
+        }
+        ActivityLogEvent event = ActivityLogEvent.from(activityLog, System.currentTimeMillis());
+        if (!buffer.offer(event)) {
+            log.warn("活动日志发送缓冲区已满（容量 {}），直接写库 - 用户: {}, 操作: {}",
+                    bufferCapacity, activityLog.getUserId(), activityLog.getAction());
+            activityLogRepository.save(activityLog);
+        }
+    }
+
+    /**
+     * 把缓冲区中的日志发送到Stream
+     * 默认每200毫秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${reminder.activity-log.flush-interval-ms:200}")
+    public void flush() {
+        List<ActivityLogEvent> events = new ArrayList<>(batchSize);
+        while (buffer.drainTo(events, batchSize) > 0) {
+            List<Map<String, String>> payloads = new ArrayList<>(events.size());
+            for (ActivityLogEvent event : events) {
+                payloads.add(event.toFields());
+            }
+            try {
+                streamEventPublisher.publishBatch(streamKey, payloads);
+            } catch (Exception e) {
+                log.error("发送 {} 条活动日志到Stream失败，改为直接写库: {}", events.size(), e.getMessage());
+                saveDirectly(events);
+            }
+            events.clear();
+        }
+    }
+
+    /**
+     * 停止接收新日志，并把缓冲区中剩余的日志发送出去，发送失败的直接写库
+     */
+    @PreDestroy
+    public void destroy() {
+        closed = true;
+        flush();
+        log.info("活动日志发送缓冲区已清空");
+    }
+
+    private void saveDirectly(List<ActivityLogEvent> events) {
+        List<UserActivityLog> logs = new ArrayList<>(events.size());
+        for (ActivityLogEvent event : events) {
+            logs.add(toEntity(event));
+        }
+        try {
+            activityLogRepository.saveAll(logs);
+        } catch (Exception e) {
+            log.error("直接写入 {} 条活动日志失败，日志已丢弃", logs.size(), e);
+        }
+    }
+
+    private static UserActivityLog toEntity(ActivityLogEvent event) {
+        UserActivityLog activityLog = new UserActivityLog();
+        activityLog.setUserId(event.getUserId());
+        activityLog.setSessionId(event.getSessionId());
+        activityLog.setAction(event.getAction() == null ? null : ActivityAction.valueOf(event.getAction()));
+        activityLog.setStatus(event.getStatus() == null ? null : ActivityStatus.valueOf(event.getStatus()));
+        activityLog.setResourceType(event.getResourceType() == null ? null : ResourceType.valueOf(event.getResourceType()));
+        activityLog.setResourceId(event.getResourceId());
+        activityLog.setResourceName(event.getResourceName());
+        activityLog.setIpAddress(event.getIpAddress());
+        activityLog.setUserAgent(event.getUserAgent());
+        activityLog.setRequestMethod(event.getRequestMethod());
+        activityLog.setRequestUrl(event.getRequestUrl());
+        activityLog.setErrorMessage(event.getErrorMessage());
+        activityLog.setExecutionTimeMs(event.getExecutionTimeMs());
+        activityLog.setDetails(event.getDetails());
+        activityLog.setCreatedAt(OffsetDateTime.ofInstant(Instant.ofEpochMilli(event.getOccurredAt()), ZoneOffset.UTC));
+        return activityLog;
+    }
+}
@@ -2,33 +2,148 @@ package com.core.reminder.utils;
 
 import com.core.reminder.constant.CacheKeyEnum;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * 缓存工具类
  * 统一管理缓存操作，使用CacheKeyEnum管理缓存键和过期时间
+ *
+ * 可本地缓存的键采用两级缓存：先查进程内的LocalCache，未命中再查Redis并回填本地副本；
+ * 写入和删除先操作Redis，再删除本地副本并广播失效消息
+ *
+ * getOrLoad提供防击穿加载：本实例内同一个键的并发加载合并为一次，跨实例由短期Redis锁保证只有一个实例加载，
+ * 其他实例轮询等待缓存写入；临近过期的热点键按XFetch算法概率性提前重建，避免同时过期后集中回源
+ *
+ * 月度提醒缓存按版本号失效：缓存键包含用户纪元和月份版本号，失效时只递增版本号，
+ * 不需要用KEYS匹配或维护每个用户的缓存键索引，耗时与Redis键数量和该用户缓存的月份数无关
  */
 @Component
 public class CacheUtils {
     
     private static final Logger log = LoggerFactory.getLogger(CacheUtils.class);
     
+    /**
+     * 读取用户纪元和月份版本号，不存在的版本号以当前毫秒数初始化
+     * 以时间初始化保证版本号键过期后重新创建的值不会与过期前发出的版本号重复
+     * KEYS: 版本号键, ARGV[1]: 当前毫秒数, ARGV[2]: 版本号过期时间（毫秒）
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_VERSIONS_SCRIPT = new DefaultRedisScript<>(
+            "local result = {} "
+                    + "for i = 1, #KEYS do "
+                    + "local v = redis.call('GET', KEYS[i]) "
+                    + "if not v then v = ARGV[1] redis.call('SET', KEYS[i], v, 'PX', ARGV[2]) end "
+                    + "result[i] = v "
+                    + "end "
+                    + "return result",
+            List.class);
+    
+    /**
+     * 版本号加一并续期，不存在时先以当前毫秒数初始化
+     * KEYS[1]: 版本号键, ARGV[1]: 当前毫秒数, ARGV[2]: 版本号过期时间（毫秒）
+     */
+    private static final RedisScript<Long> BUMP_VERSION_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], ARGV[1]) end "
+                    + "local v = redis.call('INCR', KEYS[1]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "return v",
+            Long.class);
+    
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private LocalCache localCache;
+    
+    @Autowired
+    private RedisLeaseLock redisLeaseLock;
+    
+    /**
+     * 跨实例加载锁的租约时长（毫秒），应大于一次加载的耗时
+     */
+    @Value("${reminder.cache.load.lock-ms:3000}")
+    private long loadLockMillis;
+    
+    /**
+     * 未取得加载锁时等待其他实例写入缓存的最长时间（毫秒），超时后自行加载
+     */
+    @Value("${reminder.cache.load.wait-ms:2000}")
+    private long loadWaitMillis;
+    
+    /**
+     * 等待期间检查缓存的间隔（毫秒）
+     */
+    @Value("${reminder.cache.load.poll-interval-ms:50}")
+    private long loadPollMillis;
+    
+    /**
+     * XFetch提前重建系数，越大越早重建，0表示不提前重建
+     */
+    @Value("${reminder.cache.load.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+    
+    /**
+     * 本实例正在进行的加载：缓存键 -> 加载结果
+     */
+    private final Map<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+    
+    /**
+     * getOrLoad写入的缓存值，附带加载耗时和过期时间，用于XFetch判断是否提前重建
+     */
+    private static final class LoadedValue {
+        private final Object value;
+        private final long loadMillis;
+        private final long expiresAt;
+        
+        private LoadedValue(Object value, long loadMillis, long expiresAt) {
+            this.value = value;
+            this.loadMillis = loadMillis;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    /**
+     * Redis（二级缓存）命中和未命中次数，只统计get类读取
+     */
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    
     private final ObjectMapper objectMapper;
     
     public CacheUtils() {
@@ -55,6 +170,7 @@ public class CacheUtils {
                 redisTemplate.opsForValue().set(cacheKey, value, cacheKeyEnum.getExpireTime(), cacheKeyEnum.getTimeUnit());
                 log.debug("已设置缓存: {}，过期时间: {} {}", cacheKey, cacheKeyEnum.getExpireTime(), cacheKeyEnum.getTimeUnit());
             }
+            localCache.invalidate(cacheKeyEnum, Collections.singletonList(cacheKey));
         } catch (Exception e) {
             log.error("设置缓存失败: {}", cacheKey, e);
         }
@@ -69,9 +185,20 @@ public class CacheUtils {
     @SuppressWarnings("unchecked")
     public <T> T get(CacheKeyEnum cacheKeyEnum, String keySuffix) {
         String cacheKey = cacheKeyEnum.buildKey(keySuffix);
+        boolean localCacheable = localCache.supports(cacheKeyEnum);
         
         try {
-            Object value = redisTemplate.opsForValue().get(cacheKey);
+            if (localCacheable) {
+                Object localValue = localCache.getIfPresent(cacheKey);
+                if (localValue != null) {
+                    log.debug("获取缓存: {}，结果: 本地命中", cacheKey);
+                    return (T) localValue;
+                }
+            }
+            Object value = getFromRedis(cacheKey);
+            if (localCacheable) {
+                localCache.put(cacheKey, value);
+            }
             log.debug("获取缓存: {}，结果: {}", cacheKey, value != null ? "命中" : "未命中");
             return (T) value;
         } catch (Exception e) {
@@ -92,6 +219,7 @@ public class CacheUtils {
         try {
             Boolean deleted = redisTemplate.delete(cacheKey);
             boolean success = Boolean.TRUE.equals(deleted);
+            localCache.invalidate(cacheKeyEnum, Collections.singletonList(cacheKey));
             log.debug("删除缓存: {}，结果: {}", cacheKey, success ? "成功" : "失败");
             return success;
         } catch (Exception e) {
@@ -162,6 +290,243 @@ public class CacheUtils {
         }
     }
     
+    /**
+     * 从Redis读取并记录二级缓存命中情况
+     */
+    private Object getFromRedis(String cacheKey) {
+        Object value = redisTemplate.opsForValue().get(cacheKey);
+        if (value != null) {
+            redisHits.increment();
+        } else {
+            redisMisses.increment();
+        }
+        return value;
+    }
+    
+    /**
+     * 获取两级缓存的命中统计
+     * @return local为本地缓存统计，redis为Redis读取统计（只包含本地未命中后的读取）
+     */
+    public Map<String, Object> getCacheStats() {
+        long hits = redisHits.sum();
+        long misses = redisMisses.sum();
+        Map<String, Object> redisStats = new LinkedHashMap<>();
+        redisStats.put("hits", hits);
+        redisStats.put("misses", misses);
+        redisStats.put("hitRate", hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("local", localCache.getStats());
+        stats.put("redis", redisStats);
+        return stats;
+    }
+    
+    // === 防击穿加载 ===
+    
+    /**
+     * 读取缓存，未命中时用加载函数加载并写入缓存
+     * 缓存值以 {"d":加载耗时,"e":过期时间,"v":值} 的格式保存，只能通过本方法读写
+     * @param cacheKeyEnum 缓存键枚举，必须有过期时间
+     * @param keySuffix 缓存键后缀
+     * @param type 缓存值类型
+     * @param loader 加载函数，抛出的异常原样传给调用方
+     * @return 缓存值或加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(CacheKeyEnum cacheKeyEnum, String keySuffix, JavaType type, Supplier<T> loader) {
+        String cacheKey = cacheKeyEnum.buildKey(keySuffix);
+        LoadedValue cached = readLoadedValue(cacheKeyEnum, cacheKey, type);
+        if (cached != null) {
+            if (!shouldRefreshEarly(cached)) {
+                return (T) cached.value;
+            }
+            // 提前重建：只有取得加载锁的请求重建，其他请求继续使用当前值
+            LoadedValue refreshed = loadWithLock(cacheKeyEnum, cacheKey, null, loader);
+            if (refreshed != null) {
+                log.debug("缓存 {} 临近过期，已提前重建", cacheKey);
+                return (T) refreshed.value;
+            }
+            return (T) cached.value;
+        }
+        return (T) singleFlight(cacheKey, () -> loadOnMiss(cacheKeyEnum, cacheKey, type, loader));
+    }
+    
+    /**
+     * 先查本地缓存再查Redis，都未命中时返回null
+     */
+    private LoadedValue readLoadedValue(CacheKeyEnum cacheKeyEnum, String cacheKey, JavaType type) {
+        boolean localCacheable = localCache.supports(cacheKeyEnum);
+        if (localCacheable) {
+            Object localValue = localCache.getIfPresent(cacheKey);
+            if (localValue instanceof LoadedValue) {
+                return (LoadedValue) localValue;
+            }
+        }
+        try {
+            LoadedValue loaded = decodeLoadedValue(getFromRedis(cacheKey), type);
+            if (loaded != null && localCacheable) {
+                localCache.put(cacheKey, loaded);
+            }
+            return loaded;
+        } catch (Exception e) {
+            log.error("读取缓存失败: {}", cacheKey, e);
+            return null;
+        }
+    }
+    
+    /**
+     * XFetch：剩余有效期越短、加载越慢，越可能提前重建
+     * 判断条件为 now - 加载耗时 * beta * ln(random) >= 过期时间
+     */
+    private boolean shouldRefreshEarly(LoadedValue cached) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        double gap = -cached.loadMillis * earlyRefreshBeta * Math.log(random);
+        return System.currentTimeMillis() + gap >= cached.expiresAt;
+    }
+    
+    /**
+     * 合并本实例内同一个键的并发加载
+     */
+    private Object singleFlight(String cacheKey, Supplier<Object> load) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlightLoads.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            try {
+                return existing.get(loadLockMillis + loadWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待缓存加载被中断: " + cacheKey, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            } catch (TimeoutException e) {
+                log.warn("等待本实例加载缓存 {} 超时，自行加载", cacheKey);
+                return load.get();
+            }
+        }
+        try {
+            Object value = load.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(cacheKey, future);
+        }
+    }
+    
+    /**
+     * 缓存未命中时加载：取得加载锁的实例加载，其他实例轮询等待缓存写入，超时后自行加载
+     */
+    private Object loadOnMiss(CacheKeyEnum cacheKeyEnum, String cacheKey, JavaType type, Supplier<?> loader) {
+        LoadedValue loaded = loadWithLock(cacheKeyEnum, cacheKey, type, loader);
+        if (loaded != null) {
+            return loaded.value;
+        }
+        
+        long deadline = System.currentTimeMillis() + loadWaitMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(loadPollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                LoadedValue filled = decodeLoadedValue(redisTemplate.opsForValue().get(cacheKey), type);
+                if (filled != null) {
+                    if (localCache.supports(cacheKeyEnum)) {
+                        localCache.put(cacheKey, filled);
+                    }
+                    return filled.value;
+                }
+            } catch (Exception e) {
+                log.warn("等待缓存 {} 写入时读取失败: {}", cacheKey, e.getMessage());
+                break;
+            }
+        }
+        log.debug("等待其他实例加载缓存 {} 超时，自行加载", cacheKey);
+        return loadAndStore(cacheKeyEnum, cacheKey, loader, false).value;
+    }
+    
+    /**
+     * 取得加载锁后加载并写入缓存，未取得锁时返回null；Redis不可用时不加锁直接加载
+     * @param missType 缓存未命中时加载传入缓存值类型，取得锁后先检查其他实例是否刚写入；提前重建时传null
+     */
+    private LoadedValue loadWithLock(CacheKeyEnum cacheKeyEnum, String cacheKey, JavaType missType, Supplier<?> loader) {
+        String lockKey = "lock:cache-load:" + cacheKey;
+        String token;
+        try {
+            token = redisLeaseLock.tryAcquire(lockKey, Duration.ofMillis(loadLockMillis));
+        } catch (Exception e) {
+            log.warn("获取缓存 {} 的加载锁失败，直接加载: {}", cacheKey, e.getMessage());
+            return loadAndStore(cacheKeyEnum, cacheKey, loader, missType == null);
+        }
+        if (token == null) {
+            return null;
+        }
+        try {
+            if (missType != null) {
+                LoadedValue filled = decodeLoadedValue(redisTemplate.opsForValue().get(cacheKey), missType);
+                if (filled != null) {
+                    return filled;
+                }
+            }
+            return loadAndStore(cacheKeyEnum, cacheKey, loader, missType == null);
+        } catch (JsonProcessingException e) {
+            log.warn("缓存 {} 的值无法解析，重新加载: {}", cacheKey, e.getMessage());
+            return loadAndStore(cacheKeyEnum, cacheKey, loader, false);
+        } finally {
+            redisLeaseLock.release(lockKey, token);
+        }
+    }
+    
+    /**
+     * 调用加载函数并写入缓存，写入失败不影响返回加载结果
+     * @param overwrite 是否覆盖仍然有效的缓存（提前重建），覆盖时通知其他实例删除本地副本
+     */
+    private LoadedValue loadAndStore(CacheKeyEnum cacheKeyEnum, String cacheKey, Supplier<?> loader, boolean overwrite) {
+        long startTime = System.currentTimeMillis();
+        Object value = loader.get();
+        long now = System.currentTimeMillis();
+        long expireMillis = cacheKeyEnum.getTimeUnit().toMillis(cacheKeyEnum.getExpireTime());
+        LoadedValue loaded = new LoadedValue(value instanceof List ? Collections.unmodifiableList((List<?>) value) : value,
+                now - startTime, now + expireMillis);
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("d", loaded.loadMillis);
+            node.put("e", loaded.expiresAt);
+            node.set("v", objectMapper.valueToTree(value));
+            redisTemplate.opsForValue().set(cacheKey, objectMapper.writeValueAsString(node), expireMillis, TimeUnit.MILLISECONDS);
+            if (overwrite) {
+                localCache.invalidate(cacheKeyEnum, Collections.singletonList(cacheKey));
+            }
+            if (localCache.supports(cacheKeyEnum)) {
+                localCache.put(cacheKey, loaded);
+            }
+        } catch (Exception e) {
+            log.error("写入缓存失败: {}", cacheKey, e);
+        }
+        return loaded;
+    }
+    
+    private LoadedValue decodeLoadedValue(Object raw, JavaType type) throws JsonProcessingException {
+        if (raw == null) {
+            return null;
+        }
+        JsonNode node = objectMapper.readTree(raw.toString());
+        if (!node.has("v") || !node.has("e")) {
+            return null;
+        }
+        Object value = objectMapper.convertValue(node.get("v"), type);
+        return new LoadedValue(value instanceof List ? Collections.unmodifiableList((List<?>) value) : value,
+                node.path("d").asLong(), node.get("e").asLong());
+    }
+    
     // === 便捷方法 ===
     
     /**
@@ -378,90 +743,87 @@ public class CacheUtils {
     }
     
     /**
-     * 设置用户月度提醒缓存
+     * 获取用户月度提醒的版本号
+     * 版本号由用户纪元（影响所有月份的变更时递增）和月份版本（只影响该月的变更时递增）组成，
+     * 作为月度缓存键的一部分，也作为ETag返回给客户端
      * @param userId 用户ID
      * @param year 年份
      * @param month 月份
-     * @param reminders 提醒列表
+     * @return 版本号，读取失败时返回null
      */
-    public void setUserMonthlyReminders(Long userId, int year, int month, List<?> reminders) {
-        String keySuffix = userId + ":" + year + ":" + month;
+    @SuppressWarnings("unchecked")
+    public String getUserMonthlyVersion(Long userId, int year, int month) {
         try {
-            String jsonValue = objectMapper.writeValueAsString(reminders);
-            set(CacheKeyEnum.USER_MONTHLY_REMINDERS, keySuffix, jsonValue);
-            log.debug("已设置用户[{}] {}-{} 月度提醒缓存，共{}条", userId, year, month, reminders.size());
-        } catch (JsonProcessingException e) {
-            log.error("序列化用户[{}] {}-{} 月度提醒失败", userId, year, month, e);
+            List<String> versions = stringRedisTemplate.execute(READ_VERSIONS_SCRIPT,
+                    Arrays.asList(CacheKeyEnum.buildUserMonthlyEpochKey(userId),
+                            CacheKeyEnum.buildUserMonthlyVersionKey(userId, year, month)),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(versionExpireMillis()));
+            if (versions == null || versions.size() != 2) {
+                return null;
+            }
+            return Long.toString(Long.parseLong(versions.get(0)), Character.MAX_RADIX)
+                    + "." + Long.toString(Long.parseLong(versions.get(1)), Character.MAX_RADIX);
+        } catch (Exception e) {
+            log.error("获取用户[{}] {}-{} 月度提醒版本号失败", userId, year, month, e);
+            return null;
         }
     }
     
     /**
-     * 获取用户月度提醒缓存
+     * 获取用户月度提醒，缓存未命中时用加载函数加载（防击穿）
+     * 缓存键包含版本号，数据变更后读取新版本的键，旧版本的键由过期时间清除
      * @param userId 用户ID
      * @param year 年份
      * @param month 月份
+     * @param version 读取数据前获取的版本号
      * @param clazz 提醒对象类型
-     * @return 提醒列表，如果缓存不存在返回null
+     * @param loader 从数据库加载该月提醒的函数
+     * @return 提醒列表（可修改的副本）
      */
-    public <T> List<T> getUserMonthlyRemindersFromCache(Long userId, int year, int month, Class<T> clazz) {
-        String keySuffix = userId + ":" + year + ":" + month;
-        try {
-            String jsonValue = get(CacheKeyEnum.USER_MONTHLY_REMINDERS, keySuffix);
-            if (jsonValue == null) {
-                log.debug("用户[{}] {}-{} 月度提醒缓存未命中", userId, year, month);
-                return null;
-            }
-            
-            // 使用TypeReference来处理List类型
-            com.fasterxml.jackson.core.type.TypeReference<List<Object>> typeRef = 
-                new com.fasterxml.jackson.core.type.TypeReference<List<Object>>() {};
-            List<Object> rawList = objectMapper.readValue(jsonValue, typeRef);
-            
-            // 转换为目标类型
-            List<T> reminders = new java.util.ArrayList<>(rawList.size());
-            for (Object obj : rawList) {
-                String objJson = objectMapper.writeValueAsString(obj);
-                T reminder = objectMapper.readValue(objJson, clazz);
-                reminders.add(reminder);
-            }
-            
-            log.debug("用户[{}] {}-{} 月度提醒缓存命中，共{}条", userId, year, month, reminders.size());
-            return reminders;
-        } catch (JsonProcessingException e) {
-            log.error("反序列化用户[{}] {}-{} 月度提醒失败", userId, year, month, e);
-            return null;
-        }
+    public <T> List<T> getOrLoadUserMonthlyReminders(Long userId, int year, int month, String version,
+                                                     Class<T> clazz, Supplier<List<T>> loader) {
+        String keySuffix = userId + ":" + year + ":" + month + ":" + version;
+        JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, clazz);
+        List<T> reminders = getOrLoad(CacheKeyEnum.USER_MONTHLY_REMINDERS, keySuffix, type, loader);
+        return new ArrayList<>(reminders);
     }
     
     /**
-     * 删除用户月度提醒缓存
+     * 使用户指定月份的月度提醒缓存失效
+     * 递增月份版本号，旧版本的缓存不再被读取，由过期时间自动清除
      * @param userId 用户ID
      * @param year 年份
      * @param month 月份
      */
-    public void deleteUserMonthlyReminders(Long userId, int year, int month) {
-        String keySuffix = userId + ":" + year + ":" + month;
-        boolean deleted = delete(CacheKeyEnum.USER_MONTHLY_REMINDERS, keySuffix);
-        log.debug("删除用户[{}] {}-{} 月度提醒缓存，结果: {}", userId, year, month, deleted ? "成功" : "失败");
+    public void invalidateUserMonthlyReminders(Long userId, int year, int month) {
+        bumpVersion(CacheKeyEnum.buildUserMonthlyVersionKey(userId, year, month));
+        log.debug("用户[{}] {}-{} 月度提醒版本号已递增", userId, year, month);
     }
     
     /**
-     * 清除用户所有月度提醒缓存
+     * 使用户所有月份的月度提醒缓存失效
+     * 递增用户纪元，所有月份的版本号随之改变，耗时与缓存的月份数无关
      * @param userId 用户ID
      */
-    public void clearUserAllMonthlyReminders(Long userId) {
+    public void invalidateUserAllMonthlyReminders(Long userId) {
+        bumpVersion(CacheKeyEnum.buildUserMonthlyEpochKey(userId));
+        log.debug("用户[{}] 月度提醒纪元已递增", userId);
+    }
+    
+    private void bumpVersion(String versionKey) {
         try {
-            String pattern = CacheKeyEnum.USER_MONTHLY_REMINDERS.buildKey(userId + ":*");
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.debug("已清除用户[{}] 所有月度提醒缓存，共{}个", userId, keys.size());
-            }
+            stringRedisTemplate.execute(BUMP_VERSION_SCRIPT, Collections.singletonList(versionKey),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(versionExpireMillis()));
         } catch (Exception e) {
-            log.error("清除用户[{}] 所有月度提醒缓存失败", userId, e);
+            log.error("递增月度提醒版本号失败: {}", versionKey, e);
         }
     }
     
+    private long versionExpireMillis() {
+        CacheKeyEnum cacheKeyEnum = CacheKeyEnum.USER_MONTHLY_VERSION;
+        return cacheKeyEnum.getTimeUnit().toMillis(cacheKeyEnum.getExpireTime());
+    }
+    
     /**
      * 批量添加提醒到用户的ZSet缓存
      * @param userId 用户ID
@@ -0,0 +1,168 @@
+package com.core.reminder.utils;
+
+import com.core.reminder.constant.CacheKeyEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内本地缓存（一级缓存）
+ *
+ * 位于Redis（二级缓存）之前，按容量和写入后存活时间淘汰，只缓存CacheKeyEnum中标记为可本地缓存的键。
+ * 写入或删除Redis缓存后通过Redis发布订阅广播失效消息，各实例收到后删除本地副本。
+ * 发布订阅不保证送达（订阅断线期间的消息会丢失），本地缓存的存活时间即跨实例不一致的上限。
+ */
+@Component
+public class LocalCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalCache.class);
+
+    /**
+     * 失效消息频道
+     */
+    public static final String INVALIDATION_CHANNEL = "reminder:cache:invalidate";
+
+    /**
+     * 失效消息格式：第一行为发送实例ID，之后每行一个缓存键
+     */
+    private static final String MESSAGE_SEPARATOR = "\n";
+
+    @Value("${reminder.cache.local.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reminder.cache.local.max-size:10000}")
+    private long maxSize;
+
+    /**
+     * 本地副本写入后的存活时间（毫秒），也是失效消息丢失时跨实例不一致的最长时间
+     */
+    @Value("${reminder.cache.local.ttl-ms:30000}")
+    private long ttlMillis;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本实例ID，忽略自己发出的失效消息（本地副本在发送前已删除）
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+
+    private Cache<String, Object> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        log.info("本地缓存初始化完成 - 启用: {}, 最大条数: {}, 存活时间: {}ms", enabled, maxSize, ttlMillis);
+    }
+
+    /**
+     * 该类缓存键是否经过本地缓存
+     */
+    public boolean supports(CacheKeyEnum cacheKeyEnum) {
+        return enabled && cacheKeyEnum.isLocalCacheable();
+    }
+
+    /**
+     * 读取本地副本
+     *
+     * @param cacheKey 完整缓存键
+     * @return 本地副本，不存在时返回null
+     */
+    public Object getIfPresent(String cacheKey) {
+        return cache.getIfPresent(cacheKey);
+    }
+
+    /**
+     * 保存本地副本，调用方需保证值在缓存期间不被修改
+     *
+     * @param cacheKey 完整缓存键
+     * @param value 缓存值，为null时忽略
+     */
+    public void put(String cacheKey, Object value) {
+        if (value != null) {
+            cache.put(cacheKey, value);
+        }
+    }
+
+    /**
+     * 删除本地副本并通知其他实例删除，在Redis中的值写入或删除之后调用
+     *
+     * @param cacheKeyEnum 缓存键枚举
+     * @param cacheKeys 完整缓存键
+     */
+    public void invalidate(CacheKeyEnum cacheKeyEnum, Collection<String> cacheKeys) {
+        // 本实例未启用本地缓存时仍然广播，其他实例可能启用了
+        if (!cacheKeyEnum.isLocalCacheable() || cacheKeys.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(cacheKeys);
+        try {
+            String message = instanceId + MESSAGE_SEPARATOR + String.join(MESSAGE_SEPARATOR, cacheKeys);
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+            invalidationsSent.add(cacheKeys.size());
+        } catch (Exception e) {
+            // 其他实例的副本最迟在存活时间到期后失效
+            log.warn("发布缓存失效消息失败，其他实例的本地副本将在{}ms内过期: {}", ttlMillis, e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他实例发出的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<String> lines = Arrays.asList(body.split(MESSAGE_SEPARATOR));
+        if (lines.size() < 2 || instanceId.equals(lines.get(0))) {
+            return;
+        }
+        List<String> cacheKeys = lines.subList(1, lines.size());
+        cache.invalidateAll(cacheKeys);
+        invalidationsReceived.add(cacheKeys.size());
+        log.debug("收到缓存失效消息，已删除本地副本 {} 个", cacheKeys.size());
+    }
+
+    /**
+     * 获取本地缓存统计
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidationsSent", invalidationsSent.sum());
+        result.put("invalidationsReceived", invalidationsReceived.sum());
+        result.put("ttlMs", ttlMillis);
+        return result;
+    }
+}
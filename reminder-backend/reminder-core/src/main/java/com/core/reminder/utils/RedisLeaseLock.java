@@ -0,0 +1,84 @@
+package com.core.reminder.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 基于Redis的租约锁
+ * 用于多个实例同时触发的定时任务只由一个实例执行。租约到期自动释放，持有者崩溃不会导致死锁；
+ * 执行时间可能超过租约时，持有者需在执行过程中续租。续租和释放都校验持有者令牌，不会误删其他实例的租约。
+ */
+@Component
+public class RedisLeaseLock {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLeaseLock.class);
+
+    /**
+     * 令牌匹配时续期，返回1；否则返回0
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    /**
+     * 令牌匹配时删除，返回1；否则返回0
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 尝试获取租约
+     *
+     * @param lockKey 锁键
+     * @param lease 租约时长
+     * @return 持有者令牌，未获取到时返回null
+     */
+    public String tryAcquire(String lockKey, Duration lease) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token, lease);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    /**
+     * 续租
+     *
+     * @param lockKey 锁键
+     * @param token 持有者令牌
+     * @param lease 从现在起的租约时长
+     * @return 是否仍持有租约
+     */
+    public boolean renew(String lockKey, String token, Duration lease) {
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(lockKey),
+                token, String.valueOf(lease.toMillis()));
+        return renewed != null && renewed == 1;
+    }
+
+    /**
+     * 释放租约，租约已过期或被其他实例持有时不做任何事
+     *
+     * @param lockKey 锁键
+     * @param token 持有者令牌
+     */
+    public void release(String lockKey, String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(lockKey), token);
+        } catch (Exception e) {
+            log.warn("释放租约 {} 失败，将在租约到期后自动释放: {}", lockKey, e.getMessage());
+        }
+    }
+}
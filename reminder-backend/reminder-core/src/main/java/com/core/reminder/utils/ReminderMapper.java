@@ -4,6 +4,7 @@ import com.core.reminder.dto.ComplexReminderDTO;
 import com.core.reminder.dto.SimpleReminderDTO;
 import com.common.reminder.model.ComplexReminder;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.model.SimpleReminderView;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -34,6 +35,8 @@ public class ReminderMapper {
                 .validFrom(entity.getValidFrom())
                 .validUntil(entity.getValidUntil())
                 .maxExecutions(entity.getMaxExecutions())
+                .recurrenceRule(entity.getRecurrenceRule())
+                .recurrenceParam(entity.getRecurrenceParam())
                 .lastGeneratedYm(entity.getLastGeneratedYm())
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(entity.getUpdatedAt())
@@ -64,6 +67,8 @@ public class ReminderMapper {
         
         // 处理可选的数字字段：确保null值正确传递
         entity.setMaxExecutions(dto.getMaxExecutions());
+        entity.setRecurrenceRule(dto.getRecurrenceRule());
+        entity.setRecurrenceParam(dto.getRecurrenceParam());
         
         entity.setLastGeneratedYm(dto.getLastGeneratedYm());
         // 注意：创建时间和更新时间通常由JPA自动管理，但在特殊情况下也可以设置
@@ -90,11 +95,33 @@ public class ReminderMapper {
                 .eventTime(entity.getEventTime())
                 .reminderType(entity.getReminderType())
                 .originatingComplexReminderId(entity.getOriginatingComplexReminderId())
+                .virtual(entity.getId() == null && entity.getOriginatingComplexReminderId() != null)
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(entity.getUpdatedAt())
                 .build();
     }
     
+    /**
+     * 将列表视图SimpleReminderView转换为DTO对象SimpleReminderDTO
+     * 列表视图不含描述和创建/更新时间，DTO中这些字段为null，描述由详情接口按需获取
+     */
+    public SimpleReminderDTO toDTO(SimpleReminderView view) {
+        if (view == null) {
+            return null;
+        }
+        
+        return SimpleReminderDTO.builder()
+                .id(view.getId())
+                .fromUserId(view.getFromUserId())
+                .toUserId(view.getToUserId())
+                .title(view.getTitle())
+                .eventTime(view.getEventTime())
+                .reminderType(view.getReminderType())
+                .originatingComplexReminderId(view.getOriginatingComplexReminderId())
+                .virtual(view.getId() == null && view.getOriginatingComplexReminderId() != null)
+                .build();
+    }
+    
     /**
      * 将DTO对象SimpleReminderDTO转换为数据库实体对象SimpleReminder
      * 注意：如果是更新操作，应先从数据库中获取原实体，再用DTO中的值更新
@@ -144,6 +171,18 @@ public class ReminderMapper {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 批量转换简单提醒列表视图为DTO对象列表
+     */
+    public List<SimpleReminderDTO> toSimpleReminderViewDTOList(List<SimpleReminderView> views) {
+        if (views == null) {
+            return null;
+        }
+        return views.stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+    
     /**
      * 更新已有的实体对象，使用DTO中的值
      * 用于编辑操作，保留数据库实体的创建时间等不应被修改的属性
@@ -186,6 +225,12 @@ public class ReminderMapper {
         if (dto.getMaxExecutions() != null) {
             existingEntity.setMaxExecutions(dto.getMaxExecutions());
         }
+        if (dto.getRecurrenceRule() != null) {
+            existingEntity.setRecurrenceRule(dto.getRecurrenceRule());
+        }
+        if (dto.getRecurrenceParam() != null) {
+            existingEntity.setRecurrenceParam(dto.getRecurrenceParam());
+        }
         
         // 不更新lastGeneratedYm，这是系统内部管理的字段
         // 不更新创建时间和更新时间，这些由JPA自动管理
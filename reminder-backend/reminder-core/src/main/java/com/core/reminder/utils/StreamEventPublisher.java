@@ -1,25 +1,36 @@
 package com.core.reminder.utils;
 
+import com.common.reminder.event.ComplexReminderEvent;
+import com.common.reminder.event.StreamEventCodecs;
+import com.common.reminder.event.StreamEventType;
 import com.common.reminder.utils.JacksonUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Redis Stream事件发布器
  * 用于向Redis Stream发送事件消息
+ *
+ * 发送路径上只执行XADD，Stream长度由 StreamLagMonitorJob 定期按安全边界裁剪。
+ *
+ * 复杂提醒事件使用紧凑编码（见 CompactStreamEventCodec）。消息通过StringRedisTemplate写入，
+ * 字段值不再经过Jackson序列化，不带多余的引号。
  */
 @Slf4j
 @Component
 public class StreamEventPublisher {
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate redisTemplate;
 
     @Value("${reminder.stream.key:complex-reminder-stream}")
     private String streamKey;
@@ -33,15 +44,11 @@ public class StreamEventPublisher {
      */
     public void publishComplexReminderGenerationEvent(Long complexReminderId, int monthsAhead, Long userId) {
         try {
-            Map<String, String> eventData = new HashMap<>();
-            eventData.put("command", "GENERATE_COMPLEX_REMINDER");
-            eventData.put("complexReminderId", complexReminderId.toString());
-            eventData.put("monthsAhead", String.valueOf(monthsAhead));
-            eventData.put("userId", userId.toString());
-            eventData.put("timestamp", String.valueOf(System.currentTimeMillis()));
+            Map<String, String> eventData = buildComplexReminderEvent(
+                    StreamEventType.GENERATE_COMPLEX_REMINDER, complexReminderId, monthsAhead, userId);
             
             // 发送到Redis Stream - 使用更直接的方式避免序列化问题
-            String messageId = redisTemplate.opsForStream().add(streamKey, eventData).getValue();
+            String messageId = addToStream(eventData);
             
             log.info("成功发送复杂提醒生成事件到Stream - 消息ID: {}, 复杂提醒ID: {}, 月数: {}", 
                     messageId, complexReminderId, monthsAhead);
@@ -62,15 +69,11 @@ public class StreamEventPublisher {
      */
     public void publishComplexReminderUpdateEvent(Long complexReminderId, int monthsAhead, Long userId) {
         try {
-            Map<String, String> eventData = new HashMap<>();
-            eventData.put("command", "UPDATE_COMPLEX_REMINDER");
-            eventData.put("complexReminderId", complexReminderId.toString());
-            eventData.put("monthsAhead", String.valueOf(monthsAhead));
-            eventData.put("userId", userId.toString());
-            eventData.put("timestamp", String.valueOf(System.currentTimeMillis()));
+            Map<String, String> eventData = buildComplexReminderEvent(
+                    StreamEventType.UPDATE_COMPLEX_REMINDER, complexReminderId, monthsAhead, userId);
             
             // 发送到Redis Stream - 使用更直接的方式避免序列化问题
-            String messageId = redisTemplate.opsForStream().add(streamKey, eventData).getValue();
+            String messageId = addToStream(eventData);
             
             log.info("成功发送复杂提醒更新事件到Stream - 消息ID: {}, 复杂提醒ID: {}, 月数: {}", 
                     messageId, complexReminderId, monthsAhead);
@@ -94,7 +97,7 @@ public class StreamEventPublisher {
             eventData.put("timestamp", String.valueOf(System.currentTimeMillis()));
             
             // 发送到Redis Stream - 使用更直接的方式避免序列化问题
-            String messageId = redisTemplate.opsForStream().add(streamKey, eventData).getValue();
+            String messageId = addToStream(eventData);
             
             log.info("成功发送事件到Stream - 消息ID: {}, 命令: {}, 数据: {}", 
                     messageId, command, JacksonUtils.toJson(eventData));
@@ -104,4 +107,64 @@ public class StreamEventPublisher {
             // 不抛出异常，避免影响主流程
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 构建复杂提醒生成/更新事件数据（紧凑编码）
+     *
+     * @param type 事件类型
+     * @param complexReminderId 复杂提醒ID
+     * @param monthsAhead 要生成的月数
+     * @param userId 用户ID
+     * @return 事件数据
+     */
+    public static Map<String, String> buildComplexReminderEvent(StreamEventType type, Long complexReminderId,
+                                                                int monthsAhead, Long userId) {
+        return StreamEventCodecs.encode(ComplexReminderEvent.of(type, complexReminderId, monthsAhead, userId));
+    }
+
+    /**
+     * 用管道批量发送事件到复杂提醒事件Stream，一次网络往返完成整批XADD
+     * 与其他发送方法不同，失败时抛出异常，由调用方决定是否重试
+     *
+     * @param events 事件数据列表（已包含command字段）
+     */
+    public void publishBatch(List<Map<String, String>> events) {
+        publishBatch(streamKey, events);
+    }
+
+    /**
+     * 用管道批量发送事件到指定Stream，一次网络往返完成整批XADD
+     * 失败时抛出异常，由调用方决定是否重试
+     *
+     * @param targetStreamKey 目标Stream
+     * @param events 事件数据列表（已包含command字段）
+     */
+    public void publishBatch(String targetStreamKey, List<Map<String, String>> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                StreamOperations<String, Object, Object> streamOperations =
+                        (StreamOperations<String, Object, Object>) operations.opsForStream();
+                for (Map<String, String> eventData : events) {
+                    streamOperations.add(targetStreamKey, eventData);
+                }
+                return null;
+            }
+        });
+        log.info("批量发送 {} 个事件到Stream [{}]", events.size(), targetStreamKey);
+    }
+
+    /**
+     * XADD消息
+     *
+     * @param eventData 事件数据
+     * @return 消息ID
+     */
+    private String addToStream(Map<String, String> eventData) {
+        return redisTemplate.opsForStream().add(streamKey, eventData).getValue();
+    }
+}
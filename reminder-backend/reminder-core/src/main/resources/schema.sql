@@ -147,6 +147,8 @@ CREATE TABLE complex_reminder (
     valid_from DATE, -- 提醒生效开始日期
     valid_until DATE, -- 提醒失效日期
     max_executions INTEGER, -- 最大执行次数限制
+    recurrence_rule VARCHAR(32), -- 节假日/工作日规则 (NONE, SKIP_HOLIDAYS, WORKDAYS, NTH_WORKDAY_OF_MONTH)
+    recurrence_param INTEGER, -- 规则参数，如每月第N个工作日的N (负数表示倒数)
     last_generated_ym INTEGER, -- 最后生成简单任务的年月(格式YYYYMM，如202405表示2024年5月)
     idempotency_key VARCHAR(255), -- 幂等键，用于防止重复创建
     created_at TIMESTAMP
@@ -162,6 +164,10 @@ CREATE INDEX idx_complex_reminder_from_user ON complex_reminder (from_user_id);
 
 CREATE INDEX idx_complex_reminder_to_user ON complex_reminder (to_user_id);
 
+-- 已有数据库迁移：节假日/工作日规则
+-- ALTER TABLE complex_reminder ADD COLUMN recurrence_rule VARCHAR(32);
+-- ALTER TABLE complex_reminder ADD COLUMN recurrence_param INTEGER;
+
 CREATE INDEX idx_complex_reminder_valid_range ON complex_reminder (valid_from, valid_until);
 -- 添加有效期范围索引
 CREATE INDEX idx_complex_reminder_last_generated ON complex_reminder (last_generated_ym);
@@ -191,6 +197,10 @@ COMMENT ON COLUMN complex_reminder.valid_until IS '提醒失效的日期，为
 
 COMMENT ON COLUMN complex_reminder.max_executions IS '提醒最大执行次数限制，为空则无限制';
 
+COMMENT ON COLUMN complex_reminder.recurrence_rule IS '节假日/工作日规则，在CRON触发时间上按日期过滤，为空等同于NONE';
+
+COMMENT ON COLUMN complex_reminder.recurrence_param IS '规则参数，NTH_WORKDAY_OF_MONTH 时为第N个工作日，负数表示倒数第N个';
+
 COMMENT ON COLUMN complex_reminder.last_generated_ym IS '最后生成简单任务的年月(格式YYYYMM，如202405表示2024年5月)';
 
 COMMENT ON COLUMN complex_reminder.idempotency_key IS '幂等键，用于防止重复创建相同的复杂提醒';
@@ -202,12 +212,15 @@ COMMENT ON COLUMN complex_reminder.updated_at IS '提醒记录的最后更新时
 -- 创建简单提醒实例表 (simple_reminder)
 DROP TABLE IF EXISTS simple_reminder CASCADE;
 -- 注意：添加了 originating_complex_reminder_id，移除了用户外键
+-- 按 event_time 每月一个分区（中国时区月初为界），分区名 simple_reminder_pYYYYMM。
+-- 分区表的主键必须包含分区键，id 仍由序列保证唯一。未来分区由 reminder-job 的分区维护任务提前创建，
+-- 过期分区由其分离或删除；没有对应分区的数据落在默认分区，创建分区时会迁出
 CREATE TABLE simple_reminder (
-    id BIGSERIAL PRIMARY KEY, -- 简单提醒实例唯一标识符
+    id BIGSERIAL, -- 简单提醒实例唯一标识符
     from_user_id BIGINT, -- 创建提醒的用户 ID
     to_user_id BIGINT NOT NULL, -- 接收提醒的用户 ID
-    title TEXT NOT NULL, -- 提醒标题
-    description TEXT, -- 提醒描述
+    title TEXT, -- 提醒标题 (模板生成的实例为空，沿用模板标题)
+    description TEXT, -- 提醒描述 (模板生成的实例为空，沿用模板描述)
     event_time TIMESTAMP
     WITH
         TIME ZONE NOT NULL, -- 提醒触发的精确时间点
@@ -218,8 +231,26 @@ CREATE TABLE simple_reminder (
         TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL, -- 记录创建时间
         updated_at TIMESTAMP
     WITH
-        TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL -- 记录最后更新时间
-);
+        TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL, -- 记录最后更新时间
+        PRIMARY KEY (id, event_time)
+) PARTITION BY RANGE (event_time);
+
+CREATE TABLE simple_reminder_default PARTITION OF simple_reminder DEFAULT;
+
+-- 当前月及之后6个月的分区，之后由分区维护任务滚动创建
+DO $$
+DECLARE
+    first_month TIMESTAMP := date_trunc('month', now() AT TIME ZONE 'Asia/Shanghai');
+    i INT;
+BEGIN
+    FOR i IN 0..6 LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF simple_reminder FOR VALUES FROM (%L) TO (%L)',
+            'simple_reminder_p' || to_char(first_month + make_interval(months => i), 'YYYYMM'),
+            (first_month + make_interval(months => i)) AT TIME ZONE 'Asia/Shanghai',
+            (first_month + make_interval(months => i + 1)) AT TIME ZONE 'Asia/Shanghai');
+    END LOOP;
+END $$;
 
 -- 为简单提醒表常用查询字段创建索引
 -- CREATE INDEX idx_simple_reminder_event_time ON simple_reminder (event_time);
@@ -227,11 +258,48 @@ CREATE INDEX idx_simple_reminder_event_time_user ON simple_reminder (event_time,
 
 CREATE INDEX idx_simple_reminder_from_user ON simple_reminder (from_user_id);
 
-CREATE INDEX idx_simple_reminder_to_user ON simple_reminder (to_user_id);
+-- 用户月视图：to_user_id 等值 + event_time 半开区间 [月初, 下月初)，按 event_time 顺序读取无需排序；
+-- 前导列 to_user_id 同时覆盖按接收用户的查询
+CREATE INDEX idx_simple_reminder_user_event_time ON simple_reminder (to_user_id, event_time);
 
-CREATE INDEX idx_simple_reminder_complex ON simple_reminder (
-    originating_complex_reminder_id
+-- 同一模板同一触发时间只有一条实例：模板生成的写入使用 ON CONFLICT DO NOTHING 跳过已存在的记录，
+-- 多个实例并发生成同一模板时不会重复。手动创建的实例 originating_complex_reminder_id 为空，不受约束；
+-- 前导列同时覆盖按模板的查询。分区表的唯一索引必须包含分区键 event_time
+CREATE UNIQUE INDEX uk_simple_reminder_complex_event_time ON simple_reminder (
+    originating_complex_reminder_id, event_time
 );
+
+-- 已有数据库迁移：改为按月分区（需停止写入，在一个事务中执行）
+-- ALTER TABLE simple_reminder RENAME TO simple_reminder_old;
+-- ALTER INDEX simple_reminder_pkey RENAME TO simple_reminder_old_pkey;
+-- DROP INDEX IF EXISTS idx_simple_reminder_event_time_user, idx_simple_reminder_from_user,
+--     idx_simple_reminder_user_event_time, idx_simple_reminder_to_user, idx_simple_reminder_complex,
+--     uk_simple_reminder_complex_event_time;
+-- （执行上面的建表、默认分区、建索引语句，并按 simple_reminder_old 中最早的月份到当前月后6个月创建分区）
+-- INSERT INTO simple_reminder SELECT * FROM simple_reminder_old;
+-- SELECT setval(pg_get_serial_sequence('simple_reminder', 'id'), (SELECT max(id) FROM simple_reminder));
+-- DROP TABLE simple_reminder_old;
+
+-- 已有数据库迁移：用户月视图索引替换单列 to_user_id 索引
+-- CREATE INDEX CONCURRENTLY idx_simple_reminder_user_event_time ON simple_reminder (to_user_id, event_time);
+-- DROP INDEX CONCURRENTLY IF EXISTS idx_simple_reminder_to_user;
+-- 已按带 INCLUDE 列的旧定义建过索引时，先 DROP INDEX CONCURRENTLY idx_simple_reminder_user_event_time 再按上面重建
+
+-- 已有数据库迁移：同一模板同一触发时间去重后建唯一索引，替换单列模板索引
+-- DELETE FROM simple_reminder a USING simple_reminder b
+--  WHERE a.originating_complex_reminder_id = b.originating_complex_reminder_id
+--    AND a.event_time = b.event_time
+--    AND a.id > b.id;
+-- CREATE UNIQUE INDEX uk_simple_reminder_complex_event_time ON simple_reminder (originating_complex_reminder_id, event_time);
+-- DROP INDEX IF EXISTS idx_simple_reminder_complex;
+
+-- 已有数据库迁移：模板生成的实例不再复制标题和描述
+-- ALTER TABLE simple_reminder ALTER COLUMN title DROP NOT NULL;
+-- UPDATE simple_reminder sr SET title = NULL, description = NULL
+--   FROM complex_reminder cr
+--  WHERE sr.originating_complex_reminder_id = cr.id
+--    AND sr.title = cr.title
+--    AND sr.description IS NOT DISTINCT FROM cr.description;
 -- 新增索引
 COMMENT ON TABLE simple_reminder IS '存储一次性的提醒实例 (可能由复杂模板生成)';
 
@@ -241,9 +309,9 @@ COMMENT ON COLUMN simple_reminder.from_user_id IS '创建此提醒实例的用
 
 COMMENT ON COLUMN simple_reminder.to_user_id IS '接收此提醒实例的用户 ID';
 
-COMMENT ON COLUMN simple_reminder.title IS '提醒的标题';
+COMMENT ON COLUMN simple_reminder.title IS '提醒的标题 (模板生成的实例为空表示沿用模板，非空表示单独修改过)';
 
-COMMENT ON COLUMN simple_reminder.description IS '提醒的详细描述';
+COMMENT ON COLUMN simple_reminder.description IS '提醒的详细描述 (title为空时沿用模板描述)';
 
 COMMENT ON COLUMN simple_reminder.event_time IS '提醒计划发生的精确时间戳';
 
@@ -547,3 +615,26 @@ COMMENT ON COLUMN user_feedback.user_id IS '提交反馈的用户ID，可为空
 COMMENT ON COLUMN user_feedback.email IS '用户邮箱地址，可为空';
 COMMENT ON COLUMN user_feedback.message IS '用户反馈的具体内容，支持长文本';
 COMMENT ON COLUMN user_feedback.create_time IS '反馈记录的创建时间，自动设置为当前时间';
+
+
+-- 创建Stream事件发件箱表 (stream_outbox)
+DROP TABLE IF EXISTS stream_outbox CASCADE;
+CREATE TABLE stream_outbox
+(
+    id         BIGSERIAL PRIMARY KEY,                                       -- 事件唯一标识符，自增，决定投递顺序
+    command    VARCHAR(64)                                        NOT NULL, -- 事件命令
+    payload    TEXT                                               NOT NULL, -- 事件数据(JSON)
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL, -- 写入时间
+    failed_at  TIMESTAMP WITH TIME ZONE                                     -- 投递失败时间，为空表示待投递
+);
+
+-- 已有数据库迁移：投递失败标记
+-- ALTER TABLE stream_outbox ADD COLUMN failed_at TIMESTAMP WITH TIME ZONE;
+
+-- 表和字段注释
+COMMENT ON TABLE stream_outbox IS 'Stream事件发件箱，与业务数据在同一事务内写入，由中继批量投递到Redis Stream后删除';
+COMMENT ON COLUMN stream_outbox.id IS '事件的唯一标识符，自增主键，中继按此顺序投递';
+COMMENT ON COLUMN stream_outbox.command IS '事件命令，如GENERATE_COMPLEX_REMINDER';
+COMMENT ON COLUMN stream_outbox.payload IS '事件数据，JSON格式的字段映射';
+COMMENT ON COLUMN stream_outbox.created_at IS '事件写入时间';
+COMMENT ON COLUMN stream_outbox.failed_at IS '投递失败时间（数据无法解析），为空表示待投递，失败的事件保留供人工排查';
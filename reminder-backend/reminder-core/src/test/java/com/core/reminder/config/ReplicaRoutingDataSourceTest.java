@@ -0,0 +1,121 @@
+package com.core.reminder.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReplicaRoutingDataSource测试类
+ * 用两个H2内存库分别代替主库和只读副本，每个库的node表记录自己的名字，查询结果即为实际路由到的库
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MILLIS = 100;
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate readWriteTx;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = createNode(ReplicaRoutingDataSource.PRIMARY);
+        DataSource replica = createNode(ReplicaRoutingDataSource.REPLICA);
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primary);
+        targets.put(ReplicaRoutingDataSource.REPLICA, replica);
+        routingDataSource = new ReplicaRoutingDataSource(MAX_LAG_MILLIS);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primary);
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.setReplicaLagMillis(0L);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        readWriteTx = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primaryJdbc.execute("DROP ALL OBJECTS");
+        replicaJdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testReadOnlyTransaction_shouldUseReplica() {
+        assertEquals(ReplicaRoutingDataSource.REPLICA, readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    void testReadWriteTransaction_shouldUsePrimary() {
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, readWriteTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    void testWithoutTransaction_shouldUsePrimary() {
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, currentNode());
+    }
+
+    @Test
+    void testReplicaLagOverTolerance_shouldFallBackToPrimary() {
+        routingDataSource.setReplicaLagMillis(MAX_LAG_MILLIS + 1);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, readOnlyTx.execute(status -> currentNode()));
+
+        routingDataSource.setReplicaLagMillis(null);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, readOnlyTx.execute(status -> currentNode()));
+
+        routingDataSource.setReplicaLagMillis(MAX_LAG_MILLIS);
+        assertEquals(ReplicaRoutingDataSource.REPLICA, readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    void testReadAfterWrite_shouldUsePrimaryWithinTolerance() throws InterruptedException {
+        readWriteTx.execute(status -> jdbcTemplate.update("UPDATE node SET updated = TRUE"));
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, readOnlyTx.execute(status -> currentNode()));
+
+        Thread.sleep(MAX_LAG_MILLIS * 2);
+        assertEquals(ReplicaRoutingDataSource.REPLICA, readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    void testOnPrimary_shouldPinReadOnlyTransactionToPrimary() {
+        String node = ReplicaRoutingDataSource.onPrimary(() -> readOnlyTx.execute(status -> currentNode()));
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, node);
+        // 范围结束后恢复路由
+        assertEquals(ReplicaRoutingDataSource.REPLICA, readOnlyTx.execute(status -> currentNode()));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource createNode(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:replica_routing_" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20), updated BOOLEAN DEFAULT FALSE)");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,185 @@
+package com.core.reminder.repository;
+
+import com.common.reminder.utils.MonthRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 简单提醒月份查询的执行计划测试
+ * 用schema.sql中的simple_reminder建表和索引语句在H2（PostgreSQL兼容模式）中建表，
+ * 检查仓库月份查询（取自@Query）的半开区间条件能作为索引条件使用，而YEAR()/MONTH()写法不能
+ */
+class SimpleReminderQueryPlanTest {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ssXXX");
+
+    private static final String USER_MONTH_FUNCTION_SQL =
+            "SELECT id, from_user_id, reminder_type, originating_complex_reminder_id, event_time "
+                    + "FROM simple_reminder WHERE to_user_id = 1 "
+                    + "AND YEAR(event_time) = 2025 AND MONTH(event_time) = 3 "
+                    + "ORDER BY event_time";
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:simple_reminder_plan;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : loadSimpleReminderDdl()) {
+                statement.execute(sql);
+            }
+        }
+        insertReminders();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void testUserMonthRange_shouldUseUserEventTimeIndex() throws Exception {
+        String sql = monthRangeSql(SimpleReminderRepository.class.getMethod("findViewsByToUserIdAndEventTimeRange",
+                Long.class, OffsetDateTime.class, OffsetDateTime.class));
+        String indexCondition = indexCondition(explain(sql));
+
+        assertTrue(indexCondition.contains("idx_simple_reminder_user_event_time:"), indexCondition);
+        assertTrue(indexCondition.contains("to_user_id = 1"), indexCondition);
+        assertTrue(indexCondition.contains("event_time >="), indexCondition);
+        assertTrue(indexCondition.contains("event_time <"), indexCondition);
+    }
+
+    @Test
+    void testUserMonthFunction_cannotUseEventTimeInIndex() throws SQLException {
+        String indexCondition = indexCondition(explain(USER_MONTH_FUNCTION_SQL));
+
+        // 对列套函数后只能按 to_user_id 定位，该用户所有月份的行都要逐行计算 YEAR/MONTH
+        assertTrue(indexCondition.contains("to_user_id = 1"), indexCondition);
+        assertFalse(indexCondition.contains("event_time"), indexCondition);
+    }
+
+    @Test
+    void testAllUsersMonthRange_shouldUseEventTimeIndex() throws Exception {
+        String sql = monthRangeSql(SimpleReminderRepository.class.getMethod("findByEventTimeRange",
+                OffsetDateTime.class, OffsetDateTime.class));
+        String indexCondition = indexCondition(explain(sql));
+
+        assertTrue(indexCondition.contains("idx_simple_reminder_event_time_user:"), indexCondition);
+        assertTrue(indexCondition.contains("event_time >="), indexCondition);
+        assertTrue(indexCondition.contains("event_time <"), indexCondition);
+    }
+
+    /**
+     * 把仓库方法@Query中的JPQL条件转换为SQL：属性名按命名策略转为下划线列名，
+     * 参数替换为MonthRange计算的2025年3月区间（用户ID为1），选择列表统一为 SELECT *，不影响索引选择
+     */
+    private static String monthRangeSql(Method method) {
+        Query query = method.getAnnotation(Query.class);
+        assertNotNull(query, method.getName());
+        String jpql = query.value();
+        MonthRange range = MonthRange.of(2025, 3);
+        String condition = jpql.substring(jpql.indexOf("WHERE "))
+                .replace(":userId", "1")
+                .replace(":startTime", timestampLiteral(range.getStart()))
+                .replace(":endTime", timestampLiteral(range.getEnd()));
+        Matcher matcher = Pattern.compile("\\bsr\\.(\\w+)").matcher(condition);
+        StringBuilder sql = new StringBuilder("SELECT * FROM simple_reminder ");
+        while (matcher.find()) {
+            String column = matcher.group(1).replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+            matcher.appendReplacement(sql, column);
+        }
+        matcher.appendTail(sql);
+        return sql.toString();
+    }
+
+    private static String timestampLiteral(OffsetDateTime time) {
+        return "TIMESTAMP WITH TIME ZONE '" + TIMESTAMP_FORMAT.format(time) + "'";
+    }
+
+    /**
+     * 从schema.sql中取出simple_reminder的建表和建索引语句
+     * H2不支持分区，建表时去掉分区子句，键列与PostgreSQL中一致
+     */
+    private static String[] loadSimpleReminderDdl() throws IOException {
+        String schema;
+        try (InputStream in = SimpleReminderQueryPlanTest.class.getResourceAsStream("/schema.sql")) {
+            assertNotNull(in, "schema.sql not found on classpath");
+            schema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String withoutComments = schema.replaceAll("(?m)--.*$", "");
+        return Arrays.stream(withoutComments.split(";"))
+                .map(String::trim)
+                .filter(sql -> sql.startsWith("CREATE TABLE simple_reminder ")
+                        || sql.matches("(?s)CREATE (UNIQUE )?INDEX \\w+ ON simple_reminder .*"))
+                .map(sql -> sql.replaceAll("\\s+PARTITION BY RANGE \\(event_time\\)$", ""))
+                .toArray(String[]::new);
+    }
+
+    /**
+     * 1000个用户、每个用户两年的提醒，让优化器按选择性挑选索引
+     */
+    private void insertReminders() throws SQLException {
+        String sql = "INSERT INTO simple_reminder (from_user_id, to_user_id, event_time, reminder_type) "
+                + "VALUES (?, ?, ?, 'EMAIL')";
+        OffsetDateTime start = OffsetDateTime.of(2024, 6, 1, 9, 0, 0, 0, ZoneOffset.ofHours(8));
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (long userId = 1; userId <= 1000; userId++) {
+                for (int week = 0; week < 104; week += 4) {
+                    statement.setLong(1, userId);
+                    statement.setLong(2, userId);
+                    statement.setObject(3, start.plusWeeks(week).plusHours(userId % 12));
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            assertTrue(resultSet.next());
+            return resultSet.getString(1);
+        }
+    }
+
+    /**
+     * 提取计划中 FROM 子句后的访问路径注释，格式为 "模式.索引名: 索引条件"，去掉标识符引号
+     */
+    private static String indexCondition(String plan) {
+        int start = plan.indexOf("/*");
+        int end = plan.indexOf("*/", start);
+        assertTrue(start >= 0 && end > start, plan);
+        return plan.substring(start + 2, end).replace("\"", "").replaceAll("\\s+", " ").trim()
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,106 @@
+package com.core.reminder.service;
+
+import com.core.reminder.repository.ReminderExecutionHistoryRepository;
+import com.core.reminder.repository.UserActivityLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * DataRetentionService 测试类
+ * 主要测试按ID区间分块删除的区间划分和终止条件
+ */
+@ExtendWith(MockitoExtension.class)
+class DataRetentionServiceTest {
+
+    private static final OffsetDateTime BEFORE_TIME = OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHours(8));
+
+    @Mock
+    private ReminderExecutionHistoryRepository historyRepository;
+
+    @Mock
+    private UserActivityLogRepository activityLogRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DataRetentionService dataRetentionService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dataRetentionService, "chunkSize", 100);
+        ReflectionTestUtils.setField(dataRetentionService, "pauseMillis", 0L);
+        ReflectionTestUtils.setField(dataRetentionService, "progressLogChunks", 1);
+
+        // 表未分区
+        lenient().when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(), any(), any()))
+                .thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    void testPurgeExecutionHistory_shouldDeleteInIdRangeChunks() {
+        when(historyRepository.findMinId()).thenReturn(1L);
+        when(historyRepository.findMaxIdByExecutedAtBefore(BEFORE_TIME)).thenReturn(250L);
+        when(historyRepository.deleteChunkByExecutedAtBefore(anyLong(), anyLong(), eq(BEFORE_TIME)))
+                .thenReturn(100, 100, 50);
+
+        long deleted = dataRetentionService.purgeExecutionHistory(BEFORE_TIME);
+
+        assertEquals(250, deleted);
+        InOrder inOrder = inOrder(historyRepository);
+        inOrder.verify(historyRepository).deleteChunkByExecutedAtBefore(1L, 101L, BEFORE_TIME);
+        inOrder.verify(historyRepository).deleteChunkByExecutedAtBefore(101L, 201L, BEFORE_TIME);
+        // 最后一块不超过最大过期ID，更新的行不在删除区间内
+        inOrder.verify(historyRepository).deleteChunkByExecutedAtBefore(201L, 251L, BEFORE_TIME);
+        verify(historyRepository, times(3)).deleteChunkByExecutedAtBefore(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testPurgeActivityLogs_noExpiredRows_shouldNotDelete() {
+        when(activityLogRepository.findMinId()).thenReturn(500L);
+        when(activityLogRepository.findMaxIdByCreatedAtBefore(BEFORE_TIME)).thenReturn(null);
+
+        long deleted = dataRetentionService.purgeActivityLogs(BEFORE_TIME);
+
+        assertEquals(0, deleted);
+        verify(activityLogRepository, never()).deleteChunkByCreatedAtBefore(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testPurgeExecutionHistory_expiredPartition_shouldDetachAndDrop() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class),
+                eq("reminder_execution_history"), eq("executed_at"), eq(BEFORE_TIME)))
+                .thenReturn(Collections.singletonList("reminder_execution_history_p202401"));
+        when(historyRepository.findMinId()).thenReturn(null);
+
+        dataRetentionService.purgeExecutionHistory(BEFORE_TIME);
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute(
+                "ALTER TABLE reminder_execution_history DETACH PARTITION reminder_execution_history_p202401");
+        inOrder.verify(jdbcTemplate).execute("DROP TABLE reminder_execution_history_p202401");
+        verify(historyRepository, never()).deleteChunkByExecutedAtBefore(anyLong(), anyLong(), any());
+    }
+}
@@ -1,6 +1,6 @@
 package com.core.reminder.service;
 
-import com.core.reminder.model.LegalHoliday;
+import com.common.reminder.model.LegalHoliday;
 import com.core.reminder.repository.LegalHolidayRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,14 +12,20 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
  * ReminderEventServiceImpl 测试类
- * 主要测试用户复杂提醒数量限制功能
+ * 主要测试用户复杂提醒数量限制功能，以及缓存失效在事务提交后执行
  */
 @ExtendWith(MockitoExtension.class)
 class ReminderEventServiceImplTest {
@@ -36,6 +42,15 @@ class ReminderEventServiceImplTest {
     @Mock
     private CacheUtils cacheUtils;
 
+    @Mock
+    private ReminderGenerationService reminderGenerationService;
+
+    @Mock
+    private VirtualOccurrenceService virtualOccurrenceService;
+
+    @Mock
+    private ReminderTemplateTextService reminderTemplateTextService;
+
     @InjectMocks
     private ReminderEventServiceImpl reminderEventService;
 
@@ -43,6 +58,10 @@ class ReminderEventServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        // 通过构造器创建时Mockito不再注入字段，@Autowired字段手动注入
+        ReflectionTestUtils.setField(reminderEventService, "cacheUtils", cacheUtils);
+        ReflectionTestUtils.setField(reminderEventService, "reminderGenerationService", reminderGenerationService);
+
         testComplexReminder = new ComplexReminder();
         testComplexReminder.setFromUserId(1L);
         testComplexReminder.setToUserId(1L);
@@ -115,4 +134,43 @@ class ReminderEventServiceImplTest {
             reminderEventService.createComplexReminderWithSimpleReminders(testComplexReminder, 3);
         });
     }
+
+    @Test
+    void testCreateComplexReminder_RollbackDoesNotInvalidateCaches() {
+        when(complexReminderRepository.save(testComplexReminder)).thenReturn(testComplexReminder);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reminderEventService.createComplexReminder(testComplexReminder);
+            // 提交前不递增版本号，也不清除水位线
+            verifyNoInteractions(cacheUtils, reminderGenerationService);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+            verify(cacheUtils, never()).invalidateUserAllMonthlyReminders(anyLong());
+            verify(reminderGenerationService, never()).invalidateWatermark(anyLong());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testCreateComplexReminder_CommitInvalidatesCaches() {
+        when(complexReminderRepository.save(testComplexReminder)).thenReturn(testComplexReminder);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reminderEventService.createComplexReminder(testComplexReminder);
+            verifyNoInteractions(cacheUtils, reminderGenerationService);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            verify(cacheUtils).invalidateUserAllMonthlyReminders(1L);
+            verify(reminderGenerationService).invalidateWatermark(1L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
 }
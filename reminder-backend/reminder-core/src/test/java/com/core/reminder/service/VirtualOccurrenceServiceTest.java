@@ -0,0 +1,148 @@
+package com.core.reminder.service;
+
+import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.model.LegalHoliday;
+import com.common.reminder.model.RecurrenceRule;
+import com.common.reminder.model.ReminderType;
+import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.model.SimpleReminderView;
+import com.common.reminder.utils.WorkdayCalendar;
+import com.core.reminder.repository.ComplexReminderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * VirtualOccurrenceService 测试类
+ * 主要测试物化窗口外月份的虚拟任务计算与合并
+ */
+@ExtendWith(MockitoExtension.class)
+class VirtualOccurrenceServiceTest {
+
+    @Mock
+    private ComplexReminderRepository complexReminderRepository;
+
+    @Mock
+    private LegalHolidayService legalHolidayService;
+
+    @InjectMocks
+    private VirtualOccurrenceService virtualOccurrenceService;
+
+    private ComplexReminder template;
+
+    private final List<LegalHoliday> holidays = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(legalHolidayService.matchesRecurrenceRule(any(), any())).thenAnswer(invocation ->
+                RecurrenceRule.allows(invocation.getArgument(0), invocation.getArgument(1),
+                        year -> WorkdayCalendar.build(year, holidays)));
+        lenient().when(legalHolidayService.getWorkdayCalendar(anyInt())).thenAnswer(invocation ->
+                WorkdayCalendar.build(invocation.getArgument(0), holidays));
+
+        template = new ComplexReminder();
+        template.setId(10L);
+        template.setFromUserId(1L);
+        template.setToUserId(2L);
+        template.setTitle("每周一提醒");
+        template.setCronExpression("0 9 * * MON");
+        template.setReminderType(ReminderType.EMAIL);
+    }
+
+    @Test
+    void testComputeMonthOccurrences_WeeklyCron() {
+        // 2030年1月有4个周一：7、14、21、28日
+        List<SimpleReminder> occurrences = virtualOccurrenceService
+                .computeMonthOccurrences(template, YearMonth.of(2030, 1));
+
+        assertEquals(4, occurrences.size());
+        assertNull(occurrences.get(0).getId());
+        assertEquals(10L, occurrences.get(0).getOriginatingComplexReminderId());
+        assertEquals(7, occurrences.get(0).getEventTime().getDayOfMonth());
+        assertEquals(9, occurrences.get(0).getEventTime().getHour());
+        assertEquals(ZoneOffset.ofHours(8), occurrences.get(0).getEventTime().getOffset());
+    }
+
+    @Test
+    void testComputeMonthOccurrences_RespectsValidityAndMaxExecutions() {
+        template.setValidFrom(LocalDate.of(2030, 1, 10));
+        template.setValidUntil(LocalDate.of(2030, 1, 25));
+        assertEquals(2, virtualOccurrenceService.computeMonthOccurrences(template, YearMonth.of(2030, 1)).size());
+
+        // 从2029年12月起生效，最多执行5次：12月有5个周一，1月不再产生任务
+        template.setValidFrom(LocalDate.of(2029, 12, 1));
+        template.setValidUntil(null);
+        template.setMaxExecutions(5);
+        assertTrue(virtualOccurrenceService.computeMonthOccurrences(template, YearMonth.of(2030, 1)).isEmpty());
+    }
+
+    @Test
+    void testMergeWithVirtualOccurrences_PrefersMaterializedRows() {
+        SimpleReminderView materialized = new SimpleReminderView();
+        materialized.setId(100L);
+        materialized.setOriginatingComplexReminderId(10L);
+        materialized.setEventTime(OffsetDateTime.of(2030, 1, 7, 9, 0, 0, 0, ZoneOffset.ofHours(8)));
+        List<SimpleReminderView> rows = new ArrayList<>(Collections.singletonList(materialized));
+
+        when(complexReminderRepository.findByToUserId(2L)).thenReturn(Collections.singletonList(template));
+
+        List<SimpleReminderView> merged = virtualOccurrenceService.mergeWithVirtualOccurrences(2L, 2030, 1, rows);
+
+        assertEquals(4, merged.size());
+        assertEquals(100L, merged.get(0).getId());
+        assertNull(merged.get(1).getId());
+    }
+
+    @Test
+    void testComputeMonthOccurrences_WorkdayRules() {
+        // 2030年1月1日放假，1月5日(周六)调休上班
+        holidays.add(holiday(1, 1, true));
+        holidays.add(holiday(1, 5, false));
+        template.setCronExpression("0 9 * * *");
+
+        template.setRecurrenceRule(RecurrenceRule.WORKDAYS);
+        List<SimpleReminder> workdays = virtualOccurrenceService.computeMonthOccurrences(template, YearMonth.of(2030, 1));
+        // 1月共23个周一至周五，去掉1日，加上5日
+        assertEquals(23, workdays.size());
+        assertEquals(2, workdays.get(0).getEventTime().getDayOfMonth());
+        assertEquals(5, workdays.get(3).getEventTime().getDayOfMonth());
+
+        template.setRecurrenceRule(RecurrenceRule.NTH_WORKDAY_OF_MONTH);
+        template.setRecurrenceParam(1);
+        List<SimpleReminder> first = virtualOccurrenceService.computeMonthOccurrences(template, YearMonth.of(2030, 1));
+        assertEquals(1, first.size());
+        assertEquals(2, first.get(0).getEventTime().getDayOfMonth());
+
+        template.setRecurrenceParam(-1);
+        List<SimpleReminder> last = virtualOccurrenceService.computeMonthOccurrences(template, YearMonth.of(2030, 1));
+        assertEquals(1, last.size());
+        assertEquals(31, last.get(0).getEventTime().getDayOfMonth());
+    }
+
+    private LegalHoliday holiday(int month, int day, boolean isHoliday) {
+        LegalHoliday holiday = new LegalHoliday();
+        holiday.setYear(2030);
+        holiday.setMonth(month);
+        holiday.setDay(day);
+        holiday.setHoliday(isHoliday);
+        holiday.setName(isHoliday ? "元旦" : "调休");
+        return holiday;
+    }
+}
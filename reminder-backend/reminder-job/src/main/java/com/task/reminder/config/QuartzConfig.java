@@ -3,6 +3,7 @@ package com.task.reminder.config;
 import com.task.reminder.job.MonthlyComplexReminderJob;
 import com.task.reminder.job.PrepareReminderJob;
 import com.task.reminder.job.SendReminderJob;
+import com.task.reminder.job.SimpleReminderPartitionJob;
 import org.quartz.*;
 import org.quartz.spi.JobFactory;
 import org.quartz.spi.TriggerFiredBundle;
@@ -109,4 +110,27 @@ public class QuartzConfig {
                         .withMisfireHandlingInstructionFireAndProceed()) // 错过后执行一次，然后按照正常计划继续
                 .build();
     }
-} 
\ No newline at end of file
+
+    // --- SimpleReminderPartitionJob的Bean定义 ---
+
+    @Bean
+    public JobDetail simpleReminderPartitionJobDetail() {
+        return JobBuilder.newJob(SimpleReminderPartitionJob.class)
+                .withIdentity("simpleReminderPartitionJob", "reminder-scheduling")
+                .withDescription("创建simple_reminder未来月份分区并处理过期分区的任务")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger simpleReminderPartitionJobTrigger(JobDetail simpleReminderPartitionJobDetail) {
+        // 每天凌晨3点30分执行
+        return TriggerBuilder.newTrigger()
+                .forJob(simpleReminderPartitionJobDetail)
+                .withIdentity("simpleReminderPartitionTrigger", "reminder-scheduling")
+                .withDescription("simpleReminderPartitionJob的触发器 - 每天凌晨3点30分执行")
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 30 3 * * ?")
+                        .withMisfireHandlingInstructionFireAndProceed())
+                .build();
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.task.reminder.job;
 
 import com.common.reminder.model.ComplexReminder;
+import com.common.reminder.utils.ComplexReminderSchedule;
 import com.task.reminder.repository.ComplexReminderRepository;
 import com.task.reminder.service.ReminderEventServiceImpl;
 
@@ -11,24 +12,26 @@ import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 
 /**
  * 复杂提醒月度生成任务
  * 
- * 该任务负责定期（通常每月执行一次）检查并生成未来3个月的简单提醒实例。
+ * 该任务负责定期（通常每月执行一次）检查并生成物化窗口内的简单提醒实例。
  * 复杂提醒基于Cron表达式定义重复模式，但为了提高系统性能和查询效率，
  * 系统会提前将复杂提醒转换为具体的简单提醒实例，并存储在数据库中。
  * 
  * 工作流程：
- * 1. 计算当前日期和目标日期（当前月+3个月）
- * 2. 查询所有需要更新的复杂提醒模板（lastGeneratedYm小于目标日期或未设置）
- * 3. 对每个模板，计算需要生成的月数，并调用服务生成相应的简单提醒实例
+ * 1. 计算物化窗口的最后一个月（当前月起共 reminder.materialization.horizon-months 个月，与core一致）
+ * 2. 查询所有需要更新的复杂提醒模板（lastGeneratedYm小于该月或未设置）
+ * 3. 对每个模板生成物化窗口内的简单提醒实例，已存在的触发时间跳过
  * 4. 更新复杂提醒的lastGeneratedYm字段，记录生成状态
+ * 窗口之外的月份由core实时计算虚拟任务，这里不能生成到窗口之外，否则同一月份会同时出现入库和虚拟两种来源
  * 
  * 该任务通常由Quartz调度器按照每月执行一次的频率调用，确保系统中始终有足够的预生成提醒。
  * 使用@DisallowConcurrentExecution注解确保任务不会并发执行，避免生成重复提醒。
@@ -50,6 +53,12 @@ public class MonthlyComplexReminderJob implements Job {
     @Autowired
     private ReminderEventServiceImpl reminderService;
 
+    /**
+     * 物化窗口（月数，含当前月），与core的虚拟任务计算使用同一配置
+     */
+    @Value("${reminder.materialization.horizon-months:2}")
+    private int horizonMonths;
+
     /**
      * 任务执行方法，由Quartz调度器在指定时间调用
      * 
@@ -64,20 +73,14 @@ public class MonthlyComplexReminderJob implements Job {
     public void execute(JobExecutionContext context) throws JobExecutionException {
         log.info("正在运行MonthlyComplexReminderJob...");
 
-        // 计算当前年月和目标年月（当前月+3）
-        LocalDate now = LocalDate.now();
-        int currentYear = now.getYear();
-        int currentMonth = now.getMonthValue();
-        
-        // 计算目标年月（当前月+3）
-        // 这里需要处理跨年的情况，例如当前是10月，目标月就是明年1月
-        int targetYear = currentYear + (currentMonth + 3 - 1) / 12;
-        int targetMonth = (currentMonth + 3 - 1) % 12 + 1;
+        // 计算当前年月和物化窗口的最后一个月
+        YearMonth currentMonth = YearMonth.now(ComplexReminderSchedule.CHINA_ZONE);
+        YearMonth lastMaterializedMonth = currentMonth.plusMonths(horizonMonths - 1L);
         
         // 格式化为YYYYMM形式，例如202312表示2023年12月
-        int targetYearMonth = targetYear * 100 + targetMonth;
+        int targetYearMonth = lastMaterializedMonth.getYear() * 100 + lastMaterializedMonth.getMonthValue();
         
-        log.info("当前年月: {}, 目标年月: {}", currentYear * 100 + currentMonth, targetYearMonth);
+        log.info("当前年月: {}, 目标年月: {}", currentMonth.getYear() * 100 + currentMonth.getMonthValue(), targetYearMonth);
 
         // 查询所有需要更新的复杂提醒模板
         // 包括从未生成过简单提醒的模板（lastGeneratedYm为null）
@@ -95,23 +98,8 @@ public class MonthlyComplexReminderJob implements Job {
         // 为每个需要更新的复杂任务模板生成简单提醒实例
         for (ComplexReminder template : templatesNeedUpdate) {
             try {
-                // 确定需要生成多少个月的提醒
-                int monthsAhead;
-                
-                if (template.getLastGeneratedYm() == null) {
-                    // 如果之前从未生成过提醒，则生成完整的3个月
-                    monthsAhead = 3;
-                } else {
-                    // 计算当前lastGeneratedYm所对应的年和月
-                    int lastGenYear = template.getLastGeneratedYm() / 100;
-                    int lastGenMonth = template.getLastGeneratedYm() % 100;
-                    
-                    // 计算目标年月与上次生成年月之间的月份差距
-                    // 例如：从202301到202304的差距是3个月
-                    int monthDiff = (targetYear - lastGenYear) * 12 + (targetMonth - lastGenMonth);
-                    // 至少生成1个月的提醒，即使计算结果小于1
-                    monthsAhead = Math.max(1, monthDiff);
-                }
+                // 生成窗口从当前时间起算，总是覆盖整个物化窗口；已生成的触发时间会被跳过
+                int monthsAhead = horizonMonths;
                 
                 // 调用服务生成指定月数的简单提醒实例
                 // 该方法会同时更新lastGeneratedYm字段
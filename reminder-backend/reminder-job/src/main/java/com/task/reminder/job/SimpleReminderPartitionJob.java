@@ -0,0 +1,39 @@
+package com.task.reminder.job;
+
+import com.task.reminder.service.SimpleReminderPartitionService;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * simple_reminder分区维护任务
+ *
+ * 每天执行一次，提前创建未来几个月的分区，并分离或删除超过保留期的分区。
+ * 每个分区在各自的事务中处理，某个分区失败时下次执行会重试；
+ * 集群中只有一个节点执行，@DisallowConcurrentExecution避免上一次未结束时重复执行。
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class SimpleReminderPartitionJob implements Job {
+
+    @Autowired
+    private SimpleReminderPartitionService partitionService;
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        log.info("正在运行SimpleReminderPartitionJob...");
+        try {
+            partitionService.maintainPartitions();
+        } catch (Exception e) {
+            log.error("simple_reminder分区维护失败", e);
+            throw new JobExecutionException(e);
+        }
+    }
+}
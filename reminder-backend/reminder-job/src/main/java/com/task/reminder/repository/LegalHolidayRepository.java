@@ -0,0 +1,13 @@
+package com.task.reminder.repository;
+
+import com.common.reminder.model.LegalHoliday;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LegalHolidayRepository extends JpaRepository<LegalHoliday, Long> {
+
+    List<LegalHoliday> findByYear(Integer year);
+}
@@ -1,6 +1,7 @@
 package com.task.reminder.repository;
 
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.utils.GeneratedReminderStore;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -12,7 +13,7 @@ import java.time.OffsetDateTime;
 import java.util.List;
 
 @Repository
-public interface SimpleReminderRepository extends JpaRepository<SimpleReminder, Long> {
+public interface SimpleReminderRepository extends JpaRepository<SimpleReminder, Long>, GeneratedReminderStore {
 
     // 可能需要的查询方法示例
     List<SimpleReminder> findByFromUserId(Long fromUserId);
@@ -51,34 +52,54 @@ public interface SimpleReminderRepository extends JpaRepository<SimpleReminder,
     int deleteByOriginatingComplexReminderId(@Param("originatingComplexReminderId") Long originatingComplexReminderId);
 
     /**
-     * 按年月和用户ID查询简单提醒
-     * 查询指定月份内触发的提醒
+     * 查询用户在 [startTime, endTime) 内触发的简单提醒
      * 
-     * @param year 年份
-     * @param month 月份(1-12)
      * @param userId 用户ID
-     * @return 符合条件的简单提醒列表
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @return 按触发时间排序的简单提醒列表
      */
-    @Query("SELECT sr FROM SimpleReminder sr WHERE " +
-           "YEAR(sr.eventTime) = :year AND MONTH(sr.eventTime) = :month AND " +
-           "sr.toUserId = :userId ORDER BY sr.eventTime ASC")
-    List<SimpleReminder> findByYearMonthAndUserId(
-            @Param("year") int year, 
-            @Param("month") int month, 
-            @Param("userId") Long userId);
+    @Query("SELECT sr FROM SimpleReminder sr WHERE sr.toUserId = :userId " +
+           "AND sr.eventTime >= :startTime AND sr.eventTime < :endTime ORDER BY sr.eventTime ASC")
+    List<SimpleReminder> findByToUserIdAndEventTimeRange(
+            @Param("userId") Long userId,
+            @Param("startTime") OffsetDateTime startTime,
+            @Param("endTime") OffsetDateTime endTime);
     
     /**
-     * 按年月查询简单提醒（不限用户）
-     * 查询指定月份内触发的提醒
+     * 查询在 [startTime, endTime) 内触发的简单提醒（不限用户）
      * 
-     * @param year 年份
-     * @param month 月份(1-12)
-     * @return 符合条件的简单提醒列表
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @return 按触发时间排序的简单提醒列表
      */
     @Query("SELECT sr FROM SimpleReminder sr WHERE " +
-           "YEAR(sr.eventTime) = :year AND MONTH(sr.eventTime) = :month " +
-           "ORDER BY sr.eventTime ASC")
-    List<SimpleReminder> findByYearMonth(@Param("year") int year, @Param("month") int month);
+           "sr.eventTime >= :startTime AND sr.eventTime < :endTime ORDER BY sr.eventTime ASC")
+    List<SimpleReminder> findByEventTimeRange(
+            @Param("startTime") OffsetDateTime startTime,
+            @Param("endTime") OffsetDateTime endTime);
+    
+    /**
+     * 插入一条模板生成的简单任务，同一模板同一触发时间已存在时不插入
+     * 标题和描述为空时按TEXT绑定，避免null参数被推断为bytea
+     * @return 新记录的ID，已存在时返回null
+     */
+    @Transactional
+    @Query(value = "INSERT INTO simple_reminder (from_user_id, to_user_id, title, description, event_time, " +
+           "reminder_type, originating_complex_reminder_id, created_at, updated_at) " +
+           "VALUES (:fromUserId, :toUserId, CAST(:title AS TEXT), CAST(:description AS TEXT), :eventTime, " +
+           ":reminderType, :originatingComplexReminderId, :createdAt, :createdAt) " +
+           "ON CONFLICT (originating_complex_reminder_id, event_time) DO NOTHING RETURNING id",
+           nativeQuery = true)
+    @Override
+    Long insertIgnoringDuplicate(@Param("fromUserId") Long fromUserId,
+                                 @Param("toUserId") Long toUserId,
+                                 @Param("title") String title,
+                                 @Param("description") String description,
+                                 @Param("eventTime") OffsetDateTime eventTime,
+                                 @Param("reminderType") String reminderType,
+                                 @Param("originatingComplexReminderId") Long originatingComplexReminderId,
+                                 @Param("createdAt") OffsetDateTime createdAt);
 
     // 可以根据需要添加更多查询方法
 } 
\ No newline at end of file
@@ -2,6 +2,10 @@ package com.task.reminder.service;
 
 import com.common.reminder.model.ComplexReminder;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.utils.ComplexReminderSchedule;
+import com.common.reminder.utils.MonthRange;
+import com.common.reminder.utils.ReminderTemplateUtils;
+import com.common.reminder.utils.WorkdayCalendarCache;
 import com.task.reminder.repository.ComplexReminderRepository;
 import com.task.reminder.repository.SimpleReminderRepository;
 import org.quartz.*;
@@ -9,17 +13,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.quartz.Trigger;
-import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.ArrayList;
 import java.time.LocalDate;
 
@@ -36,6 +42,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
     private final SimpleReminderRepository simpleReminderRepository;
     private final ComplexReminderRepository complexReminderRepository;
     private final Scheduler scheduler;
+    private final WorkdayCalendarCache workdayCalendarCache;
 
     private static final String REMINDER_JOB_GROUP = "reminder-jobs";
     private static final String REMINDER_TRIGGER_GROUP = "reminder-triggers";
@@ -43,10 +50,12 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
     @Autowired
     public ReminderEventServiceImpl(SimpleReminderRepository simpleReminderRepository,
                                     ComplexReminderRepository complexReminderRepository,
-                                    Scheduler scheduler) {
+                                    Scheduler scheduler,
+                                    WorkdayCalendarCache workdayCalendarCache) {
         this.simpleReminderRepository = simpleReminderRepository;
         this.complexReminderRepository = complexReminderRepository;
         this.scheduler = scheduler;
+        this.workdayCalendarCache = workdayCalendarCache;
     }
 
     @Transactional
@@ -84,7 +93,8 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         // 首先确保所有复杂任务都已生成该月份的简单任务
         ensureComplexRemindersGenerated(year, month);
         
-        return simpleReminderRepository.findByYearMonth(year, month);
+        MonthRange range = MonthRange.of(year, month);
+        return simpleReminderRepository.findByEventTimeRange(range.getStart(), range.getEnd());
     }
     
     /**
@@ -177,7 +187,8 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         // 首先确保所有复杂任务都已生成该月份的简单任务
         ensureComplexRemindersGenerated(year, month);
         
-        return simpleReminderRepository.findByYearMonthAndUserId(year, month, userId);
+        MonthRange range = MonthRange.of(year, month);
+        return simpleReminderRepository.findByToUserIdAndEventTimeRange(userId, range.getStart(), range.getEnd());
     }
 
     public List<SimpleReminder> getSimpleRemindersByFromUser(Long userId) {
@@ -347,81 +358,17 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         log.info("为复杂提醒ID: {} 生成{}个月内的简单任务", complexReminder.getId(), monthsAhead);
         
         List<SimpleReminder> generatedReminders = new ArrayList<>();
-        String cronExpression = complexReminder.getCronExpression();
-        
-        // 检查cron表达式是否有效
-        if (cronExpression == null || cronExpression.trim().isEmpty()) {
-            log.error("复杂提醒ID: {} 的CRON表达式为空", complexReminder.getId());
-            return generatedReminders;
-        }
-        
-        // 标准化cron表达式（添加秒字段如果没有）
-        if (cronExpression.split("\\s+").length == 5) {
-            cronExpression = "0 " + cronExpression;
-        }
-        
         try {
-            CronExpression cron = CronExpression.parse(cronExpression);
-            
-            // 设置起始时间（当前时间或validFrom，取较晚者）
-            ZonedDateTime now = ZonedDateTime.now();
-            ZonedDateTime startTime = now;
-            
-            if (complexReminder.getValidFrom() != null) {
-                ZonedDateTime validFromTime = complexReminder.getValidFrom().atStartOfDay(ZoneId.systemDefault());
-                if (validFromTime.isAfter(now)) {
-                    startTime = validFromTime;
-                }
-            }
-            
-            // 计算目标月份（当前月份+monthsAhead）
-            int targetYear = now.getYear() + (now.getMonthValue() + monthsAhead - 1) / 12;
-            int targetMonth = (now.getMonthValue() + monthsAhead - 1) % 12 + 1;
-            
-            // 计算目标月份的最后一天
-            LocalDate lastDayOfTargetMonth = LocalDate.of(targetYear, targetMonth, 1)
-                .plusMonths(1).minusDays(1);
-            
-            // 设置结束时间为目标月份的最后一天的23:59:59
-            ZonedDateTime endTime = lastDayOfTargetMonth.atTime(23, 59, 59).atZone(ZoneId.systemDefault());
-            
-            // 如果有validUntil且在目标月份结束之前，则使用validUntil
-            if (complexReminder.getValidUntil() != null) {
-                ZonedDateTime validUntilTime = complexReminder.getValidUntil().atTime(23, 59, 59).atZone(ZoneId.systemDefault());
-                if (validUntilTime.isBefore(endTime)) {
-                    endTime = validUntilTime;
-                }
-            }
-            
-            log.info("为复杂提醒ID: {} 生成简单任务的时间范围: {} 至 {}", 
-                     complexReminder.getId(), startTime, endTime);
-            
-            // 开始计算执行时间并生成简单任务
-            ZonedDateTime nextTime = startTime;
-            int count = 0;
-            Integer maxExecutions = complexReminder.getMaxExecutions();
+            // 触发时间的计算（生成窗口、节假日规则、maxExecutions）与core、stream-consumer共用同一套规则
+            ZonedDateTime now = ZonedDateTime.now(ComplexReminderSchedule.CHINA_ZONE);
+            List<OffsetDateTime> occurrences = ComplexReminderSchedule.calculateOccurrenceTimes(
+                    complexReminder, monthsAhead, now, workdayCalendarCache::getWorkdayCalendar);
 
             // 用于批量插入的列表
             List<SimpleReminder> batchToSave = new ArrayList<>();
             final int BATCH_SIZE = 100;
 
-            while (true) {
-                // 计算下一个执行时间
-                nextTime = cron.next(nextTime);
-
-                // 如果超出了指定范围或validUntil，则停止
-                if (nextTime == null || nextTime.isAfter(endTime)) {
-                    break;
-                }
-
-                // 如果已经达到最大执行次数限制，则停止
-                if (maxExecutions != null && count >= maxExecutions) {
-                    break;
-                }
-
-                // 转换为OffsetDateTime
-                OffsetDateTime nextExecutionTime = nextTime.toOffsetDateTime();
-
+            for (OffsetDateTime nextExecutionTime : occurrences) {
                 // 检查是否已经存在相同时间的简单任务
                 boolean exists = simpleReminderRepository.existsByOriginatingComplexReminderIdAndEventTime(
                         complexReminder.getId(), nextExecutionTime);
@@ -430,13 +377,12 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
                     // 创建简单任务（先不保存，加入批量列表）
                     SimpleReminder simpleReminder = createSimpleReminderFromTemplate(complexReminder, nextExecutionTime);
                     batchToSave.add(simpleReminder);
-                    count++;
 
                     log.debug("准备批量保存SimpleReminder，执行时间: {}", nextExecutionTime);
 
                     // 当批量列表达到指定大小时，执行批量保存
                     if (batchToSave.size() >= BATCH_SIZE) {
-                        List<SimpleReminder> savedBatch = simpleReminderRepository.saveAll(batchToSave);
+                        List<SimpleReminder> savedBatch = simpleReminderRepository.insertAllIgnoringDuplicates(batchToSave);
                         generatedReminders.addAll(savedBatch);
                         log.info("批量保存了 {} 个SimpleReminder", savedBatch.size());
                         batchToSave.clear();
@@ -446,26 +392,17 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
 
             // 保存剩余的记录
             if (!batchToSave.isEmpty()) {
-                List<SimpleReminder> savedBatch = simpleReminderRepository.saveAll(batchToSave);
+                List<SimpleReminder> savedBatch = simpleReminderRepository.insertAllIgnoringDuplicates(batchToSave);
                 generatedReminders.addAll(savedBatch);
                 log.info("批量保存了剩余的 {} 个SimpleReminder", savedBatch.size());
             }
             
             // 更新lastGeneratedYm字段 - 使用目标月份
-            if (!generatedReminders.isEmpty()) {
-                // 计算目标年月 (格式 YYYYMM)
-                int targetYearMonth = targetYear * 100 + targetMonth;
-                
-                // 如果有validUntil且在目标月份之前，则使用validUntil的年月
-                if (complexReminder.getValidUntil() != null) {
-                    LocalDate validUntil = complexReminder.getValidUntil();
-                    int validUntilYm = validUntil.getYear() * 100 + validUntil.getMonthValue();
-                    if (validUntilYm < targetYearMonth) {
-                        targetYearMonth = validUntilYm;
-                    }
-                }
-                
-                // 更新lastGeneratedYm字段
+            // 即使目标范围内没有新增任务也要推进（与stream-consumer一致），否则该月份没有触发时间的模板会被反复生成
+            // 计算目标年月 (格式 YYYYMM)，validUntil在目标月份之前时使用validUntil的年月
+            int targetYearMonth = ComplexReminderSchedule.calculateTargetYearMonth(complexReminder, monthsAhead, now);
+            Integer lastGeneratedYm = complexReminder.getLastGeneratedYm();
+            if (lastGeneratedYm == null || lastGeneratedYm < targetYearMonth) {
                 complexReminder.setLastGeneratedYm(targetYearMonth);
                 complexReminderRepository.save(complexReminder);
                 log.info("更新复杂提醒ID: {} 的lastGeneratedYm为: {}", complexReminder.getId(), targetYearMonth);
@@ -501,8 +438,7 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         SimpleReminder instance = new SimpleReminder();
         instance.setFromUserId(template.getFromUserId());
         instance.setToUserId(template.getToUserId());
-        instance.setTitle(template.getTitle()); // 直接使用模板标题
-        instance.setDescription(template.getDescription()); // 使用模板描述
+        // 标题和描述不复制，读取和发送时从模板补全
         instance.setEventTime(eventTime); // 计算出的执行时间
         instance.setReminderType(template.getReminderType());
         instance.setOriginatingComplexReminderId(template.getId()); // 链接回模板
@@ -566,7 +502,35 @@ public class ReminderEventServiceImpl /* implements ReminderService */ {
         // 查询在这个时间范围内的提醒事项
         List<SimpleReminder> reminders = simpleReminderRepository.findByEventTimeBetween(now, oneMinuteLater);
         
+        // 模板生成的任务只存储模板ID，发送前批量补全标题和描述
+        applyTemplateText(reminders);
+        
         log.info("找到 {} 个未来1分钟内的提醒事项", reminders.size());
         return reminders;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 为沿用模板文本的简单任务补全标题和描述（每批只查询一次模板表）
+     */
+    private void applyTemplateText(List<SimpleReminder> reminders) {
+        Set<Long> templateIds = new HashSet<>();
+        for (SimpleReminder reminder : reminders) {
+            if (ReminderTemplateUtils.inheritsTemplateText(reminder)) {
+                templateIds.add(reminder.getOriginatingComplexReminderId());
+            }
+        }
+        if (templateIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, ComplexReminder> templates = new HashMap<>();
+        for (ComplexReminder template : complexReminderRepository.findAllById(templateIds)) {
+            templates.put(template.getId(), template);
+        }
+        for (SimpleReminder reminder : reminders) {
+            if (ReminderTemplateUtils.inheritsTemplateText(reminder)) {
+                ReminderTemplateUtils.applyTemplateText(reminder, templates.get(reminder.getOriginatingComplexReminderId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.task.reminder.service;
+
+import com.common.reminder.utils.ComplexReminderSchedule;
+import com.common.reminder.utils.MonthRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * simple_reminder分区维护服务
+ *
+ * simple_reminder按event_time每月一个分区（中国时区月初为界），分区名为simple_reminder_pYYYYMM。
+ * 维护时提前创建当前月起若干个月的分区；默认分区中已有该月数据时，先把这些数据迁到新表再挂载为分区。
+ * 过期分区处理需要显式开启（retention-months大于0）：超过保留期的分区从分区表分离（可配置为直接删除），
+ * 分离后的表保留原名，可以归档后手动删除。
+ */
+@Slf4j
+@Service
+public class SimpleReminderPartitionService {
+
+    private static final String PARENT_TABLE = "simple_reminder";
+    private static final String DEFAULT_PARTITION = "simple_reminder_default";
+    private static final String PARTITION_PREFIX = "simple_reminder_p";
+
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ssXXX");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 提前创建的月数（不含当前月）
+     */
+    @Value("${reminder.partition.simple-reminder.months-ahead:6}")
+    private int monthsAhead;
+
+    /**
+     * 保留的历史月数（不含当前月），早于此的分区被分离；默认0，不处理过期分区
+     */
+    @Value("${reminder.partition.simple-reminder.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * 过期分区分离后是否直接删除
+     */
+    @Value("${reminder.partition.simple-reminder.drop-expired:false}")
+    private boolean dropExpired;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 创建未来分区并处理过期分区
+     */
+    public void maintainPartitions() {
+        if (!isPartitioned()) {
+            log.warn("{} 不是分区表，跳过分区维护（见schema.sql中的分区迁移说明）", PARENT_TABLE);
+            return;
+        }
+
+        Set<String> partitions = new HashSet<>(listPartitions());
+        YearMonth currentMonth = YearMonth.now(ComplexReminderSchedule.CHINA_ZONE);
+
+        int created = 0;
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            if (!partitions.contains(partitionName(month))) {
+                createPartition(month);
+                created++;
+            }
+        }
+
+        int expired = 0;
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = currentMonth.minusMonths(retentionMonths);
+            for (String partition : partitions) {
+                YearMonth month = parseMonth(partition);
+                if (month != null && month.isBefore(oldestKept)) {
+                    expirePartition(partition);
+                    expired++;
+                }
+            }
+        }
+
+        log.info("{} 分区维护完成 - 新建 {} 个，过期{} {} 个，现有分区覆盖到 {}",
+                PARENT_TABLE, created, dropExpired ? "删除" : "分离", expired,
+                currentMonth.plusMonths(monthsAhead));
+    }
+
+    /**
+     * 创建指定月份的分区
+     * 默认分区中已有该月数据时直接创建会失败，改为：锁住默认分区，把数据迁到新表，再挂载为分区
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        MonthRange range = MonthRange.of(month.getYear(), month.getMonthValue());
+        OffsetDateTime start = range.getStart();
+        OffsetDateTime end = range.getEnd();
+        String bounds = String.format("FOR VALUES FROM ('%s') TO ('%s')",
+                BOUND_FORMAT.format(start), BOUND_FORMAT.format(end));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean hasDefaultRows = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE event_time >= ? AND event_time < ?)",
+                    Boolean.class, start, end);
+            if (!Boolean.TRUE.equals(hasDefaultRows)) {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + PARENT_TABLE + " " + bounds);
+                log.info("已创建分区 {}", partition);
+                return;
+            }
+
+            // 阻止迁移期间有新数据写入默认分区的该月范围，否则挂载时校验失败
+            jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN EXCLUSIVE MODE");
+            jdbcTemplate.execute("CREATE TABLE " + partition
+                    + " (LIKE " + PARENT_TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE event_time >= ? AND event_time < ? RETURNING *) "
+                    + "INSERT INTO " + partition + " SELECT * FROM moved", start, end);
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " ATTACH PARTITION " + partition + " " + bounds);
+            log.info("已创建分区 {}，从默认分区迁入 {} 条提醒", partition, moved);
+        });
+    }
+
+    /**
+     * 分离过期分区，配置为删除时随后删除该表
+     */
+    private void expirePartition(String partition) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition);
+            if (dropExpired) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+        });
+        log.info("已{}过期分区 {}", dropExpired ? "删除" : "分离", partition);
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, PARENT_TABLE);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = to_regclass(?)",
+                String.class, PARENT_TABLE);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + SUFFIX_FORMAT.format(month);
+    }
+
+    /**
+     * 从分区名解析月份，不是按月命名的分区（如默认分区）返回null
+     */
+    private static YearMonth parseMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), SUFFIX_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -147,16 +147,6 @@ public class RedisUtils {
         return redisTemplate.opsForValue().multiGet(keys);
     }
 
-    /**
-     * 根据前缀获取所有key
-     *
-     * @param prefix 键前缀
-     * @return 匹配的key集合
-     */
-    public Set<String> keys(String prefix) {
-        return redisTemplate.keys(prefix + "*");
-    }
-
     /**
      * 普通缓存放入
      *
@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan(basePackages = {"com.common.reminder.model", "com.wwmty.stream.consumer.model"})
 @EnableJpaRepositories(basePackages = {"com.wwmty.stream.consumer.repository"})
+@EnableScheduling // 挂起消息回收任务依赖 @Scheduled
 public class ReminderStreamConsumerApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,68 @@
+package com.wwmty.stream.consumer.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 运维接口访问控制
+ *
+ * 死信查看和重放等运维接口没有用户体系，按以下规则放行：
+ * 配置了 reminder.admin.token 时，请求必须携带相同的 X-Admin-Token 请求头；
+ * 未配置时只允许本机回环地址访问。服务端口默认也只绑定127.0.0.1，见application.yaml的server.address。
+ */
+@Slf4j
+@Configuration
+public class AdminApiConfig implements WebMvcConfigurer {
+
+    public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+    @Value("${reminder.admin.token:}")
+    private String adminToken;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdminAccessInterceptor()).addPathPatterns("/api/**");
+    }
+
+    private class AdminAccessInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            boolean allowed = StringUtils.hasText(adminToken)
+                    ? tokenMatches(request.getHeader(ADMIN_TOKEN_HEADER))
+                    : isLoopback(request.getRemoteAddr());
+            if (!allowed) {
+                log.warn("拒绝运维接口访问 - 来源: {}, 路径: {} {}",
+                        request.getRemoteAddr(), request.getMethod(), request.getRequestURI());
+                response.setStatus(HttpStatus.FORBIDDEN.value());
+            }
+            return allowed;
+        }
+
+        private boolean tokenMatches(String token) {
+            return token != null && MessageDigest.isEqual(
+                    adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private boolean isLoopback(String remoteAddr) {
+            try {
+                return remoteAddr != null && InetAddress.getByName(remoteAddr).isLoopbackAddress();
+            } catch (UnknownHostException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.wwmty.stream.consumer.config;
 
+import com.wwmty.stream.consumer.service.ConsumerIdentity;
+import com.wwmty.stream.consumer.service.StreamBatchPoller;
 import com.wwmty.stream.consumer.service.StreamConsumerService;
+import com.wwmty.stream.consumer.service.StreamFlowController;
 import io.lettuce.core.RedisCommandExecutionException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.RedisSystemException;
@@ -12,6 +16,7 @@ import org.springframework.data.redis.connection.stream.Consumer;
 import org.springframework.data.redis.connection.stream.MapRecord;
 import org.springframework.data.redis.connection.stream.ReadOffset;
 import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.stream.StreamMessageListenerContainer;
 import org.springframework.data.redis.stream.Subscription;
 
@@ -24,28 +29,67 @@ public class RedisStreamConfig {
     @Value("${reminder.stream.key:complex-reminder-stream}")
     private String streamKey;
 
+    /**
+     * 活动日志Stream，与复杂提醒事件Stream使用同一个消费组名，各自独立拉取
+     */
+    @Value("${reminder.activity-log.stream-key:activity-log-stream}")
+    private String activityLogStreamKey;
+
     @Value("${reminder.stream.group:complex-reminder-group}")
     private String consumerGroup;
 
-    @Value("${reminder.stream.consumer:consumer-1}")
-    private String consumerName;
+    /**
+     * 批量模式下每次XREADGROUP读取的最大消息数
+     */
+    @Value("${reminder.stream.batch.size:20}")
+    private int batchSize;
+
+    /**
+     * 批量模式下XREADGROUP的阻塞等待时间（毫秒）
+     */
+    @Value("${reminder.stream.batch.block-ms:2000}")
+    private long batchBlockMillis;
 
+    /**
+     * 批量模式（默认）：XREADGROUP一次读取一批消息，连续的同一命令事件分组、合并后批量处理
+     */
     @Bean
-    public Subscription subscription(RedisConnectionFactory redisConnectionFactory,
-                                     StreamConsumerService streamConsumerService) {
-        try {
-            // The group might already exist, which throws an exception.
-            redisConnectionFactory.getConnection().xGroupCreate(streamKey.getBytes(), consumerGroup, ReadOffset.latest(), true);
-        } catch (RedisSystemException e) {
-            // Check if this is the specific "BUSYGROUP" error.
-            if (e.getCause() instanceof RedisCommandExecutionException && e.getCause().getMessage().contains("BUSYGROUP")) {
-                log.warn("Consumer group '{}' already exists for stream '{}'.", consumerGroup, streamKey);
-            } else {
-                // For other errors, rethrow them.
-                throw e;
-            }
-        }
+    @ConditionalOnProperty(name = "reminder.stream.batch.enabled", havingValue = "true", matchIfMissing = true)
+    public StreamBatchPoller streamBatchPoller(RedisConnectionFactory redisConnectionFactory,
+                                               StringRedisTemplate stringRedisTemplate,
+                                               StreamConsumerService streamConsumerService,
+                                               StreamFlowController streamFlowController,
+                                               ConsumerIdentity consumerIdentity) {
+        createConsumerGroup(redisConnectionFactory, streamKey);
+        return new StreamBatchPoller(stringRedisTemplate, streamConsumerService, streamFlowController,
+                streamKey, consumerGroup, consumerIdentity.getConsumerName(), batchSize, batchBlockMillis);
+    }
+
+    /**
+     * 批量模式下活动日志Stream的拉取器，日志流量不占用复杂提醒事件的拉取批次
+     */
+    @Bean
+    @ConditionalOnProperty(name = "reminder.stream.batch.enabled", havingValue = "true", matchIfMissing = true)
+    public StreamBatchPoller activityLogBatchPoller(RedisConnectionFactory redisConnectionFactory,
+                                                    StringRedisTemplate stringRedisTemplate,
+                                                    StreamConsumerService streamConsumerService,
+                                                    StreamFlowController streamFlowController,
+                                                    ConsumerIdentity consumerIdentity) {
+        createConsumerGroup(redisConnectionFactory, activityLogStreamKey);
+        return new StreamBatchPoller(stringRedisTemplate, streamConsumerService, streamFlowController,
+                activityLogStreamKey, consumerGroup, consumerIdentity.getConsumerName(), batchSize, batchBlockMillis);
+    }
 
+    /**
+     * 逐条模式：监听容器逐条回调，reminder.stream.batch.enabled=false 时启用
+     */
+    @Bean
+    @ConditionalOnProperty(name = "reminder.stream.batch.enabled", havingValue = "false")
+    public Subscription subscription(RedisConnectionFactory redisConnectionFactory,
+                                     StreamConsumerService streamConsumerService,
+                                     ConsumerIdentity consumerIdentity) {
+        createConsumerGroup(redisConnectionFactory, streamKey);
+        createConsumerGroup(redisConnectionFactory, activityLogStreamKey);
 
         StreamMessageListenerContainer.StreamMessageListenerContainerOptions<String, MapRecord<String, String, String>> options =
                 StreamMessageListenerContainer.StreamMessageListenerContainerOptions
@@ -56,12 +100,32 @@ public class RedisStreamConfig {
         StreamMessageListenerContainer<String, MapRecord<String, String, String>> listenerContainer =
                 StreamMessageListenerContainer.create(redisConnectionFactory, options);
 
+        // 使用receive而非receiveAutoAck：消息在处理成功后由StreamConsumerService手动ACK
         Subscription subscription = listenerContainer.receive(
-                Consumer.from(consumerGroup, consumerName),
+                Consumer.from(consumerGroup, consumerIdentity.getConsumerName()),
                 StreamOffset.create(streamKey, ReadOffset.lastConsumed()),
                 streamConsumerService::handleStreamEvent);
+        listenerContainer.receive(
+                Consumer.from(consumerGroup, consumerIdentity.getConsumerName()),
+                StreamOffset.create(activityLogStreamKey, ReadOffset.lastConsumed()),
+                streamConsumerService::handleStreamEvent);
 
         listenerContainer.start();
         return subscription;
     }
+
+    private void createConsumerGroup(RedisConnectionFactory redisConnectionFactory, String streamKey) {
+        try {
+            // The group might already exist, which throws an exception.
+            redisConnectionFactory.getConnection().xGroupCreate(streamKey.getBytes(), consumerGroup, ReadOffset.latest(), true);
+        } catch (RedisSystemException e) {
+            // Check if this is the specific "BUSYGROUP" error.
+            if (e.getCause() instanceof RedisCommandExecutionException && e.getCause().getMessage().contains("BUSYGROUP")) {
+                log.warn("Consumer group '{}' already exists for stream '{}'.", consumerGroup, streamKey);
+            } else {
+                // For other errors, rethrow them.
+                throw e;
+            }
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.wwmty.stream.consumer.config;
+
+import com.common.reminder.utils.WorkdayCalendarCache;
+import com.wwmty.stream.consumer.repository.LegalHolidayRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 工作日历配置
+ * 复杂提醒的节假日/工作日规则过滤使用的工作日历缓存，数据只从legal_holiday表读取
+ */
+@Configuration
+public class WorkdayCalendarConfig {
+
+    @Bean
+    public WorkdayCalendarCache workdayCalendarCache(LegalHolidayRepository legalHolidayRepository) {
+        return new WorkdayCalendarCache(legalHolidayRepository::findByYear);
+    }
+}
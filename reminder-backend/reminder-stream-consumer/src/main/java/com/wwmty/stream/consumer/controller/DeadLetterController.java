@@ -0,0 +1,73 @@
+package com.wwmty.stream.consumer.controller;
+
+import com.wwmty.stream.consumer.service.DeadLetterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 死信管理控制器
+ */
+@RestController
+@RequestMapping("/api/dead-letters")
+public class DeadLetterController {
+
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    /**
+     * 查看死信，可按命令类型过滤
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> listDeadLetters(@RequestParam(required = false) String command,
+                                                               @RequestParam(defaultValue = "20") int count) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "死信获取成功");
+        response.put("data", deadLetterService.listDeadLetters(command, Math.min(count, 1000)));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 分批限速重放死信，可按命令类型过滤；重放在后台执行，通过 /replay/status 查看进度
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(@RequestParam(required = false) String command,
+                                                      @RequestParam(defaultValue = "1000") int limit,
+                                                      @RequestParam(defaultValue = "50") int batchSize,
+                                                      @RequestParam(defaultValue = "1000") long pauseMs) {
+        Map<String, Object> response = new HashMap<>();
+        if (limit <= 0 || batchSize <= 0 || pauseMs < 0) {
+            response.put("success", false);
+            response.put("message", "参数无效: limit和batchSize必须大于0，pauseMs不能为负数");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (!deadLetterService.startReplay(command, limit, batchSize, pauseMs)) {
+            response.put("success", false);
+            response.put("message", "已有重放任务在执行");
+            return ResponseEntity.badRequest().body(response);
+        }
+        response.put("success", true);
+        response.put("message", "死信重放已开始");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取最近一次重放任务的状态
+     */
+    @GetMapping("/replay/status")
+    public ResponseEntity<Map<String, Object>> getReplayStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "重放状态获取成功");
+        response.put("data", deadLetterService.getReplayStatus());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,29 @@
+package com.wwmty.stream.consumer.handler;
+
+import java.util.Map;
+
+/**
+ * 支持批量处理的 Redis Stream 事件处理器。
+ * 批量读取模式下，同一批次内连续的同一命令事件会合并后一次性交给处理器，在一个事务内处理。
+ */
+public interface BatchStreamEventHandler extends StreamEventHandler {
+
+    /**
+     * 批量处理同一命令的流事件，实现方应在一个事务内完成整批处理。
+     * 抛出异常时整批回滚，调用方会退回到逐条处理。
+     *
+     * @param events 按消息顺序排列的 消息ID -> 清理后的事件数据
+     */
+    void handleBatch(Map<String, Map<String, String>> events);
+
+    /**
+     * 事件合并键。同一批次内合并键相同的事件只保留最后一条，被覆盖的消息直接ACK。
+     * 只有处理结果只取决于最新状态的事件才能合并。
+     *
+     * @param eventData 清理后的事件数据
+     * @return 合并键，返回null表示不合并
+     */
+    default String coalesceKey(Map<String, String> eventData) {
+        return null;
+    }
+}
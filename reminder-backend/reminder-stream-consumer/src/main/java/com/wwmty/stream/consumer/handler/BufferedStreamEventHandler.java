@@ -0,0 +1,9 @@
+package com.wwmty.stream.consumer.handler;
+
+/**
+ * 缓冲写入的 Redis Stream 事件处理器。
+ * handle 只把事件放入处理器自己的缓冲区，处理器按数量或时间批量写库，写库成功后自己ACK消息。
+ * 调用方在 handle 返回后不ACK；写库失败的消息留在PEL中，由PendingMessageReclaimer重新认领。
+ */
+public interface BufferedStreamEventHandler extends StreamEventHandler {
+}
@@ -1,9 +1,15 @@
 package com.wwmty.stream.consumer.handler;
 
+import com.common.reminder.event.ComplexReminderEvent;
+import com.common.reminder.event.StreamEventCodecs;
+import com.common.reminder.event.StreamEventType;
 import com.common.reminder.model.ComplexReminder;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.utils.ComplexReminderSchedule;
+import com.common.reminder.utils.WorkdayCalendarCache;
 import com.wwmty.stream.consumer.repository.ComplexReminderRepository;
 import com.wwmty.stream.consumer.repository.SimpleReminderRepository;
+import com.wwmty.stream.consumer.service.MonthlyReminderCacheInvalidator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -11,16 +17,16 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StopWatch;
 
-import java.time.LocalDate;
+import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
-import org.springframework.scheduling.support.CronExpression;
+import java.util.Set;
 
 /**
  * 复杂提醒生成事件处理器
@@ -28,7 +34,7 @@ import org.springframework.scheduling.support.CronExpression;
  */
 @Slf4j
 @Component
-public class ComplexReminderGenerationHandler implements StreamEventHandler {
+public class ComplexReminderGenerationHandler implements BatchStreamEventHandler {
 
     @Autowired
     private ComplexReminderRepository complexReminderRepository;
@@ -36,29 +42,56 @@ public class ComplexReminderGenerationHandler implements StreamEventHandler {
     @Autowired
     private SimpleReminderRepository simpleReminderRepository;
 
+    @Autowired
+    private WorkdayCalendarCache workdayCalendarCache;
+
+    @Autowired
+    private MonthlyReminderCacheInvalidator monthlyReminderCacheInvalidator;
+
     @Override
     public String getCommand() {
-        return "GENERATE_COMPLEX_REMINDER";
+        return StreamEventType.GENERATE_COMPLEX_REMINDER.getCommand();
     }
 
     @Override
     @Transactional
     public void handle(Map<String, String> eventData, String messageId) {
+        monthlyReminderCacheInvalidator.invalidateAfterCommit(
+                Collections.singletonList(processEvent(eventData, messageId)));
+    }
+
+    @Override
+    @Transactional
+    public void handleBatch(Map<String, Map<String, String>> events) {
+        log.info("批量处理复杂提醒生成事件 - 数量: {}", events.size());
+        List<Long> affectedUserIds = new ArrayList<>(events.size());
+        for (Map.Entry<String, Map<String, String>> event : events.entrySet()) {
+            affectedUserIds.add(processEvent(event.getValue(), event.getKey()));
+        }
+        monthlyReminderCacheInvalidator.invalidateAfterCommit(affectedUserIds);
+    }
+
+    /**
+     * @return 简单任务可能发生变化的接收用户ID，事件被忽略时返回null
+     */
+    private Long processEvent(Map<String, String> eventData, String messageId) {
         log.info("开始处理复杂提醒生成事件 - 消息ID: {}", messageId);
         
         try {
-            // 提取事件数据（数据已经在StreamConsumerService中清理过了）
-            Long complexReminderId = Long.parseLong(eventData.get("complexReminderId"));
-            int monthsAhead = Integer.parseInt(eventData.get("monthsAhead"));
-            Long userId = Long.parseLong(eventData.get("userId"));
+            // 解码为类型化事件（字段已经在StreamConsumerService中展开）
+            ComplexReminderEvent event = StreamEventCodecs.decode(eventData);
+            Long complexReminderId = event.getComplexReminderId();
+            int monthsAhead = event.getMonthsAhead();
+            Long userId = event.getUserId();
             
             log.info("处理复杂提醒生成 - ID: {}, 月数: {}, 用户: {}", complexReminderId, monthsAhead, userId);
             
-            // 查询复杂提醒
-            Optional<ComplexReminder> complexReminderOpt = complexReminderRepository.findById(complexReminderId);
+            // 查询并锁定复杂提醒：回收或重放的消息可能在其他实例上同时处理同一模板，
+            // 串行执行后读取的已有任务才是最新的，不会重复生成
+            Optional<ComplexReminder> complexReminderOpt = complexReminderRepository.findByIdForUpdate(complexReminderId);
             if (!complexReminderOpt.isPresent()) {
                 log.error("复杂提醒不存在 - ID: {}", complexReminderId);
-                return;
+                return null;
             }
             
             ComplexReminder complexReminder = complexReminderOpt.get();
@@ -66,13 +99,14 @@ public class ComplexReminderGenerationHandler implements StreamEventHandler {
             // 验证用户权限
             if (!complexReminder.getFromUserId().equals(userId)) {
                 log.error("用户无权限操作此复杂提醒 - 用户ID: {}, 复杂提醒ID: {}", userId, complexReminderId);
-                return;
+                return null;
             }
             
             // 生成简单提醒
             List<SimpleReminder> generatedReminders = generateSimpleRemindersForMonths(complexReminder, monthsAhead);
             
             log.info("成功生成 {} 个简单提醒 - 复杂提醒ID: {}", generatedReminders.size(), complexReminderId);
+            return complexReminder.getToUserId();
             
         } catch (Exception e) {
             log.error("处理复杂提醒生成事件失败 - 消息ID: {}", messageId, e);
@@ -93,137 +127,67 @@ public class ComplexReminderGenerationHandler implements StreamEventHandler {
         StopWatch stopWatch = new StopWatch("复杂提醒生成-" + complexReminder.getId());
         
         List<SimpleReminder> generatedReminders = new ArrayList<>();
-        String cronExpression = complexReminder.getCronExpression();
-        
-        // 检查cron表达式是否有效
-        if (cronExpression == null || cronExpression.trim().isEmpty()) {
-            log.error("复杂提醒ID: {} 的CRON表达式为空", complexReminder.getId());
-            return generatedReminders;
-        }
-        
-        // 标准化cron表达式（添加秒字段如果没有）
-        if (cronExpression.split("\\s+").length == 5) {
-            cronExpression = "0 " + cronExpression;
-        }
-        
         try {
-            stopWatch.start("解析CRON表达式");
-            CronExpression cron = CronExpression.parse(cronExpression);
-            stopWatch.stop();
-            
             // 使用中国时区(Asia/Shanghai)确保时间一致性
-            ZoneId chinaZone = ZoneId.of("Asia/Shanghai");
-            
-            // 设置起始时间（当前时间或validFrom，取较晚者）
-            ZonedDateTime now = ZonedDateTime.now(chinaZone);
-            ZonedDateTime startTime = now;
-            
-            if (complexReminder.getValidFrom() != null) {
-                ZonedDateTime validFromTime = complexReminder.getValidFrom().atStartOfDay(chinaZone);
-                if (validFromTime.isAfter(now)) {
-                    startTime = validFromTime;
-                }
-            }
-            
-            // 计算目标月份（当前月份+monthsAhead）
-            int targetYear = now.getYear() + (now.getMonthValue() + monthsAhead - 1) / 12;
-            int targetMonth = (now.getMonthValue() + monthsAhead - 1) % 12 + 1;
-            
-            // 计算目标月份的最后一天
-            LocalDate lastDayOfTargetMonth = LocalDate.of(targetYear, targetMonth, 1)
-                .plusMonths(1).minusDays(1);
-            
-            // 设置结束时间为目标月份的最后一天的23:59:59
-            ZonedDateTime endTime = lastDayOfTargetMonth.atTime(23, 59, 59).atZone(chinaZone);
-            
-            // 如果有validUntil且在目标月份结束之前，则使用validUntil
-            if (complexReminder.getValidUntil() != null) {
-                ZonedDateTime validUntilTime = complexReminder.getValidUntil().atTime(23, 59, 59).atZone(chinaZone);
-                if (validUntilTime.isBefore(endTime)) {
-                    endTime = validUntilTime;
-                }
+            ZonedDateTime now = ZonedDateTime.now(ComplexReminderSchedule.CHINA_ZONE);
+
+            // 已存在的未来执行时间不再插入；模板行锁使同一模板的生成串行执行，
+            // 唯一索引加 ON CONFLICT DO NOTHING 兜底，重复投递或并发生成都不会产生重复任务
+            Set<Instant> existingTimes = new HashSet<>();
+            for (SimpleReminder existing : simpleReminderRepository
+                    .findByOriginatingComplexReminderIdAndEventTimeAfterOrderByEventTimeAsc(
+                            complexReminder.getId(), now.toOffsetDateTime())) {
+                existingTimes.add(existing.getEventTime().toInstant());
             }
-            
-            log.info("为复杂提醒ID: {} 生成简单任务的时间范围: {} 至 {} (使用中国时区)", 
-                     complexReminder.getId(), startTime, endTime);
-            
+
             stopWatch.start("计算CRON执行时间");
-            // 开始计算执行时间并生成简单任务
-            ZonedDateTime nextTime = startTime;
-            int count = 0;
-            Integer maxExecutions = complexReminder.getMaxExecutions();
+            // 触发时间的计算（生成窗口、节假日规则、maxExecutions）与core、job共用同一套规则
+            List<OffsetDateTime> occurrences = ComplexReminderSchedule.calculateOccurrenceTimes(
+                    complexReminder, monthsAhead, now, workdayCalendarCache::getWorkdayCalendar);
+            stopWatch.stop();
 
             // 用于批量插入的列表
             List<SimpleReminder> batchToSave = new ArrayList<>();
             final int BATCH_SIZE = 100;
 
-            while (true) {
-                // 计算下一个执行时间
-                nextTime = cron.next(nextTime);
-
-                // 如果超出了指定范围或validUntil，则停止
-                if (nextTime == null || nextTime.isAfter(endTime)) {
-                    break;
+            for (OffsetDateTime nextExecutionTime : occurrences) {
+                if (existingTimes.contains(nextExecutionTime.toInstant())) {
+                    continue;
                 }
 
-                // 如果已经达到最大执行次数限制，则停止
-                if (maxExecutions != null && count >= maxExecutions) {
-                    break;
-                }
-
-                // 转换为OffsetDateTime，确保使用中国时区的偏移量
-                OffsetDateTime nextExecutionTime = nextTime.toOffsetDateTime();
-
-                    // 创建简单任务（先不保存，加入批量列表）
-                    SimpleReminder simpleReminder = createSimpleReminderFromTemplate(complexReminder, nextExecutionTime);
-                    batchToSave.add(simpleReminder);
-                    count++;
+                // 创建简单任务（先不保存，加入批量列表）
+                SimpleReminder simpleReminder = createSimpleReminderFromTemplate(complexReminder, nextExecutionTime);
+                batchToSave.add(simpleReminder);
 
-                    log.debug("准备批量保存SimpleReminder，执行时间: {} (中国时区)", nextExecutionTime);
+                log.debug("准备批量保存SimpleReminder，执行时间: {} (中国时区)", nextExecutionTime);
 
-                    // 当批量列表达到指定大小时，执行批量保存
-                    if (batchToSave.size() >= BATCH_SIZE) {
-                        if (!stopWatch.isRunning()) {
-                            stopWatch.start("批量入库-" + batchToSave.size() + "条");
-                        }
-                        List<SimpleReminder> savedBatch = simpleReminderRepository.saveAll(batchToSave);
-                        if (stopWatch.isRunning()) {
-                            stopWatch.stop();
-                        }
-                        generatedReminders.addAll(savedBatch);
-                        log.info("批量保存了 {} 个SimpleReminder", savedBatch.size());
-                        batchToSave.clear();
-                    }
-            }
-            
-            if (stopWatch.isRunning()) {
-                stopWatch.stop();
+                // 当批量列表达到指定大小时，执行批量保存
+                if (batchToSave.size() >= BATCH_SIZE) {
+                    stopWatch.start("批量入库-" + batchToSave.size() + "条");
+                    List<SimpleReminder> savedBatch = simpleReminderRepository.insertAllIgnoringDuplicates(batchToSave);
+                    stopWatch.stop();
+                    generatedReminders.addAll(savedBatch);
+                    log.info("批量保存了 {} 个SimpleReminder", savedBatch.size());
+                    batchToSave.clear();
+                }
             }
 
             // 保存剩余的记录
             if (!batchToSave.isEmpty()) {
                 stopWatch.start("最后批量入库-" + batchToSave.size() + "条");
-                List<SimpleReminder> savedBatch = simpleReminderRepository.saveAll(batchToSave);
+                List<SimpleReminder> savedBatch = simpleReminderRepository.insertAllIgnoringDuplicates(batchToSave);
                 stopWatch.stop();
                 generatedReminders.addAll(savedBatch);
                 log.info("批量保存了剩余的 {} 个SimpleReminder", savedBatch.size());
             }
             
             // 更新lastGeneratedYm字段 - 使用目标月份
-            if (!generatedReminders.isEmpty()) {
-                // 计算目标年月 (格式 YYYYMM)
-                int targetYearMonth = targetYear * 100 + targetMonth;
-                
-                // 如果有validUntil且在目标月份之前，则使用validUntil的年月
-                if (complexReminder.getValidUntil() != null) {
-                    LocalDate validUntil = complexReminder.getValidUntil();
-                    int validUntilYm = validUntil.getYear() * 100 + validUntil.getMonthValue();
-                    if (validUntilYm < targetYearMonth) {
-                        targetYearMonth = validUntilYm;
-                    }
-                }
-                
-                // 更新lastGeneratedYm字段
+            // 即使目标范围内没有新增任务也要推进，读端依据该字段判断生成是否完成
+            // 计算目标年月 (格式 YYYYMM)，validUntil在目标月份之前时使用validUntil的年月
+            int targetYearMonth = ComplexReminderSchedule.calculateTargetYearMonth(complexReminder, monthsAhead, now);
+            
+            Integer lastGeneratedYm = complexReminder.getLastGeneratedYm();
+            if (lastGeneratedYm == null || lastGeneratedYm < targetYearMonth) {
                 complexReminder.setLastGeneratedYm(targetYearMonth);
                 complexReminderRepository.save(complexReminder);
                 log.info("更新复杂提醒ID: {} 的lastGeneratedYm为: {}", complexReminder.getId(), targetYearMonth);
@@ -234,13 +198,13 @@ public class ComplexReminderGenerationHandler implements StreamEventHandler {
             
             return generatedReminders;
             
-        } catch (Exception e) {
-            log.error("为复杂提醒ID: {} 生成简单任务时出错: {}", complexReminder.getId(), e.getMessage());
+        } catch (RuntimeException e) {
             if (stopWatch.isRunning()) {
                 stopWatch.stop();
             }
             log.info("复杂提醒ID: {} 异常退出前的性能统计:\n{}", complexReminder.getId(), stopWatch.prettyPrint());
-            return generatedReminders;
+            // 不返回部分结果：异常向上抛出使事务回滚、消息不被ACK，由挂起消息回收重试，失败次数达到上限后移入死信
+            throw e;
         }
     }
 
@@ -251,8 +215,7 @@ public class ComplexReminderGenerationHandler implements StreamEventHandler {
         SimpleReminder instance = new SimpleReminder();
         instance.setFromUserId(template.getFromUserId());
         instance.setToUserId(template.getToUserId());
-        instance.setTitle(template.getTitle()); // 直接使用模板标题
-        instance.setDescription(template.getDescription()); // 使用模板描述
+        // 标题和描述不复制，读取和发送时从模板补全
         instance.setEventTime(eventTime); // 计算出的执行时间
         instance.setReminderType(template.getReminderType());
         instance.setOriginatingComplexReminderId(template.getId()); // 链接回模板
@@ -1,25 +1,218 @@
 package com.wwmty.stream.consumer.handler;
 
+import com.common.reminder.constant.ActivityStatus;
+import com.common.reminder.event.ActivityLogEvent;
+import com.wwmty.stream.consumer.service.DeadLetterService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * 用户活动日志事件处理器
+ *
+ * 事件来自活动日志专用Stream，先进入缓冲区，缓冲区达到 batch-size 条或每隔 flush-interval-ms 毫秒，
+ * 用一条多行INSERT写入user_activity_logs，写入成功后ACK整批消息。user_activity_logs使用自增主键，Hibernate无法对其批量插入，所以这里直接用JdbcTemplate。
+ * 多行INSERT失败时（例如某条日志的用户已被删除）退回逐条插入，失败的消息不ACK，重试超过上限后进入死信。
+ */
 @Slf4j
 @Component
-public class LogEventHandler implements StreamEventHandler {
+public class LogEventHandler implements BufferedStreamEventHandler {
+
+    private static final String INSERT_PREFIX = "INSERT INTO user_activity_logs (user_id, session_id, action, "
+            + "resource_type, resource_id, resource_name, ip_address, user_agent, request_method, request_url, "
+            + "status, error_message, execution_time_ms, details, created_at) VALUES ";
+
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, CAST(? AS inet), ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 活动日志Stream，调用方未指明消息所在Stream时按此ACK
+     */
+    @Value("${reminder.activity-log.stream-key:activity-log-stream}")
+    private String streamKey;
+
+    @Value("${reminder.stream.group:complex-reminder-group}")
+    private String consumerGroup;
+
+    /**
+     * 每条INSERT语句的最大行数，缓冲区达到该数量时立即写库
+     */
+    @Value("${reminder.activity-log.batch-size:200}")
+    private int batchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    /**
+     * 待写库的日志，访问时需持有本对象的锁
+     */
+    private List<BufferedLog> buffer = new ArrayList<>();
 
     @Override
     public void handle(Map<String, String> eventData, String messageId) {
-        log.info("为消息 ID {} 执行 LogEventHandler。", messageId);
-        log.info("消息 ID: {}", messageId);
-        log.info("负载: {}", eventData);
-        log.info("消息 ID {} 的 LogEventHandler 执行完毕。", messageId);
+        handle(eventData, messageId, streamKey);
+    }
+
+    /**
+     * 放入缓冲区，并记住消息所在的Stream：升级前写入复杂提醒事件Stream的活动日志也能在原Stream上ACK
+     */
+    @Override
+    public void handle(Map<String, String> eventData, String messageId, String stream) {
+        ActivityLogEvent event = ActivityLogEvent.fromFields(eventData);
+        List<BufferedLog> full = null;
+        synchronized (this) {
+            buffer.add(new BufferedLog(stream, messageId, event));
+            if (buffer.size() >= batchSize) {
+                full = drain();
+            }
+        }
+        if (full != null) {
+            write(full);
+        }
     }
 
     @Override
     public String getCommand() {
         // 当消息的 "command" 字段为 "LOG_EVENT" 时，将调用此处理器
-        return "LOG_EVENT";
+        return ActivityLogEvent.COMMAND;
+    }
+
+    /**
+     * 按时间写库，避免流量低时日志长时间停留在缓冲区
+     * 默认每秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${reminder.activity-log.flush-interval-ms:1000}")
+    public void flush() {
+        List<BufferedLog> logs;
+        synchronized (this) {
+            logs = drain();
+        }
+        write(logs);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private List<BufferedLog> drain() {
+        if (buffer.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<BufferedLog> drained = buffer;
+        buffer = new ArrayList<>();
+        return drained;
+    }
+
+    private void write(List<BufferedLog> logs) {
+        for (int from = 0; from < logs.size(); from += batchSize) {
+            List<BufferedLog> chunk = logs.subList(from, Math.min(from + batchSize, logs.size()));
+            try {
+                insertRows(chunk);
+                acknowledge(chunk);
+                log.info("批量写入活动日志 {} 条", chunk.size());
+            } catch (Exception e) {
+                log.warn("批量写入 {} 条活动日志失败，退回逐条写入: {}", chunk.size(), e.getMessage());
+                writeOneByOne(chunk);
+            }
+        }
+    }
+
+    private void writeOneByOne(List<BufferedLog> logs) {
+        List<BufferedLog> succeeded = new ArrayList<>(logs.size());
+        for (BufferedLog bufferedLog : logs) {
+            try {
+                insertRows(Collections.singletonList(bufferedLog));
+                succeeded.add(bufferedLog);
+            } catch (Exception e) {
+                log.error("写入活动日志失败 - 消息ID: {}, 用户: {}, 操作: {}: {}", bufferedLog.messageId,
+                        bufferedLog.event.getUserId(), bufferedLog.event.getAction(), e.getMessage());
+                deadLetterService.recordFailure(bufferedLog.messageId, e);
+            }
+        }
+        acknowledge(succeeded);
+    }
+
+    private void insertRows(List<BufferedLog> logs) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(logs.size() * 15);
+        for (int i = 0; i < logs.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+
+            ActivityLogEvent event = logs.get(i).event;
+            long occurredAt = event.getOccurredAt() > 0 ? event.getOccurredAt() : System.currentTimeMillis();
+            args.add(event.getUserId());
+            args.add(event.getSessionId());
+            args.add(event.getAction());
+            args.add(event.getResourceType());
+            args.add(event.getResourceId());
+            args.add(event.getResourceName());
+            args.add(event.getIpAddress());
+            args.add(event.getUserAgent());
+            args.add(event.getRequestMethod());
+            args.add(event.getRequestUrl());
+            args.add(event.getStatus() != null ? event.getStatus() : ActivityStatus.SUCCESS.name());
+            args.add(event.getErrorMessage());
+            args.add(event.getExecutionTimeMs());
+            args.add(event.getDetails());
+            args.add(new Timestamp(occurredAt));
+        }
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    private void acknowledge(List<BufferedLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        Map<String, List<RecordId>> recordIdsByStream = new HashMap<>();
+        for (BufferedLog bufferedLog : logs) {
+            recordIdsByStream.computeIfAbsent(bufferedLog.stream, stream -> new ArrayList<>())
+                    .add(RecordId.of(bufferedLog.messageId));
+        }
+        for (Map.Entry<String, List<RecordId>> entry : recordIdsByStream.entrySet()) {
+            try {
+                redisTemplate.opsForStream().acknowledge(entry.getKey(), consumerGroup,
+                        entry.getValue().toArray(new RecordId[0]));
+            } catch (Exception e) {
+                // 未ACK的消息之后会被重新认领并再次写入，活动日志允许少量重复
+                log.error("确认 {} 条活动日志消息失败: {}", entry.getValue().size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private static class BufferedLog {
+
+        private final String stream;
+
+        private final String messageId;
+
+        private final ActivityLogEvent event;
+
+        private BufferedLog(String stream, String messageId, ActivityLogEvent event) {
+            this.stream = stream;
+            this.messageId = messageId;
+            this.event = event;
+        }
     }
-} 
\ No newline at end of file
+}
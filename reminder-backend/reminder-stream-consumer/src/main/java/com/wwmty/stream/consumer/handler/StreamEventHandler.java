@@ -15,6 +15,17 @@ public interface StreamEventHandler {
      */
     void handle(Map<String, String> eventData, String messageId);
 
+    /**
+     * 处理来自指定Stream的流事件。需要自己ACK的处理器据此确定消息所在的Stream，其他处理器无需覆盖。
+     *
+     * @param eventData 清理后的事件数据
+     * @param messageId 消息ID
+     * @param stream 消息所在的Stream
+     */
+    default void handle(Map<String, String> eventData, String messageId, String stream) {
+        handle(eventData, messageId);
+    }
+
     /**
      * 此处理器支持的命令字符串。
      * 工厂类使用此方法将消息路由到正确的处理器。
@@ -3,10 +3,12 @@ package com.wwmty.stream.consumer.repository;
 import com.common.reminder.model.ComplexReminder;
 import com.common.reminder.model.ReminderType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -22,6 +24,16 @@ public interface ComplexReminderRepository extends JpaRepository<ComplexReminder
     List<ComplexReminder> findByFromUserId(Long fromUserId);
 
     List<ComplexReminder> findByToUserId(Long toUserId);
+
+    /**
+     * 按ID查询复杂提醒并加行锁（SELECT ... FOR UPDATE）
+     * 生成和同步简单任务前调用，多个实例同时处理同一模板的事件时串行执行，直到当前事务结束
+     * @param id 复杂提醒ID
+     * @return 复杂提醒
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT cr FROM ComplexReminder cr WHERE cr.id = :id")
+    Optional<ComplexReminder> findByIdForUpdate(@Param("id") Long id);
     
     /**
      * 查询需要生成简单任务的复杂提醒
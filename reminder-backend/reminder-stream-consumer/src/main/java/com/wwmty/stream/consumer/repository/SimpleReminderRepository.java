@@ -1,6 +1,8 @@
 package com.wwmty.stream.consumer.repository;
 
+import com.common.reminder.model.ReminderType;
 import com.common.reminder.model.SimpleReminder;
+import com.common.reminder.utils.FutureReminderReconciler;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,10 +11,11 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface SimpleReminderRepository extends JpaRepository<SimpleReminder, Long> {
+public interface SimpleReminderRepository extends JpaRepository<SimpleReminder, Long>, FutureReminderReconciler.Store {
 
     // 可能需要的查询方法示例
     List<SimpleReminder> findByFromUserId(Long fromUserId);
@@ -69,34 +72,73 @@ public interface SimpleReminderRepository extends JpaRepository<SimpleReminder,
                                                               @Param("currentTime") OffsetDateTime currentTime);
 
     /**
-     * 按年月和用户ID查询简单提醒
-     * 查询指定月份内触发的提醒
-     * 
-     * @param year 年份
-     * @param month 月份(1-12)
-     * @param userId 用户ID
-     * @return 符合条件的简单提醒列表
+     * 查询指定复杂提醒在指定时间之后生成的简单提醒（按触发时间升序）
+     * 用于复杂提醒更新时与新的触发时间集合做差异比较
+     * @param originatingComplexReminderId 来源复杂提醒ID
+     * @param currentTime 当前时间，只返回触发时间大于此时间的记录
+     * @return 未来的简单提醒列表
      */
-    @Query("SELECT sr FROM SimpleReminder sr WHERE " +
-           "YEAR(sr.eventTime) = :year AND MONTH(sr.eventTime) = :month AND " +
-           "sr.toUserId = :userId ORDER BY sr.eventTime ASC")
-    List<SimpleReminder> findByYearMonthAndUserId(
-            @Param("year") int year, 
-            @Param("month") int month, 
-            @Param("userId") Long userId);
-    
+    @Override
+    List<SimpleReminder> findByOriginatingComplexReminderIdAndEventTimeAfterOrderByEventTimeAsc(
+            Long originatingComplexReminderId, OffsetDateTime currentTime);
+
     /**
-     * 按年月查询简单提醒（不限用户）
-     * 查询指定月份内触发的提醒
-     * 
-     * @param year 年份
-     * @param month 月份(1-12)
-     * @return 符合条件的简单提醒列表
+     * 按ID批量删除简单提醒
+     * @param ids 简单提醒ID集合
+     * @return 删除的记录数
      */
-    @Query("SELECT sr FROM SimpleReminder sr WHERE " +
-           "YEAR(sr.eventTime) = :year AND MONTH(sr.eventTime) = :month " +
-           "ORDER BY sr.eventTime ASC")
-    List<SimpleReminder> findByYearMonth(@Param("year") int year, @Param("month") int month);
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SimpleReminder sr WHERE sr.id IN :ids")
+    @Override
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 将复杂提醒模板的字段批量同步到其未来的简单提醒（单条UPDATE语句）
+     * 已经过去的简单提醒不受影响；标题和描述在读取时从模板补全，不在此同步
+     * @param originatingComplexReminderId 来源复杂提醒ID
+     * @param currentTime 当前时间，只更新触发时间大于此时间的记录
+     * @param fromUserId 创建用户ID
+     * @param toUserId 接收用户ID
+     * @param reminderType 提醒方式
+     * @param updatedAt 更新时间
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SimpleReminder sr SET sr.fromUserId = :fromUserId, sr.toUserId = :toUserId, " +
+           "sr.reminderType = :reminderType, sr.updatedAt = :updatedAt " +
+           "WHERE sr.originatingComplexReminderId = :originatingComplexReminderId AND sr.eventTime > :currentTime")
+    @Override
+    int updateTemplateFieldsByOriginatingComplexReminderIdAndEventTimeAfter(
+            @Param("originatingComplexReminderId") Long originatingComplexReminderId,
+            @Param("currentTime") OffsetDateTime currentTime,
+            @Param("fromUserId") Long fromUserId,
+            @Param("toUserId") Long toUserId,
+            @Param("reminderType") ReminderType reminderType,
+            @Param("updatedAt") OffsetDateTime updatedAt);
+
+    /**
+     * 插入一条模板生成的简单任务，同一模板同一触发时间已存在时不插入
+     * 标题和描述为空时按TEXT绑定，避免null参数被推断为bytea
+     * @return 新记录的ID，已存在时返回null
+     */
+    @Transactional
+    @Query(value = "INSERT INTO simple_reminder (from_user_id, to_user_id, title, description, event_time, " +
+           "reminder_type, originating_complex_reminder_id, created_at, updated_at) " +
+           "VALUES (:fromUserId, :toUserId, CAST(:title AS TEXT), CAST(:description AS TEXT), :eventTime, " +
+           ":reminderType, :originatingComplexReminderId, :createdAt, :createdAt) " +
+           "ON CONFLICT (originating_complex_reminder_id, event_time) DO NOTHING RETURNING id",
+           nativeQuery = true)
+    @Override
+    Long insertIgnoringDuplicate(@Param("fromUserId") Long fromUserId,
+                                 @Param("toUserId") Long toUserId,
+                                 @Param("title") String title,
+                                 @Param("description") String description,
+                                 @Param("eventTime") OffsetDateTime eventTime,
+                                 @Param("reminderType") String reminderType,
+                                 @Param("originatingComplexReminderId") Long originatingComplexReminderId,
+                                 @Param("createdAt") OffsetDateTime createdAt);
 
     // 可以根据需要添加更多查询方法
 } 
\ No newline at end of file
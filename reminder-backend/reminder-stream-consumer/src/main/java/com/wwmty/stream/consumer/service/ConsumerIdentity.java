@@ -0,0 +1,144 @@
+package com.wwmty.stream.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * 当前实例在消费组中的消费者身份
+ *
+ * 未配置 reminder.stream.consumer 时，启动时生成"主机名-随机后缀"形式的唯一消费者名，多副本部署无需逐个配置。
+ * 名称通过Redis心跳key登记（SET NX，带过期时间），定期续期；心跳key过期的消费者由DeadConsumerJanitor清理。
+ * 配置的消费者名已被登记时（其他实例正在使用，或上次运行的心跳尚未过期），改用"配置名-随机后缀"，
+ * 保证每个实例的消费者名唯一，不会与其他实例共享PEL、互相续期心跳。
+ *
+ * 多副本部署时，消费组把消息分给各个实例，处理通道的按键顺序只在单个实例内成立。
+ * 跨实例的互斥由处理器保证：生成和同步简单任务前锁定复杂提醒行（findByIdForUpdate），
+ * 简单任务按 (模板, 触发时间) 唯一索引以 ON CONFLICT DO NOTHING 插入；
+ * 回收任务也不认领心跳存活实例的挂起消息。新增按键处理的事件类型时须同样加锁，否则只能部署单个实例。
+ */
+@Slf4j
+@Component
+public class ConsumerIdentity {
+
+    /**
+     * 心跳key前缀，完整key为 前缀 + 消费组 + ":" + 消费者名
+     */
+    public static final String HEARTBEAT_KEY_PREFIX = "reminder:stream:consumer:";
+
+    private static final int MAX_REGISTER_ATTEMPTS = 5;
+
+    @Value("${reminder.stream.group:complex-reminder-group}")
+    private String consumerGroup;
+
+    /**
+     * 固定的消费者名，为空或已被登记时自动生成
+     */
+    @Value("${reminder.stream.consumer:}")
+    private String configuredName;
+
+    /**
+     * 心跳key的过期时间（毫秒），应大于心跳间隔的2倍
+     */
+    @Value("${reminder.stream.heartbeat.ttl-ms:30000}")
+    private long heartbeatTtlMillis;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private String consumerName;
+
+    @PostConstruct
+    public void register() {
+        if (StringUtils.hasText(configuredName)) {
+            if (tryRegister(configuredName)) {
+                consumerName = configuredName;
+            } else {
+                log.warn("消费者名 [{}] 已被其他实例登记，改用自动生成的消费者名，避免多个实例共享PEL；"
+                        + "原消费者的挂起消息在其心跳过期后由清理任务接管", configuredName);
+            }
+        }
+        if (consumerName == null) {
+            String prefix = StringUtils.hasText(configuredName) ? configuredName : hostName();
+            for (int attempt = 0; attempt < MAX_REGISTER_ATTEMPTS && consumerName == null; attempt++) {
+                String candidate = prefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+                if (tryRegister(candidate)) {
+                    consumerName = candidate;
+                }
+            }
+            if (consumerName == null) {
+                throw new IllegalStateException("无法登记唯一的消费者名");
+            }
+        }
+        log.info("当前实例的消费者名: [{}]，消费组: [{}]", consumerName, consumerGroup);
+    }
+
+    /**
+     * 续期心跳key
+     * 默认每10秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${reminder.stream.heartbeat.interval-ms:10000}")
+    public void heartbeat() {
+        try {
+            redisTemplate.opsForValue().set(heartbeatKey(consumerGroup, consumerName),
+                    OffsetDateTime.now().toString(), Duration.ofMillis(heartbeatTtlMillis));
+        } catch (Exception e) {
+            log.error("续期消费者 [{}] 的心跳失败: {}", consumerName, e.getMessage());
+        }
+    }
+
+    /**
+     * 停止时删除心跳key，使本实例的挂起消息尽快被其他实例接管
+     */
+    @PreDestroy
+    public void unregister() {
+        try {
+            redisTemplate.delete(heartbeatKey(consumerGroup, consumerName));
+        } catch (Exception e) {
+            log.warn("删除消费者 [{}] 的心跳失败: {}", consumerName, e.getMessage());
+        }
+    }
+
+    public String getConsumerName() {
+        return consumerName;
+    }
+
+    /**
+     * 判断消费者是否存活（心跳key存在）
+     */
+    public boolean isAlive(String name) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(heartbeatKey(consumerGroup, name)));
+    }
+
+    public static String heartbeatKey(String group, String name) {
+        return HEARTBEAT_KEY_PREFIX + group + ":" + name;
+    }
+
+    private boolean tryRegister(String name) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(heartbeatKey(consumerGroup, name),
+                OffsetDateTime.now().toString(), Duration.ofMillis(heartbeatTtlMillis)));
+    }
+
+    private static String hostName() {
+        String hostName = System.getenv("HOSTNAME");
+        if (StringUtils.hasText(hostName)) {
+            return hostName;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "consumer";
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.wwmty.stream.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 失效消费者清理任务
+ *
+ * 实例下线（缩容、重新部署、崩溃）后，它在消费组中的消费者和PEL中未ACK的消息会一直留着。
+ * 本任务定期在复杂提醒事件Stream和活动日志Stream上通过XINFO CONSUMERS，
+ * 找出心跳key已过期且空闲超过 dead-idle-ms 的消费者，
+ * 先用XCLAIM把它的挂起消息全部转移给当前消费者并重新处理，再用XGROUP DELCONSUMER删除它。
+ * 挂起消息没有全部转移成功时不删除消费者（DELCONSUMER会丢弃该消费者的挂起消息），下次再试。
+ */
+@Slf4j
+@Component
+public class DeadConsumerJanitor {
+
+    @Value("${reminder.stream.key:complex-reminder-stream}")
+    private String streamKey;
+
+    @Value("${reminder.activity-log.stream-key:activity-log-stream}")
+    private String activityLogStreamKey;
+
+    @Value("${reminder.stream.group:complex-reminder-group}")
+    private String consumerGroup;
+
+    /**
+     * 消费者空闲超过该时间（毫秒）且心跳已过期才视为失效，避免误删刚启动或暂时卡顿的实例
+     */
+    @Value("${reminder.stream.janitor.dead-idle-ms:120000}")
+    private long deadIdleMillis;
+
+    /**
+     * 每次认领的挂起消息数量
+     */
+    @Value("${reminder.stream.janitor.batch-size:100}")
+    private int batchSize;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ConsumerIdentity consumerIdentity;
+
+    @Autowired
+    private PendingMessageReclaimer pendingMessageReclaimer;
+
+    /**
+     * 清理失效的消费者
+     * 默认每分钟执行一次
+     */
+    @Scheduled(fixedDelayString = "${reminder.stream.janitor.interval-ms:60000}",
+            initialDelayString = "${reminder.stream.janitor.initial-delay-ms:30000}")
+    public void cleanupDeadConsumers() {
+        cleanupDeadConsumers(streamKey);
+        cleanupDeadConsumers(activityLogStreamKey);
+    }
+
+    private void cleanupDeadConsumers(String stream) {
+        try {
+            StreamOperations<String, Object, Object> streamOperations = redisTemplate.opsForStream();
+            StreamInfo.XInfoConsumers consumers = streamOperations.consumers(stream, consumerGroup);
+            for (StreamInfo.XInfoConsumer consumer : consumers) {
+                String name = consumer.consumerName();
+                if (name.equals(consumerIdentity.getConsumerName())
+                        || consumer.idleTimeMs() < deadIdleMillis
+                        || consumerIdentity.isAlive(name)) {
+                    continue;
+                }
+                cleanupConsumer(streamOperations, stream, name, consumer.pendingCount(), consumer.idleTimeMs());
+            }
+        } catch (Exception e) {
+            log.error("清理Stream [{}] 消费组 [{}] 的失效消费者失败: {}", stream, consumerGroup, e.getMessage(), e);
+        }
+    }
+
+    private void cleanupConsumer(StreamOperations<String, Object, Object> streamOperations, String stream,
+                                 String name, long pendingCount, long idleMillis) {
+        log.info("发现Stream [{}] 上的失效消费者 [{}] - 空闲: {}ms, 挂起消息: {} 条，开始转移给 [{}]",
+                stream, name, idleMillis, pendingCount, consumerIdentity.getConsumerName());
+        Consumer deadConsumer = Consumer.from(consumerGroup, name);
+        Duration minIdle = Duration.ofMillis(deadIdleMillis);
+
+        int claimedTotal = 0;
+        while (true) {
+            PendingMessages pendingMessages = streamOperations.pending(stream, deadConsumer, Range.unbounded(), batchSize);
+            if (pendingMessages == null || pendingMessages.isEmpty()) {
+                break;
+            }
+            List<PendingMessage> batch = new ArrayList<>(pendingMessages.size());
+            pendingMessages.forEach(batch::add);
+            // 最小空闲时间保证多个实例同时清理时，同一条消息只会被认领一次；
+            // 与定期回收共用认领逻辑：本实例处理通道中的消息不认领，只按实际处理失败次数移入死信
+            int claimed = pendingMessageReclaimer.claimAndProcess(stream, batch, minIdle);
+            if (claimed == 0) {
+                log.warn("失效消费者 [{}] 的挂起消息未能认领（可能已被其他实例接管），暂不删除", name);
+                return;
+            }
+            claimedTotal += claimed;
+        }
+
+        Boolean deleted = streamOperations.deleteConsumer(stream, deadConsumer);
+        log.info("已删除Stream [{}] 上的失效消费者 [{}] - 转移挂起消息 {} 条, 删除结果: {}", stream, name, claimedTotal, deleted);
+    }
+}
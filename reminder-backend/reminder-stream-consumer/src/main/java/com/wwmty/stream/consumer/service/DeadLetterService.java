@@ -0,0 +1,312 @@
+package com.wwmty.stream.consumer.service;
+
+import com.common.reminder.event.StreamEventCodecs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisZSetCommands.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 死信服务
+ *
+ * 处理失败次数达到上限的消息从主Stream移到死信Stream，附带原消息ID、失败次数、最后一次错误等元数据，
+ * 然后ACK原消息，不再重试。死信可以按命令类型分批、限速重放回原Stream，避免故障恢复后一次性压垮数据库。
+ */
+@Slf4j
+@Service
+public class DeadLetterService {
+
+    /**
+     * 死信元数据字段前缀，重放时去掉
+     */
+    private static final String META_PREFIX = "dlq.";
+
+    /**
+     * 消息最后一次处理错误的Redis key前缀
+     */
+    private static final String ERROR_KEY_PREFIX = "reminder:stream:error:";
+
+    /**
+     * 消息处理失败次数的Redis key前缀
+     * XPENDING的投递次数包含回收认领本身和处理中实例退出的情况，是否移入死信只看处理器实际失败的次数
+     */
+    private static final String FAILURE_COUNT_KEY_PREFIX = "reminder:stream:failures:";
+
+    private static final long ERROR_EXPIRE_DAYS = 7;
+
+    @Value("${reminder.stream.key:complex-reminder-stream}")
+    private String streamKey;
+
+    @Value("${reminder.stream.group:complex-reminder-group}")
+    private String consumerGroup;
+
+    @Value("${reminder.stream.dead-letter.key:complex-reminder-stream-dlq}")
+    private String deadLetterKey;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ConsumerIdentity consumerIdentity;
+
+    /**
+     * 同一时间只允许一个重放任务
+     */
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+
+    private volatile Map<String, Object> lastReplayStatus = Collections.emptyMap();
+
+    private volatile Thread replayThread;
+
+    /**
+     * 记录消息的一次处理失败：失败次数加一，并保存最后一次错误信息，移入死信时一并保存
+     *
+     * @param messageId 消息ID
+     * @param e 处理异常
+     */
+    public void recordFailure(String messageId, Exception e) {
+        try {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            redisTemplate.opsForValue().set(ERROR_KEY_PREFIX + messageId, error, ERROR_EXPIRE_DAYS, TimeUnit.DAYS);
+            String failureKey = FAILURE_COUNT_KEY_PREFIX + messageId;
+            redisTemplate.opsForValue().increment(failureKey);
+            redisTemplate.expire(failureKey, ERROR_EXPIRE_DAYS, TimeUnit.DAYS);
+        } catch (Exception ex) {
+            log.warn("记录消息 id {} 的错误信息失败: {}", messageId, ex.getMessage());
+        }
+    }
+
+    /**
+     * 批量查询消息的处理失败次数
+     *
+     * @param messageIds 消息ID
+     * @return 消息ID -> 失败次数，没有失败记录的消息不在其中
+     */
+    public Map<String, Long> getFailureCounts(List<String> messageIds) {
+        Map<String, Long> failureCounts = new HashMap<>();
+        if (messageIds.isEmpty()) {
+            return failureCounts;
+        }
+        List<String> keys = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            keys.add(FAILURE_COUNT_KEY_PREFIX + messageId);
+        }
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return failureCounts;
+        }
+        for (int i = 0; i < messageIds.size() && i < values.size(); i++) {
+            if (values.get(i) != null) {
+                failureCounts.put(messageIds.get(i), Long.parseLong(values.get(i)));
+            }
+        }
+        return failureCounts;
+    }
+
+    /**
+     * 将消息移入死信Stream并ACK原消息
+     * 调用方需先通过XCLAIM取得消息所有权，保证同一条消息只被一个实例移入死信
+     *
+     * @param record 原消息（字段值保持原样）
+     * @param failureCount 处理失败次数
+     */
+    public void deadLetter(MapRecord<String, String, String> record, long failureCount) {
+        String messageId = record.getId().getValue();
+        String errorKey = ERROR_KEY_PREFIX + messageId;
+
+        Map<String, String> value = new HashMap<>(record.getValue());
+        value.put(META_PREFIX + "originalId", messageId);
+        value.put(META_PREFIX + "stream", record.getStream());
+        value.put(META_PREFIX + "failureCount", String.valueOf(failureCount));
+        value.put(META_PREFIX + "consumer", consumerIdentity.getConsumerName());
+        value.put(META_PREFIX + "deadLetteredAt", OffsetDateTime.now().toString());
+        String error = redisTemplate.opsForValue().get(errorKey);
+        if (error != null) {
+            value.put(META_PREFIX + "error", error);
+        }
+
+        RecordId deadLetterId = redisTemplate.opsForStream().add(deadLetterKey, value);
+        redisTemplate.opsForStream().acknowledge(record.getStream(), consumerGroup, record.getId());
+        redisTemplate.delete(Arrays.asList(errorKey, FAILURE_COUNT_KEY_PREFIX + messageId));
+        log.warn("消息 id {} 处理失败 {} 次，已移入死信Stream [{}] - 死信ID: {}, 命令: {}, 错误: {}",
+                messageId, failureCount, deadLetterKey, deadLetterId, commandOf(record.getValue()), error);
+    }
+
+    /**
+     * 查看死信
+     *
+     * @param command 命令类型过滤，为空时不过滤
+     * @param count 最多返回的条数
+     * @return 死信列表（最早的在前）
+     */
+    public List<Map<String, Object>> listDeadLetters(String command, int count) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        String cursor = null;
+        while (result.size() < count) {
+            List<MapRecord<String, Object, Object>> page = readPage(cursor, Math.max(count, 100));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (MapRecord<String, Object, Object> record : page) {
+                cursor = record.getId().getValue();
+                if (matchesCommand(record, command) && result.size() < count) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("id", cursor);
+                    item.put("data", record.getValue());
+                    result.add(item);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在后台线程中把死信分批重放回原Stream，重放成功的死信从死信Stream删除
+     *
+     * @param command 命令类型过滤，为空时重放所有类型
+     * @param limit 最多重放的条数
+     * @param batchSize 每批条数
+     * @param pauseMillis 每批之间的暂停时间（毫秒）
+     * @return 是否成功启动；已有重放任务在执行时返回false
+     */
+    public boolean startReplay(String command, int limit, int batchSize, long pauseMillis) {
+        if (!replaying.compareAndSet(false, true)) {
+            return false;
+        }
+        Map<String, Object> status = Collections.synchronizedMap(new LinkedHashMap<>());
+        status.put("running", true);
+        status.put("command", command);
+        status.put("limit", limit);
+        status.put("replayed", 0);
+        status.put("startedAt", OffsetDateTime.now().toString());
+        lastReplayStatus = status;
+
+        replayThread = new Thread(() -> {
+            try {
+                replay(command, limit, batchSize, pauseMillis, status);
+            } catch (Exception e) {
+                log.error("重放死信失败: {}", e.getMessage(), e);
+                status.put("error", e.getMessage());
+            } finally {
+                status.put("running", false);
+                status.put("finishedAt", OffsetDateTime.now().toString());
+                replaying.set(false);
+            }
+        }, "dead-letter-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+        return true;
+    }
+
+    /**
+     * 获取最近一次重放任务的状态
+     */
+    public Map<String, Object> getReplayStatus() {
+        return lastReplayStatus;
+    }
+
+    @PreDestroy
+    public void stopReplay() {
+        Thread thread = replayThread;
+        if (thread != null && thread.isAlive()) {
+            thread.interrupt();
+        }
+    }
+
+    private void replay(String command, int limit, int batchSize, long pauseMillis, Map<String, Object> status)
+            throws InterruptedException {
+        StreamOperations<String, Object, Object> streamOperations = redisTemplate.opsForStream();
+        int replayed = 0;
+        String cursor = null;
+        log.info("开始重放死信 - 命令: {}, 上限: {}, 每批: {}, 间隔: {}ms", command, limit, batchSize, pauseMillis);
+
+        while (replayed < limit) {
+            List<MapRecord<String, Object, Object>> page = readPage(cursor, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            cursor = page.get(page.size() - 1).getId().getValue();
+
+            List<RecordId> replayedIds = new ArrayList<>();
+            for (MapRecord<String, Object, Object> record : page) {
+                if (replayed >= limit) {
+                    break;
+                }
+                if (!matchesCommand(record, command)) {
+                    continue;
+                }
+                Map<String, String> value = new HashMap<>();
+                record.getValue().forEach((field, fieldValue) -> {
+                    String key = String.valueOf(field);
+                    if (!key.startsWith(META_PREFIX)) {
+                        value.put(key, String.valueOf(fieldValue));
+                    }
+                });
+                // 重放回消息原来所在的Stream，早期死信没有记录来源时回到复杂提醒事件Stream
+                Object originalStream = record.getValue().get(META_PREFIX + "stream");
+                streamOperations.add(originalStream != null ? String.valueOf(originalStream) : streamKey, value);
+                replayedIds.add(record.getId());
+                replayed++;
+            }
+
+            if (!replayedIds.isEmpty()) {
+                streamOperations.delete(deadLetterKey, replayedIds.toArray(new RecordId[0]));
+                status.put("replayed", replayed);
+                log.info("已重放死信 {} 条", replayed);
+                Thread.sleep(pauseMillis);
+            }
+        }
+        log.info("死信重放完成 - 命令: {}, 共重放 {} 条", command, replayed);
+    }
+
+    /**
+     * 从游标之后读取一页死信，游标为空时从头读取
+     */
+    private List<MapRecord<String, Object, Object>> readPage(String afterId, int count) {
+        Range<String> range = afterId == null
+                ? Range.unbounded()
+                : Range.of(Range.Bound.exclusive(afterId), Range.Bound.unbounded());
+        List<MapRecord<String, Object, Object>> page = redisTemplate.opsForStream()
+                .range(deadLetterKey, range, Limit.limit().count(count));
+        return page == null ? new ArrayList<>() : page;
+    }
+
+    private boolean matchesCommand(MapRecord<String, Object, Object> record, String command) {
+        if (!StringUtils.hasText(command)) {
+            return true;
+        }
+        Map<String, String> fields = new HashMap<>();
+        record.getValue().forEach((field, value) -> fields.put(String.valueOf(field), String.valueOf(value)));
+        return command.equals(commandOf(fields));
+    }
+
+    /**
+     * 获取原消息的命令，兼容紧凑编码和旧格式，无法解码时返回null
+     */
+    private String commandOf(Map<String, String> fields) {
+        try {
+            return StreamEventCodecs.command(fields);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
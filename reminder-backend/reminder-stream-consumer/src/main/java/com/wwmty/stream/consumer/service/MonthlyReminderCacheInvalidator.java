@@ -0,0 +1,89 @@
+package com.wwmty.stream.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 月度提醒缓存失效
+ *
+ * core模块的月度提醒缓存键和ETag由用户纪元和月份版本号组成（见core的CacheKeyEnum.USER_MONTHLY_EPOCH）。
+ * 本服务生成或同步简单任务后，在事务提交后递增接收用户的纪元，
+ * 使core不再返回生成前缓存的月度数据，客户端持有的旧ETag也随之失效。
+ */
+@Slf4j
+@Component
+public class MonthlyReminderCacheInvalidator {
+
+    /**
+     * 用户月度提醒纪元key前缀，与core模块CacheKeyEnum.USER_MONTHLY_EPOCH一致
+     */
+    private static final String USER_MONTHLY_EPOCH_KEY_PREFIX = "user:reminders:monthly:epoch:";
+
+    /**
+     * 纪元key的过期时间，与core模块一致（每次递增时续期）
+     */
+    private static final long EPOCH_EXPIRE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * 版本号加一并续期，不存在时先以当前毫秒数初始化，与core模块CacheUtils的递增脚本相同
+     * KEYS[1]: 版本号键, ARGV[1]: 当前毫秒数, ARGV[2]: 版本号过期时间（毫秒）
+     */
+    private static final RedisScript<Long> BUMP_VERSION_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], ARGV[1]) end "
+                    + "local v = redis.call('INCR', KEYS[1]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "return v",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    /**
+     * 在当前事务提交后使用户所有月份的月度提醒缓存失效，没有事务时立即执行
+     * 事务回滚时数据没有变化，不需要失效
+     *
+     * @param userIds 接收提醒的用户ID
+     */
+    public void invalidateAfterCommit(Collection<Long> userIds) {
+        Set<Long> distinctUserIds = new LinkedHashSet<>(userIds);
+        distinctUserIds.remove(null);
+        if (distinctUserIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(distinctUserIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(distinctUserIds);
+            }
+        });
+    }
+
+    private void invalidate(Set<Long> userIds) {
+        for (Long userId : userIds) {
+            String epochKey = USER_MONTHLY_EPOCH_KEY_PREFIX + userId;
+            try {
+                redisTemplate.execute(BUMP_VERSION_SCRIPT, Collections.singletonList(epochKey),
+                        String.valueOf(System.currentTimeMillis()), String.valueOf(EPOCH_EXPIRE_MILLIS));
+                log.debug("用户[{}] 月度提醒纪元已递增", userId);
+            } catch (Exception e) {
+                log.error("递增用户[{}] 月度提醒纪元失败", userId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.wwmty.stream.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 消费组挂起消息回收任务
+ *
+ * 消息只在处理成功后ACK，处理失败或消费者进程在处理中退出时，消息会一直留在消费组的PEL中。
+ * 本任务定期通过XPENDING扫描复杂提醒事件Stream和活动日志Stream上空闲时间超过阈值的挂起消息，
+ * 用XCLAIM转移给当前消费者并重新处理。
+ * XCLAIM带最小空闲时间，多个实例同时回收同一条消息时只有一个能认领成功。
+ * 仍在本实例处理通道中排队或处理的消息不认领，避免XCLAIM抬高投递次数、同一条消息被重复处理。
+ * 其他心跳仍存活的消费者的挂起消息也不认领：它们可能还在该实例的处理通道中排队，
+ * 认领后两个实例会同时处理同一个复杂提醒；存活实例处理失败的消息由它自己回收，
+ * 心跳过期的消费者的挂起消息由DeadConsumerJanitor转移。
+ * 处理失败次数达到上限的消息认领后不再处理，移入死信Stream；投递次数不作为依据，
+ * 它也计入了回收认领本身和处理中实例退出的情况。
+ */
+@Slf4j
+@Component
+public class PendingMessageReclaimer {
+
+    @Value("${reminder.stream.key:complex-reminder-stream}")
+    private String streamKey;
+
+    @Value("${reminder.activity-log.stream-key:activity-log-stream}")
+    private String activityLogStreamKey;
+
+    @Value("${reminder.stream.group:complex-reminder-group}")
+    private String consumerGroup;
+
+    /**
+     * 消息最小空闲时间（毫秒），超过该时间仍未ACK的消息视为卡住，需大于单条消息的正常处理耗时
+     */
+    @Value("${reminder.stream.reclaim.min-idle-ms:60000}")
+    private long minIdleMs;
+
+    /**
+     * 每次扫描的挂起消息数量上限
+     */
+    @Value("${reminder.stream.reclaim.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 最大处理失败次数，达到后移入死信
+     */
+    @Value("${reminder.stream.dead-letter.max-failures:5}")
+    private long maxFailures;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    @Autowired
+    private ConsumerIdentity consumerIdentity;
+
+    @Autowired
+    private StreamConsumerService streamConsumerService;
+
+    /**
+     * 回收空闲超时的挂起消息并重新提交处理
+     */
+    @Scheduled(fixedDelayString = "${reminder.stream.reclaim.interval-ms:30000}",
+            initialDelayString = "${reminder.stream.reclaim.initial-delay-ms:10000}")
+    public void reclaimPendingMessages() {
+        reclaimPendingMessages(streamKey);
+        reclaimPendingMessages(activityLogStreamKey);
+    }
+
+    private void reclaimPendingMessages(String stream) {
+        try {
+            StreamOperations<String, Object, Object> streamOperations = redisTemplate.opsForStream();
+            PendingMessages pendingMessages = streamOperations.pending(stream, consumerGroup, Range.unbounded(), batchSize);
+            if (pendingMessages == null || pendingMessages.isEmpty()) {
+                return;
+            }
+
+            List<PendingMessage> idleMessages = new ArrayList<>();
+            Set<String> liveConsumers = new HashSet<>();
+            Set<String> deadConsumers = new HashSet<>();
+            for (PendingMessage pendingMessage : pendingMessages) {
+                if (pendingMessage.getElapsedTimeSinceLastDelivery().toMillis() >= minIdleMs
+                        && !isOwnedByLivePeer(pendingMessage.getConsumerName(), liveConsumers, deadConsumers)) {
+                    idleMessages.add(pendingMessage);
+                }
+            }
+            if (idleMessages.isEmpty()) {
+                return;
+            }
+
+            int claimed = claimAndProcess(stream, idleMessages, Duration.ofMillis(minIdleMs));
+            if (claimed > 0) {
+                log.info("从Stream [{}] 消费组 [{}] 回收挂起消息 {} 条（扫描 {} 条，空闲超时 {} 条），转移给消费者 [{}]",
+                        stream, consumerGroup, claimed, pendingMessages.size(), idleMessages.size(),
+                        consumerIdentity.getConsumerName());
+            }
+        } catch (Exception e) {
+            log.error("回收Stream [{}] 消费组 [{}] 挂起消息失败: {}", stream, consumerGroup, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 判断挂起消息是否属于心跳仍存活的其他消费者，同一次扫描内每个消费者只检查一次心跳
+     */
+    private boolean isOwnedByLivePeer(String owner, Set<String> liveConsumers, Set<String> deadConsumers) {
+        if (owner.equals(consumerIdentity.getConsumerName()) || deadConsumers.contains(owner)) {
+            return false;
+        }
+        if (liveConsumers.contains(owner)) {
+            return true;
+        }
+        if (consumerIdentity.isAlive(owner)) {
+            liveConsumers.add(owner);
+            return true;
+        }
+        deadConsumers.add(owner);
+        return false;
+    }
+
+    /**
+     * 用XCLAIM把挂起消息转移给当前消费者，失败次数达到上限的移入死信，其余重新提交处理
+     * 仍在本实例处理通道中的消息先过滤掉，不参与认领
+     *
+     * @param stream 挂起消息所在的Stream
+     * @param pendingMessages 要认领的挂起消息
+     * @param minIdle 最小空闲时间，期间被其他消费者认领或重新投递过的消息不会被认领
+     * @return 认领成功的消息数
+     */
+    public int claimAndProcess(String stream, List<PendingMessage> pendingMessages, Duration minIdle) {
+        List<RecordId> messageIds = new ArrayList<>(pendingMessages.size());
+        List<String> messageIdValues = new ArrayList<>(pendingMessages.size());
+        for (PendingMessage pendingMessage : pendingMessages) {
+            if (streamConsumerService.isInFlight(pendingMessage.getIdAsString())) {
+                continue;
+            }
+            messageIds.add(pendingMessage.getId());
+            messageIdValues.add(pendingMessage.getIdAsString());
+        }
+        if (messageIds.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Long> exhaustedFailureCounts = new HashMap<>();
+        deadLetterService.getFailureCounts(messageIdValues).forEach((messageId, failureCount) -> {
+            if (failureCount >= maxFailures) {
+                exhaustedFailureCounts.put(messageId, failureCount);
+            }
+        });
+
+        StreamOperations<String, Object, Object> streamOperations = redisTemplate.opsForStream();
+        List<MapRecord<String, Object, Object>> claimedRecords = streamOperations.claim(stream, consumerGroup,
+                consumerIdentity.getConsumerName(), minIdle, messageIds.toArray(new RecordId[0]));
+        if (claimedRecords == null || claimedRecords.isEmpty()) {
+            return 0;
+        }
+
+        List<MapRecord<String, String, String>> records = new ArrayList<>(claimedRecords.size());
+        for (MapRecord<String, Object, Object> claimedRecord : claimedRecords) {
+            MapRecord<String, String, String> record = StreamConsumerService.toStringRecord(claimedRecord);
+            Long failureCount = exhaustedFailureCounts.get(record.getId().getValue());
+            if (failureCount == null) {
+                records.add(record);
+                continue;
+            }
+            try {
+                deadLetterService.deadLetter(record, failureCount);
+            } catch (Exception e) {
+                log.error("消息 id {} 移入死信失败，下次回收时重试: {}", record.getId(), e.getMessage(), e);
+            }
+        }
+        if (!records.isEmpty()) {
+            streamConsumerService.handleStreamBatch(records);
+        }
+        return claimedRecords.size();
+    }
+}
@@ -1,19 +1,29 @@
 package com.wwmty.stream.consumer.service;
 
+import com.common.reminder.event.StreamEventCodecs;
+import com.wwmty.stream.consumer.handler.BatchStreamEventHandler;
+import com.wwmty.stream.consumer.handler.BufferedStreamEventHandler;
 import com.wwmty.stream.consumer.handler.StreamEventHandler;
 import com.wwmty.stream.consumer.handler.StreamEventHandlerFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.*;
 
 @Slf4j
@@ -21,106 +31,163 @@ import java.util.concurrent.*;
 public class StreamConsumerService {
 
     private final StreamEventHandlerFactory handlerFactory;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final DeadLetterService deadLetterService;
+
+    @Value("${reminder.stream.group:complex-reminder-group}")
+    private String consumerGroup;
     
-    // 线程池配置
-    @Value("${reminder.stream.thread-pool.core-size:5}")
-    private int corePoolSize;
-    
-    @Value("${reminder.stream.thread-pool.max-size:20}")
-    private int maxPoolSize;
-    
-    @Value("${reminder.stream.thread-pool.queue-capacity:100}")
-    private int queueCapacity;
-    
-    @Value("${reminder.stream.thread-pool.keep-alive-seconds:60}")
-    private int keepAliveSeconds;
-    
-    private ThreadPoolExecutor threadPoolExecutor;
+    /**
+     * 事件聚合键字段，按优先级依次取值：同一复杂提醒的事件严格有序，其次同一用户的事件有序
+     */
+    private static final String[] AGGREGATE_KEY_FIELDS = {"complexReminderId", "userId"};
+
+    // 处理通道配置
+    @Value("${reminder.stream.lanes.count:8}")
+    private int laneCount;
+
+    @Value("${reminder.stream.lanes.queue-capacity:50}")
+    private int laneQueueCapacity;
+
+    /**
+     * 处理通道：每个通道一个线程，按提交顺序执行；同一聚合键的事件总是进入同一通道
+     * 顺序只在本实例内成立，多个实例之间由处理器的模板行锁互斥（见ConsumerIdentity）
+     */
+    private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+
+    /**
+     * 已提交到线程池但尚未处理完成的消息ID，避免同一条消息被重新认领后重复提交
+     */
+    private final Set<String> inFlightMessageIds = ConcurrentHashMap.newKeySet();
 
     @Autowired
-    public StreamConsumerService(StreamEventHandlerFactory handlerFactory) {
+    public StreamConsumerService(StreamEventHandlerFactory handlerFactory, StringRedisTemplate redisTemplate,
+                                 DeadLetterService deadLetterService) {
         this.handlerFactory = handlerFactory;
+        this.redisTemplate = redisTemplate;
+        this.deadLetterService = deadLetterService;
     }
     
     @PostConstruct
-    public void initThreadPool() {
-        threadPoolExecutor = new ThreadPoolExecutor(
-            corePoolSize,
-            maxPoolSize,
-            keepAliveSeconds,
-            TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(queueCapacity),
-            new ThreadFactory() {
-                private int counter = 0;
-                @Override
-                public Thread newThread(Runnable r) {
-                    Thread thread = new Thread(r, "stream-consumer-" + (++counter));
+    public void initLanes() {
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = "stream-consumer-lane-" + i;
+            lanes.add(new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(laneQueueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, threadName);
                     thread.setDaemon(false);
                     return thread;
+                },
+                // 通道队列满时阻塞提交线程（拉取线程），形成对XREADGROUP的背压；不能由调用线程执行，否则会打乱通道内顺序
+                (r, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("处理通道已关闭");
+                    }
+                    try {
+                        executor.getQueue().put(r);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("等待处理通道空闲时被中断", e);
+                    }
                 }
-            },
-            new ThreadPoolExecutor.CallerRunsPolicy() // 队列满时由调用线程执行
-        );
-        
-        log.info("Stream消费者线程池初始化完成 - 核心线程数: {}, 最大线程数: {}, 队列容量: {}", 
-                corePoolSize, maxPoolSize, queueCapacity);
+            ));
+        }
+
+        log.info("Stream消费者处理通道初始化完成 - 通道数: {}, 单通道队列容量: {}", laneCount, laneQueueCapacity);
     }
     
     @PreDestroy
-    public void destroyThreadPool() {
-        if (threadPoolExecutor != null) {
-            log.info("正在关闭Stream消费者线程池...");
-            threadPoolExecutor.shutdown();
-            try {
-                if (!threadPoolExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
-                    log.warn("线程池未能在30秒内正常关闭，强制关闭");
-                    threadPoolExecutor.shutdownNow();
+    public void destroyLanes() {
+        log.info("正在关闭Stream消费者处理通道...");
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            for (ThreadPoolExecutor lane : lanes) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !lane.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                    log.warn("处理通道未能在30秒内正常关闭，强制关闭");
+                    lanes.forEach(ThreadPoolExecutor::shutdownNow);
+                    break;
                 }
-            } catch (InterruptedException e) {
-                log.error("等待线程池关闭时被中断", e);
-                threadPoolExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
             }
-            log.info("Stream消费者线程池已关闭");
+        } catch (InterruptedException e) {
+            log.error("等待处理通道关闭时被中断", e);
+            lanes.forEach(ThreadPoolExecutor::shutdownNow);
+            Thread.currentThread().interrupt();
         }
+        log.info("Stream消费者处理通道已关闭");
     }
 
     /**
      * Receives a stream message, extracts the command, and delegates to the appropriate handler.
      * The @Transactional annotation has been moved to the specific handlers that need it.
-     * 使用线程池异步处理消息，提高并发处理能力。
-     * @param record The message record from Redis Stream.
+     * 按聚合键路由到处理通道异步处理：同一复杂提醒的事件按顺序处理，不同复杂提醒的事件并行处理。
+     * 消息只在处理器成功返回后才ACK，处理失败的消息留在消费组的PEL中，由PendingMessageReclaimer重新认领。
+     * @param rawRecord The message record from Redis Stream.
      */
-    public void handleStreamEvent(MapRecord<String, String, String> record) {
-        log.info("Received message from stream [{}]: {}", record.getStream(), record.getValue());
+    public void handleStreamEvent(MapRecord<String, String, String> rawRecord) {
+        MapRecord<String, String, String> record = decodeRecord(rawRecord);
+
+        String messageId = record.getId().getValue();
+        // 负载可能包含提醒内容，只记录消息ID和命令
+        log.debug("收到Stream [{}] 消息 id {}，命令: {}", record.getStream(), messageId, record.getValue().get("command"));
+        if (!inFlightMessageIds.add(messageId)) {
+            log.debug("消息 id {} 正在处理中，忽略重复提交", messageId);
+            return;
+        }
 
-        // 提交到线程池异步处理
-        threadPoolExecutor.submit(() -> {
+        // 提交到聚合键对应的处理通道
+        laneFor(record).execute(() -> {
             try {
-                processStreamEvent(record);
+                if (processStreamEvent(record)) {
+                    acknowledge(record);
+                }
             } catch (Exception e) {
                 log.error("处理Stream事件时发生未预期的异常 - 消息ID: {}", record.getId(), e);
+            } finally {
+                inFlightMessageIds.remove(messageId);
             }
         });
     }
+
+    /**
+     * 向消费组确认消息已处理，确认后消息从PEL中移除
+     * @param record The message record from Redis Stream.
+     */
+    private void acknowledge(MapRecord<String, String, String> record) {
+        try {
+            redisTemplate.opsForStream().acknowledge(consumerGroup, record);
+        } catch (Exception e) {
+            // ACK失败时消息仍在PEL中，之后会被重新认领并再次处理，处理器需保证幂等
+            log.error("确认消息 id {} 失败: {}", record.getId(), e.getMessage(), e);
+        }
+    }
     
     /**
      * 实际处理Stream事件的逻辑
      * @param record The message record from Redis Stream.
+     * @return 消息是否可以ACK：处理成功，或消息本身无法处理（缺少command、未知命令）时返回true；
+     *         处理器抛出异常，或消息已交给缓冲写入的处理器（由处理器写库后自己ACK）时返回false
      */
-    private void processStreamEvent(MapRecord<String, String, String> record) {
-        // 清理所有字段的序列化问题
-        Map<String, String> cleanedData = cleanSerializationIssues(record.getValue());
-        
-        String command = cleanedData.get("command");
+    private boolean processStreamEvent(MapRecord<String, String, String> record) {
+        Map<String, String> eventData = record.getValue();
+        String command = eventData.get("command");
 
         if (!StringUtils.hasText(command)) {
-            log.error("消息 id {} 中的 command 字段缺失或为空。无法处理。 原始负载: {} 清理后负载: {}", 
-                    record.getId(), record.getValue(), cleanedData);
-            return;
+            log.error("消息 id {} 中的 command 字段缺失或为空。无法处理。 字段: {}", record.getId(), eventData.keySet());
+            return true;
         }
         
-        log.debug("处理命令: [{}] (清理后)", command);
+        log.debug("处理命令: [{}]", command);
 
         Optional<StreamEventHandler> handlerOptional = handlerFactory.getHandler(command);
         if (handlerOptional.isPresent()) {
@@ -128,63 +195,296 @@ public class StreamConsumerService {
             try {
                 log.info("发现命令 [{}] 的处理器。正在处理消息 id {} [线程: {}]", 
                         command, record.getId(), Thread.currentThread().getName());
-                handler.handle(cleanedData, record.getId().getValue());
+                handler.handle(eventData, record.getId().getValue(), record.getStream());
                 log.info("使用命令 [{}] 的处理器成功处理了消息 id {} [线程: {}]", 
                         command, record.getId(), Thread.currentThread().getName());
+                return !(handler instanceof BufferedStreamEventHandler);
             } catch (Exception e) {
                 log.error("命令 [{}] 的处理器在处理消息 id {} 时失败 [线程: {}]: {}", 
                         command, record.getId(), Thread.currentThread().getName(), e.getMessage(), e);
-                // 处理失败消息的逻辑，例如，发送到死信队列。
+                // 不ACK，消息留在PEL中等待重新认领，处理失败次数达到上限后移入死信
+                deadLetterService.recordFailure(record.getId().getValue(), e);
+                return false;
             }
         } else {
             log.warn("未找到命令 [{}] 的处理器，消息 id {} [线程: {}]。已忽略。", 
                     command, record.getId(), Thread.currentThread().getName());
             // 处理未知命令的逻辑。
+            return true;
         }
     }
     
     /**
-     * 获取线程池状态信息，用于监控
-     * @return 线程池状态信息
+     * 批量接收Stream消息，按聚合键拆分到各处理通道，每个通道收到的子批次保持原有消息顺序。
+     * 子批次内只把连续的同一命令事件分为一组：可合并的事件只保留最后一条，支持批量处理的处理器在一个事务内处理整组事件。
+     * 通道队列已满时本方法阻塞，直到通道有空闲位置。
+     * @param records 一次XREADGROUP读取到的消息
      */
-    public String getThreadPoolStatus() {
-        if (threadPoolExecutor == null) {
-            return "线程池未初始化";
+    public void handleStreamBatch(List<MapRecord<String, String, String>> records) {
+        List<MapRecord<String, String, String>> accepted = new ArrayList<>(records.size());
+        for (MapRecord<String, String, String> record : records) {
+            if (inFlightMessageIds.add(record.getId().getValue())) {
+                accepted.add(decodeRecord(record));
+            } else {
+                log.debug("消息 id {} 正在处理中，忽略重复提交", record.getId());
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        log.info("Received {} messages from stream [{}]", accepted.size(), accepted.get(0).getStream());
+
+        Map<ThreadPoolExecutor, List<MapRecord<String, String, String>>> recordsByLane = new LinkedHashMap<>();
+        for (MapRecord<String, String, String> record : accepted) {
+            recordsByLane.computeIfAbsent(laneFor(record), lane -> new ArrayList<>()).add(record);
+        }
+
+        for (Map.Entry<ThreadPoolExecutor, List<MapRecord<String, String, String>>> entry : recordsByLane.entrySet()) {
+            List<MapRecord<String, String, String>> laneRecords = entry.getValue();
+            entry.getKey().execute(() -> {
+                try {
+                    processStreamBatch(laneRecords);
+                } catch (Exception e) {
+                    log.error("批量处理Stream事件时发生未预期的异常 - 消息数: {}", laneRecords.size(), e);
+                } finally {
+                    for (MapRecord<String, String, String> record : laneRecords) {
+                        inFlightMessageIds.remove(record.getId().getValue());
+                    }
+                }
+            });
         }
-        
-        return String.format("线程池状态 - 活跃线程: %d, 核心线程: %d, 最大线程: %d, 队列大小: %d, 已完成任务: %d",
-                threadPoolExecutor.getActiveCount(),
-                threadPoolExecutor.getCorePoolSize(),
-                threadPoolExecutor.getMaximumPoolSize(),
-                threadPoolExecutor.getQueue().size(),
-                threadPoolExecutor.getCompletedTaskCount());
     }
-    
+
+    /**
+     * 根据事件聚合键选择处理通道，没有聚合键的事件按消息ID分散到各通道
+     * @param record The message record from Redis Stream.
+     * @return 处理通道
+     */
+    private ThreadPoolExecutor laneFor(MapRecord<String, String, String> record) {
+        String aggregateKey = record.getId().getValue();
+        for (String field : AGGREGATE_KEY_FIELDS) {
+            String value = record.getValue().get(field);
+            if (StringUtils.hasText(value)) {
+                aggregateKey = field + ":" + value;
+                break;
+            }
+        }
+        return lanes.get(Math.floorMod(aggregateKey.hashCode(), lanes.size()));
+    }
+
     /**
-     * 清理Redis序列化问题，移除多余的双引号
-     * @param originalData 原始数据
-     * @return 清理后的数据
+     * 批量处理的实际逻辑：按消息顺序把连续的同一命令事件分为一组并合并，命令变化时先处理完前一组再继续，
+     * 每组处理完立即ACK。同一通道内同一聚合键的事件因此严格按发布顺序处理，例如先更新再删除不会被颠倒
+     * @param records 同一个Stream的一批消息
      */
-    private Map<String, String> cleanSerializationIssues(Map<String, String> originalData) {
-        Map<String, String> cleanedData = new HashMap<>();
-        
-        for (Map.Entry<String, String> entry : originalData.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            
-            // 清理值中的多余引号
-            if (value != null) {
-                value = value.trim();
-                // 移除前后的双引号（如果存在）
-                while (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1) {
-                    value = value.substring(1, value.length() - 1);
+    private void processStreamBatch(List<MapRecord<String, String, String>> records) {
+        String stream = records.get(0).getStream();
+        List<RecordId> skippedIds = new ArrayList<>();
+        String currentCommand = null;
+        CommandGroup currentGroup = null;
+
+        for (MapRecord<String, String, String> record : records) {
+            Map<String, String> eventData = record.getValue();
+            String command = eventData.get("command");
+            Optional<StreamEventHandler> handlerOptional = StringUtils.hasText(command)
+                    ? handlerFactory.getHandler(command) : Optional.empty();
+            if (!handlerOptional.isPresent()) {
+                log.warn("消息 id {} 的命令 [{}] 缺失或没有对应处理器，已忽略。字段: {}",
+                        record.getId(), command, eventData.keySet());
+                skippedIds.add(record.getId());
+                continue;
+            }
+
+            if (!command.equals(currentCommand)) {
+                if (currentGroup != null) {
+                    acknowledge(stream, processCommandGroup(stream, currentCommand, currentGroup));
                 }
+                currentCommand = command;
+                currentGroup = new CommandGroup(handlerOptional.get());
+            }
+            RecordId superseded = currentGroup.add(record.getId(), eventData);
+            if (superseded != null) {
+                log.debug("命令 [{}] 的消息 id {} 被同批次的消息 id {} 覆盖", command, superseded, record.getId());
+                skippedIds.add(superseded);
             }
-            
-            cleanedData.put(key, value);
         }
-        
-        log.debug("清理序列化问题 - 原始: {} -> 清理后: {}", originalData, cleanedData);
-        return cleanedData;
+        if (currentGroup != null) {
+            acknowledge(stream, processCommandGroup(stream, currentCommand, currentGroup));
+        }
+
+        if (!skippedIds.isEmpty()) {
+            log.info("批次内 {} 条消息无需处理（已合并或无法处理），直接确认", skippedIds.size());
+            acknowledge(stream, skippedIds);
+        }
+    }
+
+    /**
+     * 处理同一命令的一组事件。批量处理失败时整批回滚，再逐条处理，使单条坏消息不影响同组其他消息
+     * @return 处理成功、可以ACK的消息ID（缓冲写入的处理器自己ACK，不在其中）
+     */
+    private List<RecordId> processCommandGroup(String stream, String command, CommandGroup group) {
+        StreamEventHandler handler = group.handler;
+        if (handler instanceof BatchStreamEventHandler && group.events.size() > 1) {
+            try {
+                ((BatchStreamEventHandler) handler).handleBatch(group.events);
+                log.info("命令 [{}] 批量处理 {} 条消息成功 [线程: {}]",
+                        command, group.events.size(), Thread.currentThread().getName());
+                List<RecordId> succeeded = new ArrayList<>(group.events.size());
+                for (String messageId : group.events.keySet()) {
+                    succeeded.add(RecordId.of(messageId));
+                }
+                return succeeded;
+            } catch (Exception e) {
+                log.warn("命令 [{}] 批量处理 {} 条消息失败，退回逐条处理: {}", command, group.events.size(), e.getMessage());
+            }
+        }
+
+        List<RecordId> succeeded = new ArrayList<>(group.events.size());
+        boolean buffered = handler instanceof BufferedStreamEventHandler;
+        for (Map.Entry<String, Map<String, String>> event : group.events.entrySet()) {
+            try {
+                handler.handle(event.getValue(), event.getKey(), stream);
+                if (!buffered) {
+                    succeeded.add(RecordId.of(event.getKey()));
+                }
+            } catch (Exception e) {
+                log.error("命令 [{}] 的处理器在处理消息 id {} 时失败 [线程: {}]: {}",
+                        command, event.getKey(), Thread.currentThread().getName(), e.getMessage(), e);
+                // 不ACK，消息留在PEL中等待重新认领，处理失败次数达到上限后移入死信
+                deadLetterService.recordFailure(event.getKey(), e);
+            }
+        }
+        return succeeded;
+    }
+
+    private void acknowledge(String stream, List<RecordId> recordIds) {
+        if (recordIds.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForStream().acknowledge(stream, consumerGroup, recordIds.toArray(new RecordId[0]));
+        } catch (Exception e) {
+            log.error("批量确认 {} 条消息失败: {}", recordIds.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 将StringRedisTemplate读取到的消息转换为字符串类型的消息
+     * @param record 原始消息
+     * @return 字段和值均为字符串的消息
+     */
+    public static MapRecord<String, String, String> toStringRecord(MapRecord<String, Object, Object> record) {
+        Map<String, String> value = new HashMap<>();
+        record.getValue().forEach((field, fieldValue) ->
+                value.put(String.valueOf(field), fieldValue == null ? null : String.valueOf(fieldValue)));
+        return StreamRecords.newRecord().in(record.getStream()).withId(record.getId()).ofMap(value);
+    }
+
+    /**
+     * 解码消息：紧凑编码的事件展开为每个属性一个字段，旧格式消息去掉值的引号
+     * 解码失败时只去掉引号，缺少command的消息会按无法处理的消息直接确认
+     * @param record 原始消息
+     * @return 字段已展开的消息
+     */
+    private MapRecord<String, String, String> decodeRecord(MapRecord<String, String, String> record) {
+        Map<String, String> eventData;
+        try {
+            eventData = StreamEventCodecs.toFields(record.getValue());
+        } catch (IllegalArgumentException e) {
+            log.error("消息 id {} 解码失败，无法处理: {}", record.getId(), e.getMessage());
+            eventData = new HashMap<>();
+        }
+        return StreamRecords.newRecord().in(record.getStream()).withId(record.getId()).ofMap(eventData);
+    }
+
+    /**
+     * 批次内连续的同一命令事件分组
+     */
+    private static class CommandGroup {
+
+        private final StreamEventHandler handler;
+
+        /**
+         * 消息ID -> 事件数据，保持消息顺序
+         */
+        private final Map<String, Map<String, String>> events = new LinkedHashMap<>();
+
+        /**
+         * 合并键 -> 当前保留的消息ID
+         */
+        private final Map<String, RecordId> latestByKey = new HashMap<>();
+
+        private CommandGroup(StreamEventHandler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * 加入一条事件
+         * @return 被本条事件覆盖的消息ID，没有覆盖时返回null
+         */
+        private RecordId add(RecordId recordId, Map<String, String> eventData) {
+            RecordId superseded = null;
+            if (handler instanceof BatchStreamEventHandler) {
+                String key = ((BatchStreamEventHandler) handler).coalesceKey(eventData);
+                if (key != null) {
+                    superseded = latestByKey.put(key, recordId);
+                    if (superseded != null) {
+                        events.remove(superseded.getValue());
+                    }
+                }
+            }
+            events.put(recordId.getValue(), eventData);
+            return superseded;
+        }
+    }
+
+    /**
+     * 消息是否已提交到本实例的处理通道且尚未处理完成
+     * 这类消息在PEL中的空闲时间可能很长（通道排队），但并没有卡住，回收任务不应认领
+     */
+    public boolean isInFlight(String messageId) {
+        return inFlightMessageIds.contains(messageId);
+    }
+
+    /**
+     * 已接收但尚未处理完成的消息数（含排队中的消息）
+     */
+    public int getInFlightCount() {
+        return inFlightMessageIds.size();
+    }
+
+    /**
+     * 各处理通道排队中的任务总数
+     */
+    public int getQueuedTaskCount() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queued += lane.getQueue().size();
+        }
+        return queued;
+    }
+
+    /**
+     * 获取处理通道状态信息，用于监控
+     * @return 处理通道状态信息
+     */
+    public String getThreadPoolStatus() {
+        if (lanes.isEmpty()) {
+            return "处理通道未初始化";
+        }
+
+        int activeLanes = 0;
+        long completedTasks = 0;
+        StringBuilder queueSizes = new StringBuilder();
+        for (ThreadPoolExecutor lane : lanes) {
+            activeLanes += lane.getActiveCount();
+            completedTasks += lane.getCompletedTaskCount();
+            if (queueSizes.length() > 0) {
+                queueSizes.append(',');
+            }
+            queueSizes.append(lane.getQueue().size());
+        }
+        return String.format("处理通道状态 - 通道数: %d, 活跃通道: %d, 各通道队列: [%s], 已完成任务: %d, 处理中消息: %d",
+                lanes.size(), activeLanes, queueSizes, completedTasks, inFlightMessageIds.size());
     }
-} 
\ No newline at end of file
+}
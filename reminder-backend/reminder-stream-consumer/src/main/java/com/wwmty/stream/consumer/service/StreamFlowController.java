@@ -0,0 +1,147 @@
+package com.wwmty.stream.consumer.service;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+/**
+ * Stream拉取流量控制器（基于信用额度）
+ *
+ * 拉取线程每次XREADGROUP前向本控制器申请额度，额度 = 最大处理中消息数 - 当前处理中消息数，
+ * 处理越忙能读取的消息越少。任一指标（处理中消息数、通道队列深度、数据库连接池平均等待时间）
+ * 达到上限时暂停拉取，所有指标回落到上限的 resume-ratio 以下后才恢复，避免在阈值附近反复抖动。
+ */
+@Slf4j
+@Component
+public class StreamFlowController {
+
+    /**
+     * 数据库连接池等待时间的采样间隔
+     */
+    private static final long DB_SAMPLE_INTERVAL_MILLIS = 1000;
+
+    @Value("${reminder.stream.flow.max-in-flight:200}")
+    private int maxInFlight;
+
+    @Value("${reminder.stream.flow.max-queue-depth:100}")
+    private int maxQueueDepth;
+
+    @Value("${reminder.stream.flow.max-db-wait-ms:200}")
+    private long maxDbWaitMillis;
+
+    @Value("${reminder.stream.flow.resume-ratio:0.5}")
+    private double resumeRatio;
+
+    /**
+     * 暂停期间重新检查指标的间隔
+     */
+    @Value("${reminder.stream.flow.pause-check-ms:200}")
+    private long pauseCheckMillis;
+
+    @Autowired
+    private StreamConsumerService streamConsumerService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private DruidDataSource druidDataSource;
+
+    private volatile boolean paused;
+
+    private long lastSampleAt;
+    private long lastWaitCount;
+    private long lastWaitMillis;
+    private volatile long dbWaitMillis;
+
+    @PostConstruct
+    public void init() {
+        if (dataSource instanceof DruidDataSource) {
+            druidDataSource = (DruidDataSource) dataSource;
+            lastWaitCount = druidDataSource.getNotEmptyWaitCount();
+            lastWaitMillis = druidDataSource.getNotEmptyWaitMillis();
+        } else {
+            log.warn("数据源不是DruidDataSource，流量控制不检查连接池等待时间");
+        }
+    }
+
+    /**
+     * 申请本次拉取的额度，暂停期间阻塞直到恢复
+     *
+     * @param maxCredits 本次最多读取的消息数
+     * @return 允许读取的消息数，大于0
+     * @throws InterruptedException 拉取线程停止时中断
+     */
+    public int awaitCredits(int maxCredits) throws InterruptedException {
+        while (true) {
+            int credits = availableCredits(maxCredits);
+            if (credits > 0) {
+                return credits;
+            }
+            Thread.sleep(pauseCheckMillis);
+        }
+    }
+
+    /**
+     * 计算当前可用额度，并根据指标更新暂停状态
+     */
+    private synchronized int availableCredits(int maxCredits) {
+        int inFlight = streamConsumerService.getInFlightCount();
+        int queueDepth = streamConsumerService.getQueuedTaskCount();
+        long dbWait = sampleDbWaitMillis();
+
+        if (!paused && (inFlight >= maxInFlight || queueDepth >= maxQueueDepth || dbWait >= maxDbWaitMillis)) {
+            paused = true;
+            log.warn("处理端饱和，暂停拉取Stream消息 - 处理中消息: {}/{}, 通道队列: {}/{}, 连接池平均等待: {}ms/{}ms",
+                    inFlight, maxInFlight, queueDepth, maxQueueDepth, dbWait, maxDbWaitMillis);
+        } else if (paused && inFlight <= maxInFlight * resumeRatio && queueDepth <= maxQueueDepth * resumeRatio
+                && dbWait <= maxDbWaitMillis * resumeRatio) {
+            paused = false;
+            log.info("处理端已恢复，继续拉取Stream消息 - 处理中消息: {}, 通道队列: {}, 连接池平均等待: {}ms",
+                    inFlight, queueDepth, dbWait);
+        }
+
+        if (paused) {
+            return 0;
+        }
+        return Math.max(0, Math.min(maxCredits, maxInFlight - inFlight));
+    }
+
+    /**
+     * 采样数据库连接池在最近一个采样间隔内获取连接的平均等待时间
+     */
+    private long sampleDbWaitMillis() {
+        if (druidDataSource == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSampleAt < DB_SAMPLE_INTERVAL_MILLIS) {
+            return dbWaitMillis;
+        }
+        long waitCount = druidDataSource.getNotEmptyWaitCount();
+        long waitMillis = druidDataSource.getNotEmptyWaitMillis();
+        long deltaCount = waitCount - lastWaitCount;
+        dbWaitMillis = deltaCount > 0 ? (waitMillis - lastWaitMillis) / deltaCount : 0;
+        lastWaitCount = waitCount;
+        lastWaitMillis = waitMillis;
+        lastSampleAt = now;
+        return dbWaitMillis;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * 获取流量控制状态，用于监控
+     */
+    public String getFlowStatus() {
+        return String.format("流量控制状态 - 暂停: %s, 处理中消息: %d/%d, 通道队列: %d/%d, 连接池平均等待: %dms/%dms",
+                paused, streamConsumerService.getInFlightCount(), maxInFlight,
+                streamConsumerService.getQueuedTaskCount(), maxQueueDepth, dbWaitMillis, maxDbWaitMillis);
+    }
+}